@@ -1,12 +1,19 @@
 package com.indeed.virgil.spring.boot.starter.config;
 
+import com.indeed.virgil.spring.boot.starter.config.VirgilPropertyConfig.FingerprintProperties;
 import com.indeed.virgil.spring.boot.starter.services.DefaultMessageConverter;
 import com.indeed.virgil.spring.boot.starter.services.IMessageConverter;
 import com.indeed.virgil.spring.boot.starter.services.MessageConverterService;
 import com.indeed.virgil.spring.boot.starter.services.MessageOperator;
+import com.indeed.virgil.spring.boot.starter.services.QueueDepthPoller;
 import com.indeed.virgil.spring.boot.starter.services.RabbitMqConnectionService;
 import com.indeed.virgil.spring.boot.starter.util.VirgilMessageUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -21,17 +28,38 @@ class VirgilConfig {
         this.virgilPropertyConfig = virgilPropertyConfig;
     }
 
-    @Bean
-    RabbitMqConnectionService rabbitMqConnectionService() {
-        return new RabbitMqConnectionService(virgilPropertyConfig);
+    @Bean(destroyMethod = "destroy")
+    RabbitMqConnectionService rabbitMqConnectionService(final ObjectProvider<MeterRegistry> meterRegistry) {
+        return new RabbitMqConnectionService(virgilPropertyConfig, meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
     }
 
-    @Bean
+    @Bean(destroyMethod = "destroy")
     MessageOperator messageOperator(
         final RabbitMqConnectionService rabbitMqConnectionService,
-        final MessageConverterService messageConverterService
+        final MessageConverterService messageConverterService,
+        final ObjectProvider<MeterRegistry> meterRegistry,
+        final ObjectProvider<ObservationRegistry> observationRegistry
+    ) {
+        return new MessageOperator(
+            virgilPropertyConfig,
+            rabbitMqConnectionService,
+            messageConverterService,
+            meterRegistry.getIfAvailable(() -> Metrics.globalRegistry),
+            observationRegistry.getIfAvailable(() -> ObservationRegistry.NOOP)
+        );
+    }
+
+    /**
+     * Only created with {@code virgil.depth-poller.enabled=true}. Gauges go to the global registry when the application has no
+     * MeterRegistry bean.
+     */
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    @ConditionalOnProperty(prefix = "virgil.depth-poller", name = "enabled", havingValue = "true")
+    QueueDepthPoller queueDepthPoller(
+        final RabbitMqConnectionService rabbitMqConnectionService,
+        final ObjectProvider<MeterRegistry> meterRegistry
     ) {
-        return new MessageOperator(virgilPropertyConfig, rabbitMqConnectionService, messageConverterService);
+        return new QueueDepthPoller(virgilPropertyConfig, rabbitMqConnectionService, meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
     }
 
     @Bean
@@ -49,6 +77,7 @@ class VirgilConfig {
 
     @Bean
     VirgilMessageUtils virgilMessageUtils() {
-        return new VirgilMessageUtils();
+        final FingerprintProperties fingerprint = virgilPropertyConfig.getFingerprint();
+        return new VirgilMessageUtils(fingerprint.getAlgorithm(), fingerprint.getEncoding());
     }
 }
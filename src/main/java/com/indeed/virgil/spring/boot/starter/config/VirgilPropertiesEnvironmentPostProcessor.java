@@ -15,6 +15,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
+import static com.indeed.virgil.spring.boot.starter.util.EndpointConstants.DOWNLOAD_DLQ_MESSAGE_ENDPOINT_ID;
 import static com.indeed.virgil.spring.boot.starter.util.EndpointConstants.DROP_ALL_MESSAGES_ENDPOINT_ID;
 import static com.indeed.virgil.spring.boot.starter.util.EndpointConstants.DROP_MESSAGE_ENDPOINT_ID;
 import static com.indeed.virgil.spring.boot.starter.util.EndpointConstants.ENDPOINT_DEFAULT_PATH_MAPPING;
@@ -22,6 +23,7 @@ import static com.indeed.virgil.spring.boot.starter.util.EndpointConstants.GET_D
 import static com.indeed.virgil.spring.boot.starter.util.EndpointConstants.GET_QUEUES_ENDPOINT_ID;
 import static com.indeed.virgil.spring.boot.starter.util.EndpointConstants.GET_QUEUE_SIZE_ENDPOINT_ID;
 import static com.indeed.virgil.spring.boot.starter.util.EndpointConstants.PUBLISH_MESSAGE_ENDPOINT_ID;
+import static com.indeed.virgil.spring.boot.starter.util.EndpointConstants.STREAM_DLQ_MESSAGES_ENDPOINT_ID;
 import static com.indeed.virgil.spring.boot.starter.util.EndpointConstants.VIRGIL_PATH_PREFIX;
 
 /**
@@ -46,7 +48,9 @@ public class VirgilPropertiesEnvironmentPostProcessor implements EnvironmentPost
         {PUBLISH_MESSAGE_ENDPOINT_ID, ENDPOINT_DEFAULT_PATH_MAPPING + PUBLISH_MESSAGE_ENDPOINT_ID},
         {DROP_MESSAGE_ENDPOINT_ID, ENDPOINT_DEFAULT_PATH_MAPPING + DROP_MESSAGE_ENDPOINT_ID},
         {DROP_ALL_MESSAGES_ENDPOINT_ID, ENDPOINT_DEFAULT_PATH_MAPPING + DROP_ALL_MESSAGES_ENDPOINT_ID},
-        {GET_QUEUES_ENDPOINT_ID, ENDPOINT_DEFAULT_PATH_MAPPING + GET_QUEUES_ENDPOINT_ID}
+        {GET_QUEUES_ENDPOINT_ID, ENDPOINT_DEFAULT_PATH_MAPPING + GET_QUEUES_ENDPOINT_ID},
+        {STREAM_DLQ_MESSAGES_ENDPOINT_ID, ENDPOINT_DEFAULT_PATH_MAPPING + STREAM_DLQ_MESSAGES_ENDPOINT_ID},
+        {DOWNLOAD_DLQ_MESSAGE_ENDPOINT_ID, ENDPOINT_DEFAULT_PATH_MAPPING + DOWNLOAD_DLQ_MESSAGE_ENDPOINT_ID}
     };
 
     private static final String VIRGIL_EXTENSION_RESOURCE_LOCATION = "classpath:META-INF/extensions/custom/";
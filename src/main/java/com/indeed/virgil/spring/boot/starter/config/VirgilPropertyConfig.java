@@ -1,5 +1,8 @@
 package com.indeed.virgil.spring.boot.starter.config;
 
+import com.indeed.virgil.spring.boot.starter.util.BodyPreviewDecoder;
+import com.indeed.virgil.spring.boot.starter.util.FingerprintAlgorithm;
+import com.indeed.virgil.spring.boot.starter.util.FingerprintEncoding;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.amqp.RabbitProperties;
@@ -7,8 +10,10 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.bind.ConstructorBinding;
 import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
 import org.springframework.validation.annotation.Validated;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -24,13 +29,33 @@ public class VirgilPropertyConfig {
 
     private final Map<String, BinderProperties> binders;
 
+    private final FingerprintProperties fingerprint;
+
+    private final ScanLeaseProperties scanLease;
+
+    private final DepthPollerProperties depthPoller;
+
+    public VirgilPropertyConfig(
+        final Map<String, QueueProperties> queues,
+        final Map<String, BinderProperties> binders,
+        @Nullable final FingerprintProperties fingerprint
+    ) {
+        this(queues, binders, fingerprint, null, null);
+    }
+
     @ConstructorBinding
     public VirgilPropertyConfig(
         final Map<String, QueueProperties> queues,
-        final Map<String, BinderProperties> binders
+        final Map<String, BinderProperties> binders,
+        @Nullable final FingerprintProperties fingerprint,
+        @Nullable final ScanLeaseProperties scanLease,
+        @Nullable final DepthPollerProperties depthPoller
     ) {
         this.queues = queues;
         this.binders = binders;
+        this.fingerprint = fingerprint != null ? fingerprint : new FingerprintProperties(null, null);
+        this.scanLease = scanLease != null ? scanLease : new ScanLeaseProperties(null, null, null);
+        this.depthPoller = depthPoller != null ? depthPoller : new DepthPollerProperties(null, null, null);
     }
 
     public Map<String, QueueProperties> getQueues() {
@@ -41,6 +66,18 @@ public class VirgilPropertyConfig {
         return binders;
     }
 
+    public FingerprintProperties getFingerprint() {
+        return fingerprint;
+    }
+
+    public ScanLeaseProperties getScanLease() {
+        return scanLease;
+    }
+
+    public DepthPollerProperties getDepthPoller() {
+        return depthPoller;
+    }
+
     @Nullable
     public QueueProperties getQueueProperties(final String name) {
         final QueueProperties queueProperties = getQueues().getOrDefault(name, null);
@@ -50,7 +87,9 @@ public class VirgilPropertyConfig {
                 queueProperties.setReadBinderProperties(readBinderProperties);
             }
 
-            final BinderProperties republishBinderProperties = getBinderProperties(queueProperties.getReadBinderName());
+            final BinderProperties republishBinderProperties = queueProperties.getRepublishBinderName() == null
+                ? null
+                : getBinderProperties(queueProperties.getRepublishBinderName());
             if (republishBinderProperties != null) {
                 queueProperties.setRepublishBinderProperties(republishBinderProperties);
             }
@@ -78,7 +117,27 @@ public class VirgilPropertyConfig {
         return new ArrayList<>(getQueues().keySet());
     }
 
+    /**
+     * Strategy used to pull messages off of the read queue
+     */
+    public enum ReadMode {
+        /**
+         * One synchronous basicGet round trip per message
+         */
+        BASIC_GET,
+        /**
+         * basicConsume with a prefetch window, messages are pushed by the broker in batches
+         */
+        CONSUMER
+    }
+
     public static final class QueueProperties {
+        private static final int DEFAULT_PREFETCH_COUNT = 250;
+        private static final DataSize DEFAULT_MAX_SCAN_BYTES = DataSize.ofMegabytes(64);
+        private static final Duration DEFAULT_BROWSE_SESSION_TTL = Duration.ofMinutes(5);
+        private static final Duration DEFAULT_QUEUE_SIZE_TTL = Duration.ofSeconds(5);
+        private static final Duration DEFAULT_STREAM_IDLE_TIMEOUT = Duration.ofSeconds(30);
+
         private String readName;
         private String readBinderName;
         private BinderProperties readBinderProperties;
@@ -86,8 +145,21 @@ public class VirgilPropertyConfig {
         private String republishBindingRoutingKey = "#";
         private String republishBinderName;
         private BinderProperties republishBinderProperties;
+        @Nullable
+        private ReadMode readMode;
+        @Nullable
+        private Integer prefetchCount;
+        @Nullable
+        private DataSize maxScanBytes;
+        @Nullable
+        private Integer previewLength;
+        @Nullable
+        private Duration browseSessionTtl;
+        @Nullable
+        private Duration queueSizeTtl;
+        @Nullable
+        private Duration streamIdleTimeout;
 
-        @ConstructorBinding
         public QueueProperties(
             final String readName,
             final String readBinderName,
@@ -96,6 +168,27 @@ public class VirgilPropertyConfig {
             final String republishBindingRoutingKey,
             final String republishBinderName,
             final BinderProperties republishBinderProperties
+        ) {
+            this(readName, readBinderName, readBinderProperties, republishName, republishBindingRoutingKey, republishBinderName,
+                republishBinderProperties, null, null, null, null, null, null, null);
+        }
+
+        @ConstructorBinding
+        public QueueProperties(
+            final String readName,
+            final String readBinderName,
+            final BinderProperties readBinderProperties,
+            final String republishName,
+            final String republishBindingRoutingKey,
+            final String republishBinderName,
+            final BinderProperties republishBinderProperties,
+            @Nullable final ReadMode readMode,
+            @Nullable final Integer prefetchCount,
+            @Nullable final DataSize maxScanBytes,
+            @Nullable final Integer previewLength,
+            @Nullable final Duration browseSessionTtl,
+            @Nullable final Duration queueSizeTtl,
+            @Nullable final Duration streamIdleTimeout
         ) {
             this.readName = readName;
             this.readBinderName = readBinderName;
@@ -104,6 +197,13 @@ public class VirgilPropertyConfig {
             this.republishBindingRoutingKey = republishBindingRoutingKey;
             this.republishBinderName = republishBinderName;
             this.republishBinderProperties = republishBinderProperties;
+            this.readMode = readMode;
+            this.prefetchCount = prefetchCount;
+            this.maxScanBytes = maxScanBytes;
+            this.previewLength = previewLength;
+            this.browseSessionTtl = browseSessionTtl;
+            this.queueSizeTtl = queueSizeTtl;
+            this.streamIdleTimeout = streamIdleTimeout;
         }
 
         public String getReadName() {
@@ -138,8 +238,96 @@ public class VirgilPropertyConfig {
             return republishBinderProperties;
         }
 
-        protected void setRepublishBinderProperties(final BinderProperties readBinderProperties) {
-            this.readBinderProperties = readBinderProperties;
+        protected void setRepublishBinderProperties(final BinderProperties republishBinderProperties) {
+            this.republishBinderProperties = republishBinderProperties;
+        }
+
+        /**
+         * Binder messages are republished through, the read binder is used when no republish binder is configured
+         *
+         * @return binderName
+         */
+        public String getPublishBinderName() {
+            return republishBinderName != null ? republishBinderName : readBinderName;
+        }
+
+        /**
+         * Properties of {@link #getPublishBinderName()}, the name of the binder is the exchange messages are republished to
+         *
+         * @return BinderProperties
+         */
+        public BinderProperties getPublishBinderProperties() {
+            return republishBinderName != null && republishBinderProperties != null ? republishBinderProperties : readBinderProperties;
+        }
+
+        /**
+         * Defaults to {@link ReadMode#BASIC_GET} when not configured
+         *
+         * @return ReadMode
+         */
+        public ReadMode getReadMode() {
+            return readMode != null ? readMode : ReadMode.BASIC_GET;
+        }
+
+        /**
+         * Number of messages the broker is allowed to push per batch when reading in {@link ReadMode#CONSUMER} mode
+         *
+         * @return prefetchCount
+         */
+        public int getPrefetchCount() {
+            return prefetchCount != null && prefetchCount > 0 ? prefetchCount : DEFAULT_PREFETCH_COUNT;
+        }
+
+        /**
+         * Total size of the message bodies a single read of the queue converts before it stops and returns what it has so far, defaults
+         * to 64MB
+         *
+         * @return maxScanBytes
+         */
+        public long getMaxScanBytes() {
+            return maxScanBytes != null && maxScanBytes.toBytes() > 0 ? maxScanBytes.toBytes() : DEFAULT_MAX_SCAN_BYTES.toBytes();
+        }
+
+        /**
+         * Max number of chars of the body shown for each message, defaults to {@link BodyPreviewDecoder#DEFAULT_PREVIEW_LENGTH}
+         *
+         * @return previewLength
+         */
+        public int getPreviewLength() {
+            return previewLength != null && previewLength > 0 ? previewLength : BodyPreviewDecoder.DEFAULT_PREVIEW_LENGTH;
+        }
+
+        /**
+         * How long a browse session keeps the messages it read held on its channel before they are requeued, defaults to 5 minutes
+         *
+         * @return browseSessionTtl
+         */
+        public Duration getBrowseSessionTtl() {
+            return browseSessionTtl != null && !browseSessionTtl.isNegative() && !browseSessionTtl.isZero()
+                ? browseSessionTtl
+                : DEFAULT_BROWSE_SESSION_TTL;
+        }
+
+        /**
+         * How long a size observed for the queue is served before the queue is declared again, defaults to 5 seconds. Zero always
+         * declares the queue.
+         *
+         * @return queueSizeTtl
+         */
+        public Duration getQueueSizeTtl() {
+            return queueSizeTtl != null && !queueSizeTtl.isNegative() ? queueSizeTtl : DEFAULT_QUEUE_SIZE_TTL;
+        }
+
+        /**
+         * How long a stream is kept open while its client reads nothing, after which it is closed and the messages it read go back on the
+         * queue, defaults to 30 seconds
+         *
+         * @return streamIdleTimeout
+         */
+        public Duration getStreamIdleTimeout() {
+            return streamIdleTimeout != null && !streamIdleTimeout.isNegative() && !streamIdleTimeout.isZero()
+                ? streamIdleTimeout
+                : DEFAULT_STREAM_IDLE_TIMEOUT;
         }
     }
 
@@ -171,4 +359,143 @@ public class VirgilPropertyConfig {
             return rabbitProperties;
         }
     }
+
+    public static final class FingerprintProperties {
+        @Nullable
+        private final FingerprintAlgorithm algorithm;
+        @Nullable
+        private final FingerprintEncoding encoding;
+
+        @ConstructorBinding
+        public FingerprintProperties(
+            @Nullable final FingerprintAlgorithm algorithm,
+            @Nullable final FingerprintEncoding encoding
+        ) {
+            this.algorithm = algorithm;
+            this.encoding = encoding;
+        }
+
+        /**
+         * Defaults to {@link FingerprintAlgorithm#MD5} when not configured
+         *
+         * @return FingerprintAlgorithm
+         */
+        public FingerprintAlgorithm getAlgorithm() {
+            return algorithm != null ? algorithm : FingerprintAlgorithm.MD5;
+        }
+
+        /**
+         * Defaults to {@link FingerprintEncoding#V1} when not configured, so existing ids keep resolving
+         *
+         * @return FingerprintEncoding
+         */
+        public FingerprintEncoding getEncoding() {
+            return encoding != null ? encoding : FingerprintEncoding.V1;
+        }
+    }
+
+    public static final class ScanLeaseProperties {
+        private static final Duration DEFAULT_WAIT_TIMEOUT = Duration.ofSeconds(10);
+        private static final String DEFAULT_QUEUE_PREFIX = "virgil.lease.";
+
+        @Nullable
+        private final Boolean distributed;
+        @Nullable
+        private final Duration waitTimeout;
+        @Nullable
+        private final String queuePrefix;
+
+        @ConstructorBinding
+        public ScanLeaseProperties(
+            @Nullable final Boolean distributed,
+            @Nullable final Duration waitTimeout,
+            @Nullable final String queuePrefix
+        ) {
+            this.distributed = distributed;
+            this.waitTimeout = waitTimeout;
+            this.queuePrefix = queuePrefix;
+        }
+
+        /**
+         * Whether scans also take a lease shared by every instance reading from the same broker, held as an exclusive lock queue on the
+         * read binder. Disabled when not configured, scans are then only serialized within this instance.
+         *
+         * @return distributed
+         */
+        public boolean isDistributed() {
+            return Boolean.TRUE.equals(distributed);
+        }
+
+        /**
+         * How long a scan waits for the lease of its queue before giving up as busy, defaults to 10 seconds
+         *
+         * @return waitTimeout
+         */
+        public Duration getWaitTimeout() {
+            return waitTimeout != null && !waitTimeout.isNegative() ? waitTimeout : DEFAULT_WAIT_TIMEOUT;
+        }
+
+        /**
+         * Prefix of the lock queue declared for each queue, followed by the read name of the queue, defaults to {@code virgil.lease.}
+         *
+         * @return queuePrefix
+         */
+        public String getQueuePrefix() {
+            return queuePrefix != null && !queuePrefix.isBlank() ? queuePrefix : DEFAULT_QUEUE_PREFIX;
+        }
+    }
+
+    public static final class DepthPollerProperties {
+        private static final Duration DEFAULT_INTERVAL = Duration.ofSeconds(30);
+        private static final Duration DEFAULT_JITTER = Duration.ofSeconds(5);
+
+        @Nullable
+        private final Boolean enabled;
+        @Nullable
+        private final Duration interval;
+        @Nullable
+        private final Duration jitter;
+
+        @ConstructorBinding
+        public DepthPollerProperties(
+            @Nullable final Boolean enabled,
+            @Nullable final Duration interval,
+            @Nullable final Duration jitter
+        ) {
+            this.enabled = enabled;
+            this.interval = interval;
+            this.jitter = jitter;
+        }
+
+        /**
+         * Whether the depth of every queue is sampled in the background and published as the {@code virgil.dlq.depth} gauge. Disabled when
+         * not configured.
+         *
+         * @return enabled
+         */
+        public boolean isEnabled() {
+            return Boolean.TRUE.equals(enabled);
+        }
+
+        /**
+         * Time between two samples of the same queue, defaults to 30 seconds
+         *
+         * @return interval
+         */
+        public Duration getInterval() {
+            return interval != null && !interval.isNegative() && !interval.isZero() ? interval : DEFAULT_INTERVAL;
+        }
+
+        /**
+         * Max amount of time each sample is moved forward or back by, so that queues and instances do not all hit the broker at once,
+         * defaults to 5 seconds and never exceeds half of the interval
+         *
+         * @return jitter
+         */
+        public Duration getJitter() {
+            final Duration configured = jitter != null && !jitter.isNegative() ? jitter : DEFAULT_JITTER;
+            final Duration halfInterval = getInterval().dividedBy(2);
+            return configured.compareTo(halfInterval) > 0 ? halfInterval : configured;
+        }
+    }
 }
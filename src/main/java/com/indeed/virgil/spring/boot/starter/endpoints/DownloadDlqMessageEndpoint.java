@@ -0,0 +1,104 @@
+package com.indeed.virgil.spring.boot.starter.endpoints;
+
+import com.indeed.virgil.spring.boot.starter.services.MessageOperator;
+import com.indeed.virgil.spring.boot.starter.services.QueueBusyException;
+import com.indeed.virgil.spring.boot.starter.util.ContentEncoding;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.InvalidMimeTypeException;
+import org.springframework.util.MimeType;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+
+import static com.indeed.virgil.spring.boot.starter.util.EndpointConstants.DOWNLOAD_DLQ_MESSAGE_ENDPOINT_ID;
+import static com.indeed.virgil.spring.boot.starter.util.EndpointConstants.ENDPOINT_DEFAULT_PATH_MAPPING;
+
+/**
+ * Returns the whole body of a single message, rather than the preview {@link GetDlqMessagesEndpoint} shows. The message is left on the
+ * queue.
+ */
+@Component
+@Endpoint(id = DOWNLOAD_DLQ_MESSAGE_ENDPOINT_ID)
+public final class DownloadDlqMessageEndpoint implements IVirgilEndpoint {
+    private static final Logger LOG = LoggerFactory.getLogger(DownloadDlqMessageEndpoint.class);
+
+    static final MimeType DEFAULT_CONTENT_TYPE = MimeType.valueOf("application/octet-stream");
+
+    private final MessageOperator messageOperator;
+
+    public DownloadDlqMessageEndpoint(
+        final MessageOperator messageOperator
+    ) {
+        this.messageOperator = messageOperator;
+    }
+
+    /**
+     * The body is written as it was delivered, with the content type of the message. With {@code decompress}, a gzip or deflate body is
+     * inflated while it is written out. Answers 503 when the lease of the queue could not be acquired in time.
+     *
+     * @param queueId Queue Property Key, this is not the actual name of the queue
+     * @param messageId Virgil id of the message
+     * @param decompress Inflate the body according to the content-encoding of the message
+     * @return
+     */
+    @ReadOperation(produces = "*/*")
+    public WebEndpointResponse<Resource> index(final String queueId, final String messageId, @Nullable final Boolean decompress) {
+        final Message message;
+        try {
+            message = messageOperator.findMessage(queueId, messageId);
+        } catch (final QueueBusyException ex) {
+            LOG.info("Queue is busy. [QueueId: {}, MessageId: {}]", queueId, messageId);
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_SERVICE_UNAVAILABLE);
+        }
+        if (message == null) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+
+        final ContentEncoding contentEncoding = ContentEncoding.fromValue(message.getMessageProperties().getContentEncoding());
+        final Resource resource;
+        if (Boolean.TRUE.equals(decompress) && contentEncoding != ContentEncoding.IDENTITY) {
+            try {
+                // plain InputStreamResource so the content length is never computed, which would inflate the whole body up front
+                resource = new InputStreamResource(contentEncoding.openStream(message.getBody()));
+            } catch (final IOException ex) {
+                LOG.warn("Unable to decompress message body. [QueueId: {}, MessageId: {}]", queueId, messageId, ex);
+                return new WebEndpointResponse<>(WebEndpointResponse.STATUS_BAD_REQUEST);
+            }
+        } else {
+            resource = new ByteArrayResource(message.getBody());
+        }
+
+        return new WebEndpointResponse<>(resource, WebEndpointResponse.STATUS_OK, getContentType(message));
+    }
+
+    private static MimeType getContentType(final Message message) {
+        final String contentType = message.getMessageProperties().getContentType();
+        if (!StringUtils.hasText(contentType)) {
+            return DEFAULT_CONTENT_TYPE;
+        }
+
+        try {
+            return MimeType.valueOf(contentType);
+        } catch (final InvalidMimeTypeException ex) {
+            return DEFAULT_CONTENT_TYPE;
+        }
+    }
+
+    public static String getEndpointId() {
+        return DOWNLOAD_DLQ_MESSAGE_ENDPOINT_ID;
+    }
+
+    public static String getEndpointPath() {
+        return ENDPOINT_DEFAULT_PATH_MAPPING + getEndpointId();
+    }
+}
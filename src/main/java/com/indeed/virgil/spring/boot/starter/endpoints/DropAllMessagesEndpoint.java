@@ -3,10 +3,12 @@ package com.indeed.virgil.spring.boot.starter.endpoints;
 import com.indeed.virgil.spring.boot.starter.models.EndpointResponse;
 import com.indeed.virgil.spring.boot.starter.models.ImmutableEndpointResponse;
 import com.indeed.virgil.spring.boot.starter.services.MessageOperator;
+import com.indeed.virgil.spring.boot.starter.services.QueueBusyException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
 import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Component;
 
 import java.io.Serializable;
@@ -28,11 +30,25 @@ public final class DropAllMessagesEndpoint implements IVirgilEndpoint {
         this.messageOperator = messageOperator;
     }
 
+    /**
+     * Drops every message of the queue
+     *
+     * @param queueId Queue Property Key, this is not the actual name of the queue
+     * @param stats Add the statistics of the operation to the response
+     * @return {@code QUEUE_BUSY} error when the lease of the queue could not be acquired in time
+     */
     @WriteOperation
-    public EndpointResponse<Serializable> index(final String queueId) {
-        return ImmutableEndpointResponse.builder()
-            .setData(messageOperator.dropMessages(queueId) ? "Success!" : "Failure")
-            .build();
+    public EndpointResponse<Serializable> index(final String queueId, @Nullable final Boolean stats) {
+        return EndpointResponses.withStats(messageOperator, stats, () -> {
+            try {
+                return ImmutableEndpointResponse.builder()
+                    .setData(messageOperator.dropMessages(queueId) ? "Success!" : "Failure")
+                    .build();
+            } catch (final QueueBusyException ex) {
+                LOG.info("Queue is busy. QueueId: {}", queueId);
+                return EndpointResponses.queueBusy(ex);
+            }
+        });
     }
 
     public static String getEndpointId() {
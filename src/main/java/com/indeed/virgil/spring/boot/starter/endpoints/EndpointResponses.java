@@ -0,0 +1,64 @@
+package com.indeed.virgil.spring.boot.starter.endpoints;
+
+import com.indeed.virgil.spring.boot.starter.models.EndpointResponse;
+import com.indeed.virgil.spring.boot.starter.models.ImmutableEndpointResponse;
+import com.indeed.virgil.spring.boot.starter.models.ImmutableEndpointResponseError;
+import com.indeed.virgil.spring.boot.starter.models.OperationStats;
+import com.indeed.virgil.spring.boot.starter.services.MessageOperator;
+import com.indeed.virgil.spring.boot.starter.services.QueueBusyException;
+import org.springframework.lang.Nullable;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static com.indeed.virgil.spring.boot.starter.util.EndpointConstants.QUEUE_BUSY_ERROR_CODE;
+
+/**
+ * Responses shared by the endpoints that scan a queue
+ */
+final class EndpointResponses {
+
+    private EndpointResponses() {
+    }
+
+    /**
+     * @param ex Raised when the lease of the queue could not be acquired in time
+     * @return Failure carrying a {@code QUEUE_BUSY} error, the operation can be retried once the scan holding the lease is over
+     */
+    static EndpointResponse<Serializable> queueBusy(final QueueBusyException ex) {
+        return ImmutableEndpointResponse.builder()
+            .setData("failure")
+            .addErrors(ImmutableEndpointResponseError.builder()
+                .setCode(QUEUE_BUSY_ERROR_CODE)
+                .setMessage(ex.getMessage())
+                .build())
+            .build();
+    }
+
+    /**
+     * Builds the response, adding the statistics of the operation behind it when they are asked for
+     *
+     * @param messageOperator Operator the response is built with
+     * @param stats Whether to add the statistics, off unless true
+     * @param response Builds the response, calling a single operation of the operator
+     * @return Response, with its stats set if they were asked for and an operation ran
+     */
+    static EndpointResponse<Serializable> withStats(
+        final MessageOperator messageOperator,
+        @Nullable final Boolean stats,
+        final Supplier<EndpointResponse<Serializable>> response
+    ) {
+        if (!Boolean.TRUE.equals(stats)) {
+            return response.get();
+        }
+
+        final AtomicReference<OperationStats> operationStats = new AtomicReference<>();
+        final EndpointResponse<Serializable> endpointResponse = messageOperator.collectStats(response, operationStats::set);
+        if (operationStats.get() == null) {
+            return endpointResponse;
+        }
+
+        return ImmutableEndpointResponse.copyOf(endpointResponse).withStats(operationStats.get());
+    }
+}
@@ -1,11 +1,16 @@
 package com.indeed.virgil.spring.boot.starter.endpoints;
 
+import com.indeed.virgil.spring.boot.starter.models.DlqMessagePage;
 import com.indeed.virgil.spring.boot.starter.models.EndpointResponse;
 import com.indeed.virgil.spring.boot.starter.models.ImmutableEndpointResponse;
+import com.indeed.virgil.spring.boot.starter.models.ImmutableEndpointResponseError;
 import com.indeed.virgil.spring.boot.starter.models.VirgilMessage;
 import com.indeed.virgil.spring.boot.starter.services.MessageOperator;
+import com.indeed.virgil.spring.boot.starter.services.QueueBusyException;
+import com.indeed.virgil.spring.boot.starter.util.MessagePageCursor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
 import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
 import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
 import org.springframework.stereotype.Component;
@@ -22,6 +27,10 @@ import static com.indeed.virgil.spring.boot.starter.util.EndpointConstants.GET_D
 public final class GetDlqMessagesEndpoint implements IVirgilEndpoint {
     private static final Logger LOG = LoggerFactory.getLogger(GetDlqMessagesEndpoint.class);
 
+    static final String INVALID_CURSOR_ERROR_CODE = "INVALID_CURSOR";
+    static final String QUEUE_UNAVAILABLE_ERROR_CODE = "QUEUE_UNAVAILABLE";
+    static final String SCAN_TRUNCATED_ERROR_CODE = "SCAN_TRUNCATED";
+
     private final MessageOperator messageOperator;
 
     public GetDlqMessagesEndpoint(
@@ -30,12 +39,116 @@ public final class GetDlqMessagesEndpoint implements IVirgilEndpoint {
         this.messageOperator = messageOperator;
     }
 
+    /**
+     * Returns the first {@code limit} messages, or a single page when any of {@code offset}, {@code pageSize} or {@code cursor} is passed in.
+     * A list cut short by the max-scan-bytes of the queue comes back with a {@code SCAN_TRUNCATED} error next to the messages. With
+     * {@code browse}, the messages are returned as a page holding the token of a browse session that keeps them held for follow-up drops and
+     * republishes. A queue whose lease could not be acquired in time comes back with a {@code QUEUE_BUSY} error.
+     *
+     * @param queueId Queue Property Key, this is not the actual name of the queue
+     * @param limit Max number of messages to return when not paging
+     * @param offset Number of messages to skip before the page
+     * @param pageSize Max number of messages in the page
+     * @param cursor Value of nextCursor from the previous page, takes precedence over offset
+     * @param browse Open a browse session over the first {@code limit} messages
+     * @param stats Add the statistics of the operation to the response
+     * @return
+     */
     @ReadOperation
-    public EndpointResponse<Serializable> index(final String queueId, @Nullable final Integer limit) {
-        final ArrayList<VirgilMessage> result = new ArrayList<>(messageOperator.getMessages(queueId, limit));
+    public EndpointResponse<Serializable> index(
+        final String queueId,
+        @Nullable final Integer limit,
+        @Nullable final Integer offset,
+        @Nullable final Integer pageSize,
+        @Nullable final String cursor,
+        @Nullable final Boolean browse,
+        @Nullable final Boolean stats
+    ) {
+        return EndpointResponses.withStats(messageOperator, stats, () -> {
+            try {
+                return readMessages(queueId, limit, offset, pageSize, cursor, browse);
+            } catch (final QueueBusyException ex) {
+                LOG.info("Queue is busy. QueueId: {}", queueId);
+                return EndpointResponses.queueBusy(ex);
+            }
+        });
+    }
+
+    private EndpointResponse<Serializable> readMessages(
+        final String queueId,
+        @Nullable final Integer limit,
+        @Nullable final Integer offset,
+        @Nullable final Integer pageSize,
+        @Nullable final String cursor,
+        @Nullable final Boolean browse
+    ) {
+        if (Boolean.TRUE.equals(browse)) {
+            final DlqMessagePage page = messageOperator.openBrowseSession(queueId, limit);
+            if (page == null) {
+                return failure(QUEUE_UNAVAILABLE_ERROR_CODE, "Unable to read queue " + queueId);
+            }
+
+            return ImmutableEndpointResponse.builder()
+                .setData(page)
+                .build();
+        }
+
+        if (offset == null && pageSize == null && cursor == null) {
+            final DlqMessagePage messageList = messageOperator.getMessageList(queueId, limit);
+            final ArrayList<VirgilMessage> result = messageList == null ? new ArrayList<>() : new ArrayList<>(messageList.getMessages());
+
+            final ImmutableEndpointResponse.Builder<Serializable> responseBuilder = ImmutableEndpointResponse.<Serializable>builder()
+                .setData(result);
+            if (messageList != null && messageList.isTruncated()) {
+                responseBuilder.addErrors(ImmutableEndpointResponseError.builder()
+                    .setCode(SCAN_TRUNCATED_ERROR_CODE)
+                    .setMessage("Stopped after " + result.size() + " messages, max-scan-bytes of queue " + queueId + " was reached")
+                    .build());
+            }
+
+            return responseBuilder.build();
+        }
+
+        MessagePageCursor messagePageCursor = null;
+        if (cursor != null) {
+            messagePageCursor = MessagePageCursor.decode(cursor);
+            if (messagePageCursor == null) {
+                LOG.warn("Invalid cursor. QueueId: {}", queueId);
+                return failure(INVALID_CURSOR_ERROR_CODE, "Cursor is malformed, restart from the head of the queue");
+            }
+        }
+
+        final DlqMessagePage page = messageOperator.getMessagePage(queueId, offset, pageSize, messagePageCursor);
+        if (page == null) {
+            return failure(QUEUE_UNAVAILABLE_ERROR_CODE, "Unable to read queue " + queueId);
+        }
+
+        return ImmutableEndpointResponse.builder()
+            .setData(page)
+            .build();
+    }
+
+    /**
+     * Closes a browse session, putting the messages it still holds back on the queue
+     *
+     * @param queueId Queue Property Key, this is not the actual name of the queue
+     * @param sessionToken Value of sessionToken from the page the session was opened with
+     * @return
+     */
+    @DeleteOperation
+    public EndpointResponse<Serializable> closeSession(final String queueId, final String sessionToken) {
+        return ImmutableEndpointResponse.builder()
+            .setData(messageOperator.closeBrowseSession(queueId, sessionToken) ? "success" : "failure")
+            .build();
+    }
 
+    private static EndpointResponse<Serializable> failure(final String code, final String message) {
         return ImmutableEndpointResponse.builder()
-            .setData(result)
+            .setData("failure")
+            .addErrors(ImmutableEndpointResponseError.builder()
+                .setCode(code)
+                .setMessage(message)
+                .build())
             .build();
     }
 
@@ -8,6 +8,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
 import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
 import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Component;
 
 import java.io.Serializable;
@@ -27,11 +28,18 @@ public final class GetQueueSizeEndpoint implements IVirgilEndpoint {
         this.messageOperator = messageOperator;
     }
 
+    /**
+     * Returns the size of the queue
+     *
+     * @param queueId Queue Property Key, this is not the actual name of the queue
+     * @param stats Add the statistics of the operation to the response
+     * @return
+     */
     @ReadOperation
-    public EndpointResponse<Serializable> index(@Selector final String queueId) {
-        return ImmutableEndpointResponse.builder()
+    public EndpointResponse<Serializable> index(@Selector final String queueId, @Nullable final Boolean stats) {
+        return EndpointResponses.withStats(messageOperator, stats, () -> ImmutableEndpointResponse.builder()
             .setData(messageOperator.getQueueSize(queueId))
-            .build();
+            .build());
     }
 
     public static String getEndpointId() {
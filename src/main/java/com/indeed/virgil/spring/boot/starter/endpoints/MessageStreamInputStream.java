@@ -0,0 +1,100 @@
+package com.indeed.virgil.spring.boot.starter.endpoints;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.indeed.virgil.spring.boot.starter.endpoints.StreamDlqMessagesEndpoint.StreamFormat;
+import com.indeed.virgil.spring.boot.starter.models.VirgilMessage;
+import com.indeed.virgil.spring.boot.starter.services.MessageStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Serializes a {@link MessageStream} on demand, pulling the next message only once the previous one has been fully read. Closing the input
+ * stream closes the message stream, which is how a client disconnect stops the read.
+ */
+final class MessageStreamInputStream extends InputStream {
+
+    private static final byte[] NEWLINE = "\n".getBytes(UTF_8);
+    private static final byte[] SSE_ID = "id: ".getBytes(UTF_8);
+    private static final byte[] SSE_DATA = "data: ".getBytes(UTF_8);
+
+    private final MessageStream messageStream;
+    private final StreamFormat streamFormat;
+    private final ObjectMapper objectMapper;
+    private final ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+
+    private byte[] buffer = new byte[0];
+    private int position;
+
+    MessageStreamInputStream(final MessageStream messageStream, final StreamFormat streamFormat, final ObjectMapper objectMapper) {
+        this.messageStream = messageStream;
+        this.streamFormat = streamFormat;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+
+        final int count = Math.min(length, buffer.length - position);
+        System.arraycopy(buffer, position, bytes, offset, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        messageStream.close();
+    }
+
+    /**
+     * @return false once the message stream is exhausted
+     */
+    private boolean fill() throws IOException {
+        while (position >= buffer.length) {
+            final VirgilMessage message = messageStream.next();
+            if (message == null) {
+                return false;
+            }
+
+            buffer = encode(message);
+            position = 0;
+        }
+        return true;
+    }
+
+    private byte[] encode(final VirgilMessage message) throws IOException {
+        encoded.reset();
+
+        if (streamFormat == StreamFormat.SSE) {
+            encoded.write(SSE_ID);
+            encoded.write(message.getId().getBytes(UTF_8));
+            encoded.write(NEWLINE);
+            encoded.write(SSE_DATA);
+            encoded.write(objectMapper.writeValueAsBytes(message));
+            encoded.write(NEWLINE);
+            encoded.write(NEWLINE);
+        } else {
+            encoded.write(objectMapper.writeValueAsBytes(message));
+            encoded.write(NEWLINE);
+        }
+
+        return encoded.toByteArray();
+    }
+}
@@ -1,16 +1,22 @@
 package com.indeed.virgil.spring.boot.starter.endpoints;
 
+import com.indeed.virgil.spring.boot.starter.models.BulkRepublishMessageResponse;
 import com.indeed.virgil.spring.boot.starter.models.EndpointResponse;
 import com.indeed.virgil.spring.boot.starter.models.ImmutableEndpointResponse;
 import com.indeed.virgil.spring.boot.starter.models.RepublishMessageResponse;
 import com.indeed.virgil.spring.boot.starter.services.MessageOperator;
+import com.indeed.virgil.spring.boot.starter.services.QueueBusyException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
 import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 
 import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
 
 import static com.indeed.virgil.spring.boot.starter.util.EndpointConstants.ENDPOINT_DEFAULT_PATH_MAPPING;
 import static com.indeed.virgil.spring.boot.starter.util.EndpointConstants.PUBLISH_MESSAGE_ENDPOINT_ID;
@@ -26,8 +32,57 @@ class PublishMessageEndpoint implements IVirgilEndpoint {
         this.messageOperator = messageOperator;
     }
 
+    /**
+     * Republishes a single message, or every message in {@code messageIds} in one pass over the queue when it is passed in
+     *
+     * @param queueId Queue Property Key, this is not the actual name of the queue
+     * @param messageId Id of a single message to republish
+     * @param messageIds Ids of the messages to republish, takes precedence over messageId
+     * @param sessionToken Token of a browse session holding the messages, acts on them without scanning the queue
+     * @param stats Add the statistics of the operation to the response
+     * @return {@code QUEUE_BUSY} error when the lease of the queue could not be acquired in time
+     */
     @WriteOperation
-    public EndpointResponse<Serializable> index(final String queueId, final String messageId) {
+    public EndpointResponse<Serializable> index(
+        final String queueId,
+        @Nullable final String messageId,
+        @Nullable final List<String> messageIds,
+        @Nullable final String sessionToken,
+        @Nullable final Boolean stats
+    ) {
+        return EndpointResponses.withStats(messageOperator, stats, () -> {
+            try {
+                return republishMessages(queueId, messageId, messageIds, sessionToken);
+            } catch (final QueueBusyException ex) {
+                LOG.info("Queue is busy. QueueId: {}", queueId);
+                return EndpointResponses.queueBusy(ex);
+            }
+        });
+    }
+
+    private EndpointResponse<Serializable> republishMessages(
+        final String queueId,
+        @Nullable final String messageId,
+        @Nullable final List<String> messageIds,
+        @Nullable final String sessionToken
+    ) {
+        if (StringUtils.hasText(sessionToken)) {
+            final List<String> ids = messageIds != null && !messageIds.isEmpty() ? messageIds : Collections.singletonList(messageId);
+            final BulkRepublishMessageResponse response = messageOperator.republishMessages(queueId, sessionToken, ids);
+
+            return ImmutableEndpointResponse.builder()
+                .setData(response)
+                .build();
+        }
+
+        if (messageIds != null && !messageIds.isEmpty()) {
+            final BulkRepublishMessageResponse response = messageOperator.republishMessages(queueId, messageIds);
+
+            return ImmutableEndpointResponse.builder()
+                .setData(response)
+                .build();
+        }
+
         final RepublishMessageResponse response = messageOperator.republishMessage(queueId, messageId);
 
         return ImmutableEndpointResponse.builder()
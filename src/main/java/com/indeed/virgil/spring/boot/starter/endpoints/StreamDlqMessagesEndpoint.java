@@ -0,0 +1,116 @@
+package com.indeed.virgil.spring.boot.starter.endpoints;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.indeed.virgil.spring.boot.starter.services.MessageOperator;
+import com.indeed.virgil.spring.boot.starter.services.MessageStream;
+import com.indeed.virgil.spring.boot.starter.services.QueueBusyException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+
+import static com.indeed.virgil.spring.boot.starter.util.EndpointConstants.ENDPOINT_DEFAULT_PATH_MAPPING;
+import static com.indeed.virgil.spring.boot.starter.util.EndpointConstants.STREAM_DLQ_MESSAGES_ENDPOINT_ID;
+
+/**
+ * Streaming variant of {@link GetDlqMessagesEndpoint}. Every message is written to the response as soon as it is pulled off the queue, and
+ * disconnecting stops the read. The lease of the queue is held until the response is over.
+ */
+@Component
+@Endpoint(id = STREAM_DLQ_MESSAGES_ENDPOINT_ID)
+public final class StreamDlqMessagesEndpoint implements IVirgilEndpoint {
+    private static final Logger LOG = LoggerFactory.getLogger(StreamDlqMessagesEndpoint.class);
+
+    static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+    static final String SSE_MEDIA_TYPE = "text/event-stream";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final MessageOperator messageOperator;
+
+    public StreamDlqMessagesEndpoint(
+        final MessageOperator messageOperator
+    ) {
+        this.messageOperator = messageOperator;
+    }
+
+    /**
+     * Answers 503 when the lease of the queue could not be acquired in time.
+     *
+     * @param queueId Queue Property Key, this is not the actual name of the queue
+     * @param limit Limits the number of messages streamed from DLQ
+     * @param format 'ndjson' (default) or 'sse'
+     * @return
+     */
+    @ReadOperation(produces = {NDJSON_MEDIA_TYPE, SSE_MEDIA_TYPE})
+    public WebEndpointResponse<Resource> index(final String queueId, @Nullable final Integer limit, @Nullable final String format) {
+        final StreamFormat streamFormat = StreamFormat.fromValue(format);
+        if (streamFormat == null) {
+            LOG.warn("Unsupported stream format. Format: {}", format);
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+
+        final MessageStream messageStream;
+        try {
+            messageStream = messageOperator.openMessageStream(queueId, limit);
+        } catch (final QueueBusyException ex) {
+            LOG.info("Queue is busy. QueueId: {}", queueId);
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_SERVICE_UNAVAILABLE);
+        }
+        if (messageStream == null) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+
+        // plain InputStreamResource so the content length is never computed, which would read the whole stream up front
+        final Resource resource = new InputStreamResource(new MessageStreamInputStream(messageStream, streamFormat, OBJECT_MAPPER));
+
+        return new WebEndpointResponse<>(resource, WebEndpointResponse.STATUS_OK, MimeType.valueOf(streamFormat.getMediaType()));
+    }
+
+    public static String getEndpointId() {
+        return STREAM_DLQ_MESSAGES_ENDPOINT_ID;
+    }
+
+    public static String getEndpointPath() {
+        return ENDPOINT_DEFAULT_PATH_MAPPING + getEndpointId();
+    }
+
+    enum StreamFormat {
+        NDJSON(NDJSON_MEDIA_TYPE),
+        SSE(SSE_MEDIA_TYPE);
+
+        private final String mediaType;
+
+        StreamFormat(final String mediaType) {
+            this.mediaType = mediaType;
+        }
+
+        String getMediaType() {
+            return mediaType;
+        }
+
+        /**
+         * @param value Case-insensitive name of the format, defaults to NDJSON when null
+         * @return null if the format is not supported
+         */
+        @Nullable
+        static StreamFormat fromValue(@Nullable final String value) {
+            if (value == null) {
+                return NDJSON;
+            }
+
+            for (final StreamFormat streamFormat : values()) {
+                if (streamFormat.name().equalsIgnoreCase(value)) {
+                    return streamFormat;
+                }
+            }
+            return null;
+        }
+    }
+}
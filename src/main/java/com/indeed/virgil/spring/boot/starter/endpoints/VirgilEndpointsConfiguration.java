@@ -13,7 +13,9 @@ import org.springframework.context.annotation.Import;
     GetDlqMessagesEndpoint.class,
     GetQueueSizeEndpoint.class,
     PublishMessageEndpoint.class,
-    GetQueuesEndpoint.class
+    GetQueuesEndpoint.class,
+    StreamDlqMessagesEndpoint.class,
+    DownloadDlqMessageEndpoint.class
 })
 public class VirgilEndpointsConfiguration {
 }
@@ -0,0 +1,24 @@
+package com.indeed.virgil.spring.boot.starter.models;
+
+import org.immutables.value.Value;
+
+import java.io.Serializable;
+import java.util.Map;
+
+@Value.Immutable
+@Value.Style(init = "set*", get = {"get*", "is*"})
+public interface BulkAckMessageResponse extends Serializable {
+
+    /**
+     * Whether each requested message id was found and ack'd
+     *
+     * @return
+     */
+    Map<String, Boolean> getResults();
+
+    ScanStatistics getScanStatistics();
+
+    default boolean isSuccess() {
+        return !getResults().isEmpty() && !getResults().containsValue(false);
+    }
+}
@@ -0,0 +1,35 @@
+package com.indeed.virgil.spring.boot.starter.models;
+
+import org.immutables.value.Value;
+
+@Value.Immutable
+@Value.Style(init = "set*", get = {"get*", "is*"})
+public interface ConnectionStats {
+
+    /**
+     * Number of times a connection was checked out, whether an open one was shared or a new one was opened
+     *
+     * @return
+     */
+    long getAcquisitions();
+
+    /**
+     * Number of physical connections opened to the broker
+     *
+     * @return
+     */
+    long getConnectionsCreated();
+
+    /**
+     * Fraction of acquisitions that were served by an already open connection, 0 before the first acquisition
+     *
+     * @return
+     */
+    default double getReuseRate() {
+        if (getAcquisitions() == 0) {
+            return 0;
+        }
+
+        return Math.max(0, getAcquisitions() - getConnectionsCreated()) / (double) getAcquisitions();
+    }
+}
@@ -0,0 +1,58 @@
+package com.indeed.virgil.spring.boot.starter.models;
+
+import org.immutables.value.Value;
+import org.springframework.lang.Nullable;
+
+import java.io.Serializable;
+import java.util.List;
+
+@Value.Immutable
+@Value.Style(init = "set*", get = {"get*", "is*"})
+public interface DlqMessagePage extends Serializable {
+
+    List<VirgilMessage> getMessages();
+
+    /**
+     * Position of the first message of this page from the head of the queue
+     *
+     * @return
+     */
+    int getOffset();
+
+    int getQueueSize();
+
+    /**
+     * Cursor for the following page, null once the end of the queue has been reached
+     *
+     * @return
+     */
+    @Nullable
+    String getNextCursor();
+
+    /**
+     * True if the message at the head of the queue is not the one the cursor was issued against, meaning messages were added or removed
+     * from the head since the previous page and the offset may no longer line up
+     *
+     * @return
+     */
+    boolean isQueueChanged();
+
+    /**
+     * True if the read stopped early because the converted messages reached the max-scan-bytes of the queue, the page then holds fewer
+     * messages than were asked for and the next cursor picks up where it stopped
+     *
+     * @return
+     */
+    @Value.Default
+    default boolean isTruncated() {
+        return false;
+    }
+
+    /**
+     * Token of the browse session holding the messages of this page, only set when the page was read through a browse session
+     *
+     * @return
+     */
+    @Nullable
+    String getSessionToken();
+}
@@ -1,6 +1,8 @@
 package com.indeed.virgil.spring.boot.starter.models;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import org.immutables.value.Value;
+import org.springframework.lang.Nullable;
 
 import java.io.Serializable;
 import java.util.List;
@@ -12,4 +14,13 @@ public interface EndpointResponse<T extends Serializable> {
     T getData();
 
     List<EndpointResponseError> getErrors();
+
+    /**
+     * Statistics of the operation behind the response, only set when they were asked for. Left out of the body when not set
+     *
+     * @return
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @Nullable
+    OperationStats getStats();
 }
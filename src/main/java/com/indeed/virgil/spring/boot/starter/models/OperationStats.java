@@ -0,0 +1,60 @@
+package com.indeed.virgil.spring.boot.starter.models;
+
+import org.immutables.value.Value;
+
+import java.io.Serializable;
+import java.util.Map;
+
+@Value.Immutable
+@Value.Style(init = "set*", get = {"get*", "is*"})
+public interface OperationStats extends Serializable {
+
+    /**
+     * Time spent in the operation, from the start of the call until its response was built
+     *
+     * @return
+     */
+    double getElapsedMillis();
+
+    /**
+     * Time spent in each phase the operation went through, keyed by phase: lease, connect, scan, convert, publish and teardown
+     *
+     * @return
+     */
+    Map<String, Double> getPhaseMillis();
+
+    /**
+     * Number of messages pulled off the queue
+     *
+     * @return
+     */
+    int getMessagesScanned();
+
+    /**
+     * Number of messages returned or acted on
+     *
+     * @return
+     */
+    int getMessagesMatched();
+
+    /**
+     * Total size of the bodies of every scanned message
+     *
+     * @return
+     */
+    long getBytesRead();
+
+    /**
+     * True if the read stopped early because the converted messages reached the max-scan-bytes of the queue
+     *
+     * @return
+     */
+    boolean isTruncated();
+
+    /**
+     * True if the operation did not have to open a connection to the broker
+     *
+     * @return
+     */
+    boolean isConnectionReused();
+}
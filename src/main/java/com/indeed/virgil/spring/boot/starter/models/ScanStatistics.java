@@ -0,0 +1,38 @@
+package com.indeed.virgil.spring.boot.starter.models;
+
+import org.immutables.value.Value;
+
+import java.io.Serializable;
+
+@Value.Immutable
+@Value.Style(init = "set*", get = {"get*", "is*"})
+public interface ScanStatistics extends Serializable {
+
+    /**
+     * Number of messages pulled off the queue
+     *
+     * @return
+     */
+    int getMessagesScanned();
+
+    /**
+     * Number of scanned messages that matched one of the requested ids
+     *
+     * @return
+     */
+    int getMessagesMatched();
+
+    /**
+     * Total size of the bodies of every scanned message
+     *
+     * @return
+     */
+    long getBytesScanned();
+
+    /**
+     * True if every requested id was found before the scan ended
+     *
+     * @return
+     */
+    boolean isComplete();
+}
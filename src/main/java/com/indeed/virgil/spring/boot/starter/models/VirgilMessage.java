@@ -1,8 +1,10 @@
 package com.indeed.virgil.spring.boot.starter.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.immutables.value.Value;
 
 import java.util.Map;
+import java.util.function.Supplier;
 
 @Value.Immutable
 @Value.Style(init = "set*", get = {"get*", "is*"})
@@ -19,5 +21,23 @@ public interface VirgilMessage {
 
     Map<String, Object> getHeaders();
 
-    String getFingerprint();
+    /**
+     * Computes the fingerprint, called at most once and only if {@link #getFingerprint()} is called
+     *
+     * @return Supplier of the fingerprint of the message, it must not return null
+     */
+    @JsonIgnore
+    @Value.Auxiliary
+    Supplier<String> getFingerprintSource();
+
+    /**
+     * Digest of the message, computed the first time it is asked for so that messages identified by their messageId are never hashed
+     * unless a caller or the serializer needs it.
+     *
+     * @return
+     */
+    @Value.Lazy
+    default String getFingerprint() {
+        return getFingerprintSource().get();
+    }
 }
@@ -0,0 +1,121 @@
+package com.indeed.virgil.spring.boot.starter.services;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.DefaultConsumer;
+import com.rabbitmq.client.ShutdownSignalException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.support.RabbitExceptionTranslator;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Lease on a queue shared by every instance reading from the same broker, without any coordinator besides the broker itself.
+ * <p>
+ * The lease is an exclusive, auto-delete lock queue declared on the read connection. While one connection owns the lock queue the broker
+ * refuses to declare it on any other with {@code RESOURCE_LOCKED}, so the instances that do not hold the lease retry until it is deleted
+ * or the wait is up. The lease also consumes from its lock queue, on a channel of its own. The read connection is shared and outlives the
+ * lease, so it is that consumer going away, when the channel is closed on release, that has the broker auto-delete the lock queue. If the
+ * instance holding the lease dies, the lock queue goes with its connection.
+ * <p>
+ * Exclusivity is per connection, so this only keeps other instances out. Scans within the instance are serialized by {@link ScanCoordinator}
+ * before this lease is taken.
+ */
+final class BrokerScanLease implements ScanCoordinator.Lease {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BrokerScanLease.class);
+
+    private static final long MIN_RETRY_DELAY_MS = 50L;
+    private static final long MAX_RETRY_DELAY_MS = 1000L;
+
+    private final String queueId;
+    private final String lockQueueName;
+    private final Channel channel;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private BrokerScanLease(
+        final String queueId,
+        final String lockQueueName,
+        final Channel channel
+    ) {
+        this.queueId = queueId;
+        this.lockQueueName = lockQueueName;
+        this.channel = channel;
+    }
+
+    /**
+     * Declares the lock queue and consumes from it, retrying with a jittered backoff while another instance holds it
+     *
+     * @param rabbitMqConnectionService Connection the lock queue is declared on
+     * @param queueId Queue Property Key, this is not the actual name of the queue
+     * @param lockQueueName Name of the lock queue
+     * @param deadlineNanos {@link System#nanoTime()} after which the lease is given up on
+     * @return Lease to close once the scan is over
+     * @throws QueueBusyException if another instance still holds the lease at the deadline
+     */
+    static BrokerScanLease acquire(
+        final RabbitMqConnectionService rabbitMqConnectionService,
+        final String queueId,
+        final String lockQueueName,
+        final long deadlineNanos
+    ) {
+        long retryDelayMs = MIN_RETRY_DELAY_MS;
+        while (true) {
+            final Channel channel = rabbitMqConnectionService.openReadChannel(queueId);
+            try {
+                channel.queueDeclare(lockQueueName, false, true, true, null);
+                // auto-delete only applies to a queue that has had a consumer
+                channel.basicConsume(lockQueueName, true, new DefaultConsumer(channel));
+                return new BrokerScanLease(queueId, lockQueueName, channel);
+            } catch (final IOException ex) {
+                // the broker closes the channel when it refuses the declare
+                RabbitMqConnectionService.closeChannel(channel);
+                if (!isResourceLocked(ex)) {
+                    throw RabbitExceptionTranslator.convertRabbitAccessException(ex);
+                }
+            }
+
+            final long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+            if (remainingMs <= 0) {
+                LOG.info("Lease is held by another instance. [QueueId: {}, LockQueue: {}]", queueId, lockQueueName);
+                throw new QueueBusyException(queueId);
+            }
+
+            try {
+                // jittered so that instances waiting on the same lease do not retry in lockstep
+                Thread.sleep(Math.min(remainingMs, ThreadLocalRandom.current().nextLong(retryDelayMs / 2, retryDelayMs + 1)));
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new QueueBusyException(queueId);
+            }
+            retryDelayMs = Math.min(retryDelayMs * 2, MAX_RETRY_DELAY_MS);
+        }
+    }
+
+    /**
+     * Closes the channel of the lease, which cancels its consumer and so has the broker delete the lock queue
+     */
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+
+        RabbitMqConnectionService.closeChannel(channel);
+    }
+
+    private static boolean isResourceLocked(final Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ShutdownSignalException
+                && ((ShutdownSignalException) cause).getReason() instanceof AMQP.Channel.Close
+                && ((AMQP.Channel.Close) ((ShutdownSignalException) cause).getReason()).getReplyCode() == AMQP.RESOURCE_LOCKED) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
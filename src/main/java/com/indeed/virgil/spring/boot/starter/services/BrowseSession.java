@@ -0,0 +1,224 @@
+package com.indeed.virgil.spring.boot.starter.services;
+
+import com.indeed.virgil.spring.boot.starter.config.VirgilPropertyConfig.QueueProperties;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.GetResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Messages read by {@link MessageOperator#openBrowseSession(String, Integer)}, held unacked on a channel of their own and indexed by their
+ * Virgil id, so that acking or republishing one of them afterwards is a single call on that channel rather than another scan of the queue.
+ * <p>
+ * The session holds the lease of its queue for as long as it holds messages, so that no scan of the queue runs while part of it is
+ * invisible. Closing the session closes the channel, which puts every message still held back into the 'Ready' state, and releases the
+ * lease. A session is thread-safe, calls on it are serialized.
+ */
+class BrowseSession {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BrowseSession.class);
+
+    private final String token;
+    private final String queueId;
+    private final QueueProperties queueProperties;
+    private final RabbitMqConnectionService rabbitMqConnectionService;
+    private final Channel channel;
+    private final ScanCoordinator.Lease lease;
+
+    //guarded by this
+    private final Map<String, GetResponse> deliveries = new HashMap<>();
+    private final NavigableSet<Long> unackedTags = new TreeSet<>();
+    private volatile boolean closed;
+
+    /**
+     *
+     * @param token Token the session is looked up by
+     * @param queueId Queue Property Key, this is not the actual name of the queue
+     * @param queueProperties Queue being browsed
+     * @param rabbitMqConnectionService Used to republish held messages
+     * @param channel Channel the messages are held on, owned by the session from then on
+     * @param lease Lease of the queue, owned by the session from then on
+     */
+    BrowseSession(
+        final String token,
+        final String queueId,
+        final QueueProperties queueProperties,
+        final RabbitMqConnectionService rabbitMqConnectionService,
+        final Channel channel,
+        final ScanCoordinator.Lease lease
+    ) {
+        this.token = token;
+        this.queueId = queueId;
+        this.queueProperties = queueProperties;
+        this.rabbitMqConnectionService = rabbitMqConnectionService;
+        this.channel = channel;
+        this.lease = lease;
+    }
+
+    String getToken() {
+        return token;
+    }
+
+    String getQueueId() {
+        return queueId;
+    }
+
+    Channel getChannel() {
+        return channel;
+    }
+
+    /**
+     * Holds a delivery received on the session's channel. A message whose id is already held stays unacked but can not be acted on, and
+     * is requeued when the session closes.
+     *
+     * @param messageId Virgil id of the message
+     * @param response Delivery received on {@link #getChannel()}
+     */
+    synchronized void hold(final String messageId, final GetResponse response) {
+        deliveries.putIfAbsent(messageId, response);
+        unackedTags.add(response.getEnvelope().getDeliveryTag());
+    }
+
+    /**
+     * @return Number of messages that can still be acted on
+     */
+    synchronized int size() {
+        return deliveries.size();
+    }
+
+    /**
+     * Acks every held message whose id is in the set
+     *
+     * @param messageIds Ids of the messages to ack
+     * @return Outcome per id, false for ids that are not held by the session
+     */
+    synchronized Map<String, Boolean> ack(final Set<String> messageIds) {
+        final Map<String, Boolean> results = new LinkedHashMap<>();
+        for (final String messageId : messageIds) {
+            final GetResponse response = closed ? null : deliveries.get(messageId);
+            if (response == null) {
+                results.put(messageId, false);
+                continue;
+            }
+
+            try {
+                channel.basicAck(response.getEnvelope().getDeliveryTag(), false);
+                deliveries.remove(messageId);
+                unackedTags.remove(response.getEnvelope().getDeliveryTag());
+                results.put(messageId, true);
+            } catch (final IOException | RuntimeException ex) {
+                LOG.error("Failed to ack held message. [QueueId: {}, MessageId: {}]", queueId, messageId, ex);
+                results.put(messageId, false);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Republishes every held message whose id is in the set through a {@link RepublishPipeline}, acking each one once its republish is
+     * confirmed
+     *
+     * @param messageIds Ids of the messages to republish
+     * @return Outcome per id, false for ids that are not held by the session
+     */
+    synchronized Map<String, Boolean> republish(final Set<String> messageIds) throws IOException, InterruptedException {
+        final Map<String, Boolean> results = new LinkedHashMap<>();
+        messageIds.forEach(id -> results.put(id, false));
+        if (closed) {
+            return results;
+        }
+
+        final List<Map.Entry<String, GetResponse>> targets = deliveries.entrySet().stream()
+            .filter(entry -> messageIds.contains(entry.getKey()))
+            .sorted(Comparator.comparingLong(entry -> entry.getValue().getEnvelope().getDeliveryTag()))
+            .toList();
+        if (targets.isEmpty()) {
+            return results;
+        }
+
+        final long publishStartNanos = System.nanoTime();
+        final RepublishPipeline republishPipeline = new RepublishPipeline(
+            rabbitMqConnectionService.openPublishChannel(queueId),
+            channel,
+            RepublishPipeline.DEFAULT_WINDOW,
+            RepublishPipeline.DEFAULT_CONFIRM_TIMEOUT_MS
+        );
+
+        try {
+            // the pipeline never multiple-acks below the first tag it sees, so it has to see the lowest unacked tag first
+            final long lowestUnackedTag = unackedTags.first();
+            if (lowestUnackedTag < targets.get(0).getValue().getEnvelope().getDeliveryTag()) {
+                republishPipeline.skip(lowestUnackedTag);
+            }
+
+            for (final Map.Entry<String, GetResponse> target : targets) {
+                final GetResponse response = target.getValue();
+                republishPipeline.publish(
+                    response.getEnvelope().getDeliveryTag(),
+                    target.getKey(),
+                    queueProperties.getPublishBinderProperties().getName(),
+                    queueProperties.getRepublishBindingRoutingKey(),
+                    response.getProps(),
+                    response.getBody()
+                );
+            }
+
+            republishPipeline.finish().forEach((messageId, republished) -> {
+                results.put(messageId, republished);
+                if (republished) {
+                    unackedTags.remove(deliveries.remove(messageId).getEnvelope().getDeliveryTag());
+                }
+            });
+        } finally {
+            republishPipeline.close();
+            OperationMetrics.current().addPhaseSince(OperationMetrics.Phase.PUBLISH, publishStartNanos);
+        }
+
+        return results;
+    }
+
+    /**
+     * Closes the channel, requeueing every message still held, and releases the lease. Safe to call more than once.
+     */
+    void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            deliveries.clear();
+            unackedTags.clear();
+        }
+
+        try {
+            RabbitMqConnectionService.closeChannel(channel);
+        } finally {
+            lease.close();
+        }
+    }
+
+    /**
+     * Marks the session closed once its channel has been lost, the broker has already requeued the held messages. Never blocks, since it
+     * is called on the connection's thread, so the lease is left to {@link #releaseLease()}.
+     */
+    void abandon() {
+        closed = true;
+    }
+
+    /**
+     * Releases the lease of an abandoned session
+     */
+    void releaseLease() {
+        lease.close();
+    }
+}
@@ -0,0 +1,175 @@
+package com.indeed.virgil.spring.boot.starter.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.Nullable;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Open {@link BrowseSession}s by token. A session is closed once its TTL expires, and forgotten as soon as its channel is lost, so held
+ * messages are never kept off the queue for longer than the TTL.
+ * <p>
+ * Every session holds a channel and the lease of its queue, so only so many of them can be open at once. A slot is reserved before the
+ * session is opened, and given back once it is closed, expires or loses its channel.
+ */
+class BrowseSessions {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BrowseSessions.class);
+
+    static final int DEFAULT_MAX_SESSIONS = 32;
+
+    private final Map<String, BrowseSession> sessions = new ConcurrentHashMap<>();
+    private final Semaphore slots;
+
+    @Nullable
+    private volatile ScheduledExecutorService reaper;
+
+    BrowseSessions() {
+        this(DEFAULT_MAX_SESSIONS);
+    }
+
+    /**
+     *
+     * @param maxSessions Number of sessions that can be open at once
+     */
+    BrowseSessions(final int maxSessions) {
+        this.slots = new Semaphore(maxSessions);
+    }
+
+    /**
+     * Reserves a slot for a session about to be opened, to be used by {@link #register(BrowseSession, Duration)} or given back through
+     * {@link #unreserve()} if the session could not be opened
+     *
+     * @param queueId Queue Property Key, this is not the actual name of the queue
+     * @throws QueueBusyException if every slot is taken
+     */
+    void reserve(final String queueId) {
+        if (!slots.tryAcquire()) {
+            LOG.info("Too many browse sessions are open. [QueueId: {}, Open: {}]", queueId, sessions.size());
+            throw new QueueBusyException(queueId, "Too many browse sessions are open, close one or try again later");
+        }
+    }
+
+    /**
+     * Gives back a slot reserved for a session that could not be opened
+     */
+    void unreserve() {
+        slots.release();
+    }
+
+    /**
+     * @param session Session to track, in a slot reserved beforehand, closed by the registry once the ttl expires
+     * @param ttl How long the session is kept open
+     */
+    void register(final BrowseSession session, final Duration ttl) {
+        final String token = session.getToken();
+        sessions.put(token, session);
+
+        session.getChannel().addShutdownListener(cause -> {
+            if (remove(token, session)) {
+                LOG.warn("Browse session channel was lost, held messages are back on the queue. [QueueId: {}]", session.getQueueId());
+                session.abandon();
+                releaseLease(session);
+            }
+        });
+
+        getReaper().schedule(() -> {
+            if (remove(token, session)) {
+                LOG.info("Browse session expired, held messages are back on the queue. [QueueId: {}]", session.getQueueId());
+                session.close();
+            }
+        }, ttl.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param token Token of the session
+     * @return null if the session is unknown, expired or lost its channel
+     */
+    @Nullable
+    BrowseSession get(final String token) {
+        return sessions.get(token);
+    }
+
+    /**
+     * @param token Token of the session
+     * @return false if the session is unknown, expired or lost its channel
+     */
+    boolean close(final String token) {
+        final BrowseSession session = sessions.get(token);
+        if (session == null || !remove(token, session)) {
+            return false;
+        }
+
+        session.close();
+        return true;
+    }
+
+    /**
+     * @return Number of sessions open
+     */
+    int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Closes every open session and stops expiring them, called when the application context shuts down
+     */
+    void shutdown() {
+        final ScheduledExecutorService current = reaper;
+        if (current != null) {
+            current.shutdownNow();
+        }
+
+        sessions.forEach((token, session) -> {
+            if (remove(token, session)) {
+                session.close();
+            }
+        });
+    }
+
+    private boolean remove(final String token, final BrowseSession session) {
+        if (!sessions.remove(token, session)) {
+            return false;
+        }
+        slots.release();
+        return true;
+    }
+
+    /**
+     * Releasing the lease may close a channel, which must not happen on the connection's thread the shutdown listener runs on
+     */
+    private void releaseLease(final BrowseSession session) {
+        try {
+            getReaper().execute(session::releaseLease);
+        } catch (final RejectedExecutionException ex) {
+            // shutting down, the lease goes along with the connections
+            LOG.debug("Not releasing lease of lost browse session, shutting down. [QueueId: {}]", session.getQueueId());
+        }
+    }
+
+    private ScheduledExecutorService getReaper() {
+        ScheduledExecutorService current = reaper;
+        if (current == null) {
+            synchronized (this) {
+                current = reaper;
+                if (current == null) {
+                    current = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                        final Thread thread = new Thread(runnable, "virgil-browse-session-reaper");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    reaper = current;
+                }
+            }
+        }
+        return current;
+    }
+}
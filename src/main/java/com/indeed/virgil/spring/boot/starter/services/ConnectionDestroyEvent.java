@@ -0,0 +1,57 @@
+package com.indeed.virgil.spring.boot.starter.services;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.springframework.lang.Nullable;
+
+/**
+ * Flight Recorder event spanning the teardown of the connections of a binder
+ */
+@Name("com.indeed.virgil.ConnectionDestroy")
+@Label("Virgil Connection Destroy")
+@Category("Virgil")
+@Description("Teardown of the read and publish connections of a binder")
+final class ConnectionDestroyEvent extends Event {
+
+    @Label("Binder")
+    String binderName;
+
+    @Label("Queue Id")
+    @Nullable
+    String queueId;
+
+    @Label("Read Connection Destroyed")
+    boolean readDestroyed;
+
+    @Label("Publish Connection Destroyed")
+    boolean publishDestroyed;
+
+    /**
+     * Ends the event and commits it, unless the event is disabled or under its threshold
+     *
+     * @param operation Operation that tore the connections down, if any
+     * @param binderName Binder whose connections were torn down
+     * @param readDestroyed Whether there was a read connection factory to destroy
+     * @param publishDestroyed Whether there was a publish connection factory to destroy
+     */
+    void finish(
+        final OperationMetrics.Operation operation,
+        final String binderName,
+        final boolean readDestroyed,
+        final boolean publishDestroyed
+    ) {
+        end();
+        if (!shouldCommit()) {
+            return;
+        }
+
+        this.binderName = binderName;
+        this.queueId = operation.getQueueId();
+        this.readDestroyed = readDestroyed;
+        this.publishDestroyed = publishDestroyed;
+        commit();
+    }
+}
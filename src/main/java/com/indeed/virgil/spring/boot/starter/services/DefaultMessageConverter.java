@@ -2,23 +2,27 @@ package com.indeed.virgil.spring.boot.starter.services;
 
 import com.indeed.virgil.spring.boot.starter.models.ImmutableVirgilMessage;
 import com.indeed.virgil.spring.boot.starter.models.VirgilMessage;
+import com.indeed.virgil.spring.boot.starter.util.BodyPreviewDecoder;
 import com.indeed.virgil.spring.boot.starter.util.VirgilMessageUtils;
+import com.rabbitmq.client.AMQP.BasicProperties;
+import com.rabbitmq.client.Envelope;
 import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.support.DefaultMessagePropertiesConverter;
+import org.springframework.amqp.rabbit.support.MessagePropertiesConverter;
 import org.springframework.util.StringUtils;
 
+import java.nio.ByteBuffer;
 import java.util.Map;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
-
 public class DefaultMessageConverter implements IMessageConverter {
 
-    private static final int MAX_DISPLAY_STR_LEN = 256;
-
     private static final String MESSAGE_HEADER_EXCEPTION = "x-exception-message";
     private static final String MESSAGE_HEADER_ORIGINAL_ROUTING_KEY = "x-original-routingKey";
     private static final String MESSAGE_HEADER_ORIGINAL_EXCHANGE = "x-original-exchange";
 
     private final VirgilMessageUtils virgilMessageUtils;
+    private final MessagePropertiesConverter messagePropertiesConverter = new DefaultMessagePropertiesConverter();
 
     public DefaultMessageConverter(final VirgilMessageUtils virgilMessageUtils) {
         this.virgilMessageUtils = virgilMessageUtils;
@@ -26,8 +30,17 @@ public class DefaultMessageConverter implements IMessageConverter {
 
     @Override
     public VirgilMessage convertMessage(final Message msg) {
+        return convertMessage(msg, BodyPreviewDecoder.DEFAULT_PREVIEW_LENGTH);
+    }
+
+    /**
+     * The body is previewed straight from the delivered bytes, see {@link BodyPreviewDecoder}
+     */
+    @Override
+    public VirgilMessage convertMessage(final Message msg, final int previewLength) {
         final ImmutableVirgilMessage.Builder virgilMessageBuilder = ImmutableVirgilMessage.builder()
-            .setBody(new String(msg.getBody(), 0, Math.min(msg.getBody().length, MAX_DISPLAY_STR_LEN), UTF_8));
+            .setBody(BodyPreviewDecoder.decode(
+                ByteBuffer.wrap(msg.getBody()), msg.getMessageProperties().getContentEncoding(), previewLength));
 
         final Map<String, Object> messageHeaders = msg.getMessageProperties().getHeaders();
 
@@ -53,17 +66,31 @@ public class DefaultMessageConverter implements IMessageConverter {
             virgilMessageBuilder.putHeaders(MESSAGE_HEADER_ORIGINAL_EXCHANGE, originalExchange);
         }
 
-        final String fingerprint = virgilMessageUtils.generateFingerprint(msg);
-        virgilMessageBuilder.setFingerprint(fingerprint);
-
         //set the id with a value that is not dependent on the server, this will allow us to reference the same message
-        // in the queue without the message cache
+        // in the queue without the message cache. The fingerprint is only computed up front when it is the id.
         final String potentialMessageId = msg.getMessageProperties().getMessageId();
         if (!StringUtils.hasLength(potentialMessageId)) {
+            final String fingerprint = virgilMessageUtils.generateFingerprint(msg);
+            virgilMessageBuilder.setFingerprintSource(() -> fingerprint);
             virgilMessageBuilder.setId(String.format("f_%s", fingerprint));
         } else {
+            virgilMessageBuilder.setFingerprintSource(() -> virgilMessageUtils.generateFingerprint(msg));
             virgilMessageBuilder.setId(String.format("i_%s", potentialMessageId));
         }
         return virgilMessageBuilder.build();
     }
+
+    /**
+     * Reads the messageId straight off the delivery properties, the properties are only converted when the message has to be fingerprinted
+     */
+    @Override
+    public String convertMessageId(final BasicProperties properties, final Envelope envelope, final byte[] body) {
+        final String potentialMessageId = properties.getMessageId();
+        if (StringUtils.hasLength(potentialMessageId)) {
+            return "i_" + potentialMessageId;
+        }
+
+        final MessageProperties messageProperties = messagePropertiesConverter.toMessageProperties(properties, envelope, "UTF-8");
+        return "f_" + virgilMessageUtils.generateFingerprint(new Message(body, messageProperties));
+    }
 }
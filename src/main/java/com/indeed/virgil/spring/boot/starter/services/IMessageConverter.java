@@ -1,8 +1,41 @@
 package com.indeed.virgil.spring.boot.starter.services;
 
 import com.indeed.virgil.spring.boot.starter.models.VirgilMessage;
+import com.rabbitmq.client.AMQP.BasicProperties;
+import com.rabbitmq.client.Envelope;
 import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.support.DefaultMessagePropertiesConverter;
 
 public interface IMessageConverter {
     VirgilMessage convertMessage(final Message msg);
+
+    /**
+     * Converts a message read from a queue with a configured preview length. The default ignores the length and calls
+     * {@link #convertMessage(Message)}.
+     *
+     * @param msg Message to convert
+     * @param previewLength Max number of chars of the body to show
+     * @return converted message
+     */
+    default VirgilMessage convertMessage(final Message msg, final int previewLength) {
+        return convertMessage(msg);
+    }
+
+    /**
+     * Derives the id {@link #convertMessage(Message)} would give a message, straight from what was read off the queue. Scans that look for
+     * specific ids call this for every message and only convert the ones that match, so override it when the id is cheaper to derive than
+     * the whole {@link VirgilMessage}.
+     * <p>
+     * The default converts the whole message.
+     *
+     * @param properties Properties of the delivery
+     * @param envelope Envelope of the delivery
+     * @param body Body of the delivery
+     * @return id of the message
+     */
+    default String convertMessageId(final BasicProperties properties, final Envelope envelope, final byte[] body) {
+        return convertMessage(
+            new Message(body, new DefaultMessagePropertiesConverter().toMessageProperties(properties, envelope, "UTF-8"))
+        ).getId();
+    }
 }
@@ -1,6 +1,8 @@
 package com.indeed.virgil.spring.boot.starter.services;
 
 import com.indeed.virgil.spring.boot.starter.models.VirgilMessage;
+import com.rabbitmq.client.AMQP.BasicProperties;
+import com.rabbitmq.client.Envelope;
 import org.springframework.amqp.core.Message;
 
 public class MessageConverterService {
@@ -16,4 +18,25 @@ public class MessageConverterService {
     public VirgilMessage mapMessage(final Message msg) {
         return messageConverter.convertMessage(msg);
     }
+
+    /**
+     * @param msg Message to convert
+     * @param previewLength Max number of chars of the body to show, see {@link IMessageConverter#convertMessage(Message, int)}
+     * @return converted message
+     */
+    public VirgilMessage mapMessage(final Message msg, final int previewLength) {
+        return messageConverter.convertMessage(msg, previewLength);
+    }
+
+    /**
+     * Returns the id {@link #mapMessage(Message)} would give the delivery, without converting it
+     *
+     * @param properties Properties of the delivery
+     * @param envelope Envelope of the delivery
+     * @param body Body of the delivery
+     * @return id of the message
+     */
+    public String mapMessageId(final BasicProperties properties, final Envelope envelope, final byte[] body) {
+        return messageConverter.convertMessageId(properties, envelope, body);
+    }
 }
@@ -2,13 +2,35 @@ package com.indeed.virgil.spring.boot.starter.services;
 
 import com.indeed.virgil.spring.boot.starter.config.VirgilPropertyConfig;
 import com.indeed.virgil.spring.boot.starter.config.VirgilPropertyConfig.QueueProperties;
+import com.indeed.virgil.spring.boot.starter.config.VirgilPropertyConfig.ReadMode;
+import com.indeed.virgil.spring.boot.starter.config.VirgilPropertyConfig.ScanLeaseProperties;
 import com.indeed.virgil.spring.boot.starter.models.AckCertainMessageResponse;
+import com.indeed.virgil.spring.boot.starter.models.BulkAckMessageResponse;
+import com.indeed.virgil.spring.boot.starter.models.BulkRepublishMessageResponse;
+import com.indeed.virgil.spring.boot.starter.models.DlqMessagePage;
 import com.indeed.virgil.spring.boot.starter.models.ImmutableAckCertainMessageResponse;
+import com.indeed.virgil.spring.boot.starter.models.ImmutableBulkAckMessageResponse;
+import com.indeed.virgil.spring.boot.starter.models.ImmutableBulkRepublishMessageResponse;
+import com.indeed.virgil.spring.boot.starter.models.ImmutableDlqMessagePage;
 import com.indeed.virgil.spring.boot.starter.models.ImmutableRepublishMessageResponse;
+import com.indeed.virgil.spring.boot.starter.models.ImmutableScanStatistics;
+import com.indeed.virgil.spring.boot.starter.models.ImmutableVirgilMessage;
+import com.indeed.virgil.spring.boot.starter.models.OperationStats;
 import com.indeed.virgil.spring.boot.starter.models.RepublishMessageResponse;
+import com.indeed.virgil.spring.boot.starter.models.ScanStatistics;
 import com.indeed.virgil.spring.boot.starter.models.VirgilMessage;
+import com.indeed.virgil.spring.boot.starter.util.BodyPreviewDecoder;
+import com.indeed.virgil.spring.boot.starter.util.MessagePageCursor;
+import com.rabbitmq.client.AMQP.BasicProperties;
 import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.DefaultConsumer;
+import com.rabbitmq.client.Envelope;
 import com.rabbitmq.client.GetResponse;
+import io.micrometer.common.KeyValues;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.core.AmqpAdmin;
@@ -16,71 +38,167 @@ import org.springframework.amqp.core.Message;
 import org.springframework.amqp.core.MessageProperties;
 import org.springframework.amqp.rabbit.core.ChannelCallback;
 import org.springframework.amqp.rabbit.core.RabbitAdmin;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.rabbit.support.DefaultMessagePropertiesConverter;
 import org.springframework.amqp.rabbit.support.MessagePropertiesConverter;
 import org.springframework.lang.Nullable;
 import org.springframework.util.StringUtils;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
-
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Reads and acts on the messages of the configured DLQs.
+ * <p>
+ * Every operation that scans a queue runs under the lease of the queue, see {@link ScanCoordinator}, and throws
+ * {@link QueueBusyException} if the lease can not be acquired within the wait-timeout of the scan lease.
+ */
 public class MessageOperator {
 
     private static final Logger LOG = LoggerFactory.getLogger(MessageOperator.class);
 
+    private static final long CONSUMER_RECEIVE_TIMEOUT_MS = 1000L;
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+
     private final VirgilPropertyConfig virgilPropertyConfig;
     private final RabbitMqConnectionService rabbitMqConnectionService;
     private final MessageConverterService messageConverterService;
 
     private volatile MessagePropertiesConverter messagePropertiesConverter = new DefaultMessagePropertiesConverter();
 
+    private final BrowseSessions browseSessions = new BrowseSessions();
+    private final MessageStreams messageStreams = new MessageStreams();
+    private final ScanCoordinator scanCoordinator = new ScanCoordinator();
+    private final QueueSizeCache queueSizeCache = new QueueSizeCache();
+    private final OperationMetrics operationMetrics;
+
     public MessageOperator(
         final VirgilPropertyConfig virgilPropertyConfig,
         final RabbitMqConnectionService rabbitMqConnectionService,
         final MessageConverterService messageConverterService
+    ) {
+        this(virgilPropertyConfig, rabbitMqConnectionService, messageConverterService, Metrics.globalRegistry);
+    }
+
+    /**
+     *
+     * @param meterRegistry Registry the timers and scan statistics of every operation are recorded in, see {@link OperationMetrics}
+     */
+    public MessageOperator(
+        final VirgilPropertyConfig virgilPropertyConfig,
+        final RabbitMqConnectionService rabbitMqConnectionService,
+        final MessageConverterService messageConverterService,
+        final MeterRegistry meterRegistry
+    ) {
+        this(virgilPropertyConfig, rabbitMqConnectionService, messageConverterService, meterRegistry, ObservationRegistry.NOOP);
+    }
+
+    /**
+     *
+     * @param meterRegistry Registry the timers and scan statistics of every operation are recorded in, see {@link OperationMetrics}
+     * @param observationRegistry Registry every operation, and the broker interactions it makes, are observed through
+     */
+    public MessageOperator(
+        final VirgilPropertyConfig virgilPropertyConfig,
+        final RabbitMqConnectionService rabbitMqConnectionService,
+        final MessageConverterService messageConverterService,
+        final MeterRegistry meterRegistry,
+        final ObservationRegistry observationRegistry
     ) {
         this.virgilPropertyConfig = virgilPropertyConfig;
         this.rabbitMqConnectionService = rabbitMqConnectionService;
         this.messageConverterService = messageConverterService;
+        this.operationMetrics = new OperationMetrics(meterRegistry, observationRegistry);
+    }
+
+    /**
+     * Closes every stream and browse session still open, called when the application context shuts down
+     */
+    public void destroy() {
+        messageStreams.shutdown();
+        browseSessions.shutdown();
     }
 
     /**
+     * Returns the size of the queue as last observed, as long as it is not older than the queue-size-ttl of the queue. Otherwise the queue
+     * is declared passively, once for every caller asking for the size while the declare runs.
+     *
      * @param queueId Queue Property Key, this is not the actual name of the queue
      * @return queueSize
      */
     @Nullable
     public Integer getQueueSize(final String queueId) {
+        return record("size", queueId, () -> {
+            final QueueProperties queueProperties = virgilPropertyConfig.getQueueProperties(queueId);
+            if(queueProperties == null) {
+                LOG.error("QueueProperties is null. QueueId: {}", queueId);
+                return null;
+            }
+
+            final Integer cachedQueueSize = queueSizeCache.get(queueId, queueProperties.getQueueSizeTtl());
+            if (cachedQueueSize != null) {
+                return cachedQueueSize;
+            }
+
+            return fetchQueueSize(queueId, queueProperties);
+        });
+    }
+
+    /**
+     * Size of the queue read from the broker, regardless of the cache, for operations that act on the messages they scan
+     */
+    @Nullable
+    private Integer getFreshQueueSize(final String queueId) {
         final QueueProperties queueProperties = virgilPropertyConfig.getQueueProperties(queueId);
         if(queueProperties == null) {
             LOG.error("QueueProperties is null. QueueId: {}", queueId);
             return null;
         }
 
-        final AmqpAdmin amqpAdmin = rabbitMqConnectionService.getReadAmqpAdmin(queueId);
+        return fetchQueueSize(queueId, queueProperties);
+    }
 
-        final Properties properties = amqpAdmin.getQueueProperties(queueProperties.getReadName());
+    @Nullable
+    private Integer fetchQueueSize(final String queueId, final QueueProperties queueProperties) {
+        return scanCoordinator.coalesce(Arrays.asList("size", queueId), () -> {
+            final AmqpAdmin amqpAdmin = rabbitMqConnectionService.getReadAmqpAdmin(queueId);
 
-        if (properties == null) {
-            LOG.error("Amqp queue properties is null for queueId: {}", queueId);
-            return null;
-        }
+            final Properties properties = amqpAdmin.getQueueProperties(queueProperties.getReadName());
 
-        final Object queueMessageCount = properties.get(RabbitAdmin.QUEUE_MESSAGE_COUNT);
+            if (properties == null) {
+                LOG.error("Amqp queue properties is null for queueId: {}", queueId);
+                return null;
+            }
 
-        Integer queueSize;
-        if (queueMessageCount instanceof String) {
-            queueSize = Integer.valueOf((String) queueMessageCount);
-        } else {
-            queueSize = (Integer) queueMessageCount;
-        }
+            final Object queueMessageCount = properties.get(RabbitAdmin.QUEUE_MESSAGE_COUNT);
 
-        return queueSize;
+            Integer queueSize;
+            if (queueMessageCount instanceof String) {
+                queueSize = Integer.valueOf((String) queueMessageCount);
+            } else {
+                queueSize = (Integer) queueMessageCount;
+            }
+
+            queueSizeCache.put(queueId, queueSize);
+            return queueSize;
+        });
     }
 
     /**
@@ -91,113 +209,385 @@ public class MessageOperator {
      * @return List of messages
      */
     public List<VirgilMessage> getMessages(final String queueId, @Nullable final Integer limit) {
+        return Optional.ofNullable(getMessageList(queueId, limit))
+            .map(DlqMessagePage::getMessages)
+            .orElse(Collections.emptyList());
+    }
+
+    /**
+     * Retrieves messages from the DLQ up to the limit passed in, as the first page of the queue so that a read cut short by the
+     * max-scan-bytes of the queue can be told apart from a short queue. Identical calls made while one is running share its scan.
+     *
+     * @param queueId Queue Property Key, this is not the actual name of the queue
+     * @param limit Limits the number of messages returned from DLQ
+     * @return null if the queue can not be read
+     */
+    @Nullable
+    public DlqMessagePage getMessageList(final String queueId, @Nullable final Integer limit) {
+        return record("get", queueId,
+            () -> matchedPage(scanCoordinator.coalesce(Arrays.asList("list", queueId, limit), () -> readMessageList(queueId, limit))));
+    }
+
+    @Nullable
+    private DlqMessagePage readMessageList(final String queueId, @Nullable final Integer limit) {
         final Integer queueSize = getQueueSize(queueId);
         if (queueSize == null) {
             LOG.error("Queue size is null.");
-            return Collections.emptyList();
+            return null;
         }
 
         final QueueProperties queueProperties = virgilPropertyConfig.getQueueProperties(queueId);
         if(queueProperties == null) {
-            LOG.error("QueueProperties is null. Returning Empty List. QueueId: {}", queueId);
-            return Collections.emptyList();
+            LOG.error("QueueProperties is null. QueueId: {}", queueId);
+            return null;
         }
 
-        try {
-            final int numToRetrieve = Optional.ofNullable(limit)
-                .filter(value -> value > 0)
-                .orElse(queueSize);
+        final int numToRetrieve = Optional.ofNullable(limit)
+            .filter(value -> value > 0)
+            .orElse(queueSize);
 
-            final HandleGetMessages handleGetMessages = new HandleGetMessages(messagePropertiesConverter, messageConverterService, queueProperties, numToRetrieve);
-            for (int i = 0; i < numToRetrieve; i++) {
-                rabbitMqConnectionService.getReadRabbitTemplate(queueId).execute(handleGetMessages);
-            }
+        final HandleGetMessages handleGetMessages =
+            new HandleGetMessages(messagePropertiesConverter, messageConverterService, Math.min(numToRetrieve, queueSize), queueProperties);
+        final ScanSession scanSession = new ScanSession(queueProperties, Math.min(numToRetrieve, queueSize), handleGetMessages);
+        executeScan(queueId, queueProperties, scanSession);
+        queueSizeCache.put(queueId, scanSession.getObservedQueueSize());
 
-            return handleGetMessages.getDlqMessages();
-        } finally {
-
-            //TODO: Need to move this logic into RabbitMqConnectionService so it flushes the connection from cache
-
-            // Close connection so 'Unacked' messages could be put back to 'Ready' state
-            // Connection will be automatically reestablished on next Actuator endpoint invocation
-            rabbitMqConnectionService.destroyReadConnection(queueId);
+        if (handleGetMessages.isTruncated()) {
+            LOG.warn("Read stopped at max-scan-bytes. [QueueId: {}, Messages: {}, Bytes: {}]",
+                queueId, handleGetMessages.getDlqMessages().size(), handleGetMessages.getBytesConverted());
         }
+
+        return ImmutableDlqMessagePage.builder()
+            .setMessages(handleGetMessages.getDlqMessages())
+            .setOffset(0)
+            .setQueueSize(queueSize)
+            .setQueueChanged(false)
+            .setTruncated(handleGetMessages.isTruncated())
+            .build();
     }
 
     /**
-     * Drop all messages in the queue.
+     * Retrieves a single page of messages from the DLQ. Messages before the page are skipped without being converted, so only the page itself
+     * is ever held in memory. Identical calls made while one is running share its scan.
      *
      * @param queueId Queue Property Key, this is not the actual name of the queue
-     * @return
+     * @param offset Number of messages to skip, ignored when a cursor is passed in
+     * @param pageSize Max number of messages in the page, defaults to {@link #DEFAULT_PAGE_SIZE}
+     * @param cursor Position returned with the previous page
+     * @return null if the queue can not be read
      */
-    public boolean dropMessages(final String queueId) {
+    @Nullable
+    public DlqMessagePage getMessagePage(
+        final String queueId,
+        @Nullable final Integer offset,
+        @Nullable final Integer pageSize,
+        @Nullable final MessagePageCursor cursor
+    ) {
+        return record("get", queueId, () -> matchedPage(scanCoordinator.coalesce(Arrays.asList("page", queueId, offset, pageSize, cursor),
+            () -> readMessagePage(queueId, offset, pageSize, cursor))));
+    }
 
+    @Nullable
+    private DlqMessagePage readMessagePage(
+        final String queueId,
+        @Nullable final Integer offset,
+        @Nullable final Integer pageSize,
+        @Nullable final MessagePageCursor cursor
+    ) {
         final Integer queueSize = getQueueSize(queueId);
         if (queueSize == null) {
             LOG.error("Queue size is null.");
-            return false;
+            return null;
         }
 
         final QueueProperties queueProperties = virgilPropertyConfig.getQueueProperties(queueId);
         if(queueProperties == null) {
             LOG.error("QueueProperties is null. QueueId: {}", queueId);
-            return false;
+            return null;
         }
 
-        final HandleDropMessages handleDropMessages = new HandleDropMessages(queueProperties.getReadName());
+        final int pageOffset = cursor != null
+            ? cursor.offset()
+            : Optional.ofNullable(offset).filter(value -> value > 0).orElse(0);
+        final int numToRetrieve = Optional.ofNullable(pageSize)
+            .filter(value -> value > 0)
+            .orElse(DEFAULT_PAGE_SIZE);
+
+        final HandleGetMessagePage handleGetMessagePage =
+            new HandleGetMessagePage(messagePropertiesConverter, messageConverterService, pageOffset, numToRetrieve, queueProperties);
+        final int maxMessages = (int) Math.min((long) pageOffset + numToRetrieve, queueSize);
+        final ScanSession scanSession = new ScanSession(queueProperties, maxMessages, handleGetMessagePage);
+        executeScan(queueId, queueProperties, scanSession);
+        queueSizeCache.put(queueId, scanSession.getObservedQueueSize());
+
+        final List<VirgilMessage> messages = handleGetMessagePage.getDlqMessages();
+        final String headId = handleGetMessagePage.getHeadId();
+        final int nextOffset = pageOffset + messages.size();
+
+        final ImmutableDlqMessagePage.Builder pageBuilder = ImmutableDlqMessagePage.builder()
+            .setMessages(messages)
+            .setOffset(pageOffset)
+            .setQueueSize(queueSize)
+            .setQueueChanged(cursor != null && !cursor.headId().equals(headId))
+            .setTruncated(handleGetMessagePage.isTruncated());
+
+        if (headId != null && !messages.isEmpty() && nextOffset < queueSize) {
+            pageBuilder.setNextCursor(new MessagePageCursor(nextOffset, headId).encode());
+        }
 
-        final RabbitTemplate rabbitTemplate = rabbitMqConnectionService.getReadRabbitTemplate(queueId);
+        return pageBuilder.build();
+    }
+
+    /**
+     * Finds a single message by id without acking it. The scan stops at the first message with the id, and only that message is kept.
+     * Identical calls made while one is running share its scan.
+     *
+     * @param queueId Queue Property Key, this is not the actual name of the queue
+     * @param messageId Virgil id of the message, see {@link VirgilMessage#getId()}
+     * @return null if the queue can not be read or no message has the id
+     */
+    @Nullable
+    public Message findMessage(final String queueId, final String messageId) {
+        return record("find", queueId, () -> {
+            if (!StringUtils.hasLength(messageId)) {
+                LOG.error("MessageId is empty. QueueId: {}", queueId);
+                return null;
+            }
 
-        rabbitTemplate.execute(handleDropMessages);
+            final Integer queueSize = getQueueSize(queueId);
+            if (queueSize == null) {
+                LOG.error("Queue size is null. QueueId: {}", queueId);
+                return null;
+            }
 
-        return true;
+            final QueueProperties queueProperties = virgilPropertyConfig.getQueueProperties(queueId);
+            if(queueProperties == null) {
+                LOG.error("QueueProperties is null. QueueId: {}", queueId);
+                return null;
+            }
+
+            final Message foundMessage = scanCoordinator.coalesce(Arrays.asList("find", queueId, messageId), () -> {
+                final HandleFindMessage handleFindMessage = new HandleFindMessage(messagePropertiesConverter, messageConverterService, messageId);
+                final ScanSession scanSession = new ScanSession(queueProperties, queueSize, handleFindMessage);
+                executeScan(queueId, queueProperties, scanSession);
+                queueSizeCache.put(queueId, scanSession.getObservedQueueSize());
+
+                return handleFindMessage.getFoundMessage();
+            });
+            OperationMetrics.current().matched(foundMessage != null ? 1 : 0);
+
+            return foundMessage;
+        });
     }
 
     /**
-     * Acknowledges a message on the DLQ
+     * Runs a scan of the queue under the queue's lease, so that it never sees the queue while another scan is holding part of it
      *
-     * @param queueId Queue Property Key, this is not the actual name of the queue
-     * @param messageId
-     * @return
+     * @throws QueueBusyException if the lease could not be acquired in time
      */
-    public AckCertainMessageResponse ackCertainMessage(final String queueId, final String messageId) {
+    private <T> T executeScan(final String queueId, final QueueProperties queueProperties, final ChannelCallback<T> scan) {
+        final OperationMetrics.Operation operation = OperationMetrics.current();
+        final long leaseStartNanos = System.nanoTime();
+        try (ScanCoordinator.Lease lease = acquireLease(queueId, queueProperties)) {
+            operation.addPhaseSince(OperationMetrics.Phase.LEASE, leaseStartNanos);
+            operation.channelRequested();
+            try {
+                return rabbitMqConnectionService.getReadRabbitTemplate(queueId).execute(scan);
+            } finally {
+                operation.channelClosed();
+            }
+        }
+    }
 
-        if (StringUtils.isEmpty(messageId)) {
-            LOG.error("messageId is null or empty. QueueId: {}", queueId);
-            return ImmutableAckCertainMessageResponse.builder()
-                .setSuccess(false)
-                .build();
+    /**
+     * Runs a public operation, recording its meters, see {@link OperationMetrics}
+     */
+    private <T> T record(final String operationName, final String queueId, final Supplier<T> operation) {
+        final QueueProperties queueProperties = virgilPropertyConfig.getQueueProperties(queueId);
+        final String binderName = queueProperties != null ? queueProperties.getReadBinderName() : "unknown";
+        return operationMetrics.record(operationName, queueId, binderName, operation);
+    }
+
+    /**
+     * Runs the body, handing the statistics of the operation it runs to the consumer once that operation is over, see
+     * {@link OperationStats}. The consumer is not called if the body runs no operation.
+     *
+     * @param body Code calling one of the operations of this class
+     * @param statsConsumer Consumer of the statistics, called on the thread running the body
+     * @param <T> Type of the result
+     * @return Result of the body
+     */
+    public <T> T collectStats(final Supplier<T> body, final Consumer<OperationStats> statsConsumer) {
+        return OperationMetrics.collectStats(body, statsConsumer);
+    }
+
+    /**
+     * Counts the messages of the page as matched, and the operation as truncated if the page is
+     */
+    @Nullable
+    private static DlqMessagePage matchedPage(@Nullable final DlqMessagePage page) {
+        if (page != null) {
+            final OperationMetrics.Operation operation = OperationMetrics.current();
+            operation.matched(page.getMessages().size());
+            if (page.isTruncated()) {
+                operation.truncated();
+            }
         }
+        return page;
+    }
 
-        final Integer queueSize = getQueueSize(queueId);
-        if (queueSize == null) {
-            LOG.error("Queue size is null. QueueId: {}", queueId);
-            return ImmutableAckCertainMessageResponse.builder()
-                .setSuccess(false)
-                .build();
+    /**
+     * Runs a scan that acks messages, forgetting the cached size of the queue once it is over since the size no longer holds
+     */
+    private <T> T executeMutatingScan(final String queueId, final QueueProperties queueProperties, final ChannelCallback<T> scan) {
+        try {
+            return executeScan(queueId, queueProperties, scan);
+        } finally {
+            queueSizeCache.invalidate(queueId);
         }
+    }
 
-        final QueueProperties queueProperties = virgilPropertyConfig.getQueueProperties(queueId);
-        if(queueProperties == null) {
-            LOG.error("QueueProperties is null. QueueId: {}", queueId);
-            return ImmutableAckCertainMessageResponse.builder()
-                .setSuccess(false)
-                .build();
+    /**
+     * Takes the lease of the queue within this instance and, when the scan lease is distributed, across every instance reading from the
+     * same broker. Both are waited on for at most the wait-timeout of the scan lease in total.
+     */
+    private ScanCoordinator.Lease acquireLease(final String queueId, final QueueProperties queueProperties) {
+        final ScanLeaseProperties scanLease = virgilPropertyConfig.getScanLease();
+        final long deadlineNanos = System.nanoTime() + scanLease.getWaitTimeout().toNanos();
+
+        final ScanCoordinator.Lease localLease = scanCoordinator.lease(queueId, scanLease.getWaitTimeout());
+        if (!scanLease.isDistributed()) {
+            return localLease;
         }
 
+        final BrokerScanLease brokerLease;
         try {
+            brokerLease = BrokerScanLease.acquire(
+                rabbitMqConnectionService, queueId, scanLease.getQueuePrefix() + queueProperties.getReadName(), deadlineNanos);
+        } catch (final RuntimeException ex) {
+            localLease.close();
+            throw ex;
+        }
 
-            final HandleAckCertainMessage handleAckCertainMessage = new HandleAckCertainMessage(messagePropertiesConverter, messageConverterService, queueProperties, messageId);
-            final RabbitTemplate rabbitTemplate = rabbitMqConnectionService.getReadRabbitTemplate(queueId);
-            for (int i = 0; i < queueSize; i++) {
-                rabbitTemplate.execute(handleAckCertainMessage);
+        return () -> {
+            try {
+                brokerLease.close();
+            } finally {
+                localLease.close();
+            }
+        };
+    }
 
-                //break out of loop if we have ack'd the message
-                if (handleAckCertainMessage.hasMessageBeenAckd()) {
-                    break;
-                }
+    /**
+     * Opens a stream over the DLQ that pulls each message off the queue only when it is asked for. The stream holds the lease of the queue
+     * from the moment it is opened, its channel is opened on the first read, and both must be released by closing the stream. A stream
+     * nothing is read from for the stream-idle-timeout of the queue is closed for the caller. The stream is recorded as a single operation,
+     * from the moment it is opened until it is closed.
+     *
+     * @param queueId Queue Property Key, this is not the actual name of the queue
+     * @param limit Limits the number of messages streamed from DLQ
+     * @return null if the queue can not be read
+     * @throws QueueBusyException if the lease could not be acquired in time
+     */
+    @Nullable
+    public MessageStream openMessageStream(final String queueId, @Nullable final Integer limit) {
+        return record("stream", queueId, () -> {
+            final Integer queueSize = getQueueSize(queueId);
+            if (queueSize == null) {
+                LOG.error("Queue size is null.");
+                return null;
+            }
+
+            final QueueProperties queueProperties = virgilPropertyConfig.getQueueProperties(queueId);
+            if(queueProperties == null) {
+                LOG.error("QueueProperties is null. QueueId: {}", queueId);
+                return null;
             }
 
+            final int numToRetrieve = Optional.ofNullable(limit)
+                .filter(value -> value > 0)
+                .map(value -> Math.min(value, queueSize))
+                .orElse(queueSize);
+
+            // the stream holds its messages unacked until it is closed, like any other scan
+            final OperationMetrics.Operation operation = OperationMetrics.current();
+            final long leaseStartNanos = System.nanoTime();
+            final ScanCoordinator.Lease lease = acquireLease(queueId, queueProperties);
+            operation.addPhaseSince(OperationMetrics.Phase.LEASE, leaseStartNanos);
+
+            operation.detach();
+            final MessageStream stream = new MessageStream(rabbitMqConnectionService, messagePropertiesConverter, messageConverterService,
+                queueProperties, queueId, numToRetrieve, lease, operation);
+            messageStreams.register(stream, queueProperties.getStreamIdleTimeout());
+            return stream;
+        });
+    }
+
+    /**
+     * Drop all messages in the queue.
+     *
+     * @param queueId Queue Property Key, this is not the actual name of the queue
+     * @return
+     */
+    public boolean dropMessages(final String queueId) {
+        return record("purge", queueId, () -> {
+            final Integer queueSize = getFreshQueueSize(queueId);
+            if (queueSize == null) {
+                LOG.error("Queue size is null.");
+                return false;
+            }
+
+            final QueueProperties queueProperties = virgilPropertyConfig.getQueueProperties(queueId);
+            if(queueProperties == null) {
+                LOG.error("QueueProperties is null. QueueId: {}", queueId);
+                return false;
+            }
+
+            final HandleDropMessages handleDropMessages = new HandleDropMessages(queueProperties.getReadName());
+
+            executeMutatingScan(queueId, queueProperties, handleDropMessages);
+
+            return true;
+        });
+    }
+
+    /**
+     * Acknowledges a message on the DLQ
+     *
+     * @param queueId Queue Property Key, this is not the actual name of the queue
+     * @param messageId
+     * @return
+     */
+    public AckCertainMessageResponse ackCertainMessage(final String queueId, final String messageId) {
+        return record("ack", queueId, () -> {
+            if (StringUtils.isEmpty(messageId)) {
+                LOG.error("messageId is null or empty. QueueId: {}", queueId);
+                return ImmutableAckCertainMessageResponse.builder()
+                    .setSuccess(false)
+                    .build();
+            }
+
+            final Integer queueSize = getFreshQueueSize(queueId);
+            if (queueSize == null) {
+                LOG.error("Queue size is null. QueueId: {}", queueId);
+                return ImmutableAckCertainMessageResponse.builder()
+                    .setSuccess(false)
+                    .build();
+            }
+
+            final QueueProperties queueProperties = virgilPropertyConfig.getQueueProperties(queueId);
+            if(queueProperties == null) {
+                LOG.error("QueueProperties is null. QueueId: {}", queueId);
+                return ImmutableAckCertainMessageResponse.builder()
+                    .setSuccess(false)
+                    .build();
+            }
+
+            final HandleAckCertainMessage handleAckCertainMessage = new HandleAckCertainMessage(messagePropertiesConverter, messageConverterService, messageId);
+            executeMutatingScan(queueId, queueProperties, new ScanSession(queueProperties, queueSize, handleAckCertainMessage));
+
+            OperationMetrics.current().matched(handleAckCertainMessage.hasMessageBeenAckd() ? 1 : 0);
+
             final ImmutableAckCertainMessageResponse.Builder responseBuilder = ImmutableAckCertainMessageResponse.builder()
                 .setSuccess(handleAckCertainMessage.hasMessageBeenAckd());
 
@@ -206,16 +596,51 @@ public class MessageOperator {
             }
 
             return responseBuilder.build();
-        } finally {
-            //TODO: Need to move this logic into RabbitMqConnectionService so it flushes the connection from cache
+        });
+    }
 
-            // Close connection so 'Unacked' messages could be put back to 'Ready' state
-            // Connection will be automatically reestablished on next Actuator endpoint invocation
-            rabbitMqConnectionService.destroyReadConnection(queueId);
-        }
+    /**
+     * Acknowledges every message whose id is in the set, in a single pass over the DLQ that stops as soon as every id has been found
+     *
+     * @param queueId Queue Property Key, this is not the actual name of the queue
+     * @param messageIds Ids of the messages to ack
+     * @return Outcome per id along with statistics about the scan
+     */
+    public BulkAckMessageResponse ackMessages(final String queueId, final Collection<String> messageIds) {
+        return record("ack", queueId, () -> {
+            final Set<String> targetIds = toTargetIds(messageIds);
+            final ImmutableBulkAckMessageResponse.Builder responseBuilder = ImmutableBulkAckMessageResponse.builder();
+
+            final Integer queueSize = targetIds.isEmpty() ? null : getFreshQueueSize(queueId);
+            final QueueProperties queueProperties = virgilPropertyConfig.getQueueProperties(queueId);
+            if (queueSize == null || queueProperties == null) {
+                LOG.error("Unable to ack messages. QueueId: {}", queueId);
+                targetIds.forEach(id -> responseBuilder.putResults(id, false));
+                return responseBuilder
+                    .setScanStatistics(emptyScanStatistics())
+                    .build();
+            }
+
+            final HandleAckMessages handleAckMessages = new HandleAckMessages(messageConverterService, targetIds);
+            final ScanSession scanSession = new ScanSession(queueProperties, queueSize, handleAckMessages);
+            executeMutatingScan(queueId, queueProperties, scanSession);
+
+            targetIds.forEach(id -> responseBuilder.putResults(id, handleAckMessages.getAckedIds().contains(id)));
+            OperationMetrics.current().matched(handleAckMessages.getAckedIds().size());
+
+            return responseBuilder
+                .setScanStatistics(ImmutableScanStatistics.builder()
+                    .setMessagesScanned(scanSession.getMessagesScanned())
+                    .setMessagesMatched(handleAckMessages.getAckedIds().size())
+                    .setBytesScanned(handleAckMessages.getBytesScanned())
+                    .setComplete(handleAckMessages.getAckedIds().size() == targetIds.size())
+                    .build())
+                .build();
+        });
     }
 
     /**
+     * Republishes a single message, see {@link #republishMessages(String, Collection)}
      *
      * @param queueId Queue Property Key, this is not the actual name of the queue
      * @param messageId
@@ -230,106 +655,733 @@ public class MessageOperator {
                 .build();
         }
 
-        final Integer queueSize = getQueueSize(queueId);
-        if (queueSize == null) {
-            LOG.warn("Queue size is null.");
-            return ImmutableRepublishMessageResponse.builder()
-                .setSuccess(false)
+        final BulkRepublishMessageResponse response = republishMessages(queueId, Collections.singletonList(messageId));
+
+        return ImmutableRepublishMessageResponse.builder()
+            .setSuccess(response.isSuccess())
+            .build();
+    }
+
+    /**
+     * Republishes every message whose id is in the set, in a single pass over the DLQ that stops as soon as every id has been found. Each
+     * DLQ copy is only ack'd once the broker has confirmed its republish.
+     *
+     * @param queueId Queue Property Key, this is not the actual name of the queue
+     * @param messageIds Ids of the messages to republish
+     * @return Outcome per id along with statistics about the scan
+     */
+    public BulkRepublishMessageResponse republishMessages(final String queueId, final Collection<String> messageIds) {
+        return record("republish", queueId, () -> {
+            final Set<String> targetIds = toTargetIds(messageIds);
+            final ImmutableBulkRepublishMessageResponse.Builder responseBuilder = ImmutableBulkRepublishMessageResponse.builder();
+
+            final Integer queueSize = targetIds.isEmpty() ? null : getFreshQueueSize(queueId);
+            final QueueProperties queueProperties = virgilPropertyConfig.getQueueProperties(queueId);
+            if (queueSize == null || queueProperties == null) {
+                LOG.error("Unable to republish messages. QueueId: {}", queueId);
+                targetIds.forEach(id -> responseBuilder.putResults(id, false));
+                return responseBuilder
+                    .setScanStatistics(emptyScanStatistics())
+                    .build();
+            }
+
+            final HandleRepublishMessages handleRepublishMessages =
+                new HandleRepublishMessages(rabbitMqConnectionService, messageConverterService, queueProperties, queueId, targetIds);
+            final ScanSession scanSession = new ScanSession(queueProperties, queueSize, handleRepublishMessages);
+            executeMutatingScan(queueId, queueProperties, scanSession);
+
+            targetIds.forEach(id -> responseBuilder.putResults(id, handleRepublishMessages.getRepublishedIds().contains(id)));
+            OperationMetrics.current().matched(handleRepublishMessages.getMessagesMatched());
+
+            return responseBuilder
+                .setScanStatistics(ImmutableScanStatistics.builder()
+                    .setMessagesScanned(scanSession.getMessagesScanned())
+                    .setMessagesMatched(handleRepublishMessages.getMessagesMatched())
+                    .setBytesScanned(handleRepublishMessages.getBytesScanned())
+                    .setComplete(handleRepublishMessages.getMessagesMatched() == targetIds.size())
+                    .build())
+                .build();
+        });
+    }
+
+    /**
+     * Reads messages from the DLQ up to the limit passed in, like {@link #getMessageList(String, Integer)}, but keeps them unacked on a
+     * channel of their own until the browse-session-ttl of the queue expires. Acks and republishes passing the session token act on the
+     * held deliveries directly instead of scanning the queue again. The held messages are invisible to every other reader of the queue
+     * until the session is closed, expires or loses its channel, at which point they are requeued. The session holds the lease of the
+     * queue until then, so every other scan of the queue waits for it.
+     *
+     * @param queueId Queue Property Key, this is not the actual name of the queue
+     * @param limit Limits the number of messages returned from DLQ
+     * @return null if the queue can not be read, otherwise the messages along with the session token
+     * @throws QueueBusyException if the lease could not be acquired in time, or too many browse sessions are open
+     */
+    @Nullable
+    public DlqMessagePage openBrowseSession(final String queueId, @Nullable final Integer limit) {
+        return record("browse", queueId, () -> {
+            final Integer queueSize = getQueueSize(queueId);
+            if (queueSize == null) {
+                LOG.error("Queue size is null. QueueId: {}", queueId);
+                return null;
+            }
+
+            final QueueProperties queueProperties = virgilPropertyConfig.getQueueProperties(queueId);
+            if(queueProperties == null) {
+                LOG.error("QueueProperties is null. QueueId: {}", queueId);
+                return null;
+            }
+
+            final int numToRetrieve = Optional.ofNullable(limit)
+                .filter(value -> value > 0)
+                .map(value -> Math.min(value, queueSize))
+                .orElse(queueSize);
+
+            // the session holds its messages unacked until it is closed, so it holds the lease for as long, like a stream
+            browseSessions.reserve(queueId);
+            final OperationMetrics.Operation operation = OperationMetrics.current();
+            final BrowseSession browseSession;
+            try {
+                final long leaseStartNanos = System.nanoTime();
+                final ScanCoordinator.Lease lease = acquireLease(queueId, queueProperties);
+                operation.addPhaseSince(OperationMetrics.Phase.LEASE, leaseStartNanos);
+                try {
+                    final long connectStartNanos = System.nanoTime();
+                    final Channel channel = rabbitMqConnectionService.openReadChannel(queueId);
+                    operation.addPhaseSince(OperationMetrics.Phase.CONNECT, connectStartNanos);
+                    browseSession =
+                        new BrowseSession(UUID.randomUUID().toString(), queueId, queueProperties, rabbitMqConnectionService, channel, lease);
+                } catch (final RuntimeException ex) {
+                    lease.close();
+                    throw ex;
+                }
+            } catch (final RuntimeException ex) {
+                browseSessions.unreserve();
+                throw ex;
+            }
+
+            final Channel channel = browseSession.getChannel();
+            final HandleBrowseMessages handleBrowseMessages =
+                new HandleBrowseMessages(messagePropertiesConverter, messageConverterService, numToRetrieve, queueProperties, browseSession);
+            final ScanCursor cursor = new ScanCursor(channel, queueProperties, numToRetrieve);
+            try {
+                operation.channelOpened();
+                final ScanEvent scanEvent = new ScanEvent();
+                scanEvent.begin();
+                GetResponse response;
+                while ((response = cursor.next()) != null) {
+                    if (!handleBrowseMessages.visit(channel, response)) {
+                        break;
+                    }
+                }
+                cursor.close();
+                operation.scanFinished(cursor.getMessagesScanned(), cursor.getBytesRead());
+                scanEvent.finish(operation, queueProperties.getReadName(), cursor.getMessagesScanned(), cursor.getBytesRead());
+            } catch (final Exception ex) {
+                if (ex instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                LOG.error("Unable to open browse session. QueueId: {}", queueId, ex);
+                browseSession.close();
+                browseSessions.unreserve();
+                return null;
+            } finally {
+                cursor.finishBatch();
+            }
+
+            browseSessions.register(browseSession, queueProperties.getBrowseSessionTtl());
+            queueSizeCache.invalidate(queueId);
+
+            return matchedPage(ImmutableDlqMessagePage.builder()
+                .setMessages(handleBrowseMessages.getDlqMessages())
+                .setOffset(0)
+                .setQueueSize(queueSize)
+                .setQueueChanged(false)
+                .setTruncated(handleBrowseMessages.isTruncated())
+                .setSessionToken(browseSession.getToken())
+                .build());
+        });
+    }
+
+    /**
+     * Acks messages held by a browse session, without scanning the queue. Falls back to {@link #ackMessages(String, Collection)} once the
+     * session has expired, since its messages are back on the queue by then.
+     *
+     * @param queueId Queue Property Key, this is not the actual name of the queue
+     * @param sessionToken Token returned by {@link #openBrowseSession(String, Integer)}
+     * @param messageIds Ids of the messages to ack
+     * @return Outcome per id along with statistics about the scan, if one was needed
+     */
+    public BulkAckMessageResponse ackMessages(final String queueId, final String sessionToken, final Collection<String> messageIds) {
+        return record("ack", queueId, () -> {
+            final BrowseSession browseSession = getBrowseSession(queueId, sessionToken);
+            if (browseSession == null) {
+                return ackMessages(queueId, messageIds);
+            }
+
+            final Set<String> targetIds = toTargetIds(messageIds);
+            final Map<String, Boolean> results = browseSession.ack(targetIds);
+            queueSizeCache.invalidate(queueId);
+
+            final ScanStatistics scanStatistics = heldScanStatistics(results);
+            OperationMetrics.current().matched(scanStatistics.getMessagesMatched());
+
+            return ImmutableBulkAckMessageResponse.builder()
+                .setResults(results)
+                .setScanStatistics(scanStatistics)
+                .build();
+        });
+    }
+
+    /**
+     * Republishes messages held by a browse session, without scanning the queue. Each held delivery is only ack'd once the broker has
+     * confirmed its republish. Falls back to {@link #republishMessages(String, Collection)} once the session has expired, since its
+     * messages are back on the queue by then.
+     *
+     * @param queueId Queue Property Key, this is not the actual name of the queue
+     * @param sessionToken Token returned by {@link #openBrowseSession(String, Integer)}
+     * @param messageIds Ids of the messages to republish
+     * @return Outcome per id along with statistics about the scan, if one was needed
+     */
+    public BulkRepublishMessageResponse republishMessages(final String queueId, final String sessionToken, final Collection<String> messageIds) {
+        return record("republish", queueId, () -> {
+            final BrowseSession browseSession = getBrowseSession(queueId, sessionToken);
+            if (browseSession == null) {
+                return republishMessages(queueId, messageIds);
+            }
+
+            final Set<String> targetIds = toTargetIds(messageIds);
+            Map<String, Boolean> results;
+            try {
+                results = browseSession.republish(targetIds);
+            } catch (final IOException | InterruptedException ex) {
+                if (ex instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                LOG.error("Unable to republish held messages. QueueId: {}", queueId, ex);
+                results = new LinkedHashMap<>();
+                for (final String id : targetIds) {
+                    results.put(id, false);
+                }
+            }
+            queueSizeCache.invalidate(queueId);
+
+            final ScanStatistics scanStatistics = heldScanStatistics(results);
+            OperationMetrics.current().matched(scanStatistics.getMessagesMatched());
+
+            return ImmutableBulkRepublishMessageResponse.builder()
+                .setResults(results)
+                .setScanStatistics(scanStatistics)
                 .build();
+        });
+    }
+
+    /**
+     * Closes a browse session, putting every message it still holds back on the queue
+     *
+     * @param queueId Queue Property Key, this is not the actual name of the queue
+     * @param sessionToken Token returned by {@link #openBrowseSession(String, Integer)}
+     * @return false if the session was unknown or had already expired
+     */
+    public boolean closeBrowseSession(final String queueId, final String sessionToken) {
+        return getBrowseSession(queueId, sessionToken) != null && browseSessions.close(sessionToken);
+    }
+
+    @Nullable
+    private BrowseSession getBrowseSession(final String queueId, @Nullable final String sessionToken) {
+        if (!StringUtils.hasText(sessionToken)) {
+            return null;
+        }
+
+        final BrowseSession browseSession = browseSessions.get(sessionToken);
+        if (browseSession == null || !browseSession.getQueueId().equals(queueId)) {
+            LOG.info("Browse session is unknown or expired. QueueId: {}", queueId);
+            return null;
+        }
+        return browseSession;
+    }
+
+    /**
+     * Nothing is scanned when acting on held messages, every id that was held counts as matched
+     */
+    private static ScanStatistics heldScanStatistics(final Map<String, Boolean> results) {
+        final long acted = results.values().stream().filter(Boolean::booleanValue).count();
+        return ImmutableScanStatistics.builder()
+            .setMessagesScanned(0)
+            .setMessagesMatched((int) acted)
+            .setBytesScanned(0)
+            .setComplete(acted == results.size())
+            .build();
+    }
+
+    /**
+     * Drops blank and duplicate ids while keeping the order they were requested in
+     */
+    private static Set<String> toTargetIds(@Nullable final Collection<String> messageIds) {
+        final Set<String> targetIds = new LinkedHashSet<>();
+        if (messageIds != null) {
+            messageIds.stream()
+                .filter(StringUtils::hasText)
+                .forEach(targetIds::add);
+        }
+        return targetIds;
+    }
+
+    private static ScanStatistics emptyScanStatistics() {
+        return ImmutableScanStatistics.builder()
+            .setMessagesScanned(0)
+            .setMessagesMatched(0)
+            .setBytesScanned(0)
+            .setComplete(false)
+            .build();
+    }
+
+    /**
+     * Visits every message pulled off the queue during a {@link ScanSession}
+     */
+    protected interface MessageVisitor {
+
+        /**
+         * @param channel Channel the message was delivered on, any ack must happen on this channel
+         * @param response Message delivered by the broker
+         * @return true to keep scanning, false once the visitor no longer needs any more messages
+         */
+        boolean visit(Channel channel, GetResponse response) throws Exception;
+
+        /**
+         * Called once the scan is over, while the channel is still open
+         *
+         * @param channel Channel the messages were delivered on
+         */
+        default void complete(final Channel channel) throws Exception {
+        }
+    }
+
+    /**
+     * Runs a whole scan of the queue on a single channel so that per-message cost is just the AMQP frames, rather than a channel checkout
+     * per message.
+     * <p>
+     * Messages are never ack'd by the session itself, visitors decide what to ack. Everything else stays unacked on the channel until it is
+     * physically closed at the end of the scan, which puts those messages back into the 'Ready' state while the connection itself stays open.
+     */
+    protected static class ScanSession implements ChannelCallback<Integer> {
+
+        private final QueueProperties queueProperties;
+        private final int maxMessages;
+        private final MessageVisitor visitor;
+
+        private int messagesScanned;
+        @Nullable
+        private Integer observedQueueSize;
+
+        /**
+         *
+         * @param queueProperties Queue being scanned
+         * @param maxMessages Upper bound of messages pulled off the queue
+         * @param visitor Called for every message that is pulled off the queue
+         */
+        public ScanSession(
+            final QueueProperties queueProperties,
+            final int maxMessages,
+            final MessageVisitor visitor
+        ) {
+            this.queueProperties = queueProperties;
+            this.maxMessages = maxMessages;
+            this.visitor = visitor;
+        }
+
+        @Override
+        public Integer doInRabbit(final Channel channel) throws Exception {
+            final OperationMetrics.Operation operation = OperationMetrics.current();
+            operation.channelOpened();
+            final ScanEvent scanEvent = new ScanEvent();
+            scanEvent.begin();
+            final ScanCursor cursor = new ScanCursor(channel, queueProperties, maxMessages);
+            try {
+                GetResponse response;
+                while ((response = cursor.next()) != null) {
+                    if (!visitor.visit(channel, response)) {
+                        break;
+                    }
+                }
+                cursor.close();
+                visitor.complete(channel);
+            } finally {
+                cursor.finishBatch();
+                messagesScanned = cursor.getMessagesScanned();
+                observedQueueSize = cursor.getObservedQueueSize();
+                operation.scanFinished(messagesScanned, cursor.getBytesRead());
+                scanEvent.finish(operation, queueProperties.getReadName(), messagesScanned, cursor.getBytesRead());
+                // closing the channel (rather than returning it to the cache) is what requeues the unacked deliveries
+                RabbitMqConnectionService.releaseChannel(channel);
+            }
+
+            return messagesScanned;
+        }
+
+        public int getMessagesScanned() {
+            return messagesScanned;
+        }
+
+        /**
+         * @return See {@link ScanCursor#getObservedQueueSize()}
+         */
+        @Nullable
+        public Integer getObservedQueueSize() {
+            return observedQueueSize;
+        }
+    }
+
+    /**
+     * Pulls messages off the queue one at a time, through basicGet or a consumer depending on the {@link ReadMode} of the queue. Nothing is
+     * ever ack'd here, the caller owns the channel and is responsible for releasing it.
+     * <p>
+     * Every batch is observed as a child of the running operation: one per consumer, or every prefetchCount basicGets.
+     */
+    protected static class ScanCursor {
+
+        private final Channel channel;
+        private final QueueProperties queueProperties;
+        private final int maxMessages;
+        private final BlockingQueue<GetResponse> deliveries = new LinkedBlockingQueue<>();
+
+        @Nullable
+        private String consumerTag;
+        @Nullable
+        private BatchConsumer consumer;
+        private int batchSize;
+        private int batchReceived;
+        private long batchBytes;
+        @Nullable
+        private Observation batchObservation;
+        @Nullable
+        private ScanBatchEvent batchEvent;
+        private int messagesScanned;
+        private long bytesRead;
+        private boolean drained;
+        @Nullable
+        private Integer observedQueueSize;
+
+        /**
+         *
+         * @param channel Channel the messages are pulled on
+         * @param queueProperties Queue being scanned
+         * @param maxMessages Upper bound of messages pulled off the queue
+         */
+        public ScanCursor(
+            final Channel channel,
+            final QueueProperties queueProperties,
+            final int maxMessages
+        ) {
+            this.channel = channel;
+            this.queueProperties = queueProperties;
+            this.maxMessages = maxMessages;
+        }
+
+        /**
+         * @return The next message, null once the queue is drained or maxMessages have been pulled
+         */
+        @Nullable
+        public GetResponse next() throws IOException, InterruptedException {
+            if (drained || messagesScanned >= maxMessages) {
+                close();
+                return null;
+            }
+
+            final GetResponse response = queueProperties.getReadMode() == ReadMode.CONSUMER
+                ? receive()
+                : basicGet();
+
+            if (response == null) {
+                drained = true;
+                if (queueProperties.getReadMode() == ReadMode.BASIC_GET) {
+                    observedQueueSize = messagesScanned;
+                }
+                close();
+                return null;
+            }
+
+            messagesScanned++;
+            bytesRead += bodyLength(response);
+            if (queueProperties.getReadMode() == ReadMode.BASIC_GET) {
+                // the count excludes every delivery this cursor is holding, the scan puts them back once it is over
+                observedQueueSize = response.getMessageCount() + messagesScanned;
+            }
+            return response;
+        }
+
+        @Nullable
+        private GetResponse basicGet() throws IOException {
+            if (batchObservation == null) {
+                startBatch();
+            }
+
+            final GetResponse response = channel.basicGet(queueProperties.getReadName(), false);
+            if (response != null) {
+                batchReceived++;
+                batchBytes += bodyLength(response);
+                if (batchReceived == queueProperties.getPrefetchCount()) {
+                    finishBatch();
+                }
+            }
+            return response;
+        }
+
+        /**
+         * Messages are never ack'd here, so a consumer stops receiving once its prefetch window is full. Every batch therefore gets its own
+         * consumer since QoS is applied per consumer.
+         */
+        @Nullable
+        private GetResponse receive() throws IOException, InterruptedException {
+            if (consumerTag != null && batchReceived == batchSize) {
+                close();
+            }
+
+            if (consumerTag == null) {
+                batchSize = Math.min(queueProperties.getPrefetchCount(), maxMessages - messagesScanned);
+                startBatch();
+
+                // QoS only applies to consumers registered after this call
+                channel.basicQos(batchSize);
+                consumer = new BatchConsumer(channel);
+                consumerTag = channel.basicConsume(queueProperties.getReadName(), false, consumer);
+            }
+
+            final GetResponse response = deliveries.poll(CONSUMER_RECEIVE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            if (response != null) {
+                batchReceived++;
+                batchBytes += bodyLength(response);
+            }
+            return response;
+        }
+
+        /**
+         * Cancels the active consumer, if any, and requeues every delivery it received that was not handed out. Safe to call more than once.
+         */
+        public void close() throws IOException {
+            finishBatch();
+            if (consumerTag != null) {
+                final String tag = consumerTag;
+                final BatchConsumer cancelledConsumer = consumer;
+                consumerTag = null;
+                consumer = null;
+                channel.basicCancel(tag);
+                if (cancelledConsumer != null) {
+                    cancelledConsumer.cancelled();
+                }
+            }
+        }
+
+        /**
+         * Stops the observation of the running batch, if any. Safe to call more than once.
+         */
+        public void finishBatch() {
+            if (batchObservation != null) {
+                batchObservation.highCardinalityKeyValue("messages", String.valueOf(batchReceived)).stop();
+                batchObservation = null;
+            }
+            if (batchEvent != null) {
+                batchEvent.finish(OperationMetrics.current(), queueProperties.getReadName(), readModeName(), batchReceived, batchBytes);
+                batchEvent = null;
+            }
+        }
+
+        private void startBatch() {
+            batchReceived = 0;
+            batchBytes = 0L;
+            batchObservation = OperationMetrics.current().startObservation(
+                OperationMetrics.SCAN_BATCH_OBSERVATION, KeyValues.of("read.mode", readModeName()));
+            batchEvent = new ScanBatchEvent();
+            batchEvent.begin();
+        }
+
+        private String readModeName() {
+            return queueProperties.getReadMode().name().toLowerCase();
         }
 
-        try {
-            final QueueProperties queueProperties = virgilPropertyConfig.getQueueProperties(queueId);
-            if(queueProperties == null) {
-                LOG.error("QueueProperties is null. QueueId: {}", queueId);
-                return ImmutableRepublishMessageResponse.builder()
-                    .setSuccess(false)
-                    .build();
+        /**
+         * Queues deliveries until the consumer is cancelled. Deliveries that were queued but never handed out, and the ones still in flight
+         * when the cancel went through, are rejected so that they go back on the queue instead of staying unacked on the channel.
+         */
+        private class BatchConsumer extends DefaultConsumer {
+
+            private boolean cancelled;
+
+            BatchConsumer(final Channel channel) {
+                super(channel);
             }
 
-            final HandleRepublishMessage handleRepublishMessage = new HandleRepublishMessage(rabbitMqConnectionService, messagePropertiesConverter, messageConverterService, queueProperties, queueId, messageId);
-            final RabbitTemplate rabbitTemplate = rabbitMqConnectionService.getReadRabbitTemplate(queueId);
-            for (int i = 0; i < queueSize; i++) {
-                rabbitTemplate.execute(handleRepublishMessage);
+            @Override
+            public void handleDelivery(final String consumerTag, final Envelope envelope, final BasicProperties properties, final byte[] body)
+                throws IOException {
+                synchronized (deliveries) {
+                    if (!cancelled) {
+                        deliveries.add(new GetResponse(envelope, properties, body, 0));
+                        return;
+                    }
+                }
+                getChannel().basicReject(envelope.getDeliveryTag(), true);
             }
 
-            return ImmutableRepublishMessageResponse.builder()
-                .setSuccess(handleRepublishMessage.isRepublishSuccessful())
-                .build();
-        } finally {
-            //TODO: Need to move this logic into RabbitMqConnectionService so it flushes the connection from cache
+            void cancelled() throws IOException {
+                final List<GetResponse> undelivered = new ArrayList<>();
+                synchronized (deliveries) {
+                    cancelled = true;
+                    deliveries.drainTo(undelivered);
+                }
+                for (final GetResponse response : undelivered) {
+                    getChannel().basicReject(response.getEnvelope().getDeliveryTag(), true);
+                }
+            }
+        }
+
+        public int getMessagesScanned() {
+            return messagesScanned;
+        }
+
+        /**
+         * @return Size of the bodies of every message pulled off the queue
+         */
+        public long getBytesRead() {
+            return bytesRead;
+        }
 
-            // Close connection so 'Unacked' messages could be put back to 'Ready' state
-            // Connection will be automatically reestablished on next Actuator endpoint invocation
-            rabbitMqConnectionService.destroyReadConnection(queueId);
+        /**
+         * Number of messages ready on the queue as of the last basicGet, counting the ones this cursor holds. Consumer deliveries carry no
+         * message count.
+         *
+         * @return null if nothing was read through basicGet
+         */
+        @Nullable
+        public Integer getObservedQueueSize() {
+            return observedQueueSize;
         }
     }
 
-    protected static class HandleRepublishMessage implements ChannelCallback<Void> {
+    /**
+     * Republishes every message whose id is in the target set through a {@link RepublishPipeline}, stopping the scan once every id has been
+     * found. A message is only ack'd off the DLQ once the broker has confirmed its republish.
+     */
+    protected static class HandleRepublishMessages implements MessageVisitor {
 
         private final RabbitMqConnectionService rabbitMqConnectionService;
-        private final MessagePropertiesConverter messagePropertiesConverter;
         private final MessageConverterService messageConverterService;
         private final QueueProperties queueProperties;
         private final String queueName;
-        private final String messageId;
+        private final Set<String> remainingIds;
 
-        private boolean messageRepublished;
+        @Nullable
+        private RepublishPipeline republishPipeline;
+        private Map<String, Boolean> results = Collections.emptyMap();
+        private int messagesMatched;
+        private long bytesScanned;
 
-        public HandleRepublishMessage(
+        public HandleRepublishMessages(
             final RabbitMqConnectionService rabbitMqConnectionService,
-            final MessagePropertiesConverter messagePropertiesConverter,
             final MessageConverterService messageConverterService,
             final QueueProperties queueProperties,
             final String queueName,
-            final String messageId
+            final Set<String> messageIds
         ) {
             this.rabbitMqConnectionService = rabbitMqConnectionService;
-            this.messagePropertiesConverter = messagePropertiesConverter;
             this.messageConverterService = messageConverterService;
             this.queueProperties = queueProperties;
             this.queueName = queueName;
-            this.messageId = messageId;
+            this.remainingIds = new HashSet<>(messageIds);
         }
 
         @Override
-        public Void doInRabbit(final Channel channel) throws Exception {
-            final GetResponse response = channel.basicGet(queueProperties.getReadName(), false);
-            if (response == null) {
-                return null;
+        public boolean visit(final Channel channel, final GetResponse response) throws Exception {
+            bytesScanned += response.getBody().length;
+
+            final long deliveryTag = response.getEnvelope().getDeliveryTag();
+            final String messageId = mapMessageId(messageConverterService, response);
+
+            final long publishStartNanos = System.nanoTime();
+            try {
+                return publish(channel, response, deliveryTag, messageId);
+            } finally {
+                OperationMetrics.current().addPhaseSince(OperationMetrics.Phase.PUBLISH, publishStartNanos);
             }
+        }
 
-            final MessageProperties messageProps =
-                messagePropertiesConverter.toMessageProperties(response.getProps(), response.getEnvelope(), "UTF-8");
-            final Message message = new Message(response.getBody(), messageProps);
-            final VirgilMessage virgilMessage = messageConverterService.mapMessage(message);
+        private boolean publish(final Channel channel, final GetResponse response, final long deliveryTag, final String messageId)
+            throws IOException, InterruptedException {
+            if (republishPipeline == null) {
+                republishPipeline = new RepublishPipeline(
+                    rabbitMqConnectionService.openPublishChannel(queueName),
+                    channel,
+                    RepublishPipeline.DEFAULT_WINDOW,
+                    RepublishPipeline.DEFAULT_CONFIRM_TIMEOUT_MS
+                );
+            }
 
-            if (messageId.equals(virgilMessage.getId())) {
-                channel.basicAck(response.getEnvelope().getDeliveryTag(), false);
+            if (!remainingIds.remove(messageId)) {
+                republishPipeline.skip(deliveryTag);
+                return true;
+            }
+            messagesMatched++;
+
+            republishPipeline.publish(
+                deliveryTag,
+                messageId,
+                queueProperties.getPublishBinderProperties().getName(),
+                queueProperties.getRepublishBindingRoutingKey(),
+                response.getProps(),
+                response.getBody()
+            );
+
+            //stop scanning once every id has been found
+            return !remainingIds.isEmpty();
+        }
 
-                final RabbitTemplate rabbitTemplate = rabbitMqConnectionService.getReadRabbitTemplate(queueName);
+        @Override
+        public void complete(final Channel channel) throws Exception {
+            if (republishPipeline == null) {
+                return;
+            }
 
-                rabbitTemplate.convertAndSend(queueProperties.getReadBinderProperties().getName(), queueProperties.getRepublishBindingRoutingKey(), message);
-                messageRepublished = true;
+            final long publishStartNanos = System.nanoTime();
+            try {
+                results = republishPipeline.finish();
+            } finally {
+                republishPipeline.close();
+                OperationMetrics.current().addPhaseSince(OperationMetrics.Phase.PUBLISH, publishStartNanos);
             }
-            return null;
         }
 
         /**
-         * Returns true if the message was found and ack'd, otherwise returns false
+         * Ids whose republish was confirmed by the broker, and whose DLQ copy has been ack'd
+         *
+         * @return
+         */
+        public Set<String> getRepublishedIds() {
+            final Set<String> republishedIds = new HashSet<>();
+            results.forEach((id, republished) -> {
+                if (republished) {
+                    republishedIds.add(id);
+                }
+            });
+            return republishedIds;
+        }
+
+        /**
+         * Number of target messages found, whether or not their republish succeeded
          *
-         * @return boolean
+         * @return
          */
-        public boolean isRepublishSuccessful() {
-            return this.messageRepublished;
+        public int getMessagesMatched() {
+            return messagesMatched;
+        }
+
+        public long getBytesScanned() {
+            return bytesScanned;
         }
     }
 
-    protected static class HandleAckCertainMessage implements ChannelCallback<String> {
+    protected static class HandleAckCertainMessage implements MessageVisitor {
 
         private final MessagePropertiesConverter messagePropertiesConverter;
         private final MessageConverterService messageConverterService;
-        private final QueueProperties queueProperties;
         private final String messageId;
 
         @Nullable
@@ -339,33 +1391,26 @@ public class MessageOperator {
         public HandleAckCertainMessage(
             final MessagePropertiesConverter messagePropertiesConverter,
             final MessageConverterService messageConverterService,
-            final QueueProperties queueProperties,
             final String messageId
         ) {
             this.messagePropertiesConverter = messagePropertiesConverter;
             this.messageConverterService = messageConverterService;
-            this.queueProperties = queueProperties;
             this.messageId = messageId;
         }
 
         @Override
-        public String doInRabbit(final Channel channel) throws Exception {
-            final GetResponse response = channel.basicGet(queueProperties.getReadName(), false);
-            if (response == null) {
-                return null;
-            }
-
-            final MessageProperties messageProps =
-                messagePropertiesConverter.toMessageProperties(response.getProps(), response.getEnvelope(), "UTF-8");
-            final Message message = new Message(response.getBody(), messageProps);
-            final VirgilMessage virgilMessage = messageConverterService.mapMessage(message);
-
-            if (messageId.equals(virgilMessage.getId())) {
+        public boolean visit(final Channel channel, final GetResponse response) throws Exception {
+            if (messageId.equals(mapMessageId(messageConverterService, response))) {
                 channel.basicAck(response.getEnvelope().getDeliveryTag(), false);
-                ackedMessage = message;
+
+                final MessageProperties messageProps =
+                    messagePropertiesConverter.toMessageProperties(response.getProps(), response.getEnvelope(), "UTF-8");
+                ackedMessage = new Message(response.getBody(), messageProps);
                 messageFound = true;
             }
-            return null;
+
+            //stop scanning once we have ack'd the message
+            return !messageFound;
         }
 
         /**
@@ -388,6 +1433,94 @@ public class MessageOperator {
         }
     }
 
+    /**
+     * Keeps the first message with the id and stops the scan, nothing is ack'd
+     */
+    protected static class HandleFindMessage implements MessageVisitor {
+
+        private final MessagePropertiesConverter messagePropertiesConverter;
+        private final MessageConverterService messageConverterService;
+        private final String messageId;
+
+        @Nullable
+        private Message foundMessage;
+
+        public HandleFindMessage(
+            final MessagePropertiesConverter messagePropertiesConverter,
+            final MessageConverterService messageConverterService,
+            final String messageId
+        ) {
+            this.messagePropertiesConverter = messagePropertiesConverter;
+            this.messageConverterService = messageConverterService;
+            this.messageId = messageId;
+        }
+
+        @Override
+        public boolean visit(final Channel channel, final GetResponse response) {
+            if (messageId.equals(mapMessageId(messageConverterService, response))) {
+                final MessageProperties messageProps =
+                    messagePropertiesConverter.toMessageProperties(response.getProps(), response.getEnvelope(), "UTF-8");
+                foundMessage = new Message(response.getBody(), messageProps);
+            }
+
+            return foundMessage == null;
+        }
+
+        /**
+         * Returns the message with the id, null if it was not found
+         *
+         * @return
+         */
+        @Nullable
+        public Message getFoundMessage() {
+            return foundMessage;
+        }
+    }
+
+    /**
+     * Acks every message whose id is in the target set, stopping the scan once all of them have been found
+     */
+    protected static class HandleAckMessages implements MessageVisitor {
+
+        private final MessageConverterService messageConverterService;
+        private final Set<String> remainingIds;
+        private final Set<String> ackedIds;
+
+        private long bytesScanned;
+
+        public HandleAckMessages(
+            final MessageConverterService messageConverterService,
+            final Set<String> messageIds
+        ) {
+            this.messageConverterService = messageConverterService;
+            this.remainingIds = new HashSet<>(messageIds);
+            this.ackedIds = new HashSet<>(messageIds.size());
+        }
+
+        @Override
+        public boolean visit(final Channel channel, final GetResponse response) throws Exception {
+            bytesScanned += response.getBody().length;
+
+            final String messageId = mapMessageId(messageConverterService, response);
+
+            if (remainingIds.remove(messageId)) {
+                channel.basicAck(response.getEnvelope().getDeliveryTag(), false);
+                ackedIds.add(messageId);
+            }
+
+            //stop scanning once every message has been ack'd
+            return !remainingIds.isEmpty();
+        }
+
+        public Set<String> getAckedIds() {
+            return ackedIds;
+        }
+
+        public long getBytesScanned() {
+            return bytesScanned;
+        }
+    }
+
     protected static class HandleDropMessages implements ChannelCallback<Void> {
 
         private final String queueName;
@@ -404,78 +1537,275 @@ public class MessageOperator {
 
         @Override
         public Void doInRabbit(final Channel channel) throws Exception {
+            final OperationMetrics.Operation operation = OperationMetrics.current();
+            operation.channelOpened();
             LOG.info("Purging the queue. Queue: {}", queueName);
             channel.queuePurge(queueName);
+            operation.scanFinished(0, 0L);
             return null;
         }
     }
 
-    protected static class HandleGetMessages implements ChannelCallback<Void> {
+    /**
+     * Collects the messages of a single page. Only the messages inside the page are converted, the head of the queue, whose id anchors the
+     * cursor, only has its id derived and everything else before the page is just counted.
+     * <p>
+     * The page stops early once the bodies of the converted messages would go over the max-scan-bytes of the queue. At least one message is
+     * always converted so that a single oversized message can still be looked at.
+     */
+    protected static class HandleGetMessagePage implements MessageVisitor {
 
         private final MessagePropertiesConverter messagePropertiesConverter;
         private final MessageConverterService messageConverterService;
-        private final QueueProperties queueProperties;
+        private final int offset;
+        private final int pageSize;
+        private final long maxScanBytes;
+        private final int previewLength;
+
+        private final List<VirgilMessage> dlqMessages;
+
+        @Nullable
+        private String headId;
+        private int position;
+        private long bytesConverted;
+        private boolean truncated;
+
+        public HandleGetMessagePage(
+            final MessagePropertiesConverter messagePropertiesConverter,
+            final MessageConverterService messageConverterService,
+            final int offset,
+            final int pageSize
+        ) {
+            this(messagePropertiesConverter, messageConverterService, offset, pageSize, Long.MAX_VALUE, BodyPreviewDecoder.DEFAULT_PREVIEW_LENGTH);
+        }
+
+        public HandleGetMessagePage(
+            final MessagePropertiesConverter messagePropertiesConverter,
+            final MessageConverterService messageConverterService,
+            final int offset,
+            final int pageSize,
+            final QueueProperties queueProperties
+        ) {
+            this(messagePropertiesConverter, messageConverterService, offset, pageSize, queueProperties.getMaxScanBytes(),
+                queueProperties.getPreviewLength());
+        }
+
+        private HandleGetMessagePage(
+            final MessagePropertiesConverter messagePropertiesConverter,
+            final MessageConverterService messageConverterService,
+            final int offset,
+            final int pageSize,
+            final long maxScanBytes,
+            final int previewLength
+        ) {
+            this.messagePropertiesConverter = messagePropertiesConverter;
+            this.messageConverterService = messageConverterService;
+            this.offset = offset;
+            this.pageSize = pageSize;
+            this.maxScanBytes = maxScanBytes;
+            this.previewLength = previewLength;
+
+            this.dlqMessages = new ArrayList<>(pageSize);
+        }
+
+        @Override
+        public boolean visit(final Channel channel, final GetResponse response) {
+            if (position >= offset) {
+                final int bodyLength = bodyLength(response);
+                if (!dlqMessages.isEmpty() && bytesConverted + bodyLength > maxScanBytes) {
+                    truncated = true;
+                    return false;
+                }
+                bytesConverted += bodyLength;
+
+                final VirgilMessage virgilMessage = toPreview(messagePropertiesConverter, messageConverterService, response, previewLength);
+                if (position == 0) {
+                    headId = virgilMessage.getId();
+                }
+                dlqMessages.add(virgilMessage);
+            } else if (position == 0) {
+                headId = mapMessageId(messageConverterService, response);
+            }
+
+            position++;
+            return dlqMessages.size() < pageSize;
+        }
+
+        public List<VirgilMessage> getDlqMessages() {
+            return dlqMessages;
+        }
+
+        /**
+         * Returns the id of the message at the head of the queue, null if the queue was empty
+         *
+         * @return
+         */
+        @Nullable
+        public String getHeadId() {
+            return headId;
+        }
+
+        public boolean isTruncated() {
+            return truncated;
+        }
+    }
+
+    /**
+     * Converts messages from the head of the queue, keeping only the converted {@link VirgilMessage}s. Stops early once the bodies of the
+     * converted messages would go over the max-scan-bytes of the queue, always converting at least one message.
+     */
+    protected static class HandleGetMessages implements MessageVisitor {
+
+        private final MessagePropertiesConverter messagePropertiesConverter;
+        private final MessageConverterService messageConverterService;
+        private final long maxScanBytes;
+        private final int previewLength;
 
         private final List<VirgilMessage> dlqMessages;
-        private final Map<String, Message> messageLookup;
+
+        private long bytesConverted;
+        private boolean truncated;
 
         public HandleGetMessages(
             final MessagePropertiesConverter messagePropertiesConverter,
             final MessageConverterService messageConverterService,
-            final QueueProperties queueProperties,
             final int numToRetrieve
+        ) {
+            this(messagePropertiesConverter, messageConverterService, numToRetrieve, Long.MAX_VALUE, BodyPreviewDecoder.DEFAULT_PREVIEW_LENGTH);
+        }
+
+        public HandleGetMessages(
+            final MessagePropertiesConverter messagePropertiesConverter,
+            final MessageConverterService messageConverterService,
+            final int numToRetrieve,
+            final QueueProperties queueProperties
+        ) {
+            this(messagePropertiesConverter, messageConverterService, numToRetrieve, queueProperties.getMaxScanBytes(),
+                queueProperties.getPreviewLength());
+        }
+
+        private HandleGetMessages(
+            final MessagePropertiesConverter messagePropertiesConverter,
+            final MessageConverterService messageConverterService,
+            final int numToRetrieve,
+            final long maxScanBytes,
+            final int previewLength
         ) {
             this.messagePropertiesConverter = messagePropertiesConverter;
             this.messageConverterService = messageConverterService;
-            this.queueProperties = queueProperties;
+            this.maxScanBytes = maxScanBytes;
+            this.previewLength = previewLength;
 
             this.dlqMessages = new ArrayList<>(numToRetrieve);
-            this.messageLookup = new HashMap<>(numToRetrieve);
         }
 
         @Override
-        public Void doInRabbit(final Channel channel) throws Exception {
-            final GetResponse response = channel.basicGet(queueProperties.getReadName(), false);
-            if (response == null) {
-                return null;
+        public boolean visit(final Channel channel, final GetResponse response) {
+            final int bodyLength = bodyLength(response);
+            if (!dlqMessages.isEmpty() && bytesConverted + bodyLength > maxScanBytes) {
+                truncated = true;
+                return false;
             }
+            bytesConverted += bodyLength;
 
-            final MessageProperties messageProps =
-                messagePropertiesConverter.toMessageProperties(response.getProps(), response.getEnvelope(), "UTF-8");
-            final Message message = new Message(response.getBody(), messageProps);
-            final VirgilMessage virgilMessage = messageConverterService.mapMessage(message);
-
-            dlqMessages.add(virgilMessage);
-            messageLookup.put(virgilMessage.getId(), message);
-            return null;
+            dlqMessages.add(toPreview(messagePropertiesConverter, messageConverterService, response, previewLength));
+            return true;
         }
 
         public List<VirgilMessage> getDlqMessages() {
             return dlqMessages;
         }
 
-        public Map<String, Message> getMessageLookup() {
-            return messageLookup;
-        }
-    }
-
-//    private String getReadBindingKey() {
-//        return virgilPropertyConfig.getDefaultQueue().getRepublishBindingRoutingKey();
-//    }
-//
-//    private RabbitTemplate getReadRabbitTemplate(final String queueName) {
-//        final QueueProperties queueProperties = virgilPropertyConfig.getQueueProperties(queueName);
-//        return rabbitMqConnectionService.getRabbitTemplate(queueProperties.getReadBinderName());
-//    }
-//
-//    private AmqpAdmin getReadAmqpAdmin(final String queueName) {
-//        final QueueProperties queueProperties = virgilPropertyConfig.getQueueProperties(queueName);
-//        return rabbitMqConnectionService.getAmqpAdmin(queueProperties.getReadBinderName());
-//    }
-//
-//    private void destroyReadConnection(final String queueName) {
-//        final QueueProperties queueProperties = virgilPropertyConfig.getQueueProperties(queueName);
-//
-//        rabbitMqConnectionService.destroyConnectionsByName(queueProperties.getReadBinderName());
-//    }
+        /**
+         * True if the scan stopped because the next message would have gone over the max-scan-bytes of the queue
+         *
+         * @return
+         */
+        public boolean isTruncated() {
+            return truncated;
+        }
+
+        public long getBytesConverted() {
+            return bytesConverted;
+        }
+    }
+
+    /**
+     * Converts messages like {@link HandleGetMessages}, and hands every converted delivery to the {@link BrowseSession} so that it stays
+     * held. A message that is pulled off the queue but not converted, because the scan stopped at max-scan-bytes, is requeued right away.
+     */
+    protected static class HandleBrowseMessages implements MessageVisitor {
+
+        private final HandleGetMessages handleGetMessages;
+        private final BrowseSession browseSession;
+
+        public HandleBrowseMessages(
+            final MessagePropertiesConverter messagePropertiesConverter,
+            final MessageConverterService messageConverterService,
+            final int numToRetrieve,
+            final QueueProperties queueProperties,
+            final BrowseSession browseSession
+        ) {
+            this.handleGetMessages = new HandleGetMessages(messagePropertiesConverter, messageConverterService, numToRetrieve, queueProperties);
+            this.browseSession = browseSession;
+        }
+
+        @Override
+        public boolean visit(final Channel channel, final GetResponse response) throws Exception {
+            final List<VirgilMessage> dlqMessages = handleGetMessages.getDlqMessages();
+            final int converted = dlqMessages.size();
+
+            final boolean keepScanning = handleGetMessages.visit(channel, response);
+            if (dlqMessages.size() > converted) {
+                browseSession.hold(dlqMessages.get(converted).getId(), response);
+            } else {
+                channel.basicReject(response.getEnvelope().getDeliveryTag(), true);
+            }
+            return keepScanning;
+        }
+
+        public List<VirgilMessage> getDlqMessages() {
+            return handleGetMessages.getDlqMessages();
+        }
+
+        public boolean isTruncated() {
+            return handleGetMessages.isTruncated();
+        }
+    }
+
+    private static int bodyLength(final GetResponse response) {
+        return response.getBody() == null ? 0 : response.getBody().length;
+    }
+
+    private static String mapMessageId(final MessageConverterService messageConverterService, final GetResponse response) {
+        final long convertStartNanos = System.nanoTime();
+        try {
+            return messageConverterService.mapMessageId(response.getProps(), response.getEnvelope(), response.getBody());
+        } finally {
+            OperationMetrics.current().addPhaseSince(OperationMetrics.Phase.CONVERT, convertStartNanos);
+        }
+    }
+
+    /**
+     * Converts a delivery into the message that is handed back to callers. The fingerprint is resolved here so that the returned message
+     * no longer references the raw {@link Message}, which would otherwise keep every full body reachable for as long as the result is.
+     */
+    private static VirgilMessage toPreview(
+        final MessagePropertiesConverter messagePropertiesConverter,
+        final MessageConverterService messageConverterService,
+        final GetResponse response,
+        final int previewLength
+    ) {
+        final long convertStartNanos = System.nanoTime();
+        try {
+            final MessageProperties messageProps =
+                messagePropertiesConverter.toMessageProperties(response.getProps(), response.getEnvelope(), "UTF-8");
+            final VirgilMessage virgilMessage = messageConverterService.mapMessage(new Message(response.getBody(), messageProps), previewLength);
+
+            final String fingerprint = virgilMessage.getFingerprint();
+            return ImmutableVirgilMessage.copyOf(virgilMessage).withFingerprintSource(() -> fingerprint);
+        } finally {
+            OperationMetrics.current().addPhaseSince(OperationMetrics.Phase.CONVERT, convertStartNanos);
+        }
+    }
 }
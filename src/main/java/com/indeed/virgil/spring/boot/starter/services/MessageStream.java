@@ -0,0 +1,202 @@
+package com.indeed.virgil.spring.boot.starter.services;
+
+import com.indeed.virgil.spring.boot.starter.config.VirgilPropertyConfig.QueueProperties;
+import com.indeed.virgil.spring.boot.starter.models.VirgilMessage;
+import com.indeed.virgil.spring.boot.starter.services.MessageOperator.ScanCursor;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.GetResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.support.MessagePropertiesConverter;
+import org.springframework.lang.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+/**
+ * Lazily reads messages off a DLQ, one per call to {@link #next()}, so that only the message being handed out is held in memory.
+ * <p>
+ * Like every other read, the messages stay unacked on a dedicated channel, under the lease of the queue. Closing the stream closes that
+ * channel, which puts every message that was read back into the 'Ready' state, and releases the lease. The whole stream, from the moment
+ * it is opened until it is closed, is recorded as a single operation, see {@link OperationMetrics}.
+ * <p>
+ * Reads and closes are serialized, so that a stream nobody reads from any more can be closed from another thread, see
+ * {@link #closeIfIdle(long)}.
+ */
+public class MessageStream implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MessageStream.class);
+
+    private final RabbitMqConnectionService rabbitMqConnectionService;
+    private final MessagePropertiesConverter messagePropertiesConverter;
+    private final MessageConverterService messageConverterService;
+    private final QueueProperties queueProperties;
+    private final String queueId;
+    private final int maxMessages;
+    private final ScanCoordinator.Lease lease;
+    private final OperationMetrics.Operation operation;
+
+    //guarded by this
+    @Nullable
+    private Channel channel;
+    @Nullable
+    private ScanCursor cursor;
+    @Nullable
+    private ScanEvent scanEvent;
+    private int messagesRead;
+    private boolean failed;
+    private boolean closed;
+    private long lastReadNanos = System.nanoTime();
+
+    /**
+     *
+     * @param lease Lease of the queue, owned by the stream from then on
+     * @param operation Operation the stream was opened by, detached from that call and finished once the stream is closed
+     */
+    MessageStream(
+        final RabbitMqConnectionService rabbitMqConnectionService,
+        final MessagePropertiesConverter messagePropertiesConverter,
+        final MessageConverterService messageConverterService,
+        final QueueProperties queueProperties,
+        final String queueId,
+        final int maxMessages,
+        final ScanCoordinator.Lease lease,
+        final OperationMetrics.Operation operation
+    ) {
+        this.rabbitMqConnectionService = rabbitMqConnectionService;
+        this.messagePropertiesConverter = messagePropertiesConverter;
+        this.messageConverterService = messageConverterService;
+        this.queueProperties = queueProperties;
+        this.queueId = queueId;
+        this.maxMessages = maxMessages;
+        this.lease = lease;
+        this.operation = operation;
+    }
+
+    /**
+     * @return The next message, null once the stream is exhausted or closed
+     */
+    @Nullable
+    public synchronized VirgilMessage next() throws IOException {
+        if (closed) {
+            return null;
+        }
+
+        final VirgilMessage message;
+        try (OperationMetrics.Operation.Scope scope = operation.enter()) {
+            message = read();
+        } catch (final IOException | RuntimeException ex) {
+            failed = true;
+            operation.failed(ex);
+            throw ex;
+        } finally {
+            lastReadNanos = System.nanoTime();
+        }
+
+        if (message == null) {
+            close();
+        }
+        return message;
+    }
+
+    @Nullable
+    private VirgilMessage read() throws IOException {
+        if (cursor == null) {
+            operation.channelRequested();
+            channel = rabbitMqConnectionService.openReadChannel(queueId);
+            operation.channelOpened();
+            scanEvent = new ScanEvent();
+            scanEvent.begin();
+            cursor = new ScanCursor(channel, queueProperties, maxMessages);
+        }
+
+        final GetResponse response;
+        try {
+            response = cursor.next();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading queue " + queueId);
+        }
+
+        if (response == null) {
+            return null;
+        }
+
+        final long convertStartNanos = System.nanoTime();
+        try {
+            final MessageProperties messageProps =
+                messagePropertiesConverter.toMessageProperties(response.getProps(), response.getEnvelope(), "UTF-8");
+            final VirgilMessage message =
+                messageConverterService.mapMessage(new Message(response.getBody(), messageProps), queueProperties.getPreviewLength());
+            messagesRead++;
+            return message;
+        } finally {
+            operation.addPhaseSince(OperationMetrics.Phase.CONVERT, convertStartNanos);
+        }
+    }
+
+    /**
+     * @return Number of messages read so far
+     */
+    public synchronized int getMessagesScanned() {
+        return cursor == null ? 0 : cursor.getMessagesScanned();
+    }
+
+    String getQueueId() {
+        return queueId;
+    }
+
+    /**
+     * Closes the stream if nothing has been read from it for the idle timeout. A read that is running counts as activity.
+     *
+     * @param idleTimeoutNanos How long the stream may go without being read from
+     * @return Time left before the stream has been idle for the timeout, zero once it is closed
+     */
+    synchronized long closeIfIdle(final long idleTimeoutNanos) throws IOException {
+        if (closed) {
+            return 0L;
+        }
+
+        final long remainingNanos = idleTimeoutNanos - (System.nanoTime() - lastReadNanos);
+        if (remainingNanos > 0) {
+            return remainingNanos;
+        }
+
+        LOG.info("Stream was not read from for too long, its messages are back on the queue. [QueueId: {}, MessagesRead: {}]",
+            queueId, messagesRead);
+        close();
+        return 0L;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        try (OperationMetrics.Operation.Scope scope = operation.enter()) {
+            if (cursor != null) {
+                try {
+                    cursor.close();
+                    operation.scanFinished(cursor.getMessagesScanned(), cursor.getBytesRead());
+                    scanEvent.finish(operation, queueProperties.getReadName(), cursor.getMessagesScanned(), cursor.getBytesRead());
+                } finally {
+                    RabbitMqConnectionService.closeChannel(channel);
+                    operation.channelClosed();
+                }
+            }
+        } catch (final IOException | RuntimeException ex) {
+            failed = true;
+            operation.failed(ex);
+            throw ex;
+        } finally {
+            lease.close();
+            operation.matched(messagesRead);
+            operation.finish(failed ? OperationMetrics.OUTCOME_ERROR : OperationMetrics.OUTCOME_SUCCESS);
+        }
+    }
+}
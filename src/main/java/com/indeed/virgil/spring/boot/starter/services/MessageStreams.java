@@ -0,0 +1,103 @@
+package com.indeed.virgil.spring.boot.starter.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Open {@link MessageStream}s. A stream nothing has been read from for its idle timeout is closed, so a client that stops reading without
+ * disconnecting never keeps the messages it was sent off the queue, or the lease of the queue, for longer than that.
+ */
+class MessageStreams {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MessageStreams.class);
+
+    private final Set<MessageStream> streams = ConcurrentHashMap.newKeySet();
+
+    @Nullable
+    private volatile ScheduledExecutorService reaper;
+
+    /**
+     * @param stream Stream to track, closed by the registry once it is idle for the timeout
+     * @param idleTimeout How long the stream is kept open while nothing is read from it
+     */
+    void register(final MessageStream stream, final Duration idleTimeout) {
+        streams.add(stream);
+        scheduleIdleCheck(stream, idleTimeout.toNanos(), idleTimeout.toNanos());
+    }
+
+    /**
+     * @return Number of streams open, or closed since their last idle check
+     */
+    int size() {
+        return streams.size();
+    }
+
+    /**
+     * Closes every open stream and stops checking for idle ones, called when the application context shuts down
+     */
+    void shutdown() {
+        final ScheduledExecutorService current = reaper;
+        if (current != null) {
+            current.shutdownNow();
+        }
+
+        for (final MessageStream stream : streams) {
+            streams.remove(stream);
+            closeQuietly(stream);
+        }
+    }
+
+    private void scheduleIdleCheck(final MessageStream stream, final long idleTimeoutNanos, final long delayNanos) {
+        getReaper().schedule(() -> {
+            final long remainingNanos;
+            try {
+                remainingNanos = stream.closeIfIdle(idleTimeoutNanos);
+            } catch (final IOException | RuntimeException ex) {
+                LOG.error("Failed to close idle stream. [QueueId: {}]", stream.getQueueId(), ex);
+                streams.remove(stream);
+                return;
+            }
+
+            if (remainingNanos > 0) {
+                scheduleIdleCheck(stream, idleTimeoutNanos, remainingNanos);
+            } else {
+                streams.remove(stream);
+            }
+        }, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static void closeQuietly(final MessageStream stream) {
+        try {
+            stream.close();
+        } catch (final IOException | RuntimeException ex) {
+            LOG.error("Failed to close stream. [QueueId: {}]", stream.getQueueId(), ex);
+        }
+    }
+
+    private ScheduledExecutorService getReaper() {
+        ScheduledExecutorService current = reaper;
+        if (current == null) {
+            synchronized (this) {
+                current = reaper;
+                if (current == null) {
+                    current = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                        final Thread thread = new Thread(runnable, "virgil-stream-reaper");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    reaper = current;
+                }
+            }
+        }
+        return current;
+    }
+}
@@ -0,0 +1,505 @@
+package com.indeed.virgil.spring.boot.starter.services;
+
+import com.indeed.virgil.spring.boot.starter.models.ImmutableOperationStats;
+import com.indeed.virgil.spring.boot.starter.models.OperationStats;
+import io.micrometer.common.KeyValues;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.lang.Nullable;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Times the operations of {@link MessageOperator}, in total and broken down by {@link Phase}, and records how much of the queue each one
+ * scanned. Every meter is tagged with the operation, the queue id and its read binder.
+ * <ul>
+ *     <li>{@code virgil.operation}: timer of the whole operation, also tagged with its outcome</li>
+ *     <li>{@code virgil.operation.phase}: timer of each phase the operation went through, also tagged with the phase</li>
+ *     <li>{@code virgil.operation.messages.scanned}: distribution of the number of messages pulled off the queue</li>
+ *     <li>{@code virgil.operation.bytes.read}: distribution of the size of the bodies pulled off the queue</li>
+ * </ul>
+ * The operation running on a thread is available through {@link #current()}, so that the scan code can report its phases without every
+ * visitor being handed the operation. Operations started while another one is running on the thread are folded into it.
+ * <p>
+ * Every operation is also observed through the Observation API as {@code virgil.call}, with the same low cardinality key values as its
+ * meters. The broker interactions it makes are observed as its children, see {@link Operation#startObservation(String, KeyValues)}.
+ * <p>
+ * Callers that want the statistics of the operation they run, rather than their aggregate, wrap it in
+ * {@link #collectStats(Supplier, Consumer)}.
+ * <p>
+ * An operation that hands out something the caller keeps reading, like a stream, is {@link Operation#detach() detached} from the call
+ * that started it and finished by whatever it handed out, see {@link Operation#enter()} and {@link Operation#finish(String)}.
+ */
+class OperationMetrics {
+
+    static final String OPERATION_METRIC = "virgil.operation";
+    static final String PHASE_METRIC = "virgil.operation.phase";
+    static final String MESSAGES_SCANNED_METRIC = "virgil.operation.messages.scanned";
+    static final String BYTES_READ_METRIC = "virgil.operation.bytes.read";
+
+    static final String OUTCOME_SUCCESS = "success";
+    static final String OUTCOME_BUSY = "busy";
+    static final String OUTCOME_ERROR = "error";
+
+    static final String CALL_OBSERVATION = "virgil.call";
+    static final String CONNECTION_OBSERVATION = "virgil.connection.create";
+    static final String SCAN_BATCH_OBSERVATION = "virgil.scan.batch";
+    static final String REPUBLISH_OBSERVATION = "virgil.republish.publish";
+    static final String CONFIRM_OBSERVATION = "virgil.republish.confirm";
+
+    private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final ThreadLocal<Operation> CURRENT = new ThreadLocal<>();
+    private static final ThreadLocal<Consumer<OperationStats>> STATS_CONSUMER = new ThreadLocal<>();
+    private static final Operation NOOP = new Operation(null, null, null, Tags.empty(), KeyValues.empty(), Observation.NOOP);
+
+    private final MeterRegistry meterRegistry;
+    private final ObservationRegistry observationRegistry;
+
+    OperationMetrics(final MeterRegistry meterRegistry) {
+        this(meterRegistry, ObservationRegistry.NOOP);
+    }
+
+    OperationMetrics(final MeterRegistry meterRegistry, final ObservationRegistry observationRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.observationRegistry = observationRegistry;
+    }
+
+    /**
+     * Phases an operation spends its time in, they never overlap
+     */
+    enum Phase {
+        /**
+         * Waiting for the lease of the queue
+         */
+        LEASE,
+        /**
+         * Getting a channel to scan the queue on
+         */
+        CONNECT,
+        /**
+         * Pulling messages off the queue and acting on them, less the time spent in {@link #CONVERT} and {@link #PUBLISH}
+         */
+        SCAN,
+        /**
+         * Deriving ids and converting messages, fingerprinting included
+         */
+        CONVERT,
+        /**
+         * Republishing messages and waiting for their confirms
+         */
+        PUBLISH,
+        /**
+         * Closing the channel, which requeues the messages the scan did not ack
+         */
+        TEARDOWN;
+
+        private final String tag = name().toLowerCase();
+    }
+
+    /**
+     * @return Operation running on this thread, or one that records nothing when there is none
+     */
+    static Operation current() {
+        final Operation operation = CURRENT.get();
+        return operation != null ? operation : NOOP;
+    }
+
+    /**
+     * Runs the body, handing the statistics of the outermost operation it runs on this thread to the consumer once that operation returns
+     * or throws. The consumer is not called if the body runs no operation.
+     *
+     * @param body Code running the operation
+     * @param statsConsumer Consumer of the statistics
+     * @param <T> Type of the result
+     * @return Result of the body
+     */
+    static <T> T collectStats(final Supplier<T> body, final Consumer<OperationStats> statsConsumer) {
+        final Consumer<OperationStats> previous = STATS_CONSUMER.get();
+        STATS_CONSUMER.set(statsConsumer);
+        try {
+            return body.get();
+        } finally {
+            if (previous != null) {
+                STATS_CONSUMER.set(previous);
+            } else {
+                STATS_CONSUMER.remove();
+            }
+        }
+    }
+
+    /**
+     * Runs the operation, recording its meters once it returns or throws
+     *
+     * @param operationName Value of the operation tag
+     * @param queueId Queue Property Key, this is not the actual name of the queue
+     * @param binderName Read binder of the queue
+     * @param body Operation to run
+     * @param <T> Type of the result
+     * @return Result of the operation
+     */
+    <T> T record(final String operationName, final String queueId, final String binderName, final Supplier<T> body) {
+        if (CURRENT.get() != null) {
+            return body.get();
+        }
+
+        final String[] keyValues = {"operation", operationName, "queue", queueId, "binder", binderName};
+        final Observation observation = Observation.createNotStarted(CALL_OBSERVATION, observationRegistry)
+            .contextualName("virgil " + operationName)
+            .lowCardinalityKeyValues(KeyValues.of(keyValues))
+            .start();
+        final Operation operation = new Operation(this, operationName, queueId, Tags.of(keyValues), KeyValues.of(keyValues), observation);
+        String outcome = OUTCOME_ERROR;
+        try (Operation.Scope scope = operation.enter()) {
+            final T result = body.get();
+            outcome = OUTCOME_SUCCESS;
+            return result;
+        } catch (final QueueBusyException ex) {
+            outcome = OUTCOME_BUSY;
+            observation.error(ex);
+            throw ex;
+        } catch (final RuntimeException | Error ex) {
+            observation.error(ex);
+            throw ex;
+        } finally {
+            // a detached operation is finished by whatever it handed out, unless it failed before handing anything out
+            if (!operation.detached || !OUTCOME_SUCCESS.equals(outcome)) {
+                operation.finish(outcome);
+
+                final Consumer<OperationStats> statsConsumer = STATS_CONSUMER.get();
+                if (statsConsumer != null) {
+                    statsConsumer.accept(operation.toStats());
+                }
+            }
+        }
+    }
+
+    /**
+     * Time and scan statistics of a single operation, only ever used by one thread at a time
+     */
+    static final class Operation {
+
+        private static final long UNSET = Long.MIN_VALUE;
+
+        @Nullable
+        private final OperationMetrics operationMetrics;
+        @Nullable
+        private final String name;
+        @Nullable
+        private final String queueId;
+        private final Tags tags;
+        private final KeyValues keyValues;
+        private final Observation observation;
+        private final long startedAtNanos = System.nanoTime();
+        private final Map<Phase, Long> phaseNanos = new EnumMap<>(Phase.class);
+
+        private long messagesScanned;
+        private long bytesRead;
+        private boolean scanned;
+        private int messagesMatched;
+        private boolean truncated;
+        private boolean connectionCreated;
+        private long completedAtNanos = UNSET;
+        private boolean detached;
+
+        // System.nanoTime() can be negative, so unset marks are told apart with a sentinel
+        private long channelRequestedAtNanos = UNSET;
+        private long channelOpenedAtNanos = UNSET;
+        private long nestedNanosAtOpen;
+        private long scanFinishedAtNanos = UNSET;
+
+        private Operation(
+            @Nullable final OperationMetrics operationMetrics,
+            @Nullable final String name,
+            @Nullable final String queueId,
+            final Tags tags,
+            final KeyValues keyValues,
+            final Observation observation
+        ) {
+            this.operationMetrics = operationMetrics;
+            this.name = name;
+            this.queueId = queueId;
+            this.tags = tags;
+            this.keyValues = keyValues;
+            this.observation = observation;
+        }
+
+        /**
+         * @return Value of the operation tag, null outside of an operation
+         */
+        @Nullable
+        String getName() {
+            return name;
+        }
+
+        /**
+         * @return Queue Property Key of the operation, null outside of an operation
+         */
+        @Nullable
+        String getQueueId() {
+            return queueId;
+        }
+
+        /**
+         * Keeps the operation running once the call that started it returns, so that it also covers whatever that call handed out. The
+         * holder of the operation runs every later piece of it through {@link #enter()} and ends it with {@link #finish(String)}. Only
+         * meant for the outermost operation of a call, an operation folded into another one can not outlive it.
+         */
+        void detach() {
+            if (isRecording()) {
+                detached = true;
+            }
+        }
+
+        /**
+         * Makes this the operation running on the thread, and its observation the current one, until the scope is closed
+         *
+         * @return Scope to close once the thread is done with the operation
+         */
+        Scope enter() {
+            if (!isRecording()) {
+                return () -> { };
+            }
+
+            final Operation previous = CURRENT.get();
+            CURRENT.set(this);
+            final Observation.Scope observationScope = observation.openScope();
+            return () -> {
+                observationScope.close();
+                if (previous != null) {
+                    CURRENT.set(previous);
+                } else {
+                    CURRENT.remove();
+                }
+            };
+        }
+
+        /**
+         * Marks the observation of the operation as failed, the outcome is set by {@link #finish(String)}
+         *
+         * @param ex Cause of the failure
+         */
+        void failed(final Throwable ex) {
+            if (isRecording()) {
+                observation.error(ex);
+            }
+        }
+
+        /**
+         * Stops the observation of the operation and records its meters. Safe to call more than once, only the first call counts.
+         *
+         * @param outcome Value of the outcome tag
+         */
+        void finish(final String outcome) {
+            if (!isRecording() || completedAtNanos != UNSET) {
+                return;
+            }
+            observation.lowCardinalityKeyValue("outcome", outcome).stop();
+            complete(outcome);
+        }
+
+        /**
+         * Starts an observation of a broker interaction, as a child of the observation of the operation. The caller stops it.
+         *
+         * @param name Name of the observation
+         * @param extraKeyValues Low cardinality key values added to those of the operation, replacing any with the same key
+         * @return Started observation, a no-op one outside of an operation
+         */
+        Observation startObservation(final String name, final KeyValues extraKeyValues) {
+            if (!isRecording()) {
+                return Observation.NOOP;
+            }
+            return Observation.createNotStarted(name, operationMetrics.observationRegistry)
+                .parentObservation(observation)
+                .lowCardinalityKeyValues(keyValues.and(extraKeyValues))
+                .start();
+        }
+
+        /**
+         * Adds time spent in a phase
+         *
+         * @param phase Phase the time was spent in
+         * @param nanos Time spent
+         */
+        void addPhase(final Phase phase, final long nanos) {
+            if (isRecording()) {
+                phaseNanos.merge(phase, nanos, Long::sum);
+            }
+        }
+
+        /**
+         * Adds the time elapsed since {@code startNanos} to a phase
+         *
+         * @param phase Phase the time was spent in
+         * @param startNanos {@link System#nanoTime()} at the start of the phase
+         */
+        void addPhaseSince(final Phase phase, final long startNanos) {
+            addPhase(phase, System.nanoTime() - startNanos);
+        }
+
+        /**
+         * A channel is about to be checked out for the scan
+         */
+        void channelRequested() {
+            if (!isRecording()) {
+                return;
+            }
+            channelRequestedAtNanos = System.nanoTime();
+        }
+
+        /**
+         * The scan got its channel, the time since {@link #channelRequested()} is spent connecting
+         */
+        void channelOpened() {
+            if (!isRecording()) {
+                return;
+            }
+            final long now = System.nanoTime();
+            if (channelRequestedAtNanos != UNSET) {
+                addPhase(Phase.CONNECT, now - channelRequestedAtNanos);
+            }
+            channelOpenedAtNanos = now;
+            nestedNanosAtOpen = nestedNanos();
+        }
+
+        /**
+         * The scan is over, the time since {@link #channelOpened()} that was not spent converting or publishing is spent scanning
+         *
+         * @param messages Number of messages pulled off the queue
+         * @param bytes Size of the bodies pulled off the queue
+         */
+        void scanFinished(final int messages, final long bytes) {
+            if (!isRecording()) {
+                return;
+            }
+            final long now = System.nanoTime();
+            if (channelOpenedAtNanos != UNSET) {
+                addPhase(Phase.SCAN, Math.max(0L, now - channelOpenedAtNanos - (nestedNanos() - nestedNanosAtOpen)));
+            }
+            messagesScanned += messages;
+            bytesRead += bytes;
+            scanned = true;
+            scanFinishedAtNanos = now;
+        }
+
+        /**
+         * The channel of the scan is closed, the time since {@link #scanFinished(int, long)} is spent tearing down
+         */
+        void channelClosed() {
+            if (!isRecording()) {
+                return;
+            }
+            if (scanFinishedAtNanos != UNSET) {
+                addPhaseSince(Phase.TEARDOWN, scanFinishedAtNanos);
+            }
+            channelRequestedAtNanos = UNSET;
+            channelOpenedAtNanos = UNSET;
+            scanFinishedAtNanos = UNSET;
+        }
+
+        /**
+         * Sets the number of messages the operation returned or acted on, operations folded into this one set the same value
+         *
+         * @param messages Number of messages
+         */
+        void matched(final int messages) {
+            if (isRecording()) {
+                messagesMatched = messages;
+            }
+        }
+
+        /**
+         * The read stopped early because it reached the max-scan-bytes of the queue
+         */
+        void truncated() {
+            if (isRecording()) {
+                truncated = true;
+            }
+        }
+
+        /**
+         * A connection to the broker was opened on behalf of the operation, instead of a cached one being reused
+         */
+        void connectionCreated() {
+            if (isRecording()) {
+                connectionCreated = true;
+            }
+        }
+
+        /**
+         * @return Statistics of the operation so far, or in total once it is complete
+         */
+        OperationStats toStats() {
+            final long endNanos = completedAtNanos != UNSET ? completedAtNanos : System.nanoTime();
+            final ImmutableOperationStats.Builder builder = ImmutableOperationStats.builder()
+                .setElapsedMillis((endNanos - startedAtNanos) / NANOS_PER_MILLI)
+                .setMessagesScanned((int) messagesScanned)
+                .setMessagesMatched(messagesMatched)
+                .setBytesRead(bytesRead)
+                .setTruncated(truncated)
+                .setConnectionReused(!connectionCreated);
+            phaseNanos.forEach((phase, nanos) -> builder.putPhaseMillis(phase.tag, nanos / NANOS_PER_MILLI));
+            return builder.build();
+        }
+
+        private boolean isRecording() {
+            return operationMetrics != null;
+        }
+
+        /**
+         * Part of an operation run by a thread, see {@link #enter()}
+         */
+        interface Scope extends AutoCloseable {
+
+            @Override
+            void close();
+        }
+
+        private long nestedNanos() {
+            return phaseNanos.getOrDefault(Phase.CONVERT, 0L) + phaseNanos.getOrDefault(Phase.PUBLISH, 0L);
+        }
+
+        private void complete(final String outcome) {
+            final MeterRegistry meterRegistry = operationMetrics.meterRegistry;
+            completedAtNanos = System.nanoTime();
+
+            Timer.builder(OPERATION_METRIC)
+                .description("Time spent in a Virgil operation")
+                .tags(tags)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(completedAtNanos - startedAtNanos, TimeUnit.NANOSECONDS);
+
+            phaseNanos.forEach((phase, nanos) -> Timer.builder(PHASE_METRIC)
+                .description("Time spent by a Virgil operation in one of its phases")
+                .tags(tags)
+                .tag("phase", phase.tag)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS));
+
+            if (scanned) {
+                DistributionSummary.builder(MESSAGES_SCANNED_METRIC)
+                    .description("Messages pulled off the queue by a Virgil operation")
+                    .baseUnit("messages")
+                    .tags(tags)
+                    .register(meterRegistry)
+                    .record(messagesScanned);
+
+                DistributionSummary.builder(BYTES_READ_METRIC)
+                    .description("Size of the message bodies pulled off the queue by a Virgil operation")
+                    .baseUnit("bytes")
+                    .tags(tags)
+                    .register(meterRegistry)
+                    .record(bytesRead);
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.indeed.virgil.spring.boot.starter.services;
+
+/**
+ * Thrown by {@link MessageOperator} when the lease of a queue could not be acquired within the scan-lease wait-timeout, because another
+ * scan of the queue, on this instance or another one, kept holding it, or when a browse session could not be opened because too many are
+ * open already
+ */
+public class QueueBusyException extends RuntimeException {
+
+    private final String queueId;
+
+    public QueueBusyException(final String queueId) {
+        this(queueId, "Queue " + queueId + " is being scanned by another operation, try again later");
+    }
+
+    public QueueBusyException(final String queueId, final String message) {
+        super(message);
+        this.queueId = queueId;
+    }
+
+    /**
+     * @return Queue Property Key, this is not the actual name of the queue
+     */
+    public String getQueueId() {
+        return queueId;
+    }
+}
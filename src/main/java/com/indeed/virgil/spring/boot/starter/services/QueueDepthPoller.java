@@ -0,0 +1,154 @@
+package com.indeed.virgil.spring.boot.starter.services;
+
+import com.indeed.virgil.spring.boot.starter.config.VirgilPropertyConfig;
+import com.indeed.virgil.spring.boot.starter.config.VirgilPropertyConfig.DepthPollerProperties;
+import com.indeed.virgil.spring.boot.starter.config.VirgilPropertyConfig.QueueProperties;
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples the depth of every configured queue in the background and publishes it as the {@code virgil.dlq.depth} gauge, tagged with the
+ * queue and its read binder. Scraping the gauge never reaches the broker, it reports the last sample, or NaN until the queue could be read.
+ * <p>
+ * Samples are passive declares on a single long-lived channel per read binder, all made from one thread, and each queue is sampled on its
+ * own jittered schedule so that queues and instances spread their declares out.
+ */
+public class QueueDepthPoller {
+
+    private static final Logger LOG = LoggerFactory.getLogger(QueueDepthPoller.class);
+
+    static final String DEPTH_METRIC = "virgil.dlq.depth";
+
+    private final VirgilPropertyConfig virgilPropertyConfig;
+    private final RabbitMqConnectionService rabbitMqConnectionService;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Double> depths = new ConcurrentHashMap<>();
+    //only used by the thread sampling the queues
+    private final Map<String, Channel> channels = new HashMap<>();
+
+    @Nullable
+    private ScheduledExecutorService scheduler;
+
+    public QueueDepthPoller(
+        final VirgilPropertyConfig virgilPropertyConfig,
+        final RabbitMqConnectionService rabbitMqConnectionService,
+        final MeterRegistry meterRegistry
+    ) {
+        this.virgilPropertyConfig = virgilPropertyConfig;
+        this.rabbitMqConnectionService = rabbitMqConnectionService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Registers a gauge for every configured queue and starts sampling them, each after a random delay of up to one interval
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+
+        final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "virgil-depth-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler = executor;
+
+        final long intervalMs = virgilPropertyConfig.getDepthPoller().getInterval().toMillis();
+        for (final String queueId : virgilPropertyConfig.getQueueNames()) {
+            final QueueProperties queueProperties = virgilPropertyConfig.getQueueProperties(queueId);
+            if (queueProperties == null) {
+                continue;
+            }
+
+            Gauge.builder(DEPTH_METRIC, depths, values -> values.getOrDefault(queueId, Double.NaN))
+                .description("Number of messages ready on the queue as of the last sample")
+                .tag("queue", queueId)
+                .tag("binder", queueProperties.getReadBinderName())
+                .register(meterRegistry);
+
+            schedule(executor, queueId, ThreadLocalRandom.current().nextLong(intervalMs + 1));
+        }
+    }
+
+    /**
+     * Stops sampling and closes the channels samples were taken on. The gauges keep reporting the last samples.
+     */
+    public synchronized void stop() {
+        final ScheduledExecutorService executor = scheduler;
+        if (executor == null) {
+            return;
+        }
+        scheduler = null;
+
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        channels.values().forEach(RabbitMqConnectionService::closeChannel);
+        channels.clear();
+    }
+
+    /**
+     * Declares the queue passively on the channel of its read binder and records its message count. A failed declare closes the channel,
+     * so it is dropped and the next sample of any queue on the binder opens a new one.
+     *
+     * @param queueId Queue Property Key, this is not the actual name of the queue
+     */
+    void sample(final String queueId) {
+        final QueueProperties queueProperties = virgilPropertyConfig.getQueueProperties(queueId);
+        if (queueProperties == null) {
+            return;
+        }
+
+        final String binderName = queueProperties.getReadBinderName();
+        try {
+            Channel channel = channels.get(binderName);
+            if (channel == null || !channel.isOpen()) {
+                channel = rabbitMqConnectionService.openReadChannel(queueId);
+                channels.put(binderName, channel);
+            }
+
+            depths.put(queueId, (double) channel.queueDeclarePassive(queueProperties.getReadName()).getMessageCount());
+        } catch (final IOException | RuntimeException ex) {
+            LOG.warn("Unable to sample queue depth. [QueueId: {}, Binder: {}]", queueId, binderName, ex);
+            depths.put(queueId, Double.NaN);
+            RabbitMqConnectionService.closeChannel(channels.remove(binderName));
+        }
+    }
+
+    private void schedule(final ScheduledExecutorService executor, final String queueId, final long delayMs) {
+        try {
+            executor.schedule(() -> {
+                sample(queueId);
+                schedule(executor, queueId, nextDelayMs());
+            }, delayMs, TimeUnit.MILLISECONDS);
+        } catch (final RejectedExecutionException ex) {
+            // stopped
+        }
+    }
+
+    private long nextDelayMs() {
+        final DepthPollerProperties depthPoller = virgilPropertyConfig.getDepthPoller();
+        final long jitterMs = depthPoller.getJitter().toMillis();
+        return depthPoller.getInterval().toMillis() + ThreadLocalRandom.current().nextLong(-jitterMs, jitterMs + 1);
+    }
+}
@@ -0,0 +1,59 @@
+package com.indeed.virgil.spring.boot.starter.services;
+
+import org.springframework.lang.Nullable;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Last known size of each queue, along with when it was observed, either through a passive declare of the queue or by a scan reading the
+ * message count the broker sends with every basicGet.
+ */
+class QueueSizeCache {
+
+    private final Map<String, ObservedSize> sizes = new ConcurrentHashMap<>();
+
+    /**
+     * @param queueId Queue Property Key, this is not the actual name of the queue
+     * @param ttl How long an observed size is served for
+     * @return null if the size was never observed or is older than the ttl
+     */
+    @Nullable
+    Integer get(final String queueId, final Duration ttl) {
+        final ObservedSize observedSize = sizes.get(queueId);
+        if (observedSize == null || System.nanoTime() - observedSize.observedAtNanos >= ttl.toNanos()) {
+            return null;
+        }
+        return observedSize.size;
+    }
+
+    /**
+     * @param queueId Queue Property Key, this is not the actual name of the queue
+     * @param size Size just observed, ignored when null
+     */
+    void put(final String queueId, @Nullable final Integer size) {
+        if (size != null) {
+            sizes.put(queueId, new ObservedSize(size, System.nanoTime()));
+        }
+    }
+
+    /**
+     * Forgets the size of the queue, for when it was changed by an ack or a republish
+     *
+     * @param queueId Queue Property Key, this is not the actual name of the queue
+     */
+    void invalidate(final String queueId) {
+        sizes.remove(queueId);
+    }
+
+    private static final class ObservedSize {
+        private final int size;
+        private final long observedAtNanos;
+
+        private ObservedSize(final int size, final long observedAtNanos) {
+            this.size = size;
+            this.observedAtNanos = observedAtNanos;
+        }
+    }
+}
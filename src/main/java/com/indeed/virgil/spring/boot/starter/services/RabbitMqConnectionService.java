@@ -3,31 +3,91 @@ package com.indeed.virgil.spring.boot.starter.services;
 import com.indeed.virgil.spring.boot.starter.config.VirgilPropertyConfig;
 import com.indeed.virgil.spring.boot.starter.config.VirgilPropertyConfig.BinderProperties;
 import com.indeed.virgil.spring.boot.starter.config.VirgilPropertyConfig.QueueProperties;
+import com.indeed.virgil.spring.boot.starter.models.ConnectionStats;
+import com.indeed.virgil.spring.boot.starter.models.ImmutableConnectionStats;
+import com.rabbitmq.client.AddressResolver;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ConnectionFactory;
+import io.micrometer.common.KeyValues;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.observation.Observation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.amqp.core.AmqpAdmin;
 import org.springframework.amqp.rabbit.connection.AbstractConnectionFactory;
 import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory.ConfirmType;
+import org.springframework.amqp.rabbit.connection.RabbitUtils;
+import org.springframework.amqp.rabbit.core.ChannelCallback;
 import org.springframework.amqp.rabbit.core.RabbitAdmin;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.lang.NonNull;
 import org.springframework.lang.Nullable;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.util.EnumMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This service will create the necessary connections to manage RabbitMQ in a dynamic way. In V2, this service will be used to dynamically
  * manage multiple-rabbitMQ connections
  * <p>
- * This service assumes that all connections will be destroyed in the same thread that created them, since this is the underlying principal
- * that is allowing us to view the queue without disturbing it.
+ * Connections are long-lived and shared by every thread, one per binder. Viewing the queue without disturbing it relies on closing only the
+ * channel a scan ran on (see {@link #releaseChannel(Channel)}), which puts its unacked messages back into the 'Ready' state while the
+ * connection stays open for the next request.
+ * <p>
+ * Republishing goes through a second set of connections, one per republish binder, whose channels are pooled and already in publisher
+ * confirm mode. Keeping them apart from the read connections means a binder that is blocked by flow control on the publish side never
+ * stalls reads, and lets the republish binder live on a different cluster than the DLQ.
+ * <p>
+ * Connections opened while a {@link MessageOperator} operation runs are observed as children of the operation.
+ * <p>
+ * Every connection checkout, and every physical connection opened, is counted per {@link ConnectionType}, see
+ * {@link #getConnectionStats(ConnectionType)}. The counts are published as the {@code virgil.connection.acquisitions} and
+ * {@code virgil.connection.created} counters, and their ratio as the {@code virgil.connection.reuse} gauge, tagged with
+ * {@code connection.type}.
  */
 public class RabbitMqConnectionService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(RabbitMqConnectionService.class);
+
+    static final String ACQUISITIONS_METRIC = "virgil.connection.acquisitions";
+    static final String CREATED_METRIC = "virgil.connection.created";
+    static final String REUSE_METRIC = "virgil.connection.reuse";
+
     private final VirgilPropertyConfig virgilPropertyConfig;
 
-    private final ThreadLocal<Map<String, AbstractConnectionFactory>> cachingConnectionFactoryLookup = ThreadLocal.withInitial(HashMap::new);
-    private final ThreadLocal<Map<String, AmqpAdmin>> amqpAdminLookup = ThreadLocal.withInitial(HashMap::new);
-    private final ThreadLocal<Map<String, RabbitTemplate>> rabbitTemplateLookup = ThreadLocal.withInitial(HashMap::new);
+    private final Map<String, AbstractConnectionFactory> cachingConnectionFactoryLookup = new ConcurrentHashMap<>();
+    private final Map<String, AmqpAdmin> amqpAdminLookup = new ConcurrentHashMap<>();
+    private final Map<String, RabbitTemplate> rabbitTemplateLookup = new ConcurrentHashMap<>();
+    private final Map<String, AbstractConnectionFactory> publishConnectionFactoryLookup = new ConcurrentHashMap<>();
+
+    private final Map<ConnectionType, AtomicLong> connectionAcquisitions = new EnumMap<>(ConnectionType.class);
+    private final Map<ConnectionType, AtomicLong> connectionsCreated = new EnumMap<>(ConnectionType.class);
+
+    /**
+     * Connections a binder gets, each with a connection factory of its own
+     */
+    public enum ConnectionType {
+        /**
+         * Reads, acks and purges of the DLQ
+         */
+        READ,
+        /**
+         * Republishes, in publisher confirm mode
+         */
+        PUBLISH;
+
+        private final String tag = name().toLowerCase();
+    }
 
     /**
      *
@@ -35,8 +95,38 @@ public class RabbitMqConnectionService {
      */
     public RabbitMqConnectionService(
         @NonNull final VirgilPropertyConfig virgilPropertyConfig
+    ) {
+        this(virgilPropertyConfig, Metrics.globalRegistry);
+    }
+
+    /**
+     *
+     * @param virgilPropertyConfig Virgil Properties
+     * @param meterRegistry Registry the connection counters are published to
+     */
+    public RabbitMqConnectionService(
+        @NonNull final VirgilPropertyConfig virgilPropertyConfig,
+        @NonNull final MeterRegistry meterRegistry
     ) {
         this.virgilPropertyConfig = virgilPropertyConfig;
+
+        for (final ConnectionType connectionType : ConnectionType.values()) {
+            connectionAcquisitions.put(connectionType, new AtomicLong());
+            connectionsCreated.put(connectionType, new AtomicLong());
+
+            FunctionCounter.builder(ACQUISITIONS_METRIC, connectionAcquisitions.get(connectionType), AtomicLong::get)
+                .description("Connections checked out by Virgil, whether an open one was shared or a new one was opened")
+                .tag("connection.type", connectionType.tag)
+                .register(meterRegistry);
+            FunctionCounter.builder(CREATED_METRIC, connectionsCreated.get(connectionType), AtomicLong::get)
+                .description("Physical connections opened to the broker by Virgil")
+                .tag("connection.type", connectionType.tag)
+                .register(meterRegistry);
+            Gauge.builder(REUSE_METRIC, this, service -> service.getConnectionStats(connectionType).getReuseRate())
+                .description("Fraction of the connection checkouts of Virgil served by an already open connection")
+                .tag("connection.type", connectionType.tag)
+                .register(meterRegistry);
+        }
     }
 
     /**
@@ -70,6 +160,8 @@ public class RabbitMqConnectionService {
     }
 
     /**
+     * Tears down the read connection entirely. Only needed to recover from a broken connection, releasing a scan's unacked messages is done
+     * through {@link #releaseChannel(Channel)}.
      *
      * @param queueName Queue Property Key, this is not the actual name of the queue
      */
@@ -78,6 +170,74 @@ public class RabbitMqConnectionService {
         destroyConnectionsByName(queueProperties.getReadBinderName());
     }
 
+    /**
+     * Opens a channel on the read connection for reads that outlive a single {@link RabbitTemplate} callback. The caller owns the channel and
+     * must hand it back through {@link #closeChannel(Channel)}.
+     *
+     * @param queueName Queue Property Key, this is not the actual name of the queue
+     * @return Channel
+     */
+    public Channel openReadChannel(@NonNull final String queueName) {
+        final QueueProperties queueProperties = virgilPropertyConfig.getQueueProperties(queueName);
+        connectionAcquisitions.get(ConnectionType.READ).incrementAndGet();
+        return getRabbitTemplate(queueProperties.getReadBinderName()).getConnectionFactory().createConnection().createChannel(false);
+    }
+
+    /**
+     * Checks out a channel, in publisher confirm mode, from the pool of the queue's republish binder. The channel goes back to the pool
+     * when it is closed, or is discarded through {@link #closeChannel(Channel)}.
+     *
+     * @param queueName Queue Property Key, this is not the actual name of the queue
+     * @return Channel
+     */
+    public Channel openPublishChannel(@NonNull final String queueName) {
+        final QueueProperties queueProperties = virgilPropertyConfig.getQueueProperties(queueName);
+        connectionAcquisitions.get(ConnectionType.PUBLISH).incrementAndGet();
+        return getPublishConnectionFactory(queueProperties.getPublishBinderName()).createConnection().createChannel(false);
+    }
+
+    /**
+     * Physically closes a channel, rather than returning it to the channel cache. For channels obtained from {@link #openReadChannel(String)}
+     * this requeues every message it has not ack'd.
+     *
+     * @param channel Channel to close, ignored if null
+     */
+    public static void closeChannel(@Nullable final Channel channel) {
+        if (channel == null) {
+            return;
+        }
+
+        releaseChannel(channel);
+        RabbitUtils.closeChannel(channel);
+    }
+
+    /**
+     * Marks a channel checked out through a {@link RabbitTemplate} callback to be physically closed, instead of returned to the channel cache,
+     * once the callback completes. Closing the channel puts every message it has not ack'd back into the 'Ready' state without touching the
+     * shared connection.
+     * <p>
+     * Must be called on the thread running the callback.
+     *
+     * @param channel Channel the scan ran on
+     */
+    public static void releaseChannel(final Channel channel) {
+        RabbitUtils.setPhysicalCloseRequired(channel, true);
+    }
+
+    /**
+     * Connections are checked out by every {@link RabbitTemplate} and {@link AmqpAdmin} call, and by every
+     * {@link #openReadChannel(String)} and {@link #openPublishChannel(String)}
+     *
+     * @param connectionType Connections to report on
+     * @return Snapshot of how often checkouts were served by an already open connection
+     */
+    public ConnectionStats getConnectionStats(@NonNull final ConnectionType connectionType) {
+        return ImmutableConnectionStats.builder()
+            .setAcquisitions(connectionAcquisitions.get(connectionType).get())
+            .setConnectionsCreated(connectionsCreated.get(connectionType).get())
+            .build();
+    }
+
     /**
      *
      * @param binderName Name of the RabbitMq Exchange
@@ -89,7 +249,8 @@ public class RabbitMqConnectionService {
             return amqpAdmin;
         }
 
-        amqpAdmin = new RabbitAdmin(getConnectionFactory(binderName));
+        amqpAdmin = new RabbitAdmin(
+            new CountingRabbitTemplate(getConnectionFactory(binderName), connectionAcquisitions.get(ConnectionType.READ)));
         updateCachedAmqpAdmin(binderName, amqpAdmin);
 
         return amqpAdmin;
@@ -101,24 +262,59 @@ public class RabbitMqConnectionService {
             return rabbitTemplate;
         }
 
-        rabbitTemplate = new RabbitTemplate(getConnectionFactory(binderName));
+        rabbitTemplate = new CountingRabbitTemplate(getConnectionFactory(binderName), connectionAcquisitions.get(ConnectionType.READ));
         updateCachedRabbitTemplate(binderName, rabbitTemplate);
 
         return rabbitTemplate;
     }
 
-    private AbstractConnectionFactory getConnectionFactory(@NonNull final String binderName) {
+    private synchronized AbstractConnectionFactory getConnectionFactory(@NonNull final String binderName) {
         AbstractConnectionFactory cachedAbstractConnectionFactory = getCachedConnectionFactory(binderName);
         if (cachedAbstractConnectionFactory != null) {
             return cachedAbstractConnectionFactory;
         }
 
+        final CachingConnectionFactory cachingConnectionFactory = createConnectionFactory(binderName, ConnectionType.READ);
+        if (cachingConnectionFactory == null) {
+            return null;
+        }
+
+        cachingConnectionFactory.setPublisherReturns(true);
+
+        updateCachedConnectionFactory(binderName, cachingConnectionFactory);
+
+        return cachingConnectionFactory;
+    }
+
+    private synchronized AbstractConnectionFactory getPublishConnectionFactory(@NonNull final String binderName) {
+        final AbstractConnectionFactory cachedConnectionFactory = publishConnectionFactoryLookup.get(binderName);
+        if (cachedConnectionFactory != null) {
+            return cachedConnectionFactory;
+        }
+
+        final CachingConnectionFactory cachingConnectionFactory = createConnectionFactory(binderName, ConnectionType.PUBLISH);
+        if (cachingConnectionFactory == null) {
+            return null;
+        }
+
+        //every channel is put in confirm mode when it is created, so pooled channels can be reused by the republish pipeline as is
+        cachingConnectionFactory.setPublisherConfirmType(ConfirmType.SIMPLE);
+        cachingConnectionFactory.setConnectionNameStrategy(connectionFactory -> "virgil-publish-" + binderName);
+
+        publishConnectionFactoryLookup.put(binderName, cachingConnectionFactory);
+
+        return cachingConnectionFactory;
+    }
+
+    @Nullable
+    private CachingConnectionFactory createConnectionFactory(@NonNull final String binderName, @NonNull final ConnectionType connectionType) {
         final BinderProperties binderProperties = virgilPropertyConfig.getBinderProperties(binderName);
         if (binderProperties == null) {
             return null;
         }
 
-        final CachingConnectionFactory cachingConnectionFactory = new CachingConnectionFactory();
+        final CachingConnectionFactory cachingConnectionFactory =
+            new CachingConnectionFactory(new ObservedRabbitConnectionFactory(binderName, connectionType));
 
         final String addresses = binderProperties.getRabbitProperties().determineAddresses();
         cachingConnectionFactory.setAddresses(addresses);
@@ -127,9 +323,12 @@ public class RabbitMqConnectionService {
         cachingConnectionFactory.setPassword(binderProperties.getRabbitProperties().determinePassword());
 
         cachingConnectionFactory.setVirtualHost(binderProperties.getRabbitProperties().determineVirtualHost());
-        cachingConnectionFactory.setPublisherReturns(true);
 
-        updateCachedConnectionFactory(binderName, cachingConnectionFactory);
+        final AtomicLong created = connectionsCreated.get(connectionType);
+        cachingConnectionFactory.addConnectionListener(connection -> {
+            created.incrementAndGet();
+            LOG.debug("Opened RabbitMq connection. [Binder: {}, Type: {}]", binderName, connectionType.tag);
+        });
 
         return cachingConnectionFactory;
     }
@@ -140,50 +339,116 @@ public class RabbitMqConnectionService {
      * @param binderName Name of the RabbitMq Exchange
      */
     public void destroyConnectionsByName(@NonNull final String binderName) {
+        final ConnectionDestroyEvent connectionDestroyEvent = new ConnectionDestroyEvent();
+        connectionDestroyEvent.begin();
+
         //flush cached amqpAdmin and rabbitTemplate instances
-        if (amqpAdminLookup.get() != null) {
-            amqpAdminLookup.get().remove(binderName);
+        amqpAdminLookup.remove(binderName);
+        rabbitTemplateLookup.remove(binderName);
+
+        //destroy cachingConnectionFactory and remove it from cache
+        final AbstractConnectionFactory connectionFactory = cachingConnectionFactoryLookup.remove(binderName);
+        if (connectionFactory != null) {
+            connectionFactory.destroy();
         }
 
-        if (rabbitTemplateLookup.get() != null) {
-            ((CachingConnectionFactory) rabbitTemplateLookup.get().get(binderName).getConnectionFactory()).destroy();
-            rabbitTemplateLookup.get().remove(binderName);
+        final AbstractConnectionFactory publishConnectionFactory = publishConnectionFactoryLookup.remove(binderName);
+        if (publishConnectionFactory != null) {
+            publishConnectionFactory.destroy();
         }
 
-        //destroy cachingConnectionFactory
-        final CachingConnectionFactory connectionFactory = (CachingConnectionFactory) getCachedConnectionFactory(binderName);
-        if (connectionFactory != null) {
-            connectionFactory.destroy();
+        connectionDestroyEvent.finish(OperationMetrics.current(), binderName, connectionFactory != null, publishConnectionFactory != null);
+    }
 
-            //remove cachingConnectionFactory instance from cache
-            cachingConnectionFactoryLookup.get().remove(binderName);
+    /**
+     * Closes every connection, called when the application context shuts down
+     */
+    public void destroy() {
+        for (final String binderName : cachingConnectionFactoryLookup.keySet()) {
+            destroyConnectionsByName(binderName);
+        }
+        for (final String binderName : publishConnectionFactoryLookup.keySet()) {
+            destroyConnectionsByName(binderName);
         }
     }
 
     @Nullable
     private AmqpAdmin getCachedAmqpAdmin(final String binderName) {
-        return amqpAdminLookup.get().getOrDefault(binderName, null);
+        return amqpAdminLookup.getOrDefault(binderName, null);
     }
 
     private void updateCachedAmqpAdmin(final String binderName, final AmqpAdmin amqpAdmin) {
-        amqpAdminLookup.get().put(binderName, amqpAdmin);
+        amqpAdminLookup.put(binderName, amqpAdmin);
     }
 
     @Nullable
     private RabbitTemplate getCachedRabbitTemplate(final String binderName) {
-        return rabbitTemplateLookup.get().getOrDefault(binderName, null);
+        return rabbitTemplateLookup.getOrDefault(binderName, null);
     }
 
     private void updateCachedRabbitTemplate(final String binderName, final RabbitTemplate rabbitTemplate) {
-        rabbitTemplateLookup.get().put(binderName, rabbitTemplate);
+        rabbitTemplateLookup.put(binderName, rabbitTemplate);
     }
 
     @Nullable
     private AbstractConnectionFactory getCachedConnectionFactory(final String binderName) {
-        return cachingConnectionFactoryLookup.get().getOrDefault(binderName, null);
+        return cachingConnectionFactoryLookup.getOrDefault(binderName, null);
     }
 
     private void updateCachedConnectionFactory(final String binderName, final AbstractConnectionFactory abstractConnectionFactory) {
-        cachingConnectionFactoryLookup.get().put(binderName, abstractConnectionFactory);
+        cachingConnectionFactoryLookup.put(binderName, abstractConnectionFactory);
+    }
+
+    /**
+     * Counts a connection checkout for every callback it runs, shared or not. {@link RabbitAdmin} runs every call through it as well.
+     */
+    private static final class CountingRabbitTemplate extends RabbitTemplate {
+
+        private final AtomicLong acquisitions;
+
+        private CountingRabbitTemplate(final AbstractConnectionFactory connectionFactory, final AtomicLong acquisitions) {
+            super(connectionFactory);
+            this.acquisitions = acquisitions;
+        }
+
+        @Override
+        @Nullable
+        public <T> T execute(final ChannelCallback<T> action) {
+            acquisitions.incrementAndGet();
+            return super.execute(action);
+        }
+    }
+
+    /**
+     * Observes every connection it opens, see {@link OperationMetrics.Operation#startObservation(String, KeyValues)}. Automatic recovery is
+     * off, as it is on the factory {@link CachingConnectionFactory} creates by default, since the caching factory recovers on its own.
+     */
+    private static final class ObservedRabbitConnectionFactory extends ConnectionFactory {
+
+        private final KeyValues keyValues;
+
+        private ObservedRabbitConnectionFactory(final String binderName, final ConnectionType connectionType) {
+            this.keyValues = KeyValues.of("binder", binderName, "connection.type", connectionType.tag);
+            setAutomaticRecoveryEnabled(false);
+        }
+
+        @Override
+        public Connection newConnection(
+            final ExecutorService executor,
+            final AddressResolver addressResolver,
+            final String clientProvidedName
+        ) throws IOException, TimeoutException {
+            final OperationMetrics.Operation operation = OperationMetrics.current();
+            operation.connectionCreated();
+            final Observation observation = operation.startObservation(OperationMetrics.CONNECTION_OBSERVATION, keyValues);
+            try {
+                return super.newConnection(executor, addressResolver, clientProvidedName);
+            } catch (final IOException | TimeoutException | RuntimeException ex) {
+                observation.error(ex);
+                throw ex;
+            } finally {
+                observation.stop();
+            }
+        }
     }
 }
@@ -0,0 +1,65 @@
+package com.indeed.virgil.spring.boot.starter.services;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.springframework.lang.Nullable;
+
+/**
+ * Flight Recorder event spanning a {@link RepublishPipeline}, from its creation until it is closed
+ */
+@Name("com.indeed.virgil.RepublishBatch")
+@Label("Virgil Republish Batch")
+@Category("Virgil")
+@Description("Messages republished through a single Virgil republish pipeline")
+final class RepublishBatchEvent extends Event {
+
+    @Label("Queue Id")
+    @Nullable
+    String queueId;
+
+    @Label("Messages Published")
+    int messagesPublished;
+
+    @Label("Messages Confirmed")
+    int messagesConfirmed;
+
+    @Label("Bytes Published")
+    @DataAmount
+    long bytesPublished;
+
+    @Label("Timed Out")
+    boolean timedOut;
+
+    /**
+     * Ends the event and commits it, unless the event is disabled or under its threshold
+     *
+     * @param operation Operation republishing the messages
+     * @param messagesPublished Number of messages published
+     * @param messagesConfirmed Number of publishes confirmed by the broker
+     * @param bytesPublished Size of the bodies published
+     * @param timedOut Whether the pipeline gave up waiting on confirms
+     */
+    void finish(
+        final OperationMetrics.Operation operation,
+        final int messagesPublished,
+        final int messagesConfirmed,
+        final long bytesPublished,
+        final boolean timedOut
+    ) {
+        end();
+        if (!shouldCommit()) {
+            return;
+        }
+
+        this.queueId = operation.getQueueId();
+        this.messagesPublished = messagesPublished;
+        this.messagesConfirmed = messagesConfirmed;
+        this.bytesPublished = bytesPublished;
+        this.timedOut = timedOut;
+        commit();
+    }
+}
@@ -0,0 +1,331 @@
+package com.indeed.virgil.spring.boot.starter.services;
+
+import com.indeed.virgil.spring.boot.starter.util.VirgilMessageUtils;
+import com.rabbitmq.client.AMQP.BasicProperties;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ConfirmListener;
+import com.rabbitmq.client.ReturnListener;
+import io.micrometer.common.KeyValues;
+import io.micrometer.observation.Observation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.connection.RabbitUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Republishes DLQ deliveries on a channel in publisher-confirm mode, and only acks the DLQ copy once the broker has confirmed the publish.
+ * <p>
+ * Publishes are pipelined: up to {@code window} of them can be awaiting a confirm at any time. Confirms arrive on the connection's thread and
+ * are only recorded there, the acks themselves are sent from the scan thread whenever it publishes or finishes. Confirmed deliveries that
+ * form an unbroken run of delivery tags are ack'd with a single {@code multiple=true} ack, anything else is ack'd one by one, so a message
+ * the scan is keeping on the DLQ is never covered by a multiple ack.
+ * <p>
+ * A nacked publish, or one that is not confirmed before the timeout, leaves its DLQ copy unacked so it is requeued when the scan channel is
+ * closed. A confirm that arrives after the timeout can therefore leave the message both republished and on the DLQ, never neither.
+ * <p>
+ * Messages are published as mandatory, so one that no queue is bound for is returned instead of silently dropped. The broker still acks
+ * it, right after the return, so a returned publish is tracked through the {@link #PUBLISH_SEQ_NO_HEADER} header and its ack is handled
+ * like a nack. The header is left out of the fingerprint, so the message keeps its id if it is dead-lettered again.
+ * <p>
+ * Every publish, and the wait for the last confirms, is observed as a child of the running operation.
+ */
+class RepublishPipeline implements ConfirmListener, ReturnListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RepublishPipeline.class);
+
+    static final int DEFAULT_WINDOW = 256;
+    static final long DEFAULT_CONFIRM_TIMEOUT_MS = 10_000L;
+    static final String PUBLISH_SEQ_NO_HEADER = VirgilMessageUtils.PUBLISH_SEQ_NO_HEADER;
+
+    private final Channel publishChannel;
+    private final Channel scanChannel;
+    private final int window;
+    private final long confirmTimeoutMs;
+
+    //guarded by this, written by the confirm and return listeners
+    private final NavigableMap<Long, Pending> outstanding = new TreeMap<>();
+    private final List<Pending> confirmed = new ArrayList<>();
+    private final List<Pending> nacked = new ArrayList<>();
+    private final Set<Long> returned = new TreeSet<>();
+    private final List<Pending> unroutable = new ArrayList<>();
+
+    //only touched by the scan thread
+    private final Map<String, Boolean> results = new HashMap<>();
+    private final NavigableSet<Long> ackedAboveFloor = new TreeSet<>();
+    private long ackFloor = -1;
+    private boolean timedOut;
+    private int messagesPublished;
+    private long bytesPublished;
+
+    private final RepublishBatchEvent republishBatchEvent = new RepublishBatchEvent();
+
+    /**
+     *
+     * @param publishChannel Channel the messages are republished on, it is put in confirm mode if it is not already and owned by the
+     *                       pipeline from then on
+     * @param scanChannel Channel the DLQ deliveries were received on
+     * @param window Max number of publishes awaiting a confirm
+     * @param confirmTimeoutMs How long to wait for confirms before giving up on the outstanding publishes
+     */
+    RepublishPipeline(
+        final Channel publishChannel,
+        final Channel scanChannel,
+        final int window,
+        final long confirmTimeoutMs
+    ) throws IOException {
+        this.publishChannel = publishChannel;
+        this.scanChannel = scanChannel;
+        this.window = window;
+        this.confirmTimeoutMs = confirmTimeoutMs;
+
+        publishChannel.confirmSelect();
+        publishChannel.addConfirmListener(this);
+        publishChannel.addReturnListener(this);
+        republishBatchEvent.begin();
+    }
+
+    /**
+     * Records a delivery that stays on the DLQ. Must be called for every delivery that is not republished so that it is never ack'd.
+     *
+     * @param deliveryTag Delivery tag on the scan channel
+     */
+    void skip(final long deliveryTag) throws IOException {
+        observe(deliveryTag);
+        ackConfirmed();
+    }
+
+    /**
+     * Publishes the delivery as mandatory, blocking while the window is full
+     *
+     * @param deliveryTag Delivery tag on the scan channel
+     * @param messageId Id the outcome is reported under
+     * @param exchange Exchange to publish to
+     * @param routingKey Routing key to publish with
+     * @param properties Properties of the delivery
+     * @param body Body of the delivery
+     */
+    void publish(
+        final long deliveryTag,
+        final String messageId,
+        final String exchange,
+        final String routingKey,
+        final BasicProperties properties,
+        final byte[] body
+    ) throws IOException, InterruptedException {
+        final Observation observation = OperationMetrics.current()
+            .startObservation(OperationMetrics.REPUBLISH_OBSERVATION, KeyValues.of("exchange", exchange))
+            .highCardinalityKeyValue("message.id", messageId);
+        try {
+            observe(deliveryTag);
+            awaitOutstandingBelow(window);
+
+            final long seqNo;
+            synchronized (this) {
+                seqNo = publishChannel.getNextPublishSeqNo();
+                outstanding.put(seqNo, new Pending(deliveryTag, messageId));
+            }
+
+            try {
+                publishChannel.basicPublish(exchange, routingKey, true, withPublishSeqNo(properties, seqNo), body);
+                messagesPublished++;
+                bytesPublished += body == null ? 0 : body.length;
+            } catch (final IOException ex) {
+                LOG.error("Failed to republish message, leaving it on the DLQ. MessageId: {}", messageId, ex);
+                observation.error(ex);
+                synchronized (this) {
+                    outstanding.remove(seqNo);
+                }
+                results.put(messageId, false);
+            }
+
+            ackConfirmed();
+        } finally {
+            observation.stop();
+        }
+    }
+
+    /**
+     * Waits for every outstanding confirm and acks the confirmed deliveries
+     *
+     * @return Whether each published message id was confirmed, and its DLQ copy ack'd
+     */
+    Map<String, Boolean> finish() throws IOException, InterruptedException {
+        final Observation observation = OperationMetrics.current().startObservation(OperationMetrics.CONFIRM_OBSERVATION, KeyValues.empty());
+        try {
+            awaitOutstandingBelow(1);
+            ackConfirmed();
+            return results;
+        } finally {
+            observation.stop();
+        }
+    }
+
+    /**
+     * Stops listening for confirms and hands the publish channel back to its pool. A channel that still has publishes awaiting a confirm is
+     * physically closed instead, so late confirms are never delivered to the next pipeline that checks it out.
+     */
+    void close() {
+        final int messagesConfirmed = (int) results.values().stream().filter(Boolean::booleanValue).count();
+        republishBatchEvent.finish(OperationMetrics.current(), messagesPublished, messagesConfirmed, bytesPublished, timedOut);
+
+        publishChannel.removeConfirmListener(this);
+        publishChannel.removeReturnListener(this);
+        if (timedOut) {
+            RabbitMqConnectionService.closeChannel(publishChannel);
+        } else {
+            RabbitUtils.closeChannel(publishChannel);
+        }
+    }
+
+    @Override
+    public void handleAck(final long deliveryTag, final boolean multiple) {
+        resolve(deliveryTag, multiple, confirmed);
+    }
+
+    @Override
+    public void handleNack(final long deliveryTag, final boolean multiple) {
+        resolve(deliveryTag, multiple, nacked);
+    }
+
+    @Override
+    public synchronized void handleReturn(
+        final int replyCode,
+        final String replyText,
+        final String exchange,
+        final String routingKey,
+        final BasicProperties properties,
+        final byte[] body
+    ) {
+        final Object seqNo = properties == null || properties.getHeaders() == null
+            ? null
+            : properties.getHeaders().get(PUBLISH_SEQ_NO_HEADER);
+        if (seqNo instanceof Number && outstanding.containsKey(((Number) seqNo).longValue())) {
+            returned.add(((Number) seqNo).longValue());
+        }
+    }
+
+    private synchronized void resolve(final long seqNo, final boolean multiple, final List<Pending> into) {
+        final Map<Long, Pending> resolved = multiple
+            ? outstanding.headMap(seqNo, true)
+            : outstanding.subMap(seqNo, true, seqNo, true);
+
+        for (final Map.Entry<Long, Pending> entry : resolved.entrySet()) {
+            // the broker acks a publish it returned, it was still never routed anywhere
+            if (returned.remove(entry.getKey())) {
+                unroutable.add(entry.getValue());
+            } else {
+                into.add(entry.getValue());
+            }
+        }
+        resolved.clear();
+        notifyAll();
+    }
+
+    /**
+     * Tags the publish with its sequence number, the only way to tell which publish a return is for
+     */
+    private static BasicProperties withPublishSeqNo(final BasicProperties properties, final long seqNo) {
+        final BasicProperties source = properties != null ? properties : new BasicProperties();
+        final Map<String, Object> headers = source.getHeaders() != null ? new HashMap<>(source.getHeaders()) : new HashMap<>();
+        headers.put(PUBLISH_SEQ_NO_HEADER, seqNo);
+        return source.builder().headers(headers).build();
+    }
+
+    private void observe(final long deliveryTag) {
+        // tags on a channel only go up, so nothing below the first one this scan saw can be outstanding
+        if (ackFloor < 0) {
+            ackFloor = deliveryTag - 1;
+        }
+    }
+
+    private void awaitOutstandingBelow(final int limit) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(confirmTimeoutMs);
+
+        synchronized (this) {
+            while (outstanding.size() >= limit) {
+                final long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    LOG.warn("Timed out waiting for publisher confirms, leaving messages on the DLQ. Outstanding: {}", outstanding.size());
+                    outstanding.values().forEach(pending -> results.put(pending.messageId(), false));
+                    outstanding.clear();
+                    returned.clear();
+                    timedOut = true;
+                    return;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+        }
+    }
+
+    private void ackConfirmed() throws IOException {
+        final List<Pending> newlyConfirmed;
+        final List<Pending> newlyNacked;
+        final List<Pending> newlyUnroutable;
+        synchronized (this) {
+            if (confirmed.isEmpty() && nacked.isEmpty() && unroutable.isEmpty()) {
+                return;
+            }
+            newlyConfirmed = new ArrayList<>(confirmed);
+            newlyNacked = new ArrayList<>(nacked);
+            newlyUnroutable = new ArrayList<>(unroutable);
+            confirmed.clear();
+            nacked.clear();
+            unroutable.clear();
+        }
+
+        for (final Pending pending : newlyNacked) {
+            LOG.warn("Broker nacked republished message, leaving it on the DLQ. MessageId: {}", pending.messageId());
+            results.put(pending.messageId(), false);
+        }
+
+        for (final Pending pending : newlyUnroutable) {
+            LOG.warn("Republished message was returned as unroutable, leaving it on the DLQ. MessageId: {}", pending.messageId());
+            results.put(pending.messageId(), false);
+        }
+
+        final NavigableSet<Long> confirmedTags = new TreeSet<>();
+        for (final Pending pending : newlyConfirmed) {
+            confirmedTags.add(pending.deliveryTag());
+            results.put(pending.messageId(), true);
+        }
+
+        // extend the run of settled tags above the floor, stopping at the first tag that is still held on the DLQ or unseen
+        long runEnd = ackFloor;
+        long lastConfirmedInRun = -1;
+        while (true) {
+            final long next = runEnd + 1;
+            if (confirmedTags.contains(next)) {
+                lastConfirmedInRun = next;
+            } else if (!ackedAboveFloor.contains(next)) {
+                break;
+            }
+            runEnd = next;
+        }
+
+        if (lastConfirmedInRun >= 0) {
+            scanChannel.basicAck(lastConfirmedInRun, true);
+            confirmedTags.headSet(lastConfirmedInRun, true).clear();
+            ackedAboveFloor.headSet(lastConfirmedInRun, true).clear();
+            ackFloor = lastConfirmedInRun;
+        }
+
+        for (final long deliveryTag : confirmedTags) {
+            scanChannel.basicAck(deliveryTag, false);
+            ackedAboveFloor.add(deliveryTag);
+        }
+    }
+
+    private record Pending(long deliveryTag, String messageId) {
+    }
+}
@@ -0,0 +1,65 @@
+package com.indeed.virgil.spring.boot.starter.services;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.springframework.lang.Nullable;
+
+/**
+ * Flight Recorder event spanning a single batch of a scan: one consumer, or prefetchCount basicGets
+ */
+@Name("com.indeed.virgil.ScanBatch")
+@Label("Virgil Scan Batch")
+@Category("Virgil")
+@Description("Batch of messages fetched by a Virgil scan")
+final class ScanBatchEvent extends Event {
+
+    @Label("Queue Id")
+    @Nullable
+    String queueId;
+
+    @Label("Queue Name")
+    String queueName;
+
+    @Label("Read Mode")
+    String readMode;
+
+    @Label("Messages Fetched")
+    int messagesFetched;
+
+    @Label("Bytes Fetched")
+    @DataAmount
+    long bytesFetched;
+
+    /**
+     * Ends the event and commits it, unless the event is disabled or under its threshold
+     *
+     * @param operation Operation running the scan
+     * @param queueName Name of the queue scanned
+     * @param readMode Read mode of the queue
+     * @param messagesFetched Number of messages fetched in the batch
+     * @param bytesFetched Size of the bodies fetched in the batch
+     */
+    void finish(
+        final OperationMetrics.Operation operation,
+        final String queueName,
+        final String readMode,
+        final int messagesFetched,
+        final long bytesFetched
+    ) {
+        end();
+        if (!shouldCommit()) {
+            return;
+        }
+
+        this.queueId = operation.getQueueId();
+        this.queueName = queueName;
+        this.readMode = readMode;
+        this.messagesFetched = messagesFetched;
+        this.bytesFetched = bytesFetched;
+        commit();
+    }
+}
@@ -0,0 +1,106 @@
+package com.indeed.virgil.spring.boot.starter.services;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Keeps concurrent scans of the same queue from getting in each other's way. Every scan holds the messages it reads unacked until it is
+ * over, so two scans running side by side would each miss the messages the other is holding.
+ * <ul>
+ *     <li>Scans of a queue run one at a time, under a per-queue lease that is given up on after a bounded wait</li>
+ *     <li>Identical reads that arrive while one is already running wait for it and share its result, instead of scanning again</li>
+ * </ul>
+ * A lease is not tied to the thread that took it, so a read that outlives the call that started it, like a stream or a browse session, can
+ * release it from whichever thread closes it. Leases are not reentrant.
+ */
+class ScanCoordinator {
+
+    private final Map<String, Semaphore> leases = new ConcurrentHashMap<>();
+    private final Map<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Blocks until no other scan of the queue is running, or the wait timeout is up
+     *
+     * @param queueId Queue Property Key, this is not the actual name of the queue
+     * @param waitTimeout How long to wait for the scan that holds the lease
+     * @return Lease to close once the scan is over
+     * @throws QueueBusyException if the lease is still held once the wait timeout is up
+     */
+    Lease lease(final String queueId, final Duration waitTimeout) {
+        final Semaphore lease = leases.computeIfAbsent(queueId, key -> new Semaphore(1, true));
+        try {
+            if (!lease.tryAcquire(waitTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new QueueBusyException(queueId);
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new QueueBusyException(queueId);
+        }
+
+        final AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) {
+                lease.release();
+            }
+        };
+    }
+
+    /**
+     * Runs the read, unless an identical one is already running, in which case its result is returned once it completes. A read that
+     * throws fails every caller waiting on it.
+     *
+     * @param key Identifies the read, two reads with equal keys must return the same result
+     * @param read Read to run
+     * @param <T> Type of the result
+     * @return Result of the read, shared between every caller that asked for it while it ran
+     */
+    @SuppressWarnings("unchecked")
+    <T> T coalesce(final Object key, final Supplier<T> read) {
+        final CompletableFuture<Object> pending = new CompletableFuture<>();
+        final CompletableFuture<Object> running = inFlight.putIfAbsent(key, pending);
+        if (running != null) {
+            return (T) await(running);
+        }
+
+        try {
+            final T result = read.get();
+            pending.complete(result);
+            return result;
+        } catch (final RuntimeException | Error ex) {
+            pending.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, pending);
+        }
+    }
+
+    private static Object await(final CompletableFuture<Object> running) {
+        try {
+            return running.join();
+        } catch (final CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            if (ex.getCause() instanceof Error) {
+                throw (Error) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Exclusive right to scan a queue, released on close. Closing it more than once has no effect.
+     */
+    interface Lease extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
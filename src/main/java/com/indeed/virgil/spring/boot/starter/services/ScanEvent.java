@@ -0,0 +1,59 @@
+package com.indeed.virgil.spring.boot.starter.services;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.springframework.lang.Nullable;
+
+/**
+ * Flight Recorder event spanning a scan of a queue, from the moment it has a channel until the channel is released
+ */
+@Name("com.indeed.virgil.Scan")
+@Label("Virgil Scan")
+@Category("Virgil")
+@Description("Scan of a queue by a Virgil operation")
+final class ScanEvent extends Event {
+
+    @Label("Operation")
+    @Nullable
+    String operation;
+
+    @Label("Queue Id")
+    @Nullable
+    String queueId;
+
+    @Label("Queue Name")
+    String queueName;
+
+    @Label("Messages Scanned")
+    int messagesScanned;
+
+    @Label("Bytes Read")
+    @DataAmount
+    long bytesRead;
+
+    /**
+     * Ends the event and commits it, unless the event is disabled or under its threshold
+     *
+     * @param operation Operation running the scan
+     * @param queueName Name of the queue scanned
+     * @param messagesScanned Number of messages pulled off the queue
+     * @param bytesRead Size of the bodies pulled off the queue
+     */
+    void finish(final OperationMetrics.Operation operation, final String queueName, final int messagesScanned, final long bytesRead) {
+        end();
+        if (!shouldCommit()) {
+            return;
+        }
+
+        this.operation = operation.getName();
+        this.queueId = operation.getQueueId();
+        this.queueName = queueName;
+        this.messagesScanned = messagesScanned;
+        this.bytesRead = bytesRead;
+        commit();
+    }
+}
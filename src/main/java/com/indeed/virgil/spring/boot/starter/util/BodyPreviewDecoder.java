@@ -0,0 +1,161 @@
+package com.indeed.virgil.spring.boot.starter.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.Nullable;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Decodes the start of a message body into the text preview shown for it.
+ * <p>
+ * The body is read through a {@link ByteBuffer} view and decoding stops as soon as the preview is full, so the bytes after the preview are
+ * never copied or decoded, and a multi-byte character is never cut in half. Bodies with a {@code gzip} or {@code deflate} content-encoding
+ * are inflated a small window at a time, only until the preview is full. A body that fails to inflate is previewed as is.
+ */
+public final class BodyPreviewDecoder {
+    private static final Logger LOG = LoggerFactory.getLogger(BodyPreviewDecoder.class);
+
+    public static final int DEFAULT_PREVIEW_LENGTH = 256;
+
+    private static final int MAX_BYTES_PER_CHAR = 4;
+    private static final int MAX_WINDOW_LENGTH = 8192;
+
+    private static final int GZIP_ID1 = 0x1f;
+    private static final int GZIP_ID2 = 0x8b;
+    private static final int GZIP_DEFLATE = 8;
+    private static final int GZIP_FIXED_HEADER_LENGTH = 10;
+    private static final int GZIP_FHCRC = 2;
+    private static final int GZIP_FEXTRA = 4;
+    private static final int GZIP_FNAME = 8;
+    private static final int GZIP_FCOMMENT = 16;
+
+    private BodyPreviewDecoder() {
+    }
+
+    /**
+     * @param body Body of the message, read from its position to its limit and left untouched
+     * @param contentEncoding content-encoding of the message, {@code gzip} and {@code deflate} are inflated
+     * @param previewLength Max number of chars in the preview
+     * @return preview of the body
+     */
+    public static String decode(final ByteBuffer body, @Nullable final String contentEncoding, final int previewLength) {
+        final ContentEncoding encoding = ContentEncoding.fromValue(contentEncoding);
+        if (previewLength > 0 && body.hasRemaining()) {
+            try {
+                switch (encoding) {
+                    case GZIP:
+                        return inflateGzip(body.duplicate(), previewLength);
+                    case DEFLATE:
+                        return inflate(body.duplicate(), new Inflater(!ContentEncoding.isZlibWrapped(body)), previewLength);
+                    default:
+                        break;
+                }
+            } catch (final DataFormatException ex) {
+                LOG.debug("Unable to inflate message body, previewing it as is. [ContentEncoding: {}]", contentEncoding, ex);
+            }
+        }
+
+        return decodeIdentity(body.duplicate(), previewLength);
+    }
+
+    private static String decodeIdentity(final ByteBuffer body, final int previewLength) {
+        // UTF-8 never decodes to more chars than it has bytes
+        final CharBuffer preview = CharBuffer.allocate(Math.max(0, Math.min(previewLength, body.remaining())));
+        final CharsetDecoder decoder = newDecoder();
+
+        if (decoder.decode(body, preview, true).isUnderflow()) {
+            decoder.flush(preview);
+        }
+
+        return preview.flip().toString();
+    }
+
+    private static String inflateGzip(final ByteBuffer body, final int previewLength) throws DataFormatException {
+        skipGzipHeader(body);
+        return inflate(body, new Inflater(true), previewLength);
+    }
+
+    private static String inflate(final ByteBuffer body, final Inflater inflater, final int previewLength) throws DataFormatException {
+        final CharBuffer preview = CharBuffer.allocate(previewLength);
+        final ByteBuffer window = ByteBuffer.allocate((int) Math.min((long) previewLength * MAX_BYTES_PER_CHAR, MAX_WINDOW_LENGTH));
+        final CharsetDecoder decoder = newDecoder();
+
+        try {
+            inflater.setInput(body);
+            while (preview.hasRemaining()) {
+                final int inflated = inflater.inflate(window);
+                // a stream that is cut short is previewed up to where it stops
+                final boolean endOfInput = inflater.finished() || inflated == 0;
+
+                window.flip();
+                final CoderResult result = decoder.decode(window, preview, endOfInput);
+                window.compact();
+
+                if (result.isOverflow()) {
+                    break;
+                }
+                if (endOfInput) {
+                    decoder.flush(preview);
+                    break;
+                }
+            }
+        } finally {
+            inflater.end();
+        }
+
+        return preview.flip().toString();
+    }
+
+    private static void skipGzipHeader(final ByteBuffer body) throws DataFormatException {
+        try {
+            if (body.remaining() < GZIP_FIXED_HEADER_LENGTH
+                || (body.get() & 0xff) != GZIP_ID1
+                || (body.get() & 0xff) != GZIP_ID2
+                || body.get() != GZIP_DEFLATE) {
+                throw new DataFormatException("Not in gzip format");
+            }
+
+            final int flags = body.get() & 0xff;
+            // mtime, xfl and os
+            body.position(body.position() + 6);
+
+            if ((flags & GZIP_FEXTRA) != 0) {
+                final int extraLength = (body.get() & 0xff) | ((body.get() & 0xff) << 8);
+                body.position(body.position() + extraLength);
+            }
+            if ((flags & GZIP_FNAME) != 0) {
+                skipZeroTerminated(body);
+            }
+            if ((flags & GZIP_FCOMMENT) != 0) {
+                skipZeroTerminated(body);
+            }
+            if ((flags & GZIP_FHCRC) != 0) {
+                body.position(body.position() + 2);
+            }
+        } catch (final BufferUnderflowException | IllegalArgumentException ex) {
+            throw new DataFormatException("Truncated gzip header");
+        }
+    }
+
+    private static void skipZeroTerminated(final ByteBuffer body) {
+        while (body.get() != 0) {
+            //skip
+        }
+    }
+
+    private static CharsetDecoder newDecoder() {
+        return UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+}
@@ -0,0 +1,194 @@
+package com.indeed.virgil.spring.boot.starter.util;
+
+import com.rabbitmq.client.LongString;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.lang.Nullable;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Writes {@link FingerprintEncoding#V2}, a canonical binary form of a message that only depends on its content.
+ * <p>
+ * Layout: the magic {@code 'V' 'F' 'P'} and the version byte, then the body, then every property that is set as a field tag followed by a
+ * typed value, in increasing tag order. Tags and type codes are part of the format and must never be renumbered; changing what is written
+ * means adding a new version.
+ * <p>
+ * Values are written as a type code and a payload. Lengths and counts are 4 byte big-endian ints.
+ * <ul>
+ *     <li>Strings and {@link LongString}s are the same type, as UTF-8, so a header keeps its encoding whichever side of the wire it was read on</li>
+ *     <li>Integral numbers of every width are 8 byte longs, floating point numbers are the bits of the double</li>
+ *     <li>Maps are written with their keys sorted, lists keep their order</li>
+ * </ul>
+ * Like {@link FingerprintEncoding#V1}, fields that depend on the delivery rather than the message are left out, and so is the
+ * {@link VirgilMessageUtils#PUBLISH_SEQ_NO_HEADER} header. {@code redelivered} is left out as well, since reading a queue through Virgil
+ * requeues every message it looks at and would flip it.
+ */
+final class CanonicalFingerprintEncoder {
+
+    static final int VERSION = 2;
+
+    private static final byte[] MAGIC = {'V', 'F', 'P'};
+    private static final int MAX_DEPTH = 16;
+    private static final Comparator<Object> KEY_ORDER = Comparator.comparing(String::valueOf);
+
+    //field tags
+    private static final int FIELD_BODY = 1;
+    private static final int FIELD_HEADERS = 2;
+    private static final int FIELD_TIMESTAMP = 3;
+    private static final int FIELD_MESSAGE_ID = 4;
+    private static final int FIELD_USER_ID = 5;
+    private static final int FIELD_APP_ID = 6;
+    private static final int FIELD_CLUSTER_ID = 7;
+    private static final int FIELD_TYPE = 8;
+    private static final int FIELD_CORRELATION_ID = 9;
+    private static final int FIELD_REPLY_TO = 10;
+    private static final int FIELD_CONTENT_TYPE = 11;
+    private static final int FIELD_CONTENT_ENCODING = 12;
+    private static final int FIELD_CONTENT_LENGTH = 13;
+    private static final int FIELD_DELIVERY_MODE = 14;
+    private static final int FIELD_EXPIRATION = 15;
+    private static final int FIELD_PRIORITY = 16;
+    private static final int FIELD_RECEIVED_EXCHANGE = 17;
+    private static final int FIELD_RECEIVED_ROUTING_KEY = 18;
+    private static final int FIELD_RECEIVED_USER_ID = 19;
+
+    //value types
+    private static final int TYPE_NULL = 0;
+    private static final int TYPE_STRING = 1;
+    private static final int TYPE_BYTES = 2;
+    private static final int TYPE_INTEGER = 3;
+    private static final int TYPE_BOOLEAN = 4;
+    private static final int TYPE_FLOAT = 5;
+    private static final int TYPE_DECIMAL = 6;
+    private static final int TYPE_TIMESTAMP = 7;
+    private static final int TYPE_MAP = 8;
+    private static final int TYPE_LIST = 9;
+    private static final int TYPE_TOO_DEEP = 10;
+
+    private CanonicalFingerprintEncoder() {
+    }
+
+    static void writeMessage(final FingerprintSink sink, @Nullable final Message msg) {
+        sink.writeBytes(MAGIC);
+        sink.writeByte(VERSION);
+        if (msg == null) {
+            return;
+        }
+
+        if (msg.getBody() != null) {
+            sink.writeByte(FIELD_BODY);
+            sink.writeLengthPrefixedBytes(msg.getBody());
+        }
+
+        final MessageProperties messageProperties = msg.getMessageProperties();
+        if (messageProperties == null) {
+            return;
+        }
+
+        if (messageProperties.getHeaders() != null) {
+            sink.writeByte(FIELD_HEADERS);
+            writeMap(sink, messageProperties.getHeaders(), VirgilMessageUtils.PUBLISH_SEQ_NO_HEADER, 0);
+        }
+        writeField(sink, FIELD_TIMESTAMP, messageProperties.getTimestamp());
+        writeField(sink, FIELD_MESSAGE_ID, messageProperties.getMessageId());
+        writeField(sink, FIELD_USER_ID, messageProperties.getUserId());
+        writeField(sink, FIELD_APP_ID, messageProperties.getAppId());
+        writeField(sink, FIELD_CLUSTER_ID, messageProperties.getClusterId());
+        writeField(sink, FIELD_TYPE, messageProperties.getType());
+        writeField(sink, FIELD_CORRELATION_ID, messageProperties.getCorrelationId());
+        writeField(sink, FIELD_REPLY_TO, messageProperties.getReplyTo());
+        writeField(sink, FIELD_CONTENT_TYPE, messageProperties.getContentType());
+        writeField(sink, FIELD_CONTENT_ENCODING, messageProperties.getContentEncoding());
+        sink.writeByte(FIELD_CONTENT_LENGTH);
+        sink.writeByte(TYPE_INTEGER);
+        sink.writeFixedLong(messageProperties.getContentLength());
+        writeField(sink, FIELD_DELIVERY_MODE,
+            messageProperties.getDeliveryMode() == null ? null : messageProperties.getDeliveryMode().name());
+        writeField(sink, FIELD_EXPIRATION, messageProperties.getExpiration());
+        writeField(sink, FIELD_PRIORITY, messageProperties.getPriority());
+        writeField(sink, FIELD_RECEIVED_EXCHANGE, messageProperties.getReceivedExchange());
+        writeField(sink, FIELD_RECEIVED_ROUTING_KEY, messageProperties.getReceivedRoutingKey());
+        writeField(sink, FIELD_RECEIVED_USER_ID, messageProperties.getReceivedUserId());
+    }
+
+    private static void writeField(final FingerprintSink sink, final int tag, @Nullable final Object value) {
+        if (value == null) {
+            return;
+        }
+        sink.writeByte(tag);
+        writeValue(sink, value, 0);
+    }
+
+    private static void writeValue(final FingerprintSink sink, @Nullable final Object value, final int depth) {
+        if (value == null) {
+            sink.writeByte(TYPE_NULL);
+        } else if (depth > MAX_DEPTH) {
+            sink.writeByte(TYPE_TOO_DEEP);
+        } else if (value instanceof CharSequence) {
+            sink.writeByte(TYPE_STRING);
+            sink.writeLengthPrefixedUtf8((CharSequence) value);
+        } else if (value instanceof LongString) {
+            sink.writeByte(TYPE_STRING);
+            sink.writeLengthPrefixedBytes(((LongString) value).getBytes());
+        } else if (value instanceof byte[]) {
+            sink.writeByte(TYPE_BYTES);
+            sink.writeLengthPrefixedBytes((byte[]) value);
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            sink.writeByte(TYPE_INTEGER);
+            sink.writeFixedLong(((Number) value).longValue());
+        } else if (value instanceof Boolean) {
+            sink.writeByte(TYPE_BOOLEAN);
+            sink.writeByte(((Boolean) value) ? 1 : 0);
+        } else if (value instanceof Double || value instanceof Float) {
+            sink.writeByte(TYPE_FLOAT);
+            sink.writeFixedLong(Double.doubleToLongBits(((Number) value).doubleValue()));
+        } else if (value instanceof BigDecimal) {
+            final BigDecimal decimal = (BigDecimal) value;
+            sink.writeByte(TYPE_DECIMAL);
+            sink.writeInt(decimal.scale());
+            sink.writeLengthPrefixedBytes(decimal.unscaledValue().toByteArray());
+        } else if (value instanceof Date) {
+            sink.writeByte(TYPE_TIMESTAMP);
+            sink.writeFixedLong(((Date) value).getTime());
+        } else if (value instanceof Map) {
+            writeMap(sink, (Map<?, ?>) value, null, depth);
+        } else if (value instanceof Collection) {
+            final Collection<?> collection = (Collection<?>) value;
+            sink.writeByte(TYPE_LIST);
+            sink.writeInt(collection.size());
+            for (final Object element : collection) {
+                writeValue(sink, element, depth + 1);
+            }
+        } else if (value instanceof Object[]) {
+            final Object[] array = (Object[]) value;
+            sink.writeByte(TYPE_LIST);
+            sink.writeInt(array.length);
+            for (final Object element : array) {
+                writeValue(sink, element, depth + 1);
+            }
+        } else {
+            sink.writeByte(TYPE_STRING);
+            sink.writeLengthPrefixedUtf8(value.toString());
+        }
+    }
+
+    private static void writeMap(final FingerprintSink sink, final Map<?, ?> map, @Nullable final Object excludedKey, final int depth) {
+        final Object[] keys = map.keySet().stream()
+            .filter(key -> excludedKey == null || !excludedKey.equals(key))
+            .toArray();
+        Arrays.sort(keys, KEY_ORDER);
+
+        sink.writeByte(TYPE_MAP);
+        sink.writeInt(keys.length);
+        for (final Object key : keys) {
+            sink.writeLengthPrefixedUtf8(String.valueOf(key));
+            writeValue(sink, map.get(key), depth + 1);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.indeed.virgil.spring.boot.starter.util;
+
+import org.springframework.lang.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * content-encoding values of a message body that Virgil knows how to decompress
+ */
+public enum ContentEncoding {
+    IDENTITY,
+    GZIP,
+    /**
+     * Meant to be zlib wrapped, but raw deflate streams are common enough that both are accepted
+     */
+    DEFLATE;
+
+    private static final int DEFLATE_METHOD = 8;
+
+    /**
+     * @param value content-encoding of a message, case-insensitive
+     * @return IDENTITY for null and any encoding that is not supported
+     */
+    public static ContentEncoding fromValue(@Nullable final String value) {
+        if (value == null) {
+            return IDENTITY;
+        }
+
+        switch (value.trim().toLowerCase(Locale.ROOT)) {
+            case "gzip":
+            case "x-gzip":
+                return GZIP;
+            case "deflate":
+                return DEFLATE;
+            default:
+                return IDENTITY;
+        }
+    }
+
+    /**
+     * Wraps the body in a stream that decompresses it as it is read
+     *
+     * @param body Compressed body
+     * @return stream of the decompressed body
+     */
+    public InputStream openStream(final byte[] body) throws IOException {
+        final InputStream bodyStream = new ByteArrayInputStream(body);
+        switch (this) {
+            case GZIP:
+                return new GZIPInputStream(bodyStream);
+            case DEFLATE:
+                final Inflater inflater = new Inflater(!isZlibWrapped(ByteBuffer.wrap(body)));
+                return new InflaterInputStream(bodyStream, inflater) {
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            super.close();
+                        } finally {
+                            // only the inflaters it creates itself are ended by InflaterInputStream
+                            inflater.end();
+                        }
+                    }
+                };
+            default:
+                return bodyStream;
+        }
+    }
+
+    /**
+     * @param body Deflated body, only its first two bytes are looked at
+     * @return true if the body starts with a zlib header
+     */
+    static boolean isZlibWrapped(final ByteBuffer body) {
+        if (body.remaining() < 2) {
+            return false;
+        }
+
+        final int compressionMethodAndFlags = body.get(body.position()) & 0xff;
+        final int flags = body.get(body.position() + 1) & 0xff;
+        return (compressionMethodAndFlags & 0x0f) == DEFLATE_METHOD && ((compressionMethodAndFlags << 8) | flags) % 31 == 0;
+    }
+}
@@ -8,12 +8,21 @@ public class EndpointConstants {
 
     public static final String GET_DLQ_MESSAGES_ENDPOINT_ID = "get-dlq-messages";
 
+    public static final String STREAM_DLQ_MESSAGES_ENDPOINT_ID = "stream-dlq-messages";
+
+    public static final String DOWNLOAD_DLQ_MESSAGE_ENDPOINT_ID = "download-dlq-message";
+
     public static final String GET_QUEUES_ENDPOINT_ID = "get-queues";
 
     public static final String DROP_MESSAGE_ENDPOINT_ID = "drop-message";
 
     public static final String DROP_ALL_MESSAGES_ENDPOINT_ID = "drop-all-messages";
 
+    /**
+     * Error code of responses to operations that gave up waiting for the lease of their queue
+     */
+    public static final String QUEUE_BUSY_ERROR_CODE = "QUEUE_BUSY";
+
     public static final String VIRGIL_PATH_PREFIX = "virgil/";
 
     public static final String ENDPOINT_DEFAULT_PATH_MAPPING = "private/" + VIRGIL_PATH_PREFIX;
@@ -0,0 +1,27 @@
+package com.indeed.virgil.spring.boot.starter.util;
+
+/**
+ * Hash used to fingerprint messages. Every algorithm produces a 128-bit digest, rendered as 32 hex characters.
+ */
+public enum FingerprintAlgorithm {
+    /**
+     * Produces the same fingerprints as earlier versions, so ids handed out before an upgrade keep resolving
+     */
+    MD5 {
+        @Override
+        FingerprintHasher newHasher() {
+            return new Md5FingerprintHasher();
+        }
+    },
+    /**
+     * Non-cryptographic MurmurHash3 (x64, 128-bit, seed 0), several times cheaper than MD5 on large bodies
+     */
+    MURMUR3_128 {
+        @Override
+        FingerprintHasher newHasher() {
+            return new Murmur3FingerprintHasher();
+        }
+    };
+
+    abstract FingerprintHasher newHasher();
+}
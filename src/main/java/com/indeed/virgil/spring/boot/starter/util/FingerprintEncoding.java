@@ -0,0 +1,18 @@
+package com.indeed.virgil.spring.boot.starter.util;
+
+/**
+ * How a message is turned into bytes before it is hashed. The encoding is part of a fingerprint's identity: the same message gets a
+ * different fingerprint, and so a different {@code f_} id, under each encoding.
+ */
+public enum FingerprintEncoding {
+    /**
+     * The body followed by the {@code toString()} of each message property. Header order follows the map implementation, so ids are only
+     * stable between instances running the same client versions.
+     */
+    V1,
+    /**
+     * Versioned binary encoding of the body and properties, with headers sorted by key and values written by type, including nested lists
+     * and tables such as {@code x-death}. Ids are stable across JVMs, client versions and redeliveries. See {@link CanonicalFingerprintEncoder}.
+     */
+    V2
+}
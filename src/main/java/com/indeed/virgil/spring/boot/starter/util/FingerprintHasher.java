@@ -0,0 +1,18 @@
+package com.indeed.virgil.spring.boot.starter.util;
+
+/**
+ * Incremental 128-bit hash. Instances are reused for every fingerprint computed on a thread, so they are not thread safe.
+ */
+abstract class FingerprintHasher {
+
+    static final int DIGEST_LENGTH = 16;
+
+    abstract void update(byte[] bytes, int offset, int length);
+
+    /**
+     * Writes the digest of everything passed to {@link #update(byte[], int, int)} since the last digest, and resets the hasher
+     *
+     * @param out Array of at least {@link #DIGEST_LENGTH} bytes
+     */
+    abstract void digest(byte[] out);
+}
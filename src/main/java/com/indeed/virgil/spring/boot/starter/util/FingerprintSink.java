@@ -0,0 +1,429 @@
+package com.indeed.virgil.spring.boot.starter.util;
+
+import com.rabbitmq.client.LongString;
+import org.springframework.lang.Nullable;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Feeds text straight into a {@link FingerprintHasher} through a small reusable buffer, producing exactly the bytes that
+ * {@code String.valueOf(value).getBytes()} would, without building the string.
+ * <p>
+ * Text is encoded as UTF-8 on the fly. Maps and lists whose {@code toString()} is known are walked in place, and {@link LongString} values are
+ * passed through as raw bytes when they are valid UTF-8. Anything else falls back to {@code toString()}. When the platform charset is not
+ * UTF-8 all text is collected into a reusable builder and encoded once by {@link #flush()}, which is as expensive as before but byte
+ * identical.
+ * <p>
+ * One instance is kept per thread, it is not thread safe.
+ */
+final class FingerprintSink {
+
+    private static final int BUFFER_LENGTH = 512;
+    private static final int MAX_BYTES_PER_CHAR = 4;
+    private static final char[] HEX_CHARS =
+        {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
+
+    private final FingerprintHasher hasher;
+    private final byte[] buffer = new byte[BUFFER_LENGTH];
+    private final byte[] digest = new byte[FingerprintHasher.DIGEST_LENGTH];
+    @Nullable
+    private final StringBuilder platformCharsetText;
+    private int bufferLength;
+    private char pendingHighSurrogate;
+
+    FingerprintSink(final FingerprintHasher hasher) {
+        this(hasher, Charset.defaultCharset());
+    }
+
+    FingerprintSink(final FingerprintHasher hasher, final Charset platformCharset) {
+        this.hasher = hasher;
+        this.platformCharsetText = UTF_8.equals(platformCharset) ? null : new StringBuilder(BUFFER_LENGTH);
+    }
+
+    /**
+     * Passes the bytes to the hasher as is
+     */
+    void writeBytes(final byte[] bytes) {
+        flush();
+        hasher.update(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Encodes {@code String.valueOf(value)}
+     */
+    void writeValue(@Nullable final Object value) {
+        if (value == null) {
+            writeText("null");
+        } else if (value instanceof CharSequence) {
+            writeText((CharSequence) value);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            writeLong(((Number) value).longValue());
+        } else if (value instanceof Boolean) {
+            writeText(((Boolean) value) ? "true" : "false");
+        } else if (value instanceof LongString) {
+            writeLongString((LongString) value);
+        } else if (isKnownMap(value)) {
+            writeMap((Map<?, ?>) value);
+        } else if (isKnownCollection(value)) {
+            writeCollection((Collection<?>) value);
+        } else {
+            writeText(value.toString());
+        }
+    }
+
+    /**
+     * Encodes {@code String.valueOf(map)} as if the entry of the key was not in the map, or exactly like {@link #writeValue(Object)} when
+     * it is not
+     */
+    void writeMapWithout(final Map<?, ?> map, final Object excludedKey) {
+        if (!map.containsKey(excludedKey)) {
+            writeValue(map);
+            return;
+        }
+        writeMap(map, excludedKey);
+    }
+
+    void writeText(final CharSequence text) {
+        if (platformCharsetText != null) {
+            platformCharsetText.append(text);
+            return;
+        }
+
+        final int length = text.length();
+        for (int i = 0; i < length; i++) {
+            writeChar(text.charAt(i));
+        }
+    }
+
+    void writeLong(final long value) {
+        if (value == Long.MIN_VALUE || platformCharsetText != null) {
+            writeText(Long.toString(value));
+            return;
+        }
+
+        ensureCapacity(20);
+        long remaining = value;
+        if (remaining < 0) {
+            buffer[bufferLength++] = '-';
+            remaining = -remaining;
+        }
+
+        final int start = bufferLength;
+        do {
+            buffer[bufferLength++] = (byte) ('0' + (remaining % 10));
+            remaining /= 10;
+        } while (remaining > 0);
+
+        for (int left = start, right = bufferLength - 1; left < right; left++, right--) {
+            final byte swap = buffer[left];
+            buffer[left] = buffer[right];
+            buffer[right] = swap;
+        }
+    }
+
+    void writeByte(final int value) {
+        ensureCapacity(1);
+        buffer[bufferLength++] = (byte) value;
+    }
+
+    /**
+     * Writes the value as 4 big-endian bytes
+     */
+    void writeInt(final int value) {
+        ensureCapacity(Integer.BYTES);
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            buffer[bufferLength++] = (byte) (value >>> shift);
+        }
+    }
+
+    /**
+     * Writes the value as 8 big-endian bytes
+     */
+    void writeFixedLong(final long value) {
+        ensureCapacity(Long.BYTES);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[bufferLength++] = (byte) (value >>> shift);
+        }
+    }
+
+    /**
+     * Writes the length of the bytes followed by the bytes
+     */
+    void writeLengthPrefixedBytes(final byte[] bytes) {
+        writeInt(bytes.length);
+        writeBytes(bytes);
+    }
+
+    /**
+     * Writes the length of the UTF-8 encoding of the text followed by the encoding. Unlike {@link #writeText(CharSequence)} this is always
+     * UTF-8, whatever the platform charset.
+     */
+    void writeLengthPrefixedUtf8(final CharSequence text) {
+        writeInt(utf8Length(text));
+
+        final int length = text.length();
+        for (int i = 0; i < length; i++) {
+            writeChar(text.charAt(i));
+        }
+        if (pendingHighSurrogate != 0) {
+            pendingHighSurrogate = 0;
+            writeEncoded('?');
+        }
+    }
+
+    /**
+     * Finishes the digest and resets the sink for the next message
+     *
+     * @return digest as 32 lowercase hex characters
+     */
+    String digestHex() {
+        flush();
+        hasher.digest(digest);
+
+        final char[] chars = new char[FingerprintHasher.DIGEST_LENGTH * 2];
+        for (int i = 0; i < digest.length; i++) {
+            chars[i * 2] = HEX_CHARS[(digest[i] >>> 0x4) & 0xf];
+            chars[i * 2 + 1] = HEX_CHARS[digest[i] & 0xf];
+        }
+        return String.valueOf(chars);
+    }
+
+    /**
+     * Hands everything written so far to the hasher
+     */
+    void flush() {
+        if (pendingHighSurrogate != 0) {
+            pendingHighSurrogate = 0;
+            writeEncoded('?');
+        }
+
+        if (platformCharsetText != null && platformCharsetText.length() > 0) {
+            final byte[] bytes = platformCharsetText.toString().getBytes();
+            platformCharsetText.setLength(0);
+            hasher.update(bytes, 0, bytes.length);
+        }
+
+        if (bufferLength > 0) {
+            hasher.update(buffer, 0, bufferLength);
+            bufferLength = 0;
+        }
+    }
+
+    private void writeChar(final char c) {
+        if (pendingHighSurrogate != 0) {
+            final char high = pendingHighSurrogate;
+            pendingHighSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                writeCodePoint(Character.toCodePoint(high, c));
+                return;
+            }
+            // String.getBytes replaces an unpaired surrogate with '?'
+            writeEncoded('?');
+        }
+
+        if (Character.isHighSurrogate(c)) {
+            pendingHighSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            writeEncoded('?');
+        } else {
+            writeCodePoint(c);
+        }
+    }
+
+    private void writeEncoded(final char c) {
+        ensureCapacity(1);
+        buffer[bufferLength++] = (byte) c;
+    }
+
+    private void writeCodePoint(final int codePoint) {
+        ensureCapacity(MAX_BYTES_PER_CHAR);
+        if (codePoint < 0x80) {
+            buffer[bufferLength++] = (byte) codePoint;
+        } else if (codePoint < 0x800) {
+            buffer[bufferLength++] = (byte) (0xc0 | (codePoint >> 6));
+            buffer[bufferLength++] = (byte) (0x80 | (codePoint & 0x3f));
+        } else if (codePoint < 0x10000) {
+            buffer[bufferLength++] = (byte) (0xe0 | (codePoint >> 12));
+            buffer[bufferLength++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+            buffer[bufferLength++] = (byte) (0x80 | (codePoint & 0x3f));
+        } else {
+            buffer[bufferLength++] = (byte) (0xf0 | (codePoint >> 18));
+            buffer[bufferLength++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+            buffer[bufferLength++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+            buffer[bufferLength++] = (byte) (0x80 | (codePoint & 0x3f));
+        }
+    }
+
+    private void writeLongString(final LongString value) {
+        final byte[] bytes = value.getBytes();
+        if (platformCharsetText != null || pendingHighSurrogate != 0 || !isWellFormedUtf8(bytes)) {
+            // toString decodes the bytes, replacing malformed sequences, so only well formed UTF-8 can be passed through
+            writeText(value.toString());
+            return;
+        }
+
+        flush();
+        hasher.update(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Mirrors {@code AbstractMap.toString()}
+     */
+    private void writeMap(final Map<?, ?> map) {
+        writeMap(map, null);
+    }
+
+    /**
+     * Mirrors {@code AbstractMap.toString()}, leaving out the entry of the excluded key
+     */
+    private void writeMap(final Map<?, ?> map, @Nullable final Object excludedKey) {
+        writeText("{");
+        boolean first = true;
+        for (final Map.Entry<?, ?> entry : map.entrySet()) {
+            if (excludedKey != null && excludedKey.equals(entry.getKey())) {
+                continue;
+            }
+            if (!first) {
+                writeText(", ");
+            }
+            first = false;
+            writeMapMember(map, entry.getKey());
+            writeText("=");
+            writeMapMember(map, entry.getValue());
+        }
+        writeText("}");
+    }
+
+    private void writeMapMember(final Map<?, ?> map, @Nullable final Object member) {
+        if (member == map) {
+            writeText("(this Map)");
+        } else {
+            writeValue(member);
+        }
+    }
+
+    /**
+     * Mirrors {@code AbstractCollection.toString()}
+     */
+    private void writeCollection(final Collection<?> collection) {
+        final Iterator<?> iterator = collection.iterator();
+        if (!iterator.hasNext()) {
+            writeText("[]");
+            return;
+        }
+
+        writeText("[");
+        while (true) {
+            final Object element = iterator.next();
+            if (element == collection) {
+                writeText("(this Collection)");
+            } else {
+                writeValue(element);
+            }
+            if (!iterator.hasNext()) {
+                writeText("]");
+                return;
+            }
+            writeText(", ");
+        }
+    }
+
+    private void ensureCapacity(final int length) {
+        if (bufferLength + length > buffer.length) {
+            hasher.update(buffer, 0, bufferLength);
+            bufferLength = 0;
+        }
+    }
+
+    private static int utf8Length(final CharSequence text) {
+        int utf8Length = 0;
+        final int length = text.length();
+        for (int i = 0; i < length; i++) {
+            final char c = text.charAt(i);
+            if (c < 0x80) {
+                utf8Length += 1;
+            } else if (c < 0x800) {
+                utf8Length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                utf8Length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                utf8Length += 1;
+            } else {
+                utf8Length += 3;
+            }
+        }
+        return utf8Length;
+    }
+
+    private static boolean isKnownMap(final Object value) {
+        final Class<?> type = value.getClass();
+        return type == HashMap.class || type == LinkedHashMap.class || type == TreeMap.class;
+    }
+
+    private static boolean isKnownCollection(final Object value) {
+        final Class<?> type = value.getClass();
+        return type == ArrayList.class || type == LinkedList.class;
+    }
+
+    /**
+     * Whether decoding the bytes as UTF-8 and encoding them again gives back the same bytes: no overlong forms, surrogates, code points past
+     * U+10FFFF or truncated sequences
+     */
+    private static boolean isWellFormedUtf8(final byte[] bytes) {
+        int i = 0;
+        while (i < bytes.length) {
+            final int b0 = bytes[i] & 0xff;
+            if (b0 < 0x80) {
+                i++;
+                continue;
+            }
+
+            final int length;
+            final int min;
+            final int max;
+            if (b0 >= 0xc2 && b0 <= 0xdf) {
+                length = 2;
+                min = 0x80;
+                max = 0xbf;
+            } else if (b0 >= 0xe0 && b0 <= 0xef) {
+                length = 3;
+                min = b0 == 0xe0 ? 0xa0 : 0x80;
+                max = b0 == 0xed ? 0x9f : 0xbf;
+            } else if (b0 >= 0xf0 && b0 <= 0xf4) {
+                length = 4;
+                min = b0 == 0xf0 ? 0x90 : 0x80;
+                max = b0 == 0xf4 ? 0x8f : 0xbf;
+            } else {
+                return false;
+            }
+
+            if (i + length > bytes.length) {
+                return false;
+            }
+
+            final int b1 = bytes[i + 1] & 0xff;
+            if (b1 < min || b1 > max) {
+                return false;
+            }
+            for (int j = 2; j < length; j++) {
+                final int continuation = bytes[i + j] & 0xff;
+                if (continuation < 0x80 || continuation > 0xbf) {
+                    return false;
+                }
+            }
+            i += length;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,39 @@
+package com.indeed.virgil.spring.boot.starter.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+final class Md5FingerprintHasher extends FingerprintHasher {
+    private static final Logger LOG = LoggerFactory.getLogger(Md5FingerprintHasher.class);
+
+    private static final String MESSAGE_DIGEST_ALGORITHM = "MD5";
+
+    private final MessageDigest messageDigest;
+
+    Md5FingerprintHasher() {
+        try {
+            messageDigest = MessageDigest.getInstance(MESSAGE_DIGEST_ALGORITHM);
+        } catch (final NoSuchAlgorithmException ex) {
+            LOG.error("Unable to find algorithm. [Algorithm: {}]", MESSAGE_DIGEST_ALGORITHM);
+            throw new RuntimeException(ex);
+        }
+    }
+
+    @Override
+    void update(final byte[] bytes, final int offset, final int length) {
+        messageDigest.update(bytes, offset, length);
+    }
+
+    @Override
+    void digest(final byte[] out) {
+        try {
+            messageDigest.digest(out, 0, DIGEST_LENGTH);
+        } catch (final DigestException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
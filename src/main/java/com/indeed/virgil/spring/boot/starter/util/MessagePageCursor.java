@@ -0,0 +1,52 @@
+package com.indeed.virgil.spring.boot.starter.util;
+
+import org.springframework.lang.Nullable;
+
+import java.util.Base64;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Opaque position within a queue handed out to clients paging through it. Along with the offset it remembers the id of the message that was
+ * at the head of the queue when the cursor was issued, so that we can tell the client if the queue has changed underneath it.
+ *
+ * @param offset Number of messages to skip from the head of the queue
+ * @param headId Id of the message at the head of the queue when the cursor was created
+ */
+public record MessagePageCursor(int offset, String headId) {
+
+    private static final String VERSION = "1";
+    private static final String SEPARATOR = ":";
+
+    public String encode() {
+        final String value = VERSION + SEPARATOR + offset + SEPARATOR + headId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(UTF_8));
+    }
+
+    /**
+     * @param cursor Value previously returned by {@link #encode()}
+     * @return null if the cursor is malformed
+     */
+    @Nullable
+    public static MessagePageCursor decode(final String cursor) {
+        final String value;
+        try {
+            value = new String(Base64.getUrlDecoder().decode(cursor), UTF_8);
+        } catch (final IllegalArgumentException ex) {
+            return null;
+        }
+
+        // headId is last since message ids are allowed to contain the separator
+        final String[] parts = value.split(SEPARATOR, 3);
+        if (parts.length != 3 || !VERSION.equals(parts[0])) {
+            return null;
+        }
+
+        try {
+            final int offset = Integer.parseInt(parts[1]);
+            return offset < 0 ? null : new MessagePageCursor(offset, parts[2]);
+        } catch (final NumberFormatException ex) {
+            return null;
+        }
+    }
+}
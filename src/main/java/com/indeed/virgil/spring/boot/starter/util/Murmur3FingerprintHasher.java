@@ -0,0 +1,134 @@
+package com.indeed.virgil.spring.boot.starter.util;
+
+/**
+ * Streaming MurmurHash3 x64 128-bit with a seed of 0. The digest is h1 followed by h2, both little-endian, the same byte order as Guava's
+ * {@code Hashing.murmur3_128()}.
+ */
+final class Murmur3FingerprintHasher extends FingerprintHasher {
+
+    private static final int BLOCK_LENGTH = 16;
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private final byte[] tail = new byte[BLOCK_LENGTH];
+    private int tailLength;
+    private long h1;
+    private long h2;
+    private long totalLength;
+
+    @Override
+    void update(final byte[] bytes, final int offset, final int length) {
+        int position = offset;
+        int remaining = length;
+        totalLength += length;
+
+        if (tailLength > 0) {
+            final int copied = Math.min(BLOCK_LENGTH - tailLength, remaining);
+            System.arraycopy(bytes, position, tail, tailLength, copied);
+            tailLength += copied;
+            position += copied;
+            remaining -= copied;
+
+            if (tailLength < BLOCK_LENGTH) {
+                return;
+            }
+            mixBlock(getLongLittleEndian(tail, 0), getLongLittleEndian(tail, 8));
+            tailLength = 0;
+        }
+
+        while (remaining >= BLOCK_LENGTH) {
+            mixBlock(getLongLittleEndian(bytes, position), getLongLittleEndian(bytes, position + 8));
+            position += BLOCK_LENGTH;
+            remaining -= BLOCK_LENGTH;
+        }
+
+        if (remaining > 0) {
+            System.arraycopy(bytes, position, tail, 0, remaining);
+            tailLength = remaining;
+        }
+    }
+
+    @Override
+    void digest(final byte[] out) {
+        long k1 = 0;
+        long k2 = 0;
+
+        for (int i = tailLength - 1; i >= 8; i--) {
+            k2 ^= (tail[i] & 0xffL) << ((i - 8) * 8);
+        }
+        if (tailLength > 8) {
+            h2 ^= mixK2(k2);
+        }
+
+        for (int i = Math.min(tailLength, 8) - 1; i >= 0; i--) {
+            k1 ^= (tail[i] & 0xffL) << (i * 8);
+        }
+        if (tailLength > 0) {
+            h1 ^= mixK1(k1);
+        }
+
+        h1 ^= totalLength;
+        h2 ^= totalLength;
+
+        h1 += h2;
+        h2 += h1;
+
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+
+        h1 += h2;
+        h2 += h1;
+
+        putLongLittleEndian(out, 0, h1);
+        putLongLittleEndian(out, 8, h2);
+
+        h1 = 0;
+        h2 = 0;
+        tailLength = 0;
+        totalLength = 0;
+    }
+
+    private void mixBlock(final long k1, final long k2) {
+        h1 ^= mixK1(k1);
+        h1 = Long.rotateLeft(h1, 27);
+        h1 += h2;
+        h1 = h1 * 5 + 0x52dce729;
+
+        h2 ^= mixK2(k2);
+        h2 = Long.rotateLeft(h2, 31);
+        h2 += h1;
+        h2 = h2 * 5 + 0x38495ab5;
+    }
+
+    private static long mixK1(final long k1) {
+        return Long.rotateLeft(k1 * C1, 31) * C2;
+    }
+
+    private static long mixK2(final long k2) {
+        return Long.rotateLeft(k2 * C2, 33) * C1;
+    }
+
+    private static long fmix64(final long k) {
+        long result = k;
+        result ^= result >>> 33;
+        result *= 0xff51afd7ed558ccdL;
+        result ^= result >>> 33;
+        result *= 0xc4ceb9fe1a85ec53L;
+        result ^= result >>> 33;
+        return result;
+    }
+
+    private static long getLongLittleEndian(final byte[] bytes, final int offset) {
+        long result = 0;
+        for (int i = 7; i >= 0; i--) {
+            result = (result << 8) | (bytes[offset + i] & 0xffL);
+        }
+        return result;
+    }
+
+    private static void putLongLittleEndian(final byte[] bytes, final int offset, final long value) {
+        for (int i = 0; i < 8; i++) {
+            bytes[offset + i] = (byte) (value >>> (i * 8));
+        }
+    }
+}
@@ -1,95 +1,86 @@
 package com.indeed.virgil.spring.boot.starter.util;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.amqp.core.Message;
 import org.springframework.amqp.core.MessageProperties;
 import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Component;
 
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-
 /**
  * Utility class for common methods related to VirgilMessage and amqp's Message object.
  */
 @Component
 public class VirgilMessageUtils {
-    private static final Logger LOG = LoggerFactory.getLogger(VirgilMessageUtils.class);
+
+    /**
+     * Header Virgil sets on every message it republishes, left out of the fingerprint so that a republished message that is dead-lettered
+     * again keeps its id
+     */
+    public static final String PUBLISH_SEQ_NO_HEADER = "x-virgil-publish-seq-no";
 
     private static final String MESSAGE_PROP_SPLITTER = "|";
-    private static final String MESSAGE_DIGEST_ALGORITHM = "MD5";
-    private static final char[] HEX_CHARS =
-        {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
 
-    private final ThreadLocal<MessageDigest> messageDigestThreadLocal;
+    private final FingerprintAlgorithm fingerprintAlgorithm;
+    private final FingerprintEncoding fingerprintEncoding;
+    private final ThreadLocal<FingerprintSink> fingerprintSinkThreadLocal;
 
     public VirgilMessageUtils() {
-        messageDigestThreadLocal = new ThreadLocal<>();
+        this(FingerprintAlgorithm.MD5);
     }
 
-    public String generateFingerprint(@Nullable final Message msg) {
-        return internalGenerateFingerprint(msg);
+    public VirgilMessageUtils(final FingerprintAlgorithm fingerprintAlgorithm) {
+        this(fingerprintAlgorithm, FingerprintEncoding.V1);
+    }
+
+    public VirgilMessageUtils(final FingerprintAlgorithm fingerprintAlgorithm, final FingerprintEncoding fingerprintEncoding) {
+        this.fingerprintAlgorithm = fingerprintAlgorithm;
+        this.fingerprintEncoding = fingerprintEncoding;
+        this.fingerprintSinkThreadLocal = ThreadLocal.withInitial(() -> new FingerprintSink(fingerprintAlgorithm.newHasher()));
     }
 
-    private synchronized String internalGenerateFingerprint(@Nullable final Message msg) {
+    public FingerprintAlgorithm getFingerprintAlgorithm() {
+        return fingerprintAlgorithm;
+    }
+
+    public FingerprintEncoding getFingerprintEncoding() {
+        return fingerprintEncoding;
+    }
+
+    /**
+     * Hashes the message in the configured {@link FingerprintEncoding}. Each thread hashes with its own reusable hasher and buffers, so
+     * concurrent callers never contend and no intermediate strings are built for the common header types.
+     *
+     * @param msg Message to fingerprint
+     * @return 32 hex characters
+     */
+    public String generateFingerprint(@Nullable final Message msg) {
+        final FingerprintSink sink = fingerprintSinkThreadLocal.get();
+        if (fingerprintEncoding == FingerprintEncoding.V2) {
+            CanonicalFingerprintEncoder.writeMessage(sink, msg);
+            return sink.digestHex();
+        }
 
-        final MessageDigest md = getMessageDigest();
         if (msg == null) {
-            return String.valueOf(encodeHex(md.digest()));
+            return sink.digestHex();
         }
 
         final byte[] body = msg.getBody();
         if (body != null) {
-            md.update(body);
+            sink.writeBytes(body);
         }
 
         if (msg.getMessageProperties() != null) {
-            final byte[] messagePropertyBytes = getMessagePropertyBytes(msg.getMessageProperties());
-            md.update(messagePropertyBytes);
-        }
-
-        return String.valueOf(encodeHex(md.digest()));
-    }
-
-    private MessageDigest getMessageDigest() {
-        MessageDigest md = messageDigestThreadLocal.get();
-        if (md != null) {
-            return md;
-        }
-
-        try {
-            md = MessageDigest.getInstance(MESSAGE_DIGEST_ALGORITHM);
-        } catch (final NoSuchAlgorithmException ex) {
-            LOG.error("Unable to find algorithm. [Algorithm: {}]", MESSAGE_DIGEST_ALGORITHM);
-            throw new RuntimeException(ex);
+            writeMessageProperties(sink, msg.getMessageProperties());
         }
 
-        messageDigestThreadLocal.set(md);
-
-        return md;
+        return sink.digestHex();
     }
 
     /**
-     * Converts array of bytes into hex characters.
-     *
-     * @param bytes
-     * @return
-     */
-    private char[] encodeHex(byte[] bytes) {
-        char[] chars = new char[32];
-        for (int i = 0; i < chars.length; i = i + 2) {
-            byte b = bytes[i / 2];
-            chars[i] = HEX_CHARS[(b >>> 0x4) & 0xf];
-            chars[i + 1] = HEX_CHARS[b & 0xf];
-        }
-        return chars;
-    }
-
-    /**
-     * Converts messageProperties into a byte[] by appending it into a string and converting it to byte[]
+     * Writes messageProperties into the sink, the bytes are the same as appending them into a string and converting it to byte[]
      *
      * There are fields that are not included as part of the byte[] since they change based on other messages
+     * Ignored headers that are set by Virgil itself:
+     *   - {@link #PUBLISH_SEQ_NO_HEADER}
      * Ignored Fields that are dependent on other messages:
      *   - deliveryTag
      *   - deliveryTagSet
@@ -105,86 +96,101 @@ public class VirgilMessageUtils {
      *   - inferredArgumentType
      *   - targetMethod
      *   - targetBean
+     * @param sink
      * @param messageProperties
-     * @return
      */
-    private byte[] getMessagePropertyBytes(final MessageProperties messageProperties) {
-        final StringBuilder sb = new StringBuilder();
-
+    private static void writeMessageProperties(final FingerprintSink sink, final MessageProperties messageProperties) {
         if (messageProperties.getHeaders() != null) {
-            sb.append(messageProperties.getHeaders()).append(MESSAGE_PROP_SPLITTER);
+            sink.writeMapWithout(messageProperties.getHeaders(), PUBLISH_SEQ_NO_HEADER);
+            sink.writeText(MESSAGE_PROP_SPLITTER);
         }
 
         if (messageProperties.getTimestamp() != null) {
-            sb.append(messageProperties.getTimestamp()).append(MESSAGE_PROP_SPLITTER);
+            sink.writeValue(messageProperties.getTimestamp());
+            sink.writeText(MESSAGE_PROP_SPLITTER);
         }
 
         if (messageProperties.getMessageId() != null) {
-            sb.append(messageProperties.getMessageId()).append(MESSAGE_PROP_SPLITTER);
+            sink.writeValue(messageProperties.getMessageId());
+            sink.writeText(MESSAGE_PROP_SPLITTER);
         }
 
         if (messageProperties.getUserId() != null) {
-            sb.append(messageProperties.getUserId()).append(MESSAGE_PROP_SPLITTER);
+            sink.writeValue(messageProperties.getUserId());
+            sink.writeText(MESSAGE_PROP_SPLITTER);
         }
 
         if (messageProperties.getAppId() != null) {
-            sb.append(messageProperties.getAppId()).append(MESSAGE_PROP_SPLITTER);
+            sink.writeValue(messageProperties.getAppId());
+            sink.writeText(MESSAGE_PROP_SPLITTER);
         }
 
         if (messageProperties.getClusterId() != null) {
-            sb.append(messageProperties.getClusterId()).append(MESSAGE_PROP_SPLITTER);
+            sink.writeValue(messageProperties.getClusterId());
+            sink.writeText(MESSAGE_PROP_SPLITTER);
         }
 
         if (messageProperties.getType() != null) {
-            sb.append(messageProperties.getType()).append(MESSAGE_PROP_SPLITTER);
+            sink.writeValue(messageProperties.getType());
+            sink.writeText(MESSAGE_PROP_SPLITTER);
         }
 
         if (messageProperties.getCorrelationId() != null) {
-            sb.append(messageProperties.getCorrelationId()).append(MESSAGE_PROP_SPLITTER);
+            sink.writeValue(messageProperties.getCorrelationId());
+            sink.writeText(MESSAGE_PROP_SPLITTER);
         }
 
         if (messageProperties.getReplyTo() != null) {
-            sb.append(messageProperties.getReplyTo()).append(MESSAGE_PROP_SPLITTER);
+            sink.writeValue(messageProperties.getReplyTo());
+            sink.writeText(MESSAGE_PROP_SPLITTER);
         }
 
         if (messageProperties.getContentType() != null) {
-            sb.append(messageProperties.getContentType()).append(MESSAGE_PROP_SPLITTER);
+            sink.writeValue(messageProperties.getContentType());
+            sink.writeText(MESSAGE_PROP_SPLITTER);
         }
 
         if (messageProperties.getContentEncoding() != null) {
-            sb.append(messageProperties.getContentEncoding()).append(MESSAGE_PROP_SPLITTER);
+            sink.writeValue(messageProperties.getContentEncoding());
+            sink.writeText(MESSAGE_PROP_SPLITTER);
         }
 
-        sb.append(messageProperties.getContentLength()).append(MESSAGE_PROP_SPLITTER);
+        sink.writeLong(messageProperties.getContentLength());
+        sink.writeText(MESSAGE_PROP_SPLITTER);
 
         if (messageProperties.getDeliveryMode() != null) {
-            sb.append(messageProperties.getDeliveryMode()).append(MESSAGE_PROP_SPLITTER);
+            sink.writeValue(messageProperties.getDeliveryMode());
+            sink.writeText(MESSAGE_PROP_SPLITTER);
         }
 
         if (messageProperties.getExpiration() != null) {
-            sb.append(messageProperties.getExpiration()).append(MESSAGE_PROP_SPLITTER);
+            sink.writeValue(messageProperties.getExpiration());
+            sink.writeText(MESSAGE_PROP_SPLITTER);
         }
 
         if (messageProperties.getPriority() != null) {
-            sb.append(messageProperties.getPriority()).append(MESSAGE_PROP_SPLITTER);
+            sink.writeValue(messageProperties.getPriority());
+            sink.writeText(MESSAGE_PROP_SPLITTER);
         }
 
         if (messageProperties.getRedelivered() != null) {
-            sb.append(messageProperties.getRedelivered()).append(MESSAGE_PROP_SPLITTER);
+            sink.writeValue(messageProperties.getRedelivered());
+            sink.writeText(MESSAGE_PROP_SPLITTER);
         }
 
         if (messageProperties.getReceivedExchange() != null) {
-            sb.append(messageProperties.getReceivedExchange()).append(MESSAGE_PROP_SPLITTER);
+            sink.writeValue(messageProperties.getReceivedExchange());
+            sink.writeText(MESSAGE_PROP_SPLITTER);
         }
 
         if (messageProperties.getReceivedRoutingKey() != null) {
-            sb.append(messageProperties.getReceivedRoutingKey()).append(MESSAGE_PROP_SPLITTER);
+            sink.writeValue(messageProperties.getReceivedRoutingKey());
+            sink.writeText(MESSAGE_PROP_SPLITTER);
         }
 
         if (messageProperties.getReceivedUserId() != null) {
-            sb.append(messageProperties.getReceivedUserId()).append(MESSAGE_PROP_SPLITTER);
+            sink.writeValue(messageProperties.getReceivedUserId());
+            sink.writeText(MESSAGE_PROP_SPLITTER);
         }
-
-        return sb.toString().getBytes();
     }
 }
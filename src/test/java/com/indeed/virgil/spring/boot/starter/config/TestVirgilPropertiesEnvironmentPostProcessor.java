@@ -35,7 +35,7 @@ class TestVirgilPropertiesEnvironmentPostProcessor {
         final String[][] result = (String[][]) ReflectionTestUtils.getField(instance, "DEFAULT_ENDPOINTS");
 
         //Assert
-        assertThat(result.length).isEqualTo(6);
+        assertThat(result.length).isEqualTo(8);
     }
 
     @Test
@@ -83,6 +83,24 @@ class TestVirgilPropertiesEnvironmentPostProcessor {
         assertEndpointProperties(results, EndpointConstants.GET_QUEUE_SIZE_ENDPOINT_ID, EndpointConstants.ENDPOINT_DEFAULT_PATH_MAPPING + EndpointConstants.GET_QUEUE_SIZE_ENDPOINT_ID);
     }
 
+    @Test
+    void shouldLoadStreamDlqMessagesEndpoint() {
+        //Act
+        final String[][] results = (String[][]) ReflectionTestUtils.getField(instance, "DEFAULT_ENDPOINTS");
+
+        //Assert
+        assertEndpointProperties(results, EndpointConstants.STREAM_DLQ_MESSAGES_ENDPOINT_ID, EndpointConstants.ENDPOINT_DEFAULT_PATH_MAPPING + EndpointConstants.STREAM_DLQ_MESSAGES_ENDPOINT_ID);
+    }
+
+    @Test
+    void shouldLoadDownloadDlqMessageEndpoint() {
+        //Act
+        final String[][] results = (String[][]) ReflectionTestUtils.getField(instance, "DEFAULT_ENDPOINTS");
+
+        //Assert
+        assertEndpointProperties(results, EndpointConstants.DOWNLOAD_DLQ_MESSAGE_ENDPOINT_ID, EndpointConstants.ENDPOINT_DEFAULT_PATH_MAPPING + EndpointConstants.DOWNLOAD_DLQ_MESSAGE_ENDPOINT_ID);
+    }
+
     @Nested
     class TestMappingProperty {
         final ArgumentCaptor<MapPropertySource> valueCapture = ArgumentCaptor.forClass(MapPropertySource.class);
@@ -169,9 +187,11 @@ class TestVirgilPropertiesEnvironmentPostProcessor {
 
         final List<String> expectedItems = Arrays.asList(
             "drop-all-messages",
+            "download-dlq-message",
             "get-dlq-messages",
             "publish-message",
             "get-queues",
+            "stream-dlq-messages",
             "drop-message",
             "get-queue-size"
         );
@@ -199,8 +219,10 @@ class TestVirgilPropertiesEnvironmentPostProcessor {
 
         final List<String> expectedItems = Arrays.asList(
             "drop-message:virgil/drop-message",
+            "download-dlq-message:virgil/download-dlq-message",
             "get-queue-size:virgil/get-queue-size",
             "publish-message:virgil/publish-message",
+            "stream-dlq-messages:virgil/stream-dlq-messages",
             "drop-all-messages:virgil/drop-all-messages",
             "get-dlq-messages:virgil/get-dlq-messages",
             "get-queues:virgil/get-queues"
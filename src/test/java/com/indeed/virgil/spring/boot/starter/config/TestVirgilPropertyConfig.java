@@ -2,13 +2,18 @@ package com.indeed.virgil.spring.boot.starter.config;
 
 import com.indeed.virgil.spring.boot.starter.config.VirgilPropertyConfig.BinderProperties;
 import com.indeed.virgil.spring.boot.starter.config.VirgilPropertyConfig.QueueProperties;
+import com.indeed.virgil.spring.boot.starter.config.VirgilPropertyConfig.ReadMode;
+import com.indeed.virgil.spring.boot.starter.util.FingerprintAlgorithm;
+import com.indeed.virgil.spring.boot.starter.util.FingerprintEncoding;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.util.unit.DataSize;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 
@@ -36,6 +41,28 @@ class TestVirgilPropertyConfig {
             assertThat(queueMap).hasSize(1);
         }
 
+        @Test
+        void shouldDefaultScanLease() {
+            //Act
+            final VirgilPropertyConfig.ScanLeaseProperties result = virgilPropertyConfig.getScanLease();
+
+            //Assert
+            assertThat(result.isDistributed()).isFalse();
+            assertThat(result.getWaitTimeout()).isEqualTo(Duration.ofSeconds(10));
+            assertThat(result.getQueuePrefix()).isEqualTo("virgil.lease.");
+        }
+
+        @Test
+        void shouldDefaultDepthPoller() {
+            //Act
+            final VirgilPropertyConfig.DepthPollerProperties result = virgilPropertyConfig.getDepthPoller();
+
+            //Assert
+            assertThat(result.isEnabled()).isFalse();
+            assertThat(result.getInterval()).isEqualTo(Duration.ofSeconds(30));
+            assertThat(result.getJitter()).isEqualTo(Duration.ofSeconds(5));
+        }
+
         @Test
         void shouldLoadQueueWithReadName() {
             //Arrange
@@ -574,5 +601,204 @@ class TestVirgilPropertyConfig {
             //Assert
             assertThat(result).contains("primary", "secondary");
         }
+
+        @Test
+        void shouldDefaultToMd5Fingerprint() {
+            //Act
+            final FingerprintAlgorithm result = virgilPropertyConfig.getFingerprint().getAlgorithm();
+
+            //Assert
+            assertThat(result).isEqualTo(FingerprintAlgorithm.MD5);
+            assertThat(virgilPropertyConfig.getFingerprint().getEncoding()).isEqualTo(FingerprintEncoding.V1);
+        }
+
+        @Test
+        void shouldDefaultToBasicGetReadMode() {
+            //Act
+            final QueueProperties result = virgilPropertyConfig.getQueueProperties("primary");
+
+            //Assert
+            assertThat(result.getReadMode()).isEqualTo(ReadMode.BASIC_GET);
+        }
+
+        @Test
+        void shouldLoadConsumerReadModeWithPrefetchCount() {
+            //Act
+            final QueueProperties result = virgilPropertyConfig.getQueueProperties("secondary");
+
+            //Assert
+            assertThat(result.getReadMode()).isEqualTo(ReadMode.CONSUMER);
+            assertThat(result.getPrefetchCount()).isEqualTo(50);
+        }
+
+        @Test
+        void shouldDefaultMaxScanBytes() {
+            //Act
+            final QueueProperties result = virgilPropertyConfig.getQueueProperties("primary");
+
+            //Assert
+            assertThat(result.getMaxScanBytes()).isEqualTo(DataSize.ofMegabytes(64).toBytes());
+        }
+
+        @Test
+        void shouldLoadMaxScanBytes() {
+            //Act
+            final QueueProperties result = virgilPropertyConfig.getQueueProperties("secondary");
+
+            //Assert
+            assertThat(result.getMaxScanBytes()).isEqualTo(DataSize.ofMegabytes(1).toBytes());
+        }
+
+        @Test
+        void shouldDefaultPreviewLength() {
+            //Act
+            final QueueProperties result = virgilPropertyConfig.getQueueProperties("primary");
+
+            //Assert
+            assertThat(result.getPreviewLength()).isEqualTo(256);
+        }
+
+        @Test
+        void shouldLoadPreviewLength() {
+            //Act
+            final QueueProperties result = virgilPropertyConfig.getQueueProperties("secondary");
+
+            //Assert
+            assertThat(result.getPreviewLength()).isEqualTo(1024);
+        }
+
+        @Test
+        void shouldDefaultBrowseSessionTtl() {
+            //Act
+            final QueueProperties result = virgilPropertyConfig.getQueueProperties("primary");
+
+            //Assert
+            assertThat(result.getBrowseSessionTtl()).isEqualTo(Duration.ofMinutes(5));
+        }
+
+        @Test
+        void shouldLoadBrowseSessionTtl() {
+            //Act
+            final QueueProperties result = virgilPropertyConfig.getQueueProperties("secondary");
+
+            //Assert
+            assertThat(result.getBrowseSessionTtl()).isEqualTo(Duration.ofSeconds(30));
+        }
+
+        @Test
+        void shouldDefaultQueueSizeTtl() {
+            //Act
+            final QueueProperties result = virgilPropertyConfig.getQueueProperties("primary");
+
+            //Assert
+            assertThat(result.getQueueSizeTtl()).isEqualTo(Duration.ofSeconds(5));
+        }
+
+        @Test
+        void shouldLoadZeroQueueSizeTtl() {
+            //Act
+            final QueueProperties result = virgilPropertyConfig.getQueueProperties("secondary");
+
+            //Assert
+            assertThat(result.getQueueSizeTtl()).isZero();
+        }
+
+        @Test
+        void shouldDefaultStreamIdleTimeout() {
+            //Act
+            final QueueProperties result = virgilPropertyConfig.getQueueProperties("primary");
+
+            //Assert
+            assertThat(result.getStreamIdleTimeout()).isEqualTo(Duration.ofSeconds(30));
+        }
+
+        @Test
+        void shouldLoadStreamIdleTimeout() {
+            //Act
+            final QueueProperties result = virgilPropertyConfig.getQueueProperties("secondary");
+
+            //Assert
+            assertThat(result.getStreamIdleTimeout()).isEqualTo(Duration.ofMinutes(2));
+        }
+
+        @Test
+        void shouldLoadScanLease() {
+            //Act
+            final VirgilPropertyConfig.ScanLeaseProperties result = virgilPropertyConfig.getScanLease();
+
+            //Assert
+            assertThat(result.isDistributed()).isTrue();
+            assertThat(result.getWaitTimeout()).isEqualTo(Duration.ofSeconds(2));
+            assertThat(result.getQueuePrefix()).isEqualTo("ops.lease.");
+        }
+
+        @Test
+        void shouldLoadDepthPoller() {
+            //Act
+            final VirgilPropertyConfig.DepthPollerProperties result = virgilPropertyConfig.getDepthPoller();
+
+            //Assert
+            assertThat(result.isEnabled()).isTrue();
+            assertThat(result.getInterval()).isEqualTo(Duration.ofMinutes(1));
+            assertThat(result.getJitter()).isEqualTo(Duration.ofSeconds(10));
+        }
+    }
+
+    @Nested
+    @EnableConfigurationProperties(VirgilPropertyConfig.class)
+    @TestPropertySource(locations = "classpath:cross-cluster-republish-config.properties")
+    class CrossClusterRepublishConfiguration {
+
+        @Autowired
+        VirgilPropertyConfig virgilPropertyConfig;
+
+        @Test
+        void shouldResolveRepublishBinderPropertiesFromRepublishBinder() {
+            //Act
+            final QueueProperties result = virgilPropertyConfig.getQueueProperties("primary");
+
+            //Assert
+            assertThat(result.getReadBinderProperties().getName()).isEqualTo("virgil-dlq-exchange");
+            assertThat(result.getRepublishBinderProperties().getName()).isEqualTo("virgil-main-exchange");
+        }
+
+        @Test
+        void shouldPublishThroughRepublishBinder() {
+            //Act
+            final QueueProperties result = virgilPropertyConfig.getQueueProperties("primary");
+
+            //Assert
+            assertThat(result.getPublishBinderName()).isEqualTo("mainCluster");
+            assertThat(result.getPublishBinderProperties().getName()).isEqualTo("virgil-main-exchange");
+        }
+
+        @Test
+        void shouldPublishThroughReadBinderWhenNoRepublishBinder() {
+            //Act
+            final QueueProperties result = virgilPropertyConfig.getQueueProperties("secondary");
+
+            //Assert
+            assertThat(result.getRepublishBinderProperties()).isNull();
+            assertThat(result.getPublishBinderName()).isEqualTo("dlqCluster");
+            assertThat(result.getPublishBinderProperties().getName()).isEqualTo("virgil-dlq-exchange");
+        }
+
+        @Test
+        void shouldLoadFingerprintAlgorithm() {
+            //Act
+            final FingerprintAlgorithm result = virgilPropertyConfig.getFingerprint().getAlgorithm();
+
+            //Assert
+            assertThat(result).isEqualTo(FingerprintAlgorithm.MURMUR3_128);
+        }
+
+        @Test
+        void shouldLoadFingerprintEncoding() {
+            //Act
+            final FingerprintEncoding result = virgilPropertyConfig.getFingerprint().getEncoding();
+
+            //Assert
+            assertThat(result).isEqualTo(FingerprintEncoding.V2);
+        }
     }
 }
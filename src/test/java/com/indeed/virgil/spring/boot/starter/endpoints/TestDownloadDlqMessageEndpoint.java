@@ -0,0 +1,178 @@
+package com.indeed.virgil.spring.boot.starter.endpoints;
+
+import com.indeed.virgil.spring.boot.starter.services.MessageOperator;
+import com.indeed.virgil.spring.boot.starter.services.QueueBusyException;
+import com.indeed.virgil.spring.boot.starter.util.EndpointConstants;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessagePropertiesBuilder;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.Resource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static com.indeed.virgil.spring.boot.starter.util.EndpointConstants.ENDPOINT_DEFAULT_PATH_MAPPING;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class TestDownloadDlqMessageEndpoint {
+
+    private static final String QUEUE_ID = "primaryQueue";
+    private static final String MESSAGE_ID = "i_1";
+
+    @Mock
+    private MessageOperator messageOperator;
+
+    private DownloadDlqMessageEndpoint downloadDlqMessageEndpoint;
+
+    @BeforeEach
+    void setup() {
+        downloadDlqMessageEndpoint = new DownloadDlqMessageEndpoint(messageOperator);
+    }
+
+    @Test
+    void shouldImplementIVirgilEndpoint() {
+        //Act
+        final Class<?> c = DownloadDlqMessageEndpoint.class;
+
+        //Assert
+        Assertions.assertTrue(IVirgilEndpoint.class.isAssignableFrom(c));
+    }
+
+    @Test
+    void testGetEndpointPath_shouldReturnExpectedEndpointPath() {
+        //Act
+        final String result = DownloadDlqMessageEndpoint.getEndpointPath();
+
+        //Assert
+        Assertions.assertEquals(ENDPOINT_DEFAULT_PATH_MAPPING + EndpointConstants.DOWNLOAD_DLQ_MESSAGE_ENDPOINT_ID, result);
+    }
+
+    @Nested
+    class testIndex {
+
+        @Test
+        void shouldReturnWholeBodyWithContentType() throws Exception {
+            //Arrange
+            final String body = "{\"key\":\"" + "value".repeat(1000) + "\"}";
+            when(messageOperator.findMessage(QUEUE_ID, MESSAGE_ID)).thenReturn(createMessage(body.getBytes(UTF_8), "application/json", null));
+
+            //Act
+            final WebEndpointResponse<Resource> result = downloadDlqMessageEndpoint.index(QUEUE_ID, MESSAGE_ID, null);
+
+            //Assert
+            assertThat(result.getStatus()).isEqualTo(WebEndpointResponse.STATUS_OK);
+            assertThat(result.getContentType().toString()).isEqualTo("application/json");
+            assertThat(readFully(result.getBody())).isEqualTo(body);
+        }
+
+        @Test
+        void shouldReturnCompressedBodyAsDelivered() throws Exception {
+            //Arrange
+            final byte[] compressed = gzip("hello world");
+            when(messageOperator.findMessage(QUEUE_ID, MESSAGE_ID)).thenReturn(createMessage(compressed, "text/plain", "gzip"));
+
+            //Act
+            final WebEndpointResponse<Resource> result = downloadDlqMessageEndpoint.index(QUEUE_ID, MESSAGE_ID, false);
+
+            //Assert
+            try (InputStream inputStream = result.getBody().getInputStream()) {
+                assertThat(inputStream.readAllBytes()).isEqualTo(compressed);
+            }
+        }
+
+        @Test
+        void shouldDecompressBodyWhenAsked() throws Exception {
+            //Arrange
+            when(messageOperator.findMessage(QUEUE_ID, MESSAGE_ID)).thenReturn(createMessage(gzip("hello world"), "text/plain", "gzip"));
+
+            //Act
+            final WebEndpointResponse<Resource> result = downloadDlqMessageEndpoint.index(QUEUE_ID, MESSAGE_ID, true);
+
+            //Assert
+            assertThat(result.getContentType().toString()).isEqualTo("text/plain");
+            assertThat(readFully(result.getBody())).isEqualTo("hello world");
+        }
+
+        @Test
+        void shouldReturnBadRequestWhenBodyIsNotCompressed() {
+            //Arrange
+            when(messageOperator.findMessage(QUEUE_ID, MESSAGE_ID))
+                .thenReturn(createMessage("hello world".getBytes(UTF_8), "text/plain", "gzip"));
+
+            //Act
+            final WebEndpointResponse<Resource> result = downloadDlqMessageEndpoint.index(QUEUE_ID, MESSAGE_ID, true);
+
+            //Assert
+            assertThat(result.getStatus()).isEqualTo(WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+
+        @Test
+        void shouldFallBackToOctetStreamForInvalidContentType() {
+            //Arrange
+            when(messageOperator.findMessage(QUEUE_ID, MESSAGE_ID)).thenReturn(createMessage(new byte[]{1, 2, 3}, "not a type", null));
+
+            //Act
+            final WebEndpointResponse<Resource> result = downloadDlqMessageEndpoint.index(QUEUE_ID, MESSAGE_ID, null);
+
+            //Assert
+            assertThat(result.getContentType()).isEqualTo(DownloadDlqMessageEndpoint.DEFAULT_CONTENT_TYPE);
+        }
+
+        @Test
+        void shouldReturnNotFoundWhenMessageIsNotFound() {
+            //Arrange
+            when(messageOperator.findMessage(any(), any())).thenReturn(null);
+
+            //Act
+            final WebEndpointResponse<Resource> result = downloadDlqMessageEndpoint.index(QUEUE_ID, MESSAGE_ID, null);
+
+            //Assert
+            assertThat(result.getStatus()).isEqualTo(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+
+        @Test
+        void shouldReturnServiceUnavailableWhenLeaseIsHeld() {
+            //Arrange
+            when(messageOperator.findMessage(any(), any())).thenThrow(new QueueBusyException(QUEUE_ID));
+
+            //Act
+            final WebEndpointResponse<Resource> result = downloadDlqMessageEndpoint.index(QUEUE_ID, MESSAGE_ID, null);
+
+            //Assert
+            assertThat(result.getStatus()).isEqualTo(WebEndpointResponse.STATUS_SERVICE_UNAVAILABLE);
+        }
+    }
+
+    private static Message createMessage(final byte[] body, final String contentType, final String contentEncoding) {
+        return new Message(body, MessagePropertiesBuilder.newInstance()
+            .setContentType(contentType)
+            .setContentEncoding(contentEncoding)
+            .build());
+    }
+
+    private static byte[] gzip(final String body) throws Exception {
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(compressed)) {
+            gzipOutputStream.write(body.getBytes(UTF_8));
+        }
+        return compressed.toByteArray();
+    }
+
+    private static String readFully(final Resource resource) throws Exception {
+        try (InputStream inputStream = resource.getInputStream()) {
+            return new String(inputStream.readAllBytes(), UTF_8);
+        }
+    }
+}
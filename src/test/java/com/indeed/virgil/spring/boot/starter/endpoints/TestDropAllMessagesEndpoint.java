@@ -1,6 +1,12 @@
 package com.indeed.virgil.spring.boot.starter.endpoints;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.indeed.virgil.spring.boot.starter.models.EndpointResponse;
+import com.indeed.virgil.spring.boot.starter.models.EndpointResponseError;
+import com.indeed.virgil.spring.boot.starter.models.ImmutableOperationStats;
+import com.indeed.virgil.spring.boot.starter.models.OperationStats;
 import com.indeed.virgil.spring.boot.starter.services.MessageOperator;
+import com.indeed.virgil.spring.boot.starter.services.QueueBusyException;
 import com.indeed.virgil.spring.boot.starter.util.EndpointConstants;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
@@ -9,10 +15,17 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.Serializable;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
 import static com.indeed.virgil.spring.boot.starter.util.EndpointConstants.ENDPOINT_DEFAULT_PATH_MAPPING;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 public class TestDropAllMessagesEndpoint {
@@ -45,11 +58,80 @@ public class TestDropAllMessagesEndpoint {
             final String queueName = "primaryQueue";
 
             //Act
-            dropAllMessagesEndpoint.index(queueName);
+            dropAllMessagesEndpoint.index(queueName, null);
 
             //Assert
             verify(messageOperator, times(1)).dropMessages(queueName);
         }
+
+        @Test
+        void shouldReturnBusyErrorWhenLeaseIsHeld() {
+            //Arrange
+            final String queueName = "primaryQueue";
+            when(messageOperator.dropMessages(queueName)).thenThrow(new QueueBusyException(queueName));
+
+            //Act
+            final EndpointResponse<Serializable> result = dropAllMessagesEndpoint.index(queueName, null);
+
+            //Assert
+            assertThat(result.getErrors()).extracting(EndpointResponseError::getCode).containsExactly(EndpointConstants.QUEUE_BUSY_ERROR_CODE);
+        }
+
+        @Test
+        void shouldNotCollectStatsUnlessAskedFor() {
+            //Arrange
+            final String queueName = "primaryQueue";
+            when(messageOperator.dropMessages(queueName)).thenReturn(true);
+
+            //Act
+            final EndpointResponse<Serializable> result = dropAllMessagesEndpoint.index(queueName, false);
+
+            //Assert
+            assertThat(result.getStats()).isNull();
+            verify(messageOperator, never()).collectStats(any(), any());
+        }
+
+        @Test
+        void shouldLeaveStatsOutOfSerializedResponseUnlessAskedFor() throws Exception {
+            //Arrange
+            final String queueName = "primaryQueue";
+            when(messageOperator.dropMessages(queueName)).thenReturn(true);
+
+            //Act
+            final String result = new ObjectMapper().writeValueAsString(dropAllMessagesEndpoint.index(queueName, null));
+
+            //Assert
+            assertThat(result).contains("\"data\":true").doesNotContain("stats");
+        }
+
+        @Test
+        void shouldAddStatsOfBusyOperation() throws Exception {
+            //Arrange
+            final String queueName = "primaryQueue";
+            final OperationStats stats = ImmutableOperationStats.builder()
+                .setElapsedMillis(12.5)
+                .putPhaseMillis("lease", 12.0)
+                .setMessagesScanned(0)
+                .setMessagesMatched(0)
+                .setBytesRead(0L)
+                .setTruncated(false)
+                .setConnectionReused(true)
+                .build();
+            when(messageOperator.dropMessages(queueName)).thenThrow(new QueueBusyException(queueName));
+            when(messageOperator.collectStats(any(), any())).thenAnswer(invocation -> {
+                final Object response = invocation.<Supplier<?>>getArgument(0).get();
+                invocation.<Consumer<OperationStats>>getArgument(1).accept(stats);
+                return response;
+            });
+
+            //Act
+            final EndpointResponse<Serializable> result = dropAllMessagesEndpoint.index(queueName, true);
+
+            //Assert
+            assertThat(result.getErrors()).extracting(EndpointResponseError::getCode).containsExactly(EndpointConstants.QUEUE_BUSY_ERROR_CODE);
+            assertThat(result.getStats()).isEqualTo(stats);
+            assertThat(new ObjectMapper().writeValueAsString(result)).contains("\"stats\":{", "\"elapsedMillis\":12.5");
+        }
     }
 
     @Nested
@@ -1,6 +1,10 @@
 package com.indeed.virgil.spring.boot.starter.endpoints;
 
+import com.indeed.virgil.spring.boot.starter.models.BulkAckMessageResponse;
+import com.indeed.virgil.spring.boot.starter.models.EndpointResponse;
 import com.indeed.virgil.spring.boot.starter.models.ImmutableAckCertainMessageResponse;
+import com.indeed.virgil.spring.boot.starter.models.ImmutableBulkAckMessageResponse;
+import com.indeed.virgil.spring.boot.starter.models.ImmutableScanStatistics;
 import com.indeed.virgil.spring.boot.starter.services.MessageOperator;
 import com.indeed.virgil.spring.boot.starter.util.EndpointConstants;
 import org.junit.jupiter.api.BeforeEach;
@@ -10,10 +14,15 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+
 import static com.indeed.virgil.spring.boot.starter.util.EndpointConstants.ENDPOINT_DEFAULT_PATH_MAPPING;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -54,7 +63,7 @@ public class TestDropMessageEndpoint {
                 .build());
 
             //Act
-            dropMessageEndpoint.index(queueName, messageId);
+            dropMessageEndpoint.index(queueName, messageId, null, null, null);
 
             //Assert
             verify(messageOperator, times(1)).ackCertainMessage(eq(queueName), any());
@@ -71,13 +80,106 @@ public class TestDropMessageEndpoint {
                 .build());
 
             //Act
-            dropMessageEndpoint.index(queueName, messageId);
+            dropMessageEndpoint.index(queueName, messageId, null, null, null);
 
             //Assert
             verify(messageOperator, times(1)).ackCertainMessage(any(), eq(messageId));
         }
     }
 
+    @Nested
+    class indexBulk {
+
+        @Test
+        void shouldAckAllMessageIdsInOneCall() {
+            //Arrange
+            final String queueName = "primaryQueue";
+            final List<String> messageIds = Arrays.asList("i_1", "i_2");
+            final BulkAckMessageResponse response = ImmutableBulkAckMessageResponse.builder()
+                .putResults("i_1", true)
+                .putResults("i_2", false)
+                .setScanStatistics(ImmutableScanStatistics.builder()
+                    .setMessagesScanned(3)
+                    .setMessagesMatched(1)
+                    .setBytesScanned(0)
+                    .setComplete(false)
+                    .build())
+                .build();
+
+            when(messageOperator.ackMessages(queueName, messageIds)).thenReturn(response);
+
+            //Act
+            final EndpointResponse<Serializable> result = dropMessageEndpoint.index(queueName, null, messageIds, null, null);
+
+            //Assert
+            assertThat(result.getData()).isEqualTo(response);
+            verify(messageOperator, never()).ackCertainMessage(any(), any());
+        }
+
+        @Test
+        void shouldFallBackToSingleAckWhenMessageIdsIsEmpty() {
+            //Arrange
+            final String queueName = "primaryQueue";
+            final String messageId = "f_12312321321";
+
+            when(messageOperator.ackCertainMessage(any(), any())).thenReturn(ImmutableAckCertainMessageResponse.builder()
+                .setSuccess(true)
+                .build());
+
+            //Act
+            final EndpointResponse<Serializable> result = dropMessageEndpoint.index(queueName, messageId, List.of(), null, null);
+
+            //Assert
+            assertThat(result.getData()).isEqualTo("success");
+            verify(messageOperator, never()).ackMessages(any(), any());
+        }
+    }
+
+    @Nested
+    class indexSession {
+
+        private final BulkAckMessageResponse response = ImmutableBulkAckMessageResponse.builder()
+            .putResults("i_1", true)
+            .setScanStatistics(ImmutableScanStatistics.builder()
+                .setMessagesScanned(0)
+                .setMessagesMatched(1)
+                .setBytesScanned(0)
+                .setComplete(true)
+                .build())
+            .build();
+
+        @Test
+        void shouldActOnHeldMessagesWhenSessionTokenIsPassed() {
+            //Arrange
+            final String queueName = "primaryQueue";
+            final List<String> messageIds = Arrays.asList("i_1");
+
+            when(messageOperator.ackMessages(queueName, "token", messageIds)).thenReturn(response);
+
+            //Act
+            final EndpointResponse<Serializable> result = dropMessageEndpoint.index(queueName, null, messageIds, "token", null);
+
+            //Assert
+            assertThat(result.getData()).isEqualTo(response);
+            verify(messageOperator, never()).ackMessages(any(), any());
+        }
+
+        @Test
+        void shouldPassSingleMessageIdToSession() {
+            //Arrange
+            final String queueName = "primaryQueue";
+
+            when(messageOperator.ackMessages(queueName, "token", List.of("i_1"))).thenReturn(response);
+
+            //Act
+            final EndpointResponse<Serializable> result = dropMessageEndpoint.index(queueName, "i_1", null, "token", null);
+
+            //Assert
+            assertThat(result.getData()).isEqualTo(response);
+            verify(messageOperator, never()).ackCertainMessage(any(), any());
+        }
+    }
+
     @Nested
     class GetEndpointId {
         @Test
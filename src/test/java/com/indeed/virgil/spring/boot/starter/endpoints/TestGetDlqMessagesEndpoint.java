@@ -1,9 +1,16 @@
 package com.indeed.virgil.spring.boot.starter.endpoints;
 
+import com.indeed.virgil.spring.boot.starter.models.DlqMessagePage;
 import com.indeed.virgil.spring.boot.starter.models.EndpointResponse;
+import com.indeed.virgil.spring.boot.starter.models.EndpointResponseError;
+import com.indeed.virgil.spring.boot.starter.models.ImmutableDlqMessagePage;
 import com.indeed.virgil.spring.boot.starter.models.ImmutableEndpointResponse;
+import com.indeed.virgil.spring.boot.starter.models.ImmutableVirgilMessage;
+import com.indeed.virgil.spring.boot.starter.models.VirgilMessage;
 import com.indeed.virgil.spring.boot.starter.services.MessageOperator;
+import com.indeed.virgil.spring.boot.starter.services.QueueBusyException;
 import com.indeed.virgil.spring.boot.starter.util.EndpointConstants;
+import com.indeed.virgil.spring.boot.starter.util.MessagePageCursor;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
@@ -14,12 +21,15 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.List;
 
 import static com.indeed.virgil.spring.boot.starter.util.EndpointConstants.ENDPOINT_DEFAULT_PATH_MAPPING;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -71,18 +81,24 @@ public class TestGetDlqMessagesEndpoint {
     @Nested
     class testIndex {
 
+        private final DlqMessagePage messageList = ImmutableDlqMessagePage.builder()
+            .setOffset(0)
+            .setQueueSize(0)
+            .setQueueChanged(false)
+            .build();
+
         @Test
         void shouldCallGetMessagesWithLimit() {
             //Arrange
             final String queueName = "primaryQueue";
             final Integer limit = 100;
-            when(messageOperator.getMessages(any(), anyInt())).thenReturn(new ArrayList<>());
+            when(messageOperator.getMessageList(any(), anyInt())).thenReturn(messageList);
 
             //Act
-            getDlqMessagesEndpoint.index(queueName, limit);
+            getDlqMessagesEndpoint.index(queueName, limit, null, null, null, null, null);
 
             //Assert
-            verify(messageOperator, times(1)).getMessages(any(), eq(limit));
+            verify(messageOperator, times(1)).getMessageList(any(), eq(limit));
         }
 
         @Test
@@ -90,13 +106,13 @@ public class TestGetDlqMessagesEndpoint {
             //Arrange
             final String queueName = "primaryQueue";
             final Integer limit = 100;
-            when(messageOperator.getMessages(any(), anyInt())).thenReturn(new ArrayList<>());
+            when(messageOperator.getMessageList(any(), anyInt())).thenReturn(messageList);
 
             //Act
-            getDlqMessagesEndpoint.index(queueName, limit);
+            getDlqMessagesEndpoint.index(queueName, limit, null, null, null, null, null);
 
             //Assert
-            verify(messageOperator, times(1)).getMessages(eq(queueName), any());
+            verify(messageOperator, times(1)).getMessageList(eq(queueName), any());
         }
 
         @Test
@@ -104,15 +120,185 @@ public class TestGetDlqMessagesEndpoint {
             //Arrange
             final String queueName = "primaryQueue";
             final Integer limit = 100;
-            when(messageOperator.getMessages(any(), any())).thenReturn(new ArrayList<>());
+            when(messageOperator.getMessageList(any(), any())).thenReturn(messageList);
 
             //Act
-            final EndpointResponse<Serializable> result = getDlqMessagesEndpoint.index(queueName, limit);
+            final EndpointResponse<Serializable> result = getDlqMessagesEndpoint.index(queueName, limit, null, null, null, null, null);
 
             //Assert
             assertThat(result).isEqualTo(ImmutableEndpointResponse.builder()
                 .setData(new ArrayList<>())
                 .build());
         }
+
+        @Test
+        void shouldReturnEmptyListWhenQueueIsUnavailable() {
+            //Arrange
+            final String queueName = "primaryQueue";
+            when(messageOperator.getMessageList(any(), any())).thenReturn(null);
+
+            //Act
+            final EndpointResponse<Serializable> result = getDlqMessagesEndpoint.index(queueName, null, null, null, null, null, null);
+
+            //Assert
+            assertThat(result.getData()).isEqualTo(new ArrayList<>());
+            assertThat(result.getErrors()).isEmpty();
+        }
+
+        @Test
+        void shouldReturnTruncatedErrorAlongsideMessages() {
+            //Arrange
+            final String queueName = "primaryQueue";
+            final VirgilMessage message = ImmutableVirgilMessage.builder()
+                .setId("i_1")
+                .setBody("bodymessage")
+                .setFingerprintSource(() -> "fingerprint")
+                .build();
+            when(messageOperator.getMessageList(any(), any())).thenReturn(ImmutableDlqMessagePage.copyOf(messageList)
+                .withMessages(message)
+                .withTruncated(true));
+
+            //Act
+            final EndpointResponse<Serializable> result = getDlqMessagesEndpoint.index(queueName, null, null, null, null, null, null);
+
+            //Assert
+            assertThat(result.getData()).isEqualTo(new ArrayList<>(List.of(message)));
+            assertThat(result.getErrors()).extracting(EndpointResponseError::getCode)
+                .containsExactly(GetDlqMessagesEndpoint.SCAN_TRUNCATED_ERROR_CODE);
+        }
+    }
+
+    @Nested
+    class testIndexPaged {
+
+        private final DlqMessagePage page = ImmutableDlqMessagePage.builder()
+            .setOffset(0)
+            .setQueueSize(0)
+            .setQueueChanged(false)
+            .build();
+
+        @Test
+        void shouldCallGetMessagePageWhenPageSizeIsPassed() {
+            //Arrange
+            final String queueName = "primaryQueue";
+            when(messageOperator.getMessagePage(any(), any(), any(), any())).thenReturn(page);
+
+            //Act
+            final EndpointResponse<Serializable> result = getDlqMessagesEndpoint.index(queueName, null, 10, 25, null, null, null);
+
+            //Assert
+            verify(messageOperator, times(1)).getMessagePage(eq(queueName), eq(10), eq(25), isNull());
+            verify(messageOperator, never()).getMessageList(any(), any());
+            assertThat(result.getData()).isEqualTo(page);
+        }
+
+        @Test
+        void shouldPassDecodedCursor() {
+            //Arrange
+            final String queueName = "primaryQueue";
+            final MessagePageCursor cursor = new MessagePageCursor(50, "i_head");
+            when(messageOperator.getMessagePage(any(), any(), any(), any())).thenReturn(page);
+
+            //Act
+            getDlqMessagesEndpoint.index(queueName, null, null, null, cursor.encode(), null, null);
+
+            //Assert
+            verify(messageOperator, times(1)).getMessagePage(eq(queueName), isNull(), isNull(), eq(cursor));
+        }
+
+        @Test
+        void shouldReturnErrorWhenCursorIsMalformed() {
+            //Arrange
+            final String queueName = "primaryQueue";
+
+            //Act
+            final EndpointResponse<Serializable> result = getDlqMessagesEndpoint.index(queueName, null, null, null, "not-a-cursor", null, null);
+
+            //Assert
+            verify(messageOperator, never()).getMessagePage(any(), any(), any(), any());
+            assertThat(result.getErrors()).hasSize(1);
+            assertThat(result.getErrors().get(0).getCode()).isEqualTo(GetDlqMessagesEndpoint.INVALID_CURSOR_ERROR_CODE);
+        }
+
+        @Test
+        void shouldReturnErrorWhenQueueCanNotBeRead() {
+            //Arrange
+            final String queueName = "primaryQueue";
+            when(messageOperator.getMessagePage(any(), any(), any(), any())).thenReturn(null);
+
+            //Act
+            final EndpointResponse<Serializable> result = getDlqMessagesEndpoint.index(queueName, null, 0, 10, null, null, null);
+
+            //Assert
+            assertThat(result.getErrors()).hasSize(1);
+            assertThat(result.getErrors().get(0).getCode()).isEqualTo(GetDlqMessagesEndpoint.QUEUE_UNAVAILABLE_ERROR_CODE);
+        }
+
+        @Test
+        void shouldReturnBusyErrorWhenLeaseIsHeld() {
+            //Arrange
+            final String queueName = "primaryQueue";
+            when(messageOperator.getMessagePage(any(), any(), any(), any())).thenThrow(new QueueBusyException(queueName));
+
+            //Act
+            final EndpointResponse<Serializable> result = getDlqMessagesEndpoint.index(queueName, null, 0, 10, null, null, null);
+
+            //Assert
+            assertThat(result.getData()).isEqualTo("failure");
+            assertThat(result.getErrors()).extracting(EndpointResponseError::getCode).containsExactly(EndpointConstants.QUEUE_BUSY_ERROR_CODE);
+        }
+    }
+
+    @Nested
+    class testIndexBrowse {
+
+        private final DlqMessagePage page = ImmutableDlqMessagePage.builder()
+            .setOffset(0)
+            .setQueueSize(0)
+            .setQueueChanged(false)
+            .setSessionToken("token")
+            .build();
+
+        @Test
+        void shouldOpenBrowseSessionWhenBrowseIsPassed() {
+            //Arrange
+            final String queueName = "primaryQueue";
+            when(messageOperator.openBrowseSession(any(), any())).thenReturn(page);
+
+            //Act
+            final EndpointResponse<Serializable> result = getDlqMessagesEndpoint.index(queueName, 10, null, null, null, true, null);
+
+            //Assert
+            verify(messageOperator, times(1)).openBrowseSession(eq(queueName), eq(10));
+            verify(messageOperator, never()).getMessageList(any(), any());
+            assertThat(result.getData()).isEqualTo(page);
+        }
+
+        @Test
+        void shouldReturnErrorWhenBrowseSessionCanNotBeOpened() {
+            //Arrange
+            final String queueName = "primaryQueue";
+            when(messageOperator.openBrowseSession(any(), any())).thenReturn(null);
+
+            //Act
+            final EndpointResponse<Serializable> result = getDlqMessagesEndpoint.index(queueName, null, null, null, null, true, null);
+
+            //Assert
+            assertThat(result.getErrors()).hasSize(1);
+            assertThat(result.getErrors().get(0).getCode()).isEqualTo(GetDlqMessagesEndpoint.QUEUE_UNAVAILABLE_ERROR_CODE);
+        }
+
+        @Test
+        void shouldCloseBrowseSession() {
+            //Arrange
+            final String queueName = "primaryQueue";
+            when(messageOperator.closeBrowseSession(queueName, "token")).thenReturn(true);
+
+            //Act
+            final EndpointResponse<Serializable> result = getDlqMessagesEndpoint.closeSession(queueName, "token");
+
+            //Assert
+            assertThat(result.getData()).isEqualTo("success");
+        }
     }
 }
@@ -1,16 +1,30 @@
 package com.indeed.virgil.spring.boot.starter.endpoints;
 
+import com.indeed.virgil.spring.boot.starter.models.BulkRepublishMessageResponse;
+import com.indeed.virgil.spring.boot.starter.models.EndpointResponse;
+import com.indeed.virgil.spring.boot.starter.models.ImmutableBulkRepublishMessageResponse;
+import com.indeed.virgil.spring.boot.starter.models.ImmutableRepublishMessageResponse;
+import com.indeed.virgil.spring.boot.starter.models.ImmutableScanStatistics;
 import com.indeed.virgil.spring.boot.starter.services.MessageOperator;
 import com.indeed.virgil.spring.boot.starter.util.EndpointConstants;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+
 import static com.indeed.virgil.spring.boot.starter.util.EndpointConstants.ENDPOINT_DEFAULT_PATH_MAPPING;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 public class TestPublishMessageEndpoint {
@@ -55,4 +69,97 @@ public class TestPublishMessageEndpoint {
         //Assert
         assertThat(result).isEqualTo(ENDPOINT_DEFAULT_PATH_MAPPING + EndpointConstants.PUBLISH_MESSAGE_ENDPOINT_ID);
     }
+
+    @Nested
+    class index {
+
+        @Test
+        void shouldRepublishSingleMessage() {
+            //Arrange
+            final String queueName = "primaryQueue";
+            final String messageId = "f_12312321321";
+
+            when(messageOperator.republishMessage(queueName, messageId)).thenReturn(ImmutableRepublishMessageResponse.builder()
+                .setSuccess(true)
+                .build());
+
+            //Act
+            final EndpointResponse<Serializable> result = publishMessageEndpoint.index(queueName, messageId, null, null, null);
+
+            //Assert
+            assertThat(result.getData()).isEqualTo("success");
+            verify(messageOperator, never()).republishMessages(any(), any());
+        }
+
+        @Test
+        void shouldRepublishAllMessageIdsInOneCall() {
+            //Arrange
+            final String queueName = "primaryQueue";
+            final List<String> messageIds = Arrays.asList("i_1", "i_2");
+            final BulkRepublishMessageResponse response = ImmutableBulkRepublishMessageResponse.builder()
+                .putResults("i_1", true)
+                .putResults("i_2", true)
+                .setScanStatistics(ImmutableScanStatistics.builder()
+                    .setMessagesScanned(2)
+                    .setMessagesMatched(2)
+                    .setBytesScanned(0)
+                    .setComplete(true)
+                    .build())
+                .build();
+
+            when(messageOperator.republishMessages(queueName, messageIds)).thenReturn(response);
+
+            //Act
+            final EndpointResponse<Serializable> result = publishMessageEndpoint.index(queueName, null, messageIds, null, null);
+
+            //Assert
+            assertThat(result.getData()).isEqualTo(response);
+            verify(messageOperator, never()).republishMessage(any(), any());
+        }
+    }
+
+    @Nested
+    class indexSession {
+
+        private final BulkRepublishMessageResponse response = ImmutableBulkRepublishMessageResponse.builder()
+            .putResults("i_1", true)
+            .setScanStatistics(ImmutableScanStatistics.builder()
+                .setMessagesScanned(0)
+                .setMessagesMatched(1)
+                .setBytesScanned(0)
+                .setComplete(true)
+                .build())
+            .build();
+
+        @Test
+        void shouldActOnHeldMessagesWhenSessionTokenIsPassed() {
+            //Arrange
+            final String queueName = "primaryQueue";
+            final List<String> messageIds = Arrays.asList("i_1");
+
+            when(messageOperator.republishMessages(queueName, "token", messageIds)).thenReturn(response);
+
+            //Act
+            final EndpointResponse<Serializable> result = publishMessageEndpoint.index(queueName, null, messageIds, "token", null);
+
+            //Assert
+            assertThat(result.getData()).isEqualTo(response);
+            verify(messageOperator, never()).republishMessages(any(), any());
+        }
+
+        @Test
+        void shouldPassSingleMessageIdToSession() {
+            //Arrange
+            final String queueName = "primaryQueue";
+
+            when(messageOperator.republishMessages(queueName, "token", List.of("i_1"))).thenReturn(response);
+
+            //Act
+            final EndpointResponse<Serializable> result = publishMessageEndpoint.index(queueName, "i_1", null, "token", null);
+
+            //Assert
+            assertThat(result.getData()).isEqualTo(response);
+            verify(messageOperator, never()).republishMessage(any(), any());
+        }
+    }
 }
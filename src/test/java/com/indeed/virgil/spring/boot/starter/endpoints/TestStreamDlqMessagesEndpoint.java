@@ -0,0 +1,185 @@
+package com.indeed.virgil.spring.boot.starter.endpoints;
+
+import com.indeed.virgil.spring.boot.starter.models.ImmutableVirgilMessage;
+import com.indeed.virgil.spring.boot.starter.services.MessageOperator;
+import com.indeed.virgil.spring.boot.starter.services.MessageStream;
+import com.indeed.virgil.spring.boot.starter.services.QueueBusyException;
+import com.indeed.virgil.spring.boot.starter.util.EndpointConstants;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.Resource;
+
+import java.io.InputStream;
+
+import static com.indeed.virgil.spring.boot.starter.util.EndpointConstants.ENDPOINT_DEFAULT_PATH_MAPPING;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class TestStreamDlqMessagesEndpoint {
+
+    private static final String QUEUE_ID = "primaryQueue";
+
+    @Mock
+    private MessageOperator messageOperator;
+
+    @Mock
+    private MessageStream messageStream;
+
+    private StreamDlqMessagesEndpoint streamDlqMessagesEndpoint;
+
+    @BeforeEach
+    void setup() {
+        streamDlqMessagesEndpoint = new StreamDlqMessagesEndpoint(messageOperator);
+    }
+
+    @Test
+    void shouldImplementIVirgilEndpoint() {
+        //Act
+        final Class<?> c = StreamDlqMessagesEndpoint.class;
+
+        //Assert
+        Assertions.assertTrue(IVirgilEndpoint.class.isAssignableFrom(c));
+    }
+
+    @Test
+    void testGetEndpointPath_shouldReturnExpectedEndpointPath() {
+        //Act
+        final String result = StreamDlqMessagesEndpoint.getEndpointPath();
+
+        //Assert
+        Assertions.assertEquals(ENDPOINT_DEFAULT_PATH_MAPPING + EndpointConstants.STREAM_DLQ_MESSAGES_ENDPOINT_ID, result);
+    }
+
+    @Nested
+    class testIndex {
+
+        @Test
+        void shouldWriteOneJsonLinePerMessage() throws Exception {
+            //Arrange
+            when(messageOperator.openMessageStream(QUEUE_ID, 5)).thenReturn(messageStream);
+            when(messageStream.next())
+                .thenReturn(createMessage("i_1"))
+                .thenReturn(createMessage("i_2"))
+                .thenReturn(null);
+
+            //Act
+            final WebEndpointResponse<Resource> result = streamDlqMessagesEndpoint.index(QUEUE_ID, 5, null);
+
+            //Assert
+            assertThat(result.getStatus()).isEqualTo(WebEndpointResponse.STATUS_OK);
+            assertThat(result.getContentType().toString()).isEqualTo(StreamDlqMessagesEndpoint.NDJSON_MEDIA_TYPE);
+
+            final String[] lines = readFully(result.getBody()).split("\n");
+            assertThat(lines).hasSize(2);
+            assertThat(lines[0]).contains("\"id\":\"i_1\"");
+            assertThat(lines[1]).contains("\"id\":\"i_2\"");
+        }
+
+        @Test
+        void shouldWriteServerSentEvents() throws Exception {
+            //Arrange
+            when(messageOperator.openMessageStream(QUEUE_ID, null)).thenReturn(messageStream);
+            when(messageStream.next())
+                .thenReturn(createMessage("i_1"))
+                .thenReturn(null);
+
+            //Act
+            final WebEndpointResponse<Resource> result = streamDlqMessagesEndpoint.index(QUEUE_ID, null, "sse");
+
+            //Assert
+            assertThat(result.getContentType().toString()).isEqualTo(StreamDlqMessagesEndpoint.SSE_MEDIA_TYPE);
+            assertThat(readFully(result.getBody())).startsWith("id: i_1\ndata: {").endsWith("}\n\n");
+        }
+
+        @Test
+        void shouldNotReadQueueUntilStreamIsConsumed() throws Exception {
+            //Arrange
+            when(messageOperator.openMessageStream(any(), any())).thenReturn(messageStream);
+
+            //Act
+            streamDlqMessagesEndpoint.index(QUEUE_ID, null, null);
+
+            //Assert
+            verify(messageStream, never()).next();
+        }
+
+        @Test
+        void shouldCloseMessageStreamWhenClientDisconnects() throws Exception {
+            //Arrange
+            when(messageOperator.openMessageStream(any(), any())).thenReturn(messageStream);
+            when(messageStream.next()).thenReturn(createMessage("i_1"));
+
+            final WebEndpointResponse<Resource> result = streamDlqMessagesEndpoint.index(QUEUE_ID, null, null);
+
+            //Act
+            try (InputStream inputStream = result.getBody().getInputStream()) {
+                inputStream.read();
+            }
+
+            //Assert
+            verify(messageStream, times(1)).next();
+            verify(messageStream, times(1)).close();
+        }
+
+        @Test
+        void shouldReturnNotFoundWhenQueueCanNotBeRead() {
+            //Arrange
+            when(messageOperator.openMessageStream(any(), any())).thenReturn(null);
+
+            //Act
+            final WebEndpointResponse<Resource> result = streamDlqMessagesEndpoint.index(QUEUE_ID, null, null);
+
+            //Assert
+            assertThat(result.getStatus()).isEqualTo(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+
+        @Test
+        void shouldReturnServiceUnavailableWhenLeaseIsHeld() {
+            //Arrange
+            when(messageOperator.openMessageStream(any(), any())).thenThrow(new QueueBusyException(QUEUE_ID));
+
+            //Act
+            final WebEndpointResponse<Resource> result = streamDlqMessagesEndpoint.index(QUEUE_ID, null, null);
+
+            //Assert
+            assertThat(result.getStatus()).isEqualTo(WebEndpointResponse.STATUS_SERVICE_UNAVAILABLE);
+        }
+
+        @Test
+        void shouldReturnBadRequestForUnknownFormat() {
+            //Act
+            final WebEndpointResponse<Resource> result = streamDlqMessagesEndpoint.index(QUEUE_ID, null, "xml");
+
+            //Assert
+            assertThat(result.getStatus()).isEqualTo(WebEndpointResponse.STATUS_BAD_REQUEST);
+            verify(messageOperator, never()).openMessageStream(eq(QUEUE_ID), any());
+        }
+    }
+
+    private static ImmutableVirgilMessage createMessage(final String id) {
+        return ImmutableVirgilMessage.builder()
+            .setId(id)
+            .setBody("body")
+            .setFingerprintSource(() -> "fingerprint")
+            .build();
+    }
+
+    private static String readFully(final Resource resource) throws Exception {
+        try (InputStream inputStream = resource.getInputStream()) {
+            return new String(inputStream.readAllBytes(), UTF_8);
+        }
+    }
+}
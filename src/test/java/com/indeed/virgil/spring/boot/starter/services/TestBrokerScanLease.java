@@ -0,0 +1,147 @@
+package com.indeed.virgil.spring.boot.starter.services;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Consumer;
+import com.rabbitmq.client.ShutdownSignalException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.amqp.AmqpIOException;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TestBrokerScanLease {
+
+    private static final String QUEUE_ID = "primaryQueue";
+    private static final String LOCK_QUEUE_NAME = "virgil.lease.default-queue-name";
+
+    private RabbitMqConnectionService rabbitMqConnectionService;
+    private Channel channel;
+
+    @BeforeEach
+    void setup() {
+        rabbitMqConnectionService = mock(RabbitMqConnectionService.class);
+        channel = mock(Channel.class);
+
+        when(rabbitMqConnectionService.openReadChannel(QUEUE_ID)).thenReturn(channel);
+    }
+
+    @Nested
+    class acquire {
+
+        @Test
+        void shouldDeclareExclusiveAutoDeleteLockQueue() throws Exception {
+            //Act
+            BrokerScanLease.acquire(rabbitMqConnectionService, QUEUE_ID, LOCK_QUEUE_NAME, deadlineIn(1000L));
+
+            //Assert
+            verify(channel).queueDeclare(LOCK_QUEUE_NAME, false, true, true, null);
+        }
+
+        @Test
+        void shouldConsumeFromLockQueue() throws Exception {
+            //Act
+            BrokerScanLease.acquire(rabbitMqConnectionService, QUEUE_ID, LOCK_QUEUE_NAME, deadlineIn(1000L));
+
+            //Assert
+            final InOrder inOrder = inOrder(channel);
+            inOrder.verify(channel).queueDeclare(LOCK_QUEUE_NAME, false, true, true, null);
+            inOrder.verify(channel).basicConsume(eq(LOCK_QUEUE_NAME), eq(true), any(Consumer.class));
+        }
+
+        @Test
+        void shouldCloseChannelWhenConsumeFails() throws Exception {
+            //Arrange
+            when(channel.basicConsume(anyString(), anyBoolean(), any(Consumer.class))).thenThrow(new IOException("broker is gone"));
+
+            //Act //Assert
+            assertThatThrownBy(() -> BrokerScanLease.acquire(rabbitMqConnectionService, QUEUE_ID, LOCK_QUEUE_NAME, deadlineIn(5000L)))
+                .isInstanceOf(AmqpIOException.class);
+            verify(channel).close();
+        }
+
+        @Test
+        void shouldRetryWhileLockQueueIsHeldByAnotherInstance() throws Exception {
+            //Arrange
+            when(channel.queueDeclare(anyString(), anyBoolean(), anyBoolean(), anyBoolean(), any()))
+                .thenThrow(resourceLocked())
+                .thenReturn(null);
+
+            //Act
+            BrokerScanLease.acquire(rabbitMqConnectionService, QUEUE_ID, LOCK_QUEUE_NAME, deadlineIn(5000L));
+
+            //Assert
+            verify(rabbitMqConnectionService, times(2)).openReadChannel(QUEUE_ID);
+            verify(channel, times(2)).queueDeclare(LOCK_QUEUE_NAME, false, true, true, null);
+        }
+
+        @Test
+        void shouldThrowBusyOnceDeadlineIsUp() throws Exception {
+            //Arrange
+            when(channel.queueDeclare(anyString(), anyBoolean(), anyBoolean(), anyBoolean(), any())).thenThrow(resourceLocked());
+
+            //Act //Assert
+            assertThatThrownBy(() -> BrokerScanLease.acquire(rabbitMqConnectionService, QUEUE_ID, LOCK_QUEUE_NAME, deadlineIn(100L)))
+                .isInstanceOf(QueueBusyException.class);
+            verify(channel, atLeastOnce()).close();
+        }
+
+        @Test
+        void shouldNotRetryOtherFailures() throws Exception {
+            //Arrange
+            when(channel.queueDeclare(anyString(), anyBoolean(), anyBoolean(), anyBoolean(), any())).thenThrow(new IOException("broker is gone"));
+
+            //Act //Assert
+            assertThatThrownBy(() -> BrokerScanLease.acquire(rabbitMqConnectionService, QUEUE_ID, LOCK_QUEUE_NAME, deadlineIn(5000L)))
+                .isInstanceOf(AmqpIOException.class);
+            verify(rabbitMqConnectionService, times(1)).openReadChannel(QUEUE_ID);
+        }
+    }
+
+    @Nested
+    class close {
+
+        @Test
+        void shouldReleaseLockQueueByClosingChannel() throws Exception {
+            //Arrange
+            final BrokerScanLease lease = BrokerScanLease.acquire(rabbitMqConnectionService, QUEUE_ID, LOCK_QUEUE_NAME, deadlineIn(1000L));
+
+            //Act
+            lease.close();
+            lease.close();
+
+            //Assert
+            verify(channel, times(1)).close();
+            verify(channel, never()).queueDelete(anyString());
+            verify(rabbitMqConnectionService, never()).destroyReadConnection(QUEUE_ID);
+        }
+    }
+
+    private static long deadlineIn(final long millis) {
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    private static IOException resourceLocked() {
+        final AMQP.Channel.Close close = new AMQP.Channel.Close.Builder()
+            .replyCode(AMQP.RESOURCE_LOCKED)
+            .replyText("RESOURCE_LOCKED - cannot obtain exclusive access to locked queue")
+            .build();
+        return new IOException(new ShutdownSignalException(false, false, close, null));
+    }
+}
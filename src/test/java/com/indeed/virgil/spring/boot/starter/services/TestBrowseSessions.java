@@ -0,0 +1,150 @@
+package com.indeed.virgil.spring.boot.starter.services;
+
+import com.indeed.virgil.spring.boot.starter.config.VirgilPropertyConfig.BinderProperties;
+import com.indeed.virgil.spring.boot.starter.config.VirgilPropertyConfig.QueueProperties;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ShutdownListener;
+import com.rabbitmq.client.ShutdownSignalException;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class TestBrowseSessions {
+
+    private static final String QUEUE_ID = "primaryQueue";
+    private static final String QUEUE_NAME = "default-queue-name";
+    private static final String BINDER_NAME = "default-binder-name";
+    private static final Duration TTL = Duration.ofMinutes(5);
+
+    private final QueueProperties queueProperties = new QueueProperties(
+        QUEUE_NAME,
+        BINDER_NAME,
+        new BinderProperties(BINDER_NAME, null, null),
+        null,
+        "#",
+        null,
+        null
+    );
+
+    private final RabbitMqConnectionService rabbitMqConnectionService = mock(RabbitMqConnectionService.class);
+
+    @Nested
+    class reserve {
+
+        @Test
+        void shouldThrowBusyOnceEverySlotIsTaken() {
+            //Arrange
+            final BrowseSessions browseSessions = new BrowseSessions(2);
+            browseSessions.reserve(QUEUE_ID);
+            browseSessions.register(createSession("first", mock(ScanCoordinator.Lease.class)), TTL);
+            browseSessions.reserve(QUEUE_ID);
+            browseSessions.register(createSession("second", mock(ScanCoordinator.Lease.class)), TTL);
+
+            //Act //Assert
+            assertThatThrownBy(() -> browseSessions.reserve(QUEUE_ID)).isInstanceOf(QueueBusyException.class);
+        }
+
+        @Test
+        void shouldGiveSlotBackOnceSessionIsClosed() {
+            //Arrange
+            final BrowseSessions browseSessions = new BrowseSessions(1);
+            browseSessions.reserve(QUEUE_ID);
+            browseSessions.register(createSession("first", mock(ScanCoordinator.Lease.class)), TTL);
+
+            //Act
+            browseSessions.close("first");
+
+            //Assert
+            browseSessions.reserve(QUEUE_ID);
+            assertThat(browseSessions.size()).isZero();
+        }
+
+        @Test
+        void shouldGiveSlotBackWhenSessionCouldNotBeOpened() {
+            //Arrange
+            final BrowseSessions browseSessions = new BrowseSessions(1);
+            browseSessions.reserve(QUEUE_ID);
+
+            //Act
+            browseSessions.unreserve();
+
+            //Assert
+            browseSessions.reserve(QUEUE_ID);
+        }
+    }
+
+    @Nested
+    class register {
+
+        @Test
+        void shouldReleaseLeaseWhenChannelIsLost() {
+            //Arrange
+            final BrowseSessions browseSessions = new BrowseSessions(1);
+            final ScanCoordinator.Lease lease = mock(ScanCoordinator.Lease.class);
+            final BrowseSession session = createSession("first", lease);
+            browseSessions.reserve(QUEUE_ID);
+            browseSessions.register(session, TTL);
+            final ArgumentCaptor<ShutdownListener> shutdownListener = ArgumentCaptor.forClass(ShutdownListener.class);
+            verify(session.getChannel()).addShutdownListener(shutdownListener.capture());
+
+            //Act
+            shutdownListener.getValue().shutdownCompleted(mock(ShutdownSignalException.class));
+
+            //Assert
+            verify(lease, timeout(5000).times(1)).close();
+            assertThat(browseSessions.get("first")).isNull();
+            browseSessions.reserve(QUEUE_ID);
+        }
+    }
+
+    @Nested
+    class shutdown {
+
+        @Test
+        void shouldCloseEveryOpenSession() throws Exception {
+            //Arrange
+            final BrowseSessions browseSessions = new BrowseSessions(2);
+            final ScanCoordinator.Lease lease = mock(ScanCoordinator.Lease.class);
+            final BrowseSession session = createSession("first", lease);
+            browseSessions.reserve(QUEUE_ID);
+            browseSessions.register(session, TTL);
+
+            //Act
+            browseSessions.shutdown();
+
+            //Assert
+            assertThat(browseSessions.size()).isZero();
+            verify(session.getChannel(), times(1)).close();
+            verify(lease, times(1)).close();
+        }
+
+        @Test
+        void shouldNotCloseSessionTwice() throws Exception {
+            //Arrange
+            final BrowseSessions browseSessions = new BrowseSessions(2);
+            final BrowseSession session = createSession("first", mock(ScanCoordinator.Lease.class));
+            browseSessions.reserve(QUEUE_ID);
+            browseSessions.register(session, TTL);
+            browseSessions.close("first");
+
+            //Act
+            browseSessions.shutdown();
+
+            //Assert
+            verify(session.getChannel(), times(1)).close();
+        }
+    }
+
+    private BrowseSession createSession(final String token, final ScanCoordinator.Lease lease) {
+        return new BrowseSession(token, QUEUE_ID, queueProperties, rabbitMqConnectionService, mock(Channel.class), lease);
+    }
+}
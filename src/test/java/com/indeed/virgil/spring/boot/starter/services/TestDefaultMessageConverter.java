@@ -2,15 +2,28 @@ package com.indeed.virgil.spring.boot.starter.services;
 
 import com.indeed.virgil.spring.boot.starter.models.VirgilMessage;
 import com.indeed.virgil.spring.boot.starter.util.VirgilMessageUtils;
+import com.rabbitmq.client.AMQP.BasicProperties;
+import com.rabbitmq.client.Envelope;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.amqp.core.Message;
 import org.springframework.amqp.core.MessageProperties;
 import org.springframework.amqp.core.MessagePropertiesBuilder;
+import org.springframework.amqp.rabbit.support.DefaultMessagePropertiesConverter;
 
+import java.io.ByteArrayOutputStream;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.entry;
 import static org.assertj.core.api.Assertions.assertThatNullPointerException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 class TestDefaultMessageConverter {
 
@@ -48,6 +61,39 @@ class TestDefaultMessageConverter {
         assertThat(result).extracting("body").isEqualTo(truncatedMessageBody);
     }
 
+    @Test
+    void shouldCutoffTextAtPreviewLength() {
+        //Arrange
+        final Message msg = new Message("h\u00e9llo w\u00f6rld".getBytes(UTF_8), MessagePropertiesBuilder.newInstance()
+            .setMessageId("uniqueMessageId")
+            .build());
+
+        //Act
+        final VirgilMessage result = defaultMessageConverter.convertMessage(msg, 7);
+
+        //Assert
+        assertThat(result.getBody()).isEqualTo("h\u00e9llo w");
+    }
+
+    @Test
+    void shouldInflateGzipBody() throws Exception {
+        //Arrange
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(compressed)) {
+            gzipOutputStream.write("hello world".getBytes(UTF_8));
+        }
+        final Message msg = new Message(compressed.toByteArray(), MessagePropertiesBuilder.newInstance()
+            .setMessageId("uniqueMessageId")
+            .setContentEncoding("gzip")
+            .build());
+
+        //Act
+        final VirgilMessage result = defaultMessageConverter.convertMessage(msg);
+
+        //Assert
+        assertThat(result.getBody()).isEqualTo("hello world");
+    }
+
     @Test
     void shouldPassNonCustomHeaderInMessage() {
         //Arrange
@@ -146,6 +192,78 @@ class TestDefaultMessageConverter {
         assertThat(result.getFingerprint()).isEqualTo("2f488d0165039ce1064e63187bb1dde5");
     }
 
+    @Test
+    void shouldNotFingerprintUntilAskedWhenMessageIdIsPresent() {
+        //Arrange
+        final VirgilMessageUtils virgilMessageUtils = spy(new VirgilMessageUtils());
+        final DefaultMessageConverter lazyMessageConverter = new DefaultMessageConverter(virgilMessageUtils);
+
+        final MessageProperties msgProps = MessagePropertiesBuilder.newInstance()
+            .setMessageId("uniqueMessageId")
+            .build();
+        final Message msg = new Message("hello world".getBytes(), msgProps);
+
+        //Act
+        final VirgilMessage result = lazyMessageConverter.convertMessage(msg);
+
+        //Assert
+        assertThat(result.getId()).isEqualTo("i_uniqueMessageId");
+        verify(virgilMessageUtils, never()).generateFingerprint(any());
+
+        final String fingerprint = result.getFingerprint();
+        assertThat(result.getFingerprint()).isEqualTo(fingerprint);
+        verify(virgilMessageUtils, times(1)).generateFingerprint(msg);
+    }
+
+    @Test
+    void shouldFingerprintOnceWhenMessageIdIsMissing() {
+        //Arrange
+        final VirgilMessageUtils virgilMessageUtils = spy(new VirgilMessageUtils());
+        final DefaultMessageConverter lazyMessageConverter = new DefaultMessageConverter(virgilMessageUtils);
+
+        final Message msg = new Message("hello world".getBytes(), new MessageProperties());
+
+        //Act
+        final VirgilMessage result = lazyMessageConverter.convertMessage(msg);
+
+        //Assert
+        assertThat(result.getId()).isEqualTo("f_" + result.getFingerprint());
+        verify(virgilMessageUtils, times(1)).generateFingerprint(msg);
+    }
+
+    @Test
+    void shouldDeriveMessageIdWithoutFingerprinting() {
+        //Arrange
+        final VirgilMessageUtils virgilMessageUtils = spy(new VirgilMessageUtils());
+        final DefaultMessageConverter idMessageConverter = new DefaultMessageConverter(virgilMessageUtils);
+
+        final BasicProperties properties = new BasicProperties.Builder().messageId("uniqueMessageId").build();
+
+        //Act
+        final String result = idMessageConverter.convertMessageId(properties, new Envelope(1L, false, "exchange", "key"), "hello world".getBytes());
+
+        //Assert
+        assertThat(result).isEqualTo("i_uniqueMessageId");
+        verify(virgilMessageUtils, never()).generateFingerprint(any());
+    }
+
+    @Test
+    void shouldDeriveSameFingerprintIdAsConvertMessage() {
+        //Arrange
+        final BasicProperties properties = new BasicProperties.Builder().headers(Map.of("uniqueKey", "1")).build();
+        final Envelope envelope = new Envelope(1L, false, "exchange", "key");
+        final byte[] body = "hello world".getBytes();
+
+        final Message msg = new Message(body, new DefaultMessagePropertiesConverter().toMessageProperties(properties, envelope, "UTF-8"));
+
+        //Act
+        final String result = defaultMessageConverter.convertMessageId(properties, envelope, body);
+
+        //Assert
+        assertThat(result).startsWith("f_");
+        assertThat(result).isEqualTo(defaultMessageConverter.convertMessage(msg).getId());
+    }
+
     @Test
     void shouldSetIdFromMessageId() {
         //Arrange
@@ -1,5 +1,8 @@
 package com.indeed.virgil.spring.boot.starter.services;
 
+import com.indeed.virgil.spring.boot.starter.models.ImmutableVirgilMessage;
+import com.rabbitmq.client.AMQP.BasicProperties;
+import com.rabbitmq.client.Envelope;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -10,6 +13,7 @@ import org.springframework.amqp.core.Message;
 import org.springframework.amqp.core.MessageProperties;
 import org.springframework.amqp.core.MessagePropertiesBuilder;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -44,5 +48,52 @@ class TestMessageConverterService {
             //Assert
             verify(messageConverter, times(1)).convertMessage(msg);
         }
+
+        @Test
+        void shouldCallConvertMessageWithPreviewLength() {
+            //Arrange
+            final Message msg = new Message("hello world".getBytes(), new MessageProperties());
+
+            //Act
+            messageConverterService.mapMessage(msg, 5);
+
+            //Assert
+            verify(messageConverter, times(1)).convertMessage(msg, 5);
+        }
+    }
+
+    @Nested
+    class mapMessageId {
+
+        @Test
+        void shouldCallConvertMessageId() {
+            //Arrange
+            final BasicProperties properties = new BasicProperties();
+            final Envelope envelope = new Envelope(1L, false, "exchange", "key");
+            final byte[] body = "hello world".getBytes();
+
+            //Act
+            messageConverterService.mapMessageId(properties, envelope, body);
+
+            //Assert
+            verify(messageConverter, times(1)).convertMessageId(properties, envelope, body);
+        }
+
+        @Test
+        void shouldDefaultToIdOfConvertedMessage() {
+            //Arrange
+            final IMessageConverter customMessageConverter = msg -> ImmutableVirgilMessage.builder()
+                .setId("custom_" + msg.getMessageProperties().getDeliveryTag())
+                .setBody("")
+                .setFingerprintSource(() -> "fingerprint")
+                .build();
+
+            //Act
+            final String result = new MessageConverterService(customMessageConverter)
+                .mapMessageId(new BasicProperties(), new Envelope(7L, false, "exchange", "key"), "hello world".getBytes());
+
+            //Assert
+            assertThat(result).isEqualTo("custom_7");
+        }
     }
 }
@@ -2,53 +2,87 @@ package com.indeed.virgil.spring.boot.starter.services;
 
 import com.indeed.virgil.spring.boot.starter.config.VirgilPropertyConfig;
 import com.indeed.virgil.spring.boot.starter.models.AckCertainMessageResponse;
+import com.indeed.virgil.spring.boot.starter.models.BulkAckMessageResponse;
+import com.indeed.virgil.spring.boot.starter.models.BulkRepublishMessageResponse;
+import com.indeed.virgil.spring.boot.starter.models.DlqMessagePage;
 import com.indeed.virgil.spring.boot.starter.models.ImmutableAckCertainMessageResponse;
 import com.indeed.virgil.spring.boot.starter.models.ImmutableVirgilMessage;
 import com.indeed.virgil.spring.boot.starter.models.RepublishMessageResponse;
 import com.indeed.virgil.spring.boot.starter.models.VirgilMessage;
+import com.indeed.virgil.spring.boot.starter.config.VirgilPropertyConfig.ReadMode;
 import com.indeed.virgil.spring.boot.starter.services.MessageOperator.HandleAckCertainMessage;
+import com.indeed.virgil.spring.boot.starter.services.MessageOperator.HandleAckMessages;
 import com.indeed.virgil.spring.boot.starter.services.MessageOperator.HandleDropMessages;
+import com.indeed.virgil.spring.boot.starter.services.MessageOperator.HandleGetMessagePage;
 import com.indeed.virgil.spring.boot.starter.services.MessageOperator.HandleGetMessages;
-import com.indeed.virgil.spring.boot.starter.services.MessageOperator.HandleRepublishMessage;
+import com.indeed.virgil.spring.boot.starter.services.MessageOperator.HandleRepublishMessages;
+import com.indeed.virgil.spring.boot.starter.services.MessageOperator.MessageVisitor;
+import com.indeed.virgil.spring.boot.starter.services.MessageOperator.ScanSession;
+import com.indeed.virgil.spring.boot.starter.util.MessagePageCursor;
 import com.indeed.virgil.spring.boot.starter.util.VirgilMessageUtils;
 import com.rabbitmq.client.AMQP;
 import com.rabbitmq.client.AMQP.BasicProperties;
 import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ConfirmListener;
+import com.rabbitmq.client.Consumer;
 import com.rabbitmq.client.Envelope;
 import com.rabbitmq.client.GetResponse;
+import com.rabbitmq.client.ShutdownListener;
+import com.rabbitmq.client.ShutdownSignalException;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.amqp.core.AmqpAdmin;
 import org.springframework.amqp.core.Message;
-import org.springframework.amqp.core.MessageProperties;
 import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
 import org.springframework.amqp.rabbit.connection.Connection;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitAdmin;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.rabbit.support.DefaultMessagePropertiesConverter;
-import org.springframework.amqp.rabbit.support.MessagePropertiesConverter;
+import org.springframework.util.unit.DataSize;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.api.Assertions.entry;
 import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.any;
-import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -97,9 +131,61 @@ class TestMessageOperator {
         null
     );
 
+    final VirgilPropertyConfig.QueueProperties CONSUMER_QUEUE_PROPERTIES = new VirgilPropertyConfig.QueueProperties(
+        QUEUE_NAME,
+        BINDER_NAME,
+        BINDER_PROPERTIES,
+        null,
+        BINDING_KEY,
+        null,
+        null,
+        ReadMode.CONSUMER,
+        2,
+        null,
+        null,
+        null,
+        null,
+        null
+    );
+
+    final VirgilPropertyConfig.QueueProperties SMALL_SCAN_QUEUE_PROPERTIES = new VirgilPropertyConfig.QueueProperties(
+        QUEUE_NAME,
+        BINDER_NAME,
+        BINDER_PROPERTIES,
+        null,
+        BINDING_KEY,
+        null,
+        null,
+        null,
+        null,
+        DataSize.ofBytes(10),
+        4,
+        null,
+        null,
+        null
+    );
+
+    final VirgilPropertyConfig.QueueProperties SHORT_BROWSE_SESSION_QUEUE_PROPERTIES = new VirgilPropertyConfig.QueueProperties(
+        QUEUE_NAME,
+        BINDER_NAME,
+        BINDER_PROPERTIES,
+        null,
+        BINDING_KEY,
+        null,
+        null,
+        null,
+        null,
+        null,
+        null,
+        Duration.ofMillis(50),
+        null,
+        null
+    );
+
     @BeforeEach
     void initializeSetup() {
         MockitoAnnotations.openMocks(this);
+        when(virgilPropertyConfig.getScanLease()).thenReturn(new VirgilPropertyConfig.ScanLeaseProperties(null, null, null));
 
         messageOperator = new MessageOperator(virgilPropertyConfig, rabbitMqConnectionService, messageConverterService);
     }
@@ -131,6 +217,50 @@ class TestMessageOperator {
 
             assertThat(messageOperator.getQueueSize(QUEUE_ID)).isNull();
         }
+
+        @Test
+        void shouldServeCachedSizeWithinTtl() {
+            //Arrange
+            initializeQueueProperties(false);
+
+            //Act
+            messageOperator.getQueueSize(QUEUE_ID);
+            final Integer result = messageOperator.getQueueSize(QUEUE_ID);
+
+            //Assert
+            assertThat(result).isEqualTo(QUEUE_SIZE_3);
+            verify(amqpAdmin, times(1)).getQueueProperties(QUEUE_NAME);
+        }
+
+        @Test
+        void shouldDeclareQueueEveryTimeWhenTtlIsZero() {
+            //Arrange
+            initializeQueueProperties(false);
+            when(virgilPropertyConfig.getQueueProperties(QUEUE_ID)).thenReturn(new VirgilPropertyConfig.QueueProperties(
+                QUEUE_NAME, BINDER_NAME, BINDER_PROPERTIES, null, BINDING_KEY, null, null, null, null, null, null, null, Duration.ZERO, null));
+
+            //Act
+            messageOperator.getQueueSize(QUEUE_ID);
+            messageOperator.getQueueSize(QUEUE_ID);
+
+            //Assert
+            verify(amqpAdmin, times(2)).getQueueProperties(QUEUE_NAME);
+        }
+
+        @Test
+        void shouldReadSizeAgainAfterMessagesAreAcked() {
+            //Arrange
+            initializeQueueProperties(false);
+            when(rabbitTemplate.execute(any(ScanSession.class))).thenReturn(0);
+
+            //Act
+            messageOperator.getQueueSize(QUEUE_ID);
+            messageOperator.ackMessages(QUEUE_ID, Arrays.asList("i_1"));
+            messageOperator.getQueueSize(QUEUE_ID);
+
+            //Assert
+            verify(amqpAdmin, times(3)).getQueueProperties(QUEUE_NAME);
+        }
     }
 
     @Nested
@@ -145,7 +275,7 @@ class TestMessageOperator {
 
             //Assert
             assertThat(result).isNotNull();
-            verify(rabbitTemplate, times(QUEUE_SIZE_3)).execute(any());
+            verify(rabbitTemplate, times(1)).execute(any(ScanSession.class));
         }
 
         @Test
@@ -173,7 +303,21 @@ class TestMessageOperator {
             //Assert
             assertThat(result).isNotNull();
 
-            verify(rabbitTemplate, times(QUEUE_SIZE_3)).execute(any());
+            verify(rabbitTemplate, times(1)).execute(any(ScanSession.class));
+        }
+
+        @Test
+        void shouldExecuteOnceInConsumerReadMode() {
+            //Arrange
+            initializeQueueProperties(false);
+            when(virgilPropertyConfig.getQueueProperties(QUEUE_ID)).thenReturn(CONSUMER_QUEUE_PROPERTIES);
+
+            //Act
+            final List<VirgilMessage> result = messageOperator.getMessages(QUEUE_ID, null);
+
+            //Assert
+            assertThat(result).isNotNull();
+            verify(rabbitTemplate, times(1)).execute(any(ScanSession.class));
         }
 
         @Test
@@ -191,7 +335,7 @@ class TestMessageOperator {
         }
 
         @Test
-        void shouldDestroyConnectionAfterSuccess() {
+        void shouldKeepConnectionOpenAfterSuccess() {
             //Arrange
             initializeQueueProperties(false);
 
@@ -199,11 +343,11 @@ class TestMessageOperator {
             messageOperator.getMessages(QUEUE_ID, null);
 
             //Assert
-            verify(rabbitMqConnectionService, times(1)).destroyReadConnection(QUEUE_ID);
+            verify(rabbitMqConnectionService, times(0)).destroyReadConnection(QUEUE_ID);
         }
 
         @Test
-        void shouldDestroyConnectionAfterException() {
+        void shouldKeepConnectionOpenAfterException() {
             //Arrange
             initializeQueueProperties(false);
 
@@ -213,7 +357,7 @@ class TestMessageOperator {
             assertThatThrownBy(() -> messageOperator.getMessages(QUEUE_ID, null))
                 .isInstanceOf(RuntimeException.class);
 
-            verify(rabbitMqConnectionService, times(1)).destroyReadConnection(QUEUE_ID);
+            verify(rabbitMqConnectionService, times(0)).destroyReadConnection(QUEUE_ID);
         }
 
         @Test
@@ -227,6 +371,205 @@ class TestMessageOperator {
             //Assert
             verify(rabbitMqConnectionService, times(0)).destroyReadConnection(QUEUE_ID);
         }
+
+        @Test
+        void shouldStopAtMaxScanBytesAndMarkListTruncated() throws Exception {
+            //Arrange
+            initializeQueueProperties(false);
+            when(virgilPropertyConfig.getQueueProperties(QUEUE_ID)).thenReturn(SMALL_SCAN_QUEUE_PROPERTIES);
+
+            final Channel channel = mock(Channel.class);
+            when(channel.basicGet(QUEUE_NAME, false))
+                .thenReturn(createGetResponse(1L, "123456"))
+                .thenReturn(createGetResponse(2L, "123456"))
+                .thenReturn(createGetResponse(3L, "123456"));
+            when(rabbitTemplate.execute(any(ScanSession.class)))
+                .thenAnswer(invocation -> invocation.<ScanSession>getArgument(0).doInRabbit(channel));
+            when(messageConverterService.mapMessage(any(), anyInt())).thenReturn(ImmutableVirgilMessage.builder()
+                .setBody("bodymessage")
+                .setFingerprintSource(() -> "fingerprint")
+                .setId(MESSAGE_ID)
+                .build());
+
+            //Act
+            final DlqMessagePage result = messageOperator.getMessageList(QUEUE_ID, null);
+
+            //Assert
+            assertThat(result).isNotNull();
+            assertThat(result.getMessages()).hasSize(1);
+            assertThat(result.isTruncated()).isTrue();
+            verify(messageConverterService, times(1)).mapMessage(any(), anyInt());
+        }
+
+        @Test
+        void shouldReturnNullListWhenQueueDoesNotExist() {
+            //Arrange
+            initializeQueueProperties(true);
+
+            //Act
+            final DlqMessagePage result = messageOperator.getMessageList(QUEUE_ID, null);
+
+            //Assert
+            assertThat(result).isNull();
+        }
+    }
+
+    @Nested
+    class getMessagePage {
+
+        private Channel channel;
+
+        @BeforeEach
+        void setup() throws Exception {
+            initializeQueueProperties(false);
+
+            channel = mock(Channel.class);
+            when(channel.basicGet(QUEUE_NAME, false))
+                .thenReturn(createGetResponse(1L))
+                .thenReturn(createGetResponse(2L))
+                .thenReturn(createGetResponse(3L))
+                .thenReturn(null);
+            when(rabbitTemplate.execute(any(ScanSession.class)))
+                .thenAnswer(invocation -> invocation.<ScanSession>getArgument(0).doInRabbit(channel));
+            when(messageConverterService.mapMessage(any(), anyInt())).thenAnswer(invocation -> ImmutableVirgilMessage.builder()
+                .setId("i_" + invocation.<Message>getArgument(0).getMessageProperties().getDeliveryTag())
+                .setBody("bodymessage")
+                .setFingerprintSource(() -> "fingerprint")
+                .build());
+            when(messageConverterService.mapMessageId(any(), any(), any()))
+                .thenAnswer(invocation -> "i_" + invocation.<Envelope>getArgument(1).getDeliveryTag());
+        }
+
+        @Test
+        void shouldReturnFirstPageWithCursor() {
+            //Act
+            final DlqMessagePage result = messageOperator.getMessagePage(QUEUE_ID, null, 2, null);
+
+            //Assert
+            assertThat(result).isNotNull();
+            assertThat(result.getMessages()).extracting(VirgilMessage::getId).containsExactly("i_1", "i_2");
+            assertThat(result.getOffset()).isEqualTo(0);
+            assertThat(result.getQueueSize()).isEqualTo(QUEUE_SIZE_3);
+            assertThat(result.isQueueChanged()).isFalse();
+            assertThat(MessagePageCursor.decode(result.getNextCursor())).isEqualTo(new MessagePageCursor(2, "i_1"));
+        }
+
+        @Test
+        void shouldSkipMessagesBeforeOffsetWithoutConvertingThem() {
+            //Act
+            final DlqMessagePage result = messageOperator.getMessagePage(QUEUE_ID, 2, 2, null);
+
+            //Assert
+            assertThat(result).isNotNull();
+            assertThat(result.getMessages()).extracting(VirgilMessage::getId).containsExactly("i_3");
+            assertThat(result.getNextCursor()).isNull();
+            //only the page itself is converted, the head for the cursor just has its id derived
+            verify(messageConverterService, times(1)).mapMessage(any(), anyInt());
+            verify(messageConverterService, times(1)).mapMessageId(any(), any(), any());
+        }
+
+        @Test
+        void shouldUseCursorOverOffset() {
+            //Act
+            final DlqMessagePage result = messageOperator.getMessagePage(QUEUE_ID, 0, 2, new MessagePageCursor(1, "i_1"));
+
+            //Assert
+            assertThat(result).isNotNull();
+            assertThat(result.getOffset()).isEqualTo(1);
+            assertThat(result.getMessages()).extracting(VirgilMessage::getId).containsExactly("i_2", "i_3");
+            assertThat(result.isQueueChanged()).isFalse();
+        }
+
+        @Test
+        void shouldReportQueueChangedWhenHeadDiffers() {
+            //Act
+            final DlqMessagePage result = messageOperator.getMessagePage(QUEUE_ID, null, 2, new MessagePageCursor(1, "i_0"));
+
+            //Assert
+            assertThat(result).isNotNull();
+            assertThat(result.isQueueChanged()).isTrue();
+        }
+
+        @Test
+        void shouldReturnNullWhenQueueDoesNotExist() {
+            //Arrange
+            when(amqpAdmin.getQueueProperties(QUEUE_NAME)).thenReturn(null);
+
+            //Act
+            final DlqMessagePage result = messageOperator.getMessagePage(QUEUE_ID, null, null, null);
+
+            //Assert
+            assertThat(result).isNull();
+            verify(rabbitTemplate, never()).execute(any());
+        }
+    }
+
+    @Nested
+    class findMessage {
+
+        private Channel channel;
+
+        @BeforeEach
+        void setup() throws Exception {
+            initializeQueueProperties(false);
+
+            channel = mock(Channel.class);
+            when(channel.basicGet(QUEUE_NAME, false))
+                .thenReturn(createGetResponse(1L, "first"))
+                .thenReturn(createGetResponse(2L, "second"))
+                .thenReturn(createGetResponse(3L, "third"))
+                .thenReturn(null);
+            when(rabbitTemplate.execute(any(ScanSession.class)))
+                .thenAnswer(invocation -> invocation.<ScanSession>getArgument(0).doInRabbit(channel));
+            when(messageConverterService.mapMessageId(any(), any(), any()))
+                .thenAnswer(invocation -> "i_" + invocation.<Envelope>getArgument(1).getDeliveryTag());
+        }
+
+        @Test
+        void shouldStopAtFirstMatch() throws Exception {
+            //Act
+            final Message result = messageOperator.findMessage(QUEUE_ID, "i_2");
+
+            //Assert
+            assertThat(result).isNotNull();
+            assertThat(new String(result.getBody())).isEqualTo("second");
+            assertThat(result.getMessageProperties().getDeliveryTag()).isEqualTo(2L);
+            verify(channel, times(2)).basicGet(QUEUE_NAME, false);
+            verify(channel, never()).basicAck(anyLong(), anyBoolean());
+            verify(messageConverterService, never()).mapMessage(any(), anyInt());
+        }
+
+        @Test
+        void shouldReturnNullWhenMessageIsNotFound() {
+            //Act
+            final Message result = messageOperator.findMessage(QUEUE_ID, "i_9");
+
+            //Assert
+            assertThat(result).isNull();
+        }
+
+        @Test
+        void shouldReturnNullWhenMessageIdIsEmpty() {
+            //Act
+            final Message result = messageOperator.findMessage(QUEUE_ID, "");
+
+            //Assert
+            assertThat(result).isNull();
+            verify(rabbitTemplate, never()).execute(any());
+        }
+
+        @Test
+        void shouldReturnNullWhenQueueDoesNotExist() {
+            //Arrange
+            when(amqpAdmin.getQueueProperties(QUEUE_NAME)).thenReturn(null);
+
+            //Act
+            final Message result = messageOperator.findMessage(QUEUE_ID, "i_1");
+
+            //Assert
+            assertThat(result).isNull();
+            verify(rabbitTemplate, never()).execute(any());
+        }
     }
 
     @Nested
@@ -291,7 +634,7 @@ class TestMessageOperator {
             messageOperator.ackCertainMessage(QUEUE_ID, MESSAGE_ID);
 
             //Assert
-            verify(rabbitTemplate, times(QUEUE_SIZE_3)).execute(any());
+            verify(rabbitTemplate, times(1)).execute(any(ScanSession.class));
         }
 
         @Test
@@ -341,7 +684,7 @@ class TestMessageOperator {
         }
 
         @Test
-        void shouldDestroyConnectionAfterSuccess() {
+        void shouldKeepConnectionOpenAfterSuccess() {
             //Arrange
             initializeQueueProperties(false);
 
@@ -349,11 +692,11 @@ class TestMessageOperator {
             messageOperator.ackCertainMessage(QUEUE_ID, MESSAGE_ID);
 
             //Assert
-            verify(rabbitMqConnectionService, times(1)).destroyReadConnection(QUEUE_ID);
+            verify(rabbitMqConnectionService, times(0)).destroyReadConnection(QUEUE_ID);
         }
 
         @Test
-        void shouldDestroyConnectionAfterException() {
+        void shouldKeepConnectionOpenAfterException() {
             //Arrange
             initializeQueueProperties(false);
 
@@ -364,7 +707,7 @@ class TestMessageOperator {
                 .isInstanceOf(RuntimeException.class);
 
             //Assert
-            verify(rabbitMqConnectionService, times(1)).destroyReadConnection(QUEUE_ID);
+            verify(rabbitMqConnectionService, times(0)).destroyReadConnection(QUEUE_ID);
         }
 
         @Test
@@ -381,88 +724,222 @@ class TestMessageOperator {
     }
 
     @Nested
-    class republishMessage {
+    class ackMessages {
 
-        @Test
-        void shouldReturnSuccessIsFalseWhenQueuePropertiesIsNull() {
-            //Arrange
-            when(virgilPropertyConfig.getQueueProperties(any()))
-                .thenReturn(QUEUE_PROPERTIES)
+        private Channel channel;
+
+        @BeforeEach
+        void setup() throws Exception {
+            initializeQueueProperties(false);
+
+            channel = mock(Channel.class);
+            when(channel.basicGet(QUEUE_NAME, false))
+                .thenReturn(createGetResponse(1L))
+                .thenReturn(createGetResponse(2L))
+                .thenReturn(createGetResponse(3L))
                 .thenReturn(null);
+            when(rabbitTemplate.execute(any(ScanSession.class)))
+                .thenAnswer(invocation -> invocation.<ScanSession>getArgument(0).doInRabbit(channel));
+            when(messageConverterService.mapMessageId(any(), any(), any()))
+                .thenAnswer(invocation -> "i_" + invocation.<Envelope>getArgument(1).getDeliveryTag());
+        }
 
+        @Test
+        void shouldAckEveryMatchInOnePass() throws Exception {
             //Act
-            final RepublishMessageResponse result = messageOperator.republishMessage(QUEUE_ID, null);
+            final BulkAckMessageResponse result = messageOperator.ackMessages(QUEUE_ID, Arrays.asList("i_1", "i_3"));
 
             //Assert
-            assertThat(result.isSuccess()).isFalse();
+            assertThat(result.isSuccess()).isTrue();
+            assertThat(result.getResults()).containsExactly(entry("i_1", true), entry("i_3", true));
+            assertThat(result.getScanStatistics().getMessagesScanned()).isEqualTo(3);
+            assertThat(result.getScanStatistics().getMessagesMatched()).isEqualTo(2);
+            assertThat(result.getScanStatistics().isComplete()).isTrue();
+            verify(rabbitTemplate, times(1)).execute(any(ScanSession.class));
+            verify(channel, times(1)).basicAck(1L, false);
+            verify(channel, times(1)).basicAck(3L, false);
         }
 
         @Test
-        void shouldReturnSuccessIsTrue() throws IOException {
-            //Arrange
-            final String rabbitMessageId = "abc123";
-            final String messageId = "i_" + rabbitMessageId;
-
-            final MessageConverterService localMessageConvertService = new MessageConverterService(new DefaultMessageConverter(new VirgilMessageUtils()));
-
-            final MessageOperator localMessageOperator = new MessageOperator(virgilPropertyConfig, rabbitMqConnectionService, localMessageConvertService);
-
-            final RepublishMocks mocks = initializeMocksAndReturnChannel();
-
-            final Channel mockChannel = mocks.getChannel();
-
-            //channel mocks
-            final AMQP.BasicProperties basicProps = new AMQP.BasicProperties("", "UTF-8", null, null, null, null, null, null, rabbitMessageId, new Date(), null, null, null, null);
-            final Envelope envelope = new Envelope(1L, false, "", "");
-            final GetResponse response = new GetResponse(envelope, basicProps, "".getBytes(), 1);
-            when(mockChannel.basicGet(any(), anyBoolean())).thenReturn(response);
-
+        void shouldStopScanningOnceEveryIdIsFound() throws Exception {
             //Act
-            final RepublishMessageResponse result = localMessageOperator.republishMessage(QUEUE_ID, messageId);
+            final BulkAckMessageResponse result = messageOperator.ackMessages(QUEUE_ID, Arrays.asList("i_1"));
 
             //Assert
-            assertThat(result.isSuccess()).isTrue();
+            assertThat(result.getScanStatistics().getMessagesScanned()).isEqualTo(1);
+            verify(channel, times(1)).basicGet(QUEUE_NAME, false);
         }
 
         @Test
-        void shouldReturnSuccessIsFalseWhenMessageIdIsNull() {
+        void shouldRecordOperationMetrics() {
             //Arrange
+            final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+            final MessageOperator localMessageOperator =
+                new MessageOperator(virgilPropertyConfig, rabbitMqConnectionService, messageConverterService, meterRegistry);
 
             //Act
-            final RepublishMessageResponse result = messageOperator.republishMessage(QUEUE_ID, null);
+            localMessageOperator.ackMessages(QUEUE_ID, Arrays.asList("i_1", "i_3"));
 
             //Assert
-            assertThat(result.isSuccess()).isFalse();
+            assertThat(meterRegistry.get(OperationMetrics.OPERATION_METRIC)
+                .tags("operation", "ack", "queue", QUEUE_ID, "outcome", OperationMetrics.OUTCOME_SUCCESS)
+                .timer()
+                .count()).isEqualTo(1L);
+            assertThat(meterRegistry.get(OperationMetrics.MESSAGES_SCANNED_METRIC).tag("operation", "ack").summary().totalAmount())
+                .isEqualTo(3.0);
+            assertThat(meterRegistry.find(OperationMetrics.PHASE_METRIC).tag("phase", "scan").timer()).isNotNull();
+            assertThat(meterRegistry.find(OperationMetrics.PHASE_METRIC).tag("phase", "convert").timer()).isNotNull();
         }
 
         @Test
-        void shouldReturnSuccessIsFalseWhenMessageIdIsEmpty() {
+        void shouldRecordFlightRecorderEvents(@TempDir final Path tempDir) throws Exception {
             //Arrange
+            final Path recordingFile = tempDir.resolve("recording.jfr");
+            try (Recording recording = new Recording()) {
+                recording.enable("com.indeed.virgil.Scan");
+                recording.enable("com.indeed.virgil.ScanBatch");
+                recording.start();
+
+                //Act
+                messageOperator.ackMessages(QUEUE_ID, Arrays.asList("i_1", "i_3"));
+
+                recording.stop();
+                recording.dump(recordingFile);
+            }
+
+            //Assert
+            final List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+            final List<RecordedEvent> scanEvents = events.stream()
+                .filter(event -> event.getEventType().getName().equals("com.indeed.virgil.Scan"))
+                .toList();
+            assertThat(scanEvents).hasSize(1);
+            assertThat(scanEvents.get(0).getString("operation")).isEqualTo("ack");
+            assertThat(scanEvents.get(0).getString("queueId")).isEqualTo(QUEUE_ID);
+            assertThat(scanEvents.get(0).getInt("messagesScanned")).isEqualTo(3);
+            assertThat(events)
+                .filteredOn(event -> event.getEventType().getName().equals("com.indeed.virgil.ScanBatch"))
+                .isNotEmpty();
+        }
 
+        @Test
+        void shouldReportIdsThatWereNotFound() {
             //Act
-            final RepublishMessageResponse result = messageOperator.republishMessage(QUEUE_ID, "");
+            final BulkAckMessageResponse result = messageOperator.ackMessages(QUEUE_ID, Arrays.asList("i_2", "i_9"));
 
             //Assert
             assertThat(result.isSuccess()).isFalse();
+            assertThat(result.getResults()).containsExactly(entry("i_2", true), entry("i_9", false));
+            assertThat(result.getScanStatistics().isComplete()).isFalse();
         }
 
         @Test
-        void shouldReturnSuccessIsFalseIfNoQueueSize() {
-            //Arrange
-            initializeQueueProperties(true);
-
+        void shouldNotScanWhenNoIdsArePassed() {
             //Act
-            final RepublishMessageResponse result = messageOperator.republishMessage(QUEUE_ID, "123");
+            final BulkAckMessageResponse result = messageOperator.ackMessages(QUEUE_ID, Arrays.asList("", " "));
 
             //Assert
+            assertThat(result.getResults()).isEmpty();
             assertThat(result.isSuccess()).isFalse();
+            verify(rabbitTemplate, never()).execute(any());
         }
 
         @Test
-        void shouldDestroyConnectionAfterSuccess() throws IOException {
+        void shouldFailEveryIdWhenQueueDoesNotExist() {
             //Arrange
-            final String rabbitMessageId = "abc123";
-            final String messageId = "i_" + rabbitMessageId;
+            when(amqpAdmin.getQueueProperties(QUEUE_NAME)).thenReturn(null);
+
+            //Act
+            final BulkAckMessageResponse result = messageOperator.ackMessages(QUEUE_ID, Arrays.asList("i_1"));
+
+            //Assert
+            assertThat(result.getResults()).containsExactly(entry("i_1", false));
+            verify(rabbitTemplate, never()).execute(any());
+        }
+    }
+
+    @Nested
+    class republishMessage {
+
+        @Test
+        void shouldReturnSuccessIsFalseWhenQueuePropertiesIsNull() {
+            //Arrange
+            when(virgilPropertyConfig.getQueueProperties(any()))
+                .thenReturn(QUEUE_PROPERTIES)
+                .thenReturn(null);
+
+            //Act
+            final RepublishMessageResponse result = messageOperator.republishMessage(QUEUE_ID, null);
+
+            //Assert
+            assertThat(result.isSuccess()).isFalse();
+        }
+
+        @Test
+        void shouldReturnSuccessIsTrue() throws IOException {
+            //Arrange
+            final String rabbitMessageId = "abc123";
+            final String messageId = "i_" + rabbitMessageId;
+
+            final MessageConverterService localMessageConvertService = new MessageConverterService(new DefaultMessageConverter(new VirgilMessageUtils()));
+
+            final MessageOperator localMessageOperator = new MessageOperator(virgilPropertyConfig, rabbitMqConnectionService, localMessageConvertService);
+
+            final RepublishMocks mocks = initializeMocksAndReturnChannel();
+
+            final Channel mockChannel = mocks.getChannel();
+
+            //channel mocks
+            final AMQP.BasicProperties basicProps = new AMQP.BasicProperties("", "UTF-8", null, null, null, null, null, null, rabbitMessageId, new Date(), null, null, null, null);
+            final Envelope envelope = new Envelope(1L, false, "", "");
+            final GetResponse response = new GetResponse(envelope, basicProps, "".getBytes(), 1);
+            when(mockChannel.basicGet(any(), anyBoolean())).thenReturn(response);
+
+            //Act
+            final RepublishMessageResponse result = localMessageOperator.republishMessage(QUEUE_ID, messageId);
+
+            //Assert
+            assertThat(result.isSuccess()).isTrue();
+        }
+
+        @Test
+        void shouldReturnSuccessIsFalseWhenMessageIdIsNull() {
+            //Arrange
+
+            //Act
+            final RepublishMessageResponse result = messageOperator.republishMessage(QUEUE_ID, null);
+
+            //Assert
+            assertThat(result.isSuccess()).isFalse();
+        }
+
+        @Test
+        void shouldReturnSuccessIsFalseWhenMessageIdIsEmpty() {
+            //Arrange
+
+            //Act
+            final RepublishMessageResponse result = messageOperator.republishMessage(QUEUE_ID, "");
+
+            //Assert
+            assertThat(result.isSuccess()).isFalse();
+        }
+
+        @Test
+        void shouldReturnSuccessIsFalseIfNoQueueSize() {
+            //Arrange
+            initializeQueueProperties(true);
+
+            //Act
+            final RepublishMessageResponse result = messageOperator.republishMessage(QUEUE_ID, "123");
+
+            //Assert
+            assertThat(result.isSuccess()).isFalse();
+        }
+
+        @Test
+        void shouldKeepConnectionOpenAfterSuccess() throws IOException {
+            //Arrange
+            final String rabbitMessageId = "abc123";
+            final String messageId = "i_" + rabbitMessageId;
 
             final MessageConverterService localMessageConvertService = new MessageConverterService(new DefaultMessageConverter(new VirgilMessageUtils()));
 
@@ -482,11 +959,11 @@ class TestMessageOperator {
             localMessageOperator.republishMessage(QUEUE_ID, messageId);
 
             //Assert
-            verify(rabbitMqConnectionService, times(1)).destroyReadConnection(QUEUE_ID);
+            verify(rabbitMqConnectionService, times(0)).destroyReadConnection(QUEUE_ID);
         }
 
         @Test
-        void shouldDestroyConnectionAfterException() {
+        void shouldKeepConnectionOpenAfterException() {
             //Arrange
             initializeQueueProperties(false);
 
@@ -497,7 +974,7 @@ class TestMessageOperator {
                 .isInstanceOf(RuntimeException.class);
 
             //Assert
-            verify(rabbitMqConnectionService, times(1)).destroyReadConnection(QUEUE_ID);
+            verify(rabbitMqConnectionService, times(0)).destroyReadConnection(QUEUE_ID);
         }
 
         @Test
@@ -512,7 +989,7 @@ class TestMessageOperator {
             verify(rabbitMqConnectionService, times(0)).destroyReadConnection(QUEUE_ID);
         }
 
-        RepublishMocks initializeMocksAndReturnChannel() {
+        RepublishMocks initializeMocksAndReturnChannel() throws IOException {
             when(virgilPropertyConfig.getQueueProperties(QUEUE_ID)).thenReturn(QUEUE_PROPERTIES);
 
             when(rabbitMqConnectionService.getReadAmqpAdmin(QUEUE_ID)).thenReturn(amqpAdmin);
@@ -537,174 +1014,809 @@ class TestMessageOperator {
 
             when(rabbitMqConnectionService.getReadRabbitTemplate(QUEUE_ID)).thenReturn(localRabbitTemplate);
             when(rabbitMqConnectionService.getRabbitTemplate(BINDER_NAME)).thenReturn(localRabbitTemplate);
+            when(rabbitMqConnectionService.openPublishChannel(QUEUE_ID)).thenReturn(mockConfirmingChannel(true));
 
             return new RepublishMocks(localRabbitTemplate, mockChannel);
         }
     }
 
     @Nested
-    class testHandleAckCertainMessage {
+    class republishMessages {
+
+        private Channel channel;
+
+        @BeforeEach
+        void setup() throws Exception {
+            initializeQueueProperties(false);
+
+            channel = mock(Channel.class);
+            when(channel.basicGet(QUEUE_NAME, false))
+                .thenReturn(createGetResponse(1L))
+                .thenReturn(createGetResponse(2L))
+                .thenReturn(createGetResponse(3L))
+                .thenReturn(null);
+            when(rabbitTemplate.execute(any(ScanSession.class)))
+                .thenAnswer(invocation -> invocation.<ScanSession>getArgument(0).doInRabbit(channel));
+            when(messageConverterService.mapMessageId(any(), any(), any()))
+                .thenAnswer(invocation -> "i_" + invocation.<Envelope>getArgument(1).getDeliveryTag());
+        }
+
+        @Test
+        void shouldRepublishEveryMatchInOnePass() throws Exception {
+            //Arrange
+            final Channel publishChannel = mockConfirmingChannel(true);
+            when(rabbitMqConnectionService.openPublishChannel(QUEUE_ID)).thenReturn(publishChannel);
+
+            //Act
+            final BulkRepublishMessageResponse result = messageOperator.republishMessages(QUEUE_ID, Arrays.asList("i_1", "i_2"));
+
+            //Assert
+            assertThat(result.isSuccess()).isTrue();
+            assertThat(result.getResults()).containsExactly(entry("i_1", true), entry("i_2", true));
+            assertThat(result.getScanStatistics().getMessagesScanned()).isEqualTo(2);
+            assertThat(result.getScanStatistics().isComplete()).isTrue();
+            verify(rabbitTemplate, times(1)).execute(any(ScanSession.class));
+            verify(publishChannel, times(2)).basicPublish(eq(BINDER_NAME), eq(BINDING_KEY), eq(true), any(BasicProperties.class), any(byte[].class));
+            verify(channel, times(2)).basicGet(QUEUE_NAME, false);
+        }
+
+        @Test
+        void shouldAckContiguousConfirmsWithMultiple() throws Exception {
+            //Arrange
+            when(rabbitMqConnectionService.openPublishChannel(QUEUE_ID)).thenReturn(mockConfirmingChannel(true));
+
+            //Act
+            messageOperator.republishMessages(QUEUE_ID, Arrays.asList("i_1", "i_2", "i_3"));
+
+            //Assert
+            verify(channel, times(1)).basicAck(1L, true);
+            verify(channel, times(1)).basicAck(2L, true);
+            verify(channel, times(1)).basicAck(3L, true);
+            verify(channel, never()).basicAck(anyLong(), eq(false));
+        }
+
+        @Test
+        void shouldNotAckMessagesWhosePublishWasNacked() throws Exception {
+            //Arrange
+            when(rabbitMqConnectionService.openPublishChannel(QUEUE_ID)).thenReturn(mockConfirmingChannel(false));
+
+            //Act
+            final BulkRepublishMessageResponse result = messageOperator.republishMessages(QUEUE_ID, Arrays.asList("i_1", "i_2"));
+
+            //Assert
+            assertThat(result.isSuccess()).isFalse();
+            assertThat(result.getResults()).containsExactly(entry("i_1", false), entry("i_2", false));
+            verify(channel, never()).basicAck(anyLong(), anyBoolean());
+        }
+
+        @Test
+        void shouldReportIdsThatWereNotFound() throws Exception {
+            //Arrange
+            when(rabbitMqConnectionService.openPublishChannel(QUEUE_ID)).thenReturn(mockConfirmingChannel(true));
+
+            //Act
+            final BulkRepublishMessageResponse result = messageOperator.republishMessages(QUEUE_ID, Arrays.asList("i_3", "i_9"));
+
+            //Assert
+            assertThat(result.isSuccess()).isFalse();
+            assertThat(result.getResults()).containsExactly(entry("i_3", true), entry("i_9", false));
+            assertThat(result.getScanStatistics().isComplete()).isFalse();
+        }
+
+        @Test
+        void shouldFailEveryIdWhenQueueDoesNotExist() {
+            //Arrange
+            when(amqpAdmin.getQueueProperties(QUEUE_NAME)).thenReturn(null);
+
+            //Act
+            final BulkRepublishMessageResponse result = messageOperator.republishMessages(QUEUE_ID, Arrays.asList("i_1"));
+
+            //Assert
+            assertThat(result.getResults()).containsExactly(entry("i_1", false));
+            verify(rabbitTemplate, never()).execute(any());
+        }
+    }
+
+    @Nested
+    class browseSession {
+
+        private Channel channel;
+
+        @BeforeEach
+        void setup() throws Exception {
+            initializeQueueProperties(false);
+
+            channel = mock(Channel.class);
+            when(channel.basicGet(QUEUE_NAME, false))
+                .thenReturn(createGetResponse(1L, "first"))
+                .thenReturn(createGetResponse(2L, "second"))
+                .thenReturn(createGetResponse(3L, "third"))
+                .thenReturn(null);
+            when(rabbitMqConnectionService.openReadChannel(QUEUE_ID)).thenReturn(channel);
+            when(messageConverterService.mapMessage(any(), anyInt())).thenAnswer(invocation -> ImmutableVirgilMessage.builder()
+                .setBody(new String(invocation.<Message>getArgument(0).getBody()))
+                .setFingerprintSource(() -> "fingerprint")
+                .setId("i_" + invocation.<Message>getArgument(0).getMessageProperties().getDeliveryTag())
+                .build());
+            when(messageConverterService.mapMessageId(any(), any(), any()))
+                .thenAnswer(invocation -> "i_" + invocation.<Envelope>getArgument(1).getDeliveryTag());
+        }
+
+        @Test
+        void shouldHoldMessagesAndReturnSessionToken() throws Exception {
+            //Act
+            final DlqMessagePage result = messageOperator.openBrowseSession(QUEUE_ID, null);
+
+            //Assert
+            assertThat(result).isNotNull();
+            assertThat(result.getSessionToken()).isNotBlank();
+            assertThat(result.getMessages()).extracting(VirgilMessage::getId).containsExactly("i_1", "i_2", "i_3");
+            verify(channel, never()).basicAck(anyLong(), anyBoolean());
+            verify(channel, never()).close();
+            verify(rabbitTemplate, never()).execute(any());
+        }
+
+        @Test
+        void shouldAckHeldMessageWithoutScanning() throws Exception {
+            //Arrange
+            final String sessionToken = messageOperator.openBrowseSession(QUEUE_ID, null).getSessionToken();
+
+            //Act
+            final BulkAckMessageResponse result = messageOperator.ackMessages(QUEUE_ID, sessionToken, Arrays.asList("i_2", "i_9"));
+
+            //Assert
+            assertThat(result.getResults()).containsExactly(entry("i_2", true), entry("i_9", false));
+            assertThat(result.getScanStatistics().getMessagesScanned()).isZero();
+            verify(channel, times(1)).basicAck(2L, false);
+            verify(channel, times(4)).basicGet(QUEUE_NAME, false);
+            verify(rabbitTemplate, never()).execute(any());
+        }
+
+        @Test
+        void shouldRepublishHeldMessagesWithoutAckingEarlierOnes() throws Exception {
+            //Arrange
+            final Channel publishChannel = mockConfirmingChannel(true);
+            when(rabbitMqConnectionService.openPublishChannel(QUEUE_ID)).thenReturn(publishChannel);
+            final String sessionToken = messageOperator.openBrowseSession(QUEUE_ID, null).getSessionToken();
+
+            //Act
+            final BulkRepublishMessageResponse result = messageOperator.republishMessages(QUEUE_ID, sessionToken, Arrays.asList("i_2", "i_3"));
+
+            //Assert
+            assertThat(result.isSuccess()).isTrue();
+            verify(publishChannel, times(2)).basicPublish(eq(BINDER_NAME), eq(BINDING_KEY), eq(true), any(BasicProperties.class), any(byte[].class));
+            verify(channel, times(1)).basicAck(2L, false);
+            verify(channel, times(1)).basicAck(3L, false);
+            verify(channel, never()).basicAck(anyLong(), eq(true));
+            verify(rabbitTemplate, never()).execute(any());
+        }
+
+        @Test
+        void shouldNotActOnMessageTwice() throws Exception {
+            //Arrange
+            final String sessionToken = messageOperator.openBrowseSession(QUEUE_ID, null).getSessionToken();
+            messageOperator.ackMessages(QUEUE_ID, sessionToken, Arrays.asList("i_1"));
+
+            //Act
+            final BulkAckMessageResponse result = messageOperator.ackMessages(QUEUE_ID, sessionToken, Arrays.asList("i_1"));
+
+            //Assert
+            assertThat(result.getResults()).containsExactly(entry("i_1", false));
+            verify(channel, times(1)).basicAck(1L, false);
+        }
+
+        @Test
+        void shouldRequeueMessageThatWasNotConverted() throws Exception {
+            //Arrange
+            when(virgilPropertyConfig.getQueueProperties(QUEUE_ID)).thenReturn(SMALL_SCAN_QUEUE_PROPERTIES);
+
+            //Act
+            final DlqMessagePage result = messageOperator.openBrowseSession(QUEUE_ID, null);
+
+            //Assert
+            assertThat(result.isTruncated()).isTrue();
+            assertThat(result.getMessages()).extracting(VirgilMessage::getId).containsExactly("i_1");
+            verify(channel, times(1)).basicReject(2L, true);
+        }
+
+        @Test
+        void shouldRequeueConsumerDeliveriesThatWereNotHeld() throws Exception {
+            //Arrange
+            when(virgilPropertyConfig.getQueueProperties(QUEUE_ID)).thenReturn(new VirgilPropertyConfig.QueueProperties(
+                QUEUE_NAME, BINDER_NAME, BINDER_PROPERTIES, null, BINDING_KEY, null, null,
+                ReadMode.CONSUMER, 4, DataSize.ofBytes(10), null, null, null, null));
+            final ArgumentCaptor<Consumer> consumer = ArgumentCaptor.forClass(Consumer.class);
+            when(channel.basicConsume(eq(QUEUE_NAME), eq(false), consumer.capture())).thenAnswer(invocation -> {
+                consumer.getValue().handleDelivery("tag", new Envelope(1L, false, EXCHANGE_NAME, BINDING_KEY), new BasicProperties(), "first".getBytes());
+                consumer.getValue().handleDelivery("tag", new Envelope(2L, false, EXCHANGE_NAME, BINDING_KEY), new BasicProperties(), "second".getBytes());
+                consumer.getValue().handleDelivery("tag", new Envelope(3L, false, EXCHANGE_NAME, BINDING_KEY), new BasicProperties(), "third".getBytes());
+                return "tag";
+            });
+            // a delivery that was still in flight when the cancel went through
+            doAnswer(invocation -> {
+                consumer.getValue().handleDelivery("tag", new Envelope(4L, false, EXCHANGE_NAME, BINDING_KEY), new BasicProperties(), "fourth".getBytes());
+                return null;
+            }).when(channel).basicCancel("tag");
+
+            //Act
+            final DlqMessagePage result = messageOperator.openBrowseSession(QUEUE_ID, null);
+
+            //Assert
+            assertThat(result.isTruncated()).isTrue();
+            assertThat(result.getMessages()).extracting(VirgilMessage::getId).containsExactly("i_1");
+            verify(channel, times(1)).basicCancel("tag");
+            verify(channel, never()).basicReject(eq(1L), anyBoolean());
+            verify(channel, times(1)).basicReject(2L, true);
+            verify(channel, times(1)).basicReject(3L, true);
+            verify(channel, times(1)).basicReject(4L, true);
+            verify(channel, never()).basicAck(anyLong(), anyBoolean());
+        }
+
+        @Test
+        void shouldRequeueHeldMessagesWhenClosed() throws Exception {
+            //Arrange
+            final String sessionToken = messageOperator.openBrowseSession(QUEUE_ID, null).getSessionToken();
+
+            //Act
+            final boolean result = messageOperator.closeBrowseSession(QUEUE_ID, sessionToken);
+
+            //Assert
+            assertThat(result).isTrue();
+            assertThat(messageOperator.closeBrowseSession(QUEUE_ID, sessionToken)).isFalse();
+            verify(channel, times(1)).close();
+        }
+
+        @Test
+        void shouldHoldLeaseUntilSessionIsClosed() throws Exception {
+            //Arrange
+            when(virgilPropertyConfig.getScanLease()).thenReturn(new VirgilPropertyConfig.ScanLeaseProperties(null, Duration.ofMillis(10), null));
+            when(rabbitTemplate.execute(any(ScanSession.class))).thenReturn(0);
+            final String sessionToken = messageOperator.openBrowseSession(QUEUE_ID, null).getSessionToken();
+
+            //Act //Assert
+            assertThatThrownBy(() -> messageOperator.ackMessages(QUEUE_ID, Arrays.asList("i_1"))).isInstanceOf(QueueBusyException.class);
+            assertThatThrownBy(() -> messageOperator.openBrowseSession(QUEUE_ID, null)).isInstanceOf(QueueBusyException.class);
+            messageOperator.closeBrowseSession(QUEUE_ID, sessionToken);
+            messageOperator.ackMessages(QUEUE_ID, Arrays.asList("i_1"));
+            verify(rabbitTemplate, times(1)).execute(any(ScanSession.class));
+        }
+
+        @Test
+        void shouldCloseOpenSessionsOnDestroy() throws Exception {
+            //Arrange
+            final String sessionToken = messageOperator.openBrowseSession(QUEUE_ID, null).getSessionToken();
+
+            //Act
+            messageOperator.destroy();
+
+            //Assert
+            verify(channel, times(1)).close();
+            assertThat(messageOperator.closeBrowseSession(QUEUE_ID, sessionToken)).isFalse();
+        }
+
+        @Test
+        void shouldCloseSessionOnceTtlExpires() throws Exception {
+            //Arrange
+            when(virgilPropertyConfig.getQueueProperties(QUEUE_ID)).thenReturn(SHORT_BROWSE_SESSION_QUEUE_PROPERTIES);
+
+            //Act
+            final String sessionToken = messageOperator.openBrowseSession(QUEUE_ID, null).getSessionToken();
+
+            //Assert
+            verify(channel, timeout(5000).times(1)).close();
+            assertThat(messageOperator.closeBrowseSession(QUEUE_ID, sessionToken)).isFalse();
+        }
+
+        @Test
+        void shouldForgetSessionWhenChannelIsLost() throws Exception {
+            //Arrange
+            final ArgumentCaptor<ShutdownListener> shutdownListener = ArgumentCaptor.forClass(ShutdownListener.class);
+            final String sessionToken = messageOperator.openBrowseSession(QUEUE_ID, null).getSessionToken();
+            verify(channel).addShutdownListener(shutdownListener.capture());
+            when(rabbitTemplate.execute(any(ScanSession.class))).thenReturn(0);
+
+            //Act
+            shutdownListener.getValue().shutdownCompleted(mock(ShutdownSignalException.class));
+            messageOperator.ackMessages(QUEUE_ID, sessionToken, Arrays.asList("i_1"));
+
+            //Assert
+            verify(channel, never()).basicAck(anyLong(), anyBoolean());
+            verify(rabbitTemplate, times(1)).execute(any(ScanSession.class));
+        }
+
+        @Test
+        void shouldScanQueueWhenSessionIsUnknown() {
+            //Arrange
+            when(rabbitTemplate.execute(any(ScanSession.class))).thenReturn(0);
+
+            //Act
+            final BulkRepublishMessageResponse result = messageOperator.republishMessages(QUEUE_ID, "unknown", Arrays.asList("i_1"));
+
+            //Assert
+            assertThat(result.getResults()).containsExactly(entry("i_1", false));
+            verify(rabbitTemplate, times(1)).execute(any(ScanSession.class));
+        }
+    }
+
+    @Nested
+    class scanCoordination {
+
+        @BeforeEach
+        void setup() {
+            initializeQueueProperties(false);
+        }
+
+        @Test
+        void shouldShareScanBetweenIdenticalConcurrentReads() throws Exception {
+            //Arrange
+            final CountDownLatch started = new CountDownLatch(1);
+            final CountDownLatch release = new CountDownLatch(1);
+            when(rabbitTemplate.execute(any(ScanSession.class))).thenAnswer(invocation -> {
+                started.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                return 0;
+            });
+            final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+            try {
+                //Act
+                final Future<DlqMessagePage> first = executor.submit(() -> messageOperator.getMessageList(QUEUE_ID, 10));
+                started.await(5, TimeUnit.SECONDS);
+                final Future<DlqMessagePage> second = executor.submit(() -> messageOperator.getMessageList(QUEUE_ID, 10));
+                Thread.sleep(100);
+                release.countDown();
+
+                //Assert
+                assertThat(second.get(5, TimeUnit.SECONDS)).isSameAs(first.get(5, TimeUnit.SECONDS));
+                verify(rabbitTemplate, times(1)).execute(any(ScanSession.class));
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        @Test
+        void shouldRunMutatingScansOneAtATime() throws Exception {
+            //Arrange
+            final AtomicInteger running = new AtomicInteger();
+            final AtomicInteger maxRunning = new AtomicInteger();
+            when(rabbitTemplate.execute(any(ScanSession.class))).thenAnswer(invocation -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(50);
+                running.decrementAndGet();
+                return 0;
+            });
+            final List<Callable<BulkAckMessageResponse>> scans = Arrays.asList(
+                () -> messageOperator.ackMessages(QUEUE_ID, Arrays.asList("i_1")),
+                () -> messageOperator.ackMessages(QUEUE_ID, Arrays.asList("i_2")),
+                () -> messageOperator.ackMessages(QUEUE_ID, Arrays.asList("i_3"))
+            );
+            final ExecutorService executor = Executors.newFixedThreadPool(3);
+
+            try {
+                //Act
+                final List<Future<BulkAckMessageResponse>> results = executor.invokeAll(scans);
+                for (final Future<BulkAckMessageResponse> result : results) {
+                    result.get(5, TimeUnit.SECONDS);
+                }
+
+                //Assert
+                assertThat(maxRunning.get()).isEqualTo(1);
+                verify(rabbitTemplate, times(3)).execute(any(ScanSession.class));
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        @Test
+        void shouldHoldLockQueueForTheScanWhenLeaseIsDistributed() throws Exception {
+            //Arrange
+            final Channel lockChannel = mock(Channel.class);
+            when(virgilPropertyConfig.getScanLease()).thenReturn(new VirgilPropertyConfig.ScanLeaseProperties(true, null, null));
+            when(rabbitMqConnectionService.openReadChannel(QUEUE_ID)).thenReturn(lockChannel);
+            when(rabbitTemplate.execute(any(ScanSession.class))).thenReturn(0);
+
+            //Act
+            messageOperator.ackMessages(QUEUE_ID, Arrays.asList("i_1"));
+
+            //Assert
+            final InOrder inOrder = inOrder(lockChannel, rabbitTemplate);
+            inOrder.verify(lockChannel).queueDeclare("virgil.lease." + QUEUE_NAME, false, true, true, null);
+            inOrder.verify(lockChannel).basicConsume(eq("virgil.lease." + QUEUE_NAME), eq(true), any(Consumer.class));
+            inOrder.verify(rabbitTemplate).execute(any(ScanSession.class));
+            inOrder.verify(lockChannel).close();
+        }
+
+        @Test
+        void shouldThrowBusyWithoutScanningWhenLeaseIsHeld() throws Exception {
+            //Arrange
+            when(virgilPropertyConfig.getScanLease()).thenReturn(new VirgilPropertyConfig.ScanLeaseProperties(null, Duration.ofMillis(10), null));
+            final CountDownLatch started = new CountDownLatch(1);
+            final CountDownLatch release = new CountDownLatch(1);
+            when(rabbitTemplate.execute(any(ScanSession.class))).thenAnswer(invocation -> {
+                started.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                return 0;
+            });
+            final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+            try {
+                final Future<BulkAckMessageResponse> first = executor.submit(() -> messageOperator.ackMessages(QUEUE_ID, Arrays.asList("i_1")));
+                started.await(5, TimeUnit.SECONDS);
+
+                //Act //Assert
+                assertThatThrownBy(() -> messageOperator.ackMessages(QUEUE_ID, Arrays.asList("i_2"))).isInstanceOf(QueueBusyException.class);
+                release.countDown();
+                first.get(5, TimeUnit.SECONDS);
+                verify(rabbitTemplate, times(1)).execute(any(ScanSession.class));
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    @Nested
+    class openMessageStream {
+
+        @BeforeEach
+        void setup() {
+            initializeQueueProperties(false);
+            when(virgilPropertyConfig.getScanLease()).thenReturn(new VirgilPropertyConfig.ScanLeaseProperties(null, Duration.ofMillis(10), null));
+        }
+
+        @Test
+        void shouldHoldLeaseUntilStreamIsClosed() throws Exception {
+            //Arrange
+            when(rabbitTemplate.execute(any(ScanSession.class))).thenReturn(0);
+            final MessageStream messageStream = messageOperator.openMessageStream(QUEUE_ID, null);
+
+            //Act //Assert
+            assertThatThrownBy(() -> messageOperator.ackMessages(QUEUE_ID, Arrays.asList("i_1"))).isInstanceOf(QueueBusyException.class);
+            messageStream.close();
+            messageOperator.ackMessages(QUEUE_ID, Arrays.asList("i_1"));
+            verify(rabbitTemplate, times(1)).execute(any(ScanSession.class));
+        }
+
+        @Test
+        void shouldThrowBusyWhenAnotherStreamHoldsLease() throws Exception {
+            //Arrange
+            final MessageStream messageStream = messageOperator.openMessageStream(QUEUE_ID, null);
+
+            //Act //Assert
+            assertThatThrownBy(() -> messageOperator.openMessageStream(QUEUE_ID, null)).isInstanceOf(QueueBusyException.class);
+            messageStream.close();
+            assertThat(messageOperator.openMessageStream(QUEUE_ID, null)).isNotNull();
+        }
+
+        @Test
+        void shouldRecordStreamOnceItIsClosed() throws Exception {
+            //Arrange
+            final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+            final MessageOperator localMessageOperator =
+                new MessageOperator(virgilPropertyConfig, rabbitMqConnectionService, messageConverterService, meterRegistry);
+            final MessageStream messageStream = localMessageOperator.openMessageStream(QUEUE_ID, null);
+
+            //Act
+            final Timer beforeClose = meterRegistry.find(OperationMetrics.OPERATION_METRIC).tag("operation", "stream").timer();
+            messageStream.close();
+
+            //Assert
+            assertThat(beforeClose).isNull();
+            assertThat(meterRegistry.get(OperationMetrics.OPERATION_METRIC)
+                .tags("operation", "stream", "queue", QUEUE_ID, "outcome", OperationMetrics.OUTCOME_SUCCESS)
+                .timer()
+                .count()).isEqualTo(1L);
+            assertThat(meterRegistry.find(OperationMetrics.PHASE_METRIC).tag("phase", "lease").timer()).isNotNull();
+        }
+
+        @Test
+        void shouldCloseOpenStreamsOnDestroy() {
+            //Arrange
+            messageOperator.openMessageStream(QUEUE_ID, null);
+
+            //Act
+            messageOperator.destroy();
+
+            //Assert
+            assertThat(messageOperator.openMessageStream(QUEUE_ID, null)).isNotNull();
+        }
+    }
+
+    @Nested
+    class testScanSession {
+
+        @Test
+        void shouldObserveQueueSizeFromMessageCount() throws Exception {
+            //Arrange
+            final ScanSession scanSession = new ScanSession(QUEUE_PROPERTIES, 1, (channel, response) -> true);
+
+            final Channel mockChannel = mock(Channel.class);
+            when(mockChannel.basicGet(QUEUE_NAME, false))
+                .thenReturn(new GetResponse(new Envelope(1L, false, EXCHANGE_NAME, BINDING_KEY), new BasicProperties(), new byte[0], 4));
+
+            //Act
+            scanSession.doInRabbit(mockChannel);
+
+            //Assert
+            assertThat(scanSession.getObservedQueueSize()).isEqualTo(5);
+        }
+
+        @Test
+        void shouldObserveQueueSizeOnceQueueIsDrained() throws Exception {
+            //Arrange
+            final ScanSession scanSession = new ScanSession(QUEUE_PROPERTIES, 10, (channel, response) -> true);
+
+            final Channel mockChannel = mock(Channel.class);
+            when(mockChannel.basicGet(QUEUE_NAME, false))
+                .thenReturn(createGetResponse(1L))
+                .thenReturn(createGetResponse(2L))
+                .thenReturn(null);
+
+            //Act
+            scanSession.doInRabbit(mockChannel);
+
+            //Assert
+            assertThat(scanSession.getObservedQueueSize()).isEqualTo(2);
+        }
+
+        @Test
+        void shouldPassFalseToAutoAckInBasicGet() throws Exception {
+            //Arrange
+            final ScanSession scanSession = new ScanSession(QUEUE_PROPERTIES, 10, (channel, response) -> true);
+
+            final Channel mockChannel = mock(Channel.class);
+
+            final ArgumentCaptor<Boolean> autoAckCapture = ArgumentCaptor.forClass(Boolean.class);
+
+            when(mockChannel.basicGet(eq(QUEUE_NAME), autoAckCapture.capture())).thenReturn(null);
+
+            //Act
+            scanSession.doInRabbit(mockChannel);
+
+            //Assert
+            assertThat(autoAckCapture.getValue()).isFalse();
+        }
+
+        @Test
+        void shouldStopWhenBasicGetReturnsNull() throws Exception {
+            //Arrange
+            final MessageVisitor visitor = mock(MessageVisitor.class);
+            final ScanSession scanSession = new ScanSession(QUEUE_PROPERTIES, 10, visitor);
+
+            final Channel mockChannel = mock(Channel.class);
+            when(mockChannel.basicGet(QUEUE_NAME, false))
+                .thenReturn(createGetResponse(1L))
+                .thenReturn(null);
+            when(visitor.visit(any(), any())).thenReturn(true);
+
+            //Act
+            final Integer result = scanSession.doInRabbit(mockChannel);
+
+            //Assert
+            assertThat(result).isEqualTo(1);
+            verify(mockChannel, times(2)).basicGet(QUEUE_NAME, false);
+        }
+
+        @Test
+        void shouldNotScanMoreThanMaxMessages() throws Exception {
+            //Arrange
+            final MessageVisitor visitor = mock(MessageVisitor.class);
+            final ScanSession scanSession = new ScanSession(QUEUE_PROPERTIES, QUEUE_SIZE_3, visitor);
+
+            final Channel mockChannel = mock(Channel.class);
+            when(mockChannel.basicGet(QUEUE_NAME, false)).thenReturn(createGetResponse(1L));
+            when(visitor.visit(any(), any())).thenReturn(true);
+
+            //Act
+            final Integer result = scanSession.doInRabbit(mockChannel);
+
+            //Assert
+            assertThat(result).isEqualTo(QUEUE_SIZE_3);
+            verify(visitor, times(QUEUE_SIZE_3)).visit(eq(mockChannel), any());
+        }
+
+        @Test
+        void shouldStopWhenVisitorIsDone() throws Exception {
+            //Arrange
+            final MessageVisitor visitor = mock(MessageVisitor.class);
+            final ScanSession scanSession = new ScanSession(QUEUE_PROPERTIES, 10, visitor);
+
+            final Channel mockChannel = mock(Channel.class);
+            when(mockChannel.basicGet(QUEUE_NAME, false)).thenReturn(createGetResponse(1L));
+            when(visitor.visit(any(), any())).thenReturn(false);
+
+            //Act
+            scanSession.doInRabbit(mockChannel);
+
+            //Assert
+            verify(mockChannel, times(1)).basicGet(QUEUE_NAME, false);
+        }
 
         @Test
-        void shouldPassFalseToAutoAckInBasicGet() throws Exception {
+        void shouldConsumeInBatchesOfPrefetchCount() throws Exception {
             //Arrange
-            initializeQueueProperties(false);
-
-            final MessagePropertiesConverter messagePropertiesConverter = new DefaultMessagePropertiesConverter();
-            final MessageConverterService messageConverterService = mock(MessageConverterService.class);
+            final MessageVisitor visitor = mock(MessageVisitor.class);
+            when(visitor.visit(any(), any())).thenReturn(true);
 
-            final HandleAckCertainMessage handleAckCertainMessage = new HandleAckCertainMessage(messagePropertiesConverter, messageConverterService, QUEUE_PROPERTIES, "");
+            final ScanSession scanSession = new ScanSession(CONSUMER_QUEUE_PROPERTIES, 3, visitor);
 
             final Channel mockChannel = mock(Channel.class);
-
-            final ArgumentCaptor<Boolean> autoAckCapture = ArgumentCaptor.forClass(Boolean.class);
-
-            when(mockChannel.basicGet(eq(QUEUE_NAME), autoAckCapture.capture())).thenReturn(null);
+            final long[] deliveryTag = {0L};
+            when(mockChannel.basicConsume(eq(QUEUE_NAME), eq(false), any(Consumer.class))).thenAnswer(invocation -> {
+                final Consumer consumer = invocation.getArgument(2);
+                consumer.handleDelivery("tag", new Envelope(++deliveryTag[0], false, EXCHANGE_NAME, BINDING_KEY), new BasicProperties(), "".getBytes());
+                consumer.handleDelivery("tag", new Envelope(++deliveryTag[0], false, EXCHANGE_NAME, BINDING_KEY), new BasicProperties(), "".getBytes());
+                return "tag";
+            });
 
             //Act
-            handleAckCertainMessage.doInRabbit(mockChannel);
+            final Integer result = scanSession.doInRabbit(mockChannel);
 
             //Assert
-            assertThat(autoAckCapture.getValue()).isFalse();
+            assertThat(result).isEqualTo(3);
+            verify(mockChannel, times(1)).basicQos(2);
+            verify(mockChannel, times(1)).basicQos(1);
+            verify(mockChannel, times(2)).basicCancel("tag");
+            verify(mockChannel, times(0)).basicAck(anyLong(), anyBoolean());
         }
 
         @Test
-        void shouldReturnNullIfBasicGetReturnsNull() throws Exception {
+        void shouldStopConsumingWhenQueueIsDrained() throws Exception {
             //Arrange
-            initializeQueueProperties(false);
-
-            final MessagePropertiesConverter messagePropertiesConverter = new DefaultMessagePropertiesConverter();
-            final MessageConverterService messageConverterService = mock(MessageConverterService.class);
-
-            final HandleAckCertainMessage handleAckCertainMessage = new HandleAckCertainMessage(messagePropertiesConverter, messageConverterService, QUEUE_PROPERTIES, "");
+            final MessageVisitor visitor = mock(MessageVisitor.class);
+            final ScanSession scanSession = new ScanSession(CONSUMER_QUEUE_PROPERTIES, 10, visitor);
 
             final Channel mockChannel = mock(Channel.class);
-
-            when(mockChannel.basicGet(QUEUE_NAME, false)).thenReturn(null);
+            when(mockChannel.basicConsume(eq(QUEUE_NAME), eq(false), any(Consumer.class))).thenReturn("tag");
 
             //Act
-            final String result = handleAckCertainMessage.doInRabbit(mockChannel);
+            final Integer result = scanSession.doInRabbit(mockChannel);
 
             //Assert
-            assertThat(result).isNull();
+            assertThat(result).isEqualTo(0);
+            verify(mockChannel, times(1)).basicConsume(eq(QUEUE_NAME), eq(false), any(Consumer.class));
+            verify(mockChannel, times(1)).basicQos(anyInt());
+            verify(visitor, times(0)).visit(any(), any());
         }
+    }
+
+    @Nested
+    class testHandleAckCertainMessage {
 
         @Test
         void shouldCallBasicAckIfMessageIdExistsInQueue() throws Exception {
             //Arrange
-            initializeQueueProperties(false);
-
             final long deliveryTag = 123L;
-            final boolean redeliver = false;
             final String fingerprint = "12313920123912";
             final String messageId = String.format("f_%s", fingerprint);
 
-            final MessagePropertiesConverter messagePropertiesConverter = new DefaultMessagePropertiesConverter();
-            final MessageConverterService messageConverterService = mock(MessageConverterService.class);
+            final MessageConverterService messageConverterService = mockMessageConverterService(fingerprint, messageId);
 
-            final VirgilMessage virgilMessage = ImmutableVirgilMessage.builder()
-                .setBody("bodymessage")
-                .setFingerprint(fingerprint)
-                .setId(messageId)
-                .build();
+            final HandleAckCertainMessage handleAckCertainMessage = new HandleAckCertainMessage(new DefaultMessagePropertiesConverter(), messageConverterService, messageId);
+
+            final Channel mockChannel = mock(Channel.class);
+
+            //Act
+            final boolean result = handleAckCertainMessage.visit(mockChannel, createGetResponse(deliveryTag));
 
-            when(messageConverterService.mapMessage(any())).thenReturn(virgilMessage);
+            //Assert
+            assertThat(result).isFalse();
+            verify(mockChannel, times(1)).basicAck(deliveryTag, false);
+        }
 
-            final HandleAckCertainMessage handleAckCertainMessage = new HandleAckCertainMessage(messagePropertiesConverter, messageConverterService, QUEUE_PROPERTIES, messageId);
+        @Test
+        void shouldKeepScanningIfMessageIdDoesNotMatch() throws Exception {
+            //Arrange
+            final long deliveryTag = 123L;
+            final String fingerprint = "12313920123912";
+            final String messageId = String.format("f_%s", fingerprint);
 
-            final GetResponse mockGetResponse = mock(GetResponse.class);
-            when(mockGetResponse.getProps()).thenReturn(new BasicProperties());
-            when(mockGetResponse.getBody()).thenReturn("".getBytes());
-            when(mockGetResponse.getEnvelope()).thenReturn(new Envelope(deliveryTag, redeliver, EXCHANGE_NAME, BINDING_KEY));
+            final MessageConverterService messageConverterService = mockMessageConverterService(fingerprint, messageId);
 
+            final HandleAckCertainMessage handleAckCertainMessage = new HandleAckCertainMessage(new DefaultMessagePropertiesConverter(), messageConverterService, messageId + "2");
 
             final Channel mockChannel = mock(Channel.class);
-            when(mockChannel.basicGet(QUEUE_NAME, false)).thenReturn(mockGetResponse);
 
             //Act
-            final String result = handleAckCertainMessage.doInRabbit(mockChannel);
+            final boolean result = handleAckCertainMessage.visit(mockChannel, createGetResponse(deliveryTag));
 
             //Assert
-            assertThat(result).isNull();
-            verify(mockChannel, times(1)).basicAck(deliveryTag, false);
+            assertThat(result).isTrue();
+            assertThat(handleAckCertainMessage.hasMessageBeenAckd()).isFalse();
+            verify(mockChannel, times(0)).basicAck(anyLong(), anyBoolean());
         }
 
         @Test
         void shouldSetMessageBeenAckdToTrue() throws Exception {
             //Arrange
-            initializeQueueProperties(false);
-
-            final long deliveryTag = 123L;
-            final boolean redeliver = false;
             final String fingerprint = "12313920123912";
             final String messageId = String.format("f_%s", fingerprint);
 
-            final MessagePropertiesConverter messagePropertiesConverter = new DefaultMessagePropertiesConverter();
-            final MessageConverterService messageConverterService = mock(MessageConverterService.class);
-
-            final VirgilMessage virgilMessage = ImmutableVirgilMessage.builder()
-                .setBody("bodymessage")
-                .setFingerprint(fingerprint)
-                .setId(messageId)
-                .build();
+            final MessageConverterService messageConverterService = mockMessageConverterService(fingerprint, messageId);
 
-            when(messageConverterService.mapMessage(any())).thenReturn(virgilMessage);
+            final HandleAckCertainMessage handleAckCertainMessage = new HandleAckCertainMessage(new DefaultMessagePropertiesConverter(), messageConverterService, messageId);
 
-            final HandleAckCertainMessage handleAckCertainMessage = new HandleAckCertainMessage(messagePropertiesConverter, messageConverterService, QUEUE_PROPERTIES, messageId);
+            //Act
+            handleAckCertainMessage.visit(mock(Channel.class), createGetResponse(123L));
 
-            final GetResponse mockGetResponse = mock(GetResponse.class);
-            when(mockGetResponse.getProps()).thenReturn(new BasicProperties());
-            when(mockGetResponse.getBody()).thenReturn("".getBytes());
-            when(mockGetResponse.getEnvelope()).thenReturn(new Envelope(deliveryTag, redeliver, EXCHANGE_NAME, BINDING_KEY));
+            //Assert
+            assertThat(handleAckCertainMessage.hasMessageBeenAckd()).isTrue();
+        }
 
+        @Test
+        void shouldOnlyMatchOnIdWithoutConvertingMessage() throws Exception {
+            //Arrange
+            final MessageConverterService messageConverterService = mockMessageConverterService("fingerprint", MESSAGE_ID);
 
-            final Channel mockChannel = mock(Channel.class);
-            when(mockChannel.basicGet(QUEUE_NAME, false)).thenReturn(mockGetResponse);
+            final HandleAckCertainMessage handleAckCertainMessage = new HandleAckCertainMessage(new DefaultMessagePropertiesConverter(), messageConverterService, "i_other");
 
             //Act
-            handleAckCertainMessage.doInRabbit(mockChannel);
+            handleAckCertainMessage.visit(mock(Channel.class), createGetResponse(123L));
 
             //Assert
-            assertThat(handleAckCertainMessage.hasMessageBeenAckd()).isTrue();
+            verify(messageConverterService, times(1)).mapMessageId(any(), any(), any());
+            verify(messageConverterService, never()).mapMessage(any());
         }
 
         @Test
         void shouldSetAckMesageOnSuccess() throws Exception {
             //Arrange
-            initializeQueueProperties(false);
-
-            final long deliveryTag = 123L;
-            final boolean redeliver = false;
             final String fingerprint = "12313920123912";
             final String messageId = String.format("f_%s", fingerprint);
 
-            final MessagePropertiesConverter messagePropertiesConverter = new DefaultMessagePropertiesConverter();
-            final MessageConverterService messageConverterService = mock(MessageConverterService.class);
+            final MessageConverterService messageConverterService = mockMessageConverterService(fingerprint, messageId);
 
-            final VirgilMessage virgilMessage = ImmutableVirgilMessage.builder()
-                .setBody("bodymessage")
-                .setFingerprint(fingerprint)
-                .setId(messageId)
-                .build();
+            final HandleAckCertainMessage handleAckCertainMessage = new HandleAckCertainMessage(new DefaultMessagePropertiesConverter(), messageConverterService, messageId);
 
-            when(messageConverterService.mapMessage(any())).thenReturn(virgilMessage);
+            //Act
+            handleAckCertainMessage.visit(mock(Channel.class), createGetResponse(123L));
+
+            //Assert
+            assertThat(handleAckCertainMessage.getAckedMessage()).isNotNull();
+        }
+    }
+
+    @Nested
+    class testHandleAckMessages {
 
-            final HandleAckCertainMessage handleAckCertainMessage = new HandleAckCertainMessage(messagePropertiesConverter, messageConverterService, QUEUE_PROPERTIES, messageId);
+        @Test
+        void shouldAckMatchAndKeepScanningUntilAllFound() throws Exception {
+            //Arrange
+            final Channel channel = mock(Channel.class);
+            final HandleAckMessages handleAckMessages = new HandleAckMessages(mockMessageConverterService("fingerprint", MESSAGE_ID), Set.of(MESSAGE_ID, "i_other"));
 
-            final GetResponse mockGetResponse = mock(GetResponse.class);
-            when(mockGetResponse.getProps()).thenReturn(new BasicProperties());
-            when(mockGetResponse.getBody()).thenReturn("".getBytes());
-            when(mockGetResponse.getEnvelope()).thenReturn(new Envelope(deliveryTag, redeliver, EXCHANGE_NAME, BINDING_KEY));
+            //Act
+            final boolean result = handleAckMessages.visit(channel, createGetResponse(123L));
 
+            //Assert
+            assertThat(result).isTrue();
+            assertThat(handleAckMessages.getAckedIds()).containsExactly(MESSAGE_ID);
+            verify(channel, times(1)).basicAck(123L, false);
+        }
 
-            final Channel mockChannel = mock(Channel.class);
-            when(mockChannel.basicGet(QUEUE_NAME, false)).thenReturn(mockGetResponse);
+        @Test
+        void shouldOnlyAckFirstMessageWithDuplicateId() throws Exception {
+            //Arrange
+            final Channel channel = mock(Channel.class);
+            final HandleAckMessages handleAckMessages = new HandleAckMessages(mockMessageConverterService("fingerprint", MESSAGE_ID), Set.of(MESSAGE_ID, "i_other"));
 
             //Act
-            handleAckCertainMessage.doInRabbit(mockChannel);
+            handleAckMessages.visit(channel, createGetResponse(1L));
+            handleAckMessages.visit(channel, createGetResponse(2L));
 
             //Assert
-            assertThat(handleAckCertainMessage.getAckedMessage()).isNotNull();
+            verify(channel, times(1)).basicAck(anyLong(), anyBoolean());
+        }
+
+        @Test
+        void shouldStopOnceAllFound() throws Exception {
+            //Arrange
+            final HandleAckMessages handleAckMessages = new HandleAckMessages(mockMessageConverterService("fingerprint", MESSAGE_ID), Set.of(MESSAGE_ID));
+
+            //Act
+            final boolean result = handleAckMessages.visit(mock(Channel.class), createGetResponse(1L));
+
+            //Assert
+            assertThat(result).isFalse();
         }
     }
 
@@ -745,357 +1857,292 @@ class TestMessageOperator {
     }
 
     @Nested
-    class testHandleGetMessages {
+    class testHandleGetMessagePage {
 
         @Test
-        void shouldPassFalseToAutoAckInBasicGet() throws Exception {
+        void shouldStopOncePageIsFull() throws Exception {
             //Arrange
-            initializeQueueProperties(false);
-
-            final MessagePropertiesConverter messagePropertiesConverter = new DefaultMessagePropertiesConverter();
-            final MessageConverterService messageConverterService = mock(MessageConverterService.class);
+            final HandleGetMessagePage handleGetMessagePage = new HandleGetMessagePage(
+                new DefaultMessagePropertiesConverter(), mockMessageConverterService("fingerprint", MESSAGE_ID), 1, 1);
 
-            final HandleGetMessages handleGetMessages = new HandleGetMessages(messagePropertiesConverter, messageConverterService, QUEUE_PROPERTIES, 10);
-
-            final Channel mockChannel = mock(Channel.class);
+            //Act
+            final boolean first = handleGetMessagePage.visit(mock(Channel.class), createGetResponse(1L));
+            final boolean second = handleGetMessagePage.visit(mock(Channel.class), createGetResponse(2L));
 
-            final ArgumentCaptor<Boolean> autoAckCapture = ArgumentCaptor.forClass(Boolean.class);
+            //Assert
+            assertThat(first).isTrue();
+            assertThat(second).isFalse();
+            assertThat(handleGetMessagePage.getDlqMessages()).hasSize(1);
+            assertThat(handleGetMessagePage.getHeadId()).isEqualTo(MESSAGE_ID);
+        }
 
-            when(mockChannel.basicGet(eq(QUEUE_NAME), autoAckCapture.capture())).thenReturn(null);
+        @Test
+        void shouldOnlyConvertPage() throws Exception {
+            //Arrange
+            final MessageConverterService messageConverterService = mockMessageConverterService("fingerprint", MESSAGE_ID);
+            final HandleGetMessagePage handleGetMessagePage = new HandleGetMessagePage(
+                new DefaultMessagePropertiesConverter(), messageConverterService, 3, 10);
 
             //Act
-            handleGetMessages.doInRabbit(mockChannel);
+            for (long deliveryTag = 1; deliveryTag <= 4; deliveryTag++) {
+                handleGetMessagePage.visit(mock(Channel.class), createGetResponse(deliveryTag));
+            }
 
             //Assert
-            assertThat(autoAckCapture.getValue()).isFalse();
+            verify(messageConverterService, times(1)).mapMessage(any(), anyInt());
+            verify(messageConverterService, times(1)).mapMessageId(any(), any(), any());
+            assertThat(handleGetMessagePage.getDlqMessages()).hasSize(1);
         }
 
         @Test
-        void shouldReturnNullIfBasicGetReturnsNull() throws Exception {
+        void shouldStopAtMaxScanBytes() throws Exception {
             //Arrange
-            initializeQueueProperties(false);
-
-            final MessagePropertiesConverter messagePropertiesConverter = new DefaultMessagePropertiesConverter();
-            final MessageConverterService messageConverterService = mock(MessageConverterService.class);
-
-            final HandleGetMessages handleGetMessages = new HandleGetMessages(messagePropertiesConverter, messageConverterService, QUEUE_PROPERTIES, 10);
+            final HandleGetMessagePage handleGetMessagePage = new HandleGetMessagePage(
+                new DefaultMessagePropertiesConverter(), mockMessageConverterService("fingerprint", MESSAGE_ID), 1, 10, SMALL_SCAN_QUEUE_PROPERTIES);
 
-            final Channel mockChannel = mock(Channel.class);
+            //Act
+            final boolean skipped = handleGetMessagePage.visit(mock(Channel.class), createGetResponse(1L, "12345678901"));
+            final boolean first = handleGetMessagePage.visit(mock(Channel.class), createGetResponse(2L, "123456"));
+            final boolean second = handleGetMessagePage.visit(mock(Channel.class), createGetResponse(3L, "123456"));
 
-            when(mockChannel.basicGet(QUEUE_NAME, false)).thenReturn(null);
+            //Assert
+            //messages before the page are never converted, so they do not count against the budget
+            assertThat(skipped).isTrue();
+            assertThat(first).isTrue();
+            assertThat(second).isFalse();
+            assertThat(handleGetMessagePage.getDlqMessages()).hasSize(1);
+            assertThat(handleGetMessagePage.isTruncated()).isTrue();
+        }
 
-            //Act
-            final Void result = handleGetMessages.doInRabbit(mockChannel);
+        @Test
+        void shouldHaveNoHeadIdWhenNothingVisited() {
+            //Arrange
+            final HandleGetMessagePage handleGetMessagePage = new HandleGetMessagePage(
+                new DefaultMessagePropertiesConverter(), mock(MessageConverterService.class), 0, 10);
 
             //Assert
-            assertThat(result).isEqualTo(null);
+            assertThat(handleGetMessagePage.getHeadId()).isNull();
+            assertThat(handleGetMessagePage.getDlqMessages()).isEmpty();
         }
+    }
+
+    @Nested
+    class testHandleGetMessages {
 
         @Test
         void shouldAddMessageToDlqMessages() throws Exception {
             //Arrange
-            initializeQueueProperties(false);
-
-            final long deliveryTag = 123L;
-            final boolean redeliver = false;
             final String fingerprint = "uniqueFingerprint";
             final String body = "bodymessage";
 
-            final MessagePropertiesConverter messagePropertiesConverter = new DefaultMessagePropertiesConverter();
             final MessageConverterService messageConverterService = mock(MessageConverterService.class);
 
             final VirgilMessage virgilMessage = ImmutableVirgilMessage.builder()
                 .setBody(body)
-                .setFingerprint(fingerprint)
+                .setFingerprintSource(() -> fingerprint)
                 .setId(String.format("f_%s", fingerprint))
                 .build();
 
-            when(messageConverterService.mapMessage(any())).thenReturn(virgilMessage);
-
-            final HandleGetMessages handleGetMessages = new HandleGetMessages(messagePropertiesConverter, messageConverterService, QUEUE_PROPERTIES, 10);
-
-            final GetResponse mockGetResponse = mock(GetResponse.class);
-            when(mockGetResponse.getProps()).thenReturn(new BasicProperties());
-            when(mockGetResponse.getBody()).thenReturn("".getBytes());
-            when(mockGetResponse.getEnvelope()).thenReturn(new Envelope(deliveryTag, redeliver, EXCHANGE_NAME, BINDING_KEY));
-
+            when(messageConverterService.mapMessage(any(), anyInt())).thenReturn(virgilMessage);
 
-            final Channel mockChannel = mock(Channel.class);
-            when(mockChannel.basicGet(QUEUE_NAME, false)).thenReturn(mockGetResponse);
+            final HandleGetMessages handleGetMessages = new HandleGetMessages(new DefaultMessagePropertiesConverter(), messageConverterService, 10);
 
             //Act
-            handleGetMessages.doInRabbit(mockChannel);
+            final boolean result = handleGetMessages.visit(mock(Channel.class), createGetResponse(123L));
 
             //Assert
+            assertThat(result).isTrue();
             assertThat(handleGetMessages.getDlqMessages()).isEqualTo(Arrays.asList(
                 ImmutableVirgilMessage.builder()
                     .setBody(body)
-                    .setFingerprint(fingerprint)
+                    .setFingerprintSource(() -> fingerprint)
                     .setId(String.format("f_%s", fingerprint))
                     .build()
             ));
         }
 
         @Test
-        void shouldAddMessageToMessageLookup() throws Exception {
+        void shouldResolveFingerprintWhileConverting() throws Exception {
             //Arrange
-            initializeQueueProperties(false);
-
-            final long deliveryTag = 123L;
-            final boolean redeliver = false;
-            final String fingerprint = "uniqueFingerprint";
-            final String body = "bodymessage";
-            final String messageId = String.format("f_%s", fingerprint);
-
-            final MessageProperties mockMessageProperties = mock(MessageProperties.class);
-            final MessagePropertiesConverter messagePropertiesConverter = mock(MessagePropertiesConverter.class);
-
-            when(messagePropertiesConverter.toMessageProperties(any(), any(), any())).thenReturn(mockMessageProperties);
-
+            final AtomicInteger fingerprintCalls = new AtomicInteger();
             final MessageConverterService messageConverterService = mock(MessageConverterService.class);
+            when(messageConverterService.mapMessage(any(), anyInt())).thenAnswer(invocation -> ImmutableVirgilMessage.builder()
+                .setBody("bodymessage")
+                .setFingerprintSource(() -> {
+                    fingerprintCalls.incrementAndGet();
+                    return "uniqueFingerprint";
+                })
+                .setId(MESSAGE_ID)
+                .build());
 
-            final Message expectedMessage = new Message(body.getBytes(), mockMessageProperties);
-
-            final VirgilMessage virgilMessage = ImmutableVirgilMessage.builder()
-                .setBody(body)
-                .setFingerprint(fingerprint)
-                .setId(messageId)
-                .build();
-
-            when(messageConverterService.mapMessage(any())).thenReturn(virgilMessage);
-
-            final HandleGetMessages handleGetMessages = new HandleGetMessages(messagePropertiesConverter, messageConverterService, QUEUE_PROPERTIES, 10);
-
-            final GetResponse mockGetResponse = mock(GetResponse.class);
-            when(mockGetResponse.getBody()).thenReturn(body.getBytes());
-            when(mockGetResponse.getProps()).thenReturn(new BasicProperties());
-            when(mockGetResponse.getEnvelope()).thenReturn(new Envelope(deliveryTag, redeliver, EXCHANGE_NAME, BINDING_KEY));
-
-
-            final Channel mockChannel = mock(Channel.class);
-            when(mockChannel.basicGet(QUEUE_NAME, false)).thenReturn(mockGetResponse);
+            final HandleGetMessages handleGetMessages = new HandleGetMessages(new DefaultMessagePropertiesConverter(), messageConverterService, 10);
 
             //Act
-            handleGetMessages.doInRabbit(mockChannel);
+            handleGetMessages.visit(mock(Channel.class), createGetResponse(123L));
+            final String fingerprint = handleGetMessages.getDlqMessages().get(0).getFingerprint();
 
             //Assert
-            assertThat(handleGetMessages.getMessageLookup()).contains(entry(messageId, expectedMessage));
+            //the returned message must not hold on to the supplier, which references the raw message and its full body
+            assertThat(fingerprint).isEqualTo("uniqueFingerprint");
+            assertThat(fingerprintCalls).hasValue(1);
         }
-    }
-
-    @Nested
-    class testHandleRepublishMessage {
 
         @Test
-        void shouldPassFalseToAutoAckInBasicGet() throws Exception {
+        void shouldStopAtMaxScanBytes() throws Exception {
             //Arrange
-            initializeQueueProperties(false);
-
-            final MessagePropertiesConverter messagePropertiesConverter = new DefaultMessagePropertiesConverter();
-            final MessageConverterService messageConverterService = mock(MessageConverterService.class);
-
-            final HandleRepublishMessage handleRepublishMessage = new HandleRepublishMessage(rabbitMqConnectionService, messagePropertiesConverter, messageConverterService, QUEUE_PROPERTIES, QUEUE_ID, "");
-
-            final Channel mockChannel = mock(Channel.class);
-
-            final ArgumentCaptor<Boolean> autoAckCapture = ArgumentCaptor.forClass(Boolean.class);
-
-            when(mockChannel.basicGet(eq(QUEUE_NAME), autoAckCapture.capture())).thenReturn(null);
+            final HandleGetMessages handleGetMessages = new HandleGetMessages(
+                new DefaultMessagePropertiesConverter(), mockMessageConverterService("fingerprint", MESSAGE_ID), 10, SMALL_SCAN_QUEUE_PROPERTIES);
 
             //Act
-            handleRepublishMessage.doInRabbit(mockChannel);
+            final boolean first = handleGetMessages.visit(mock(Channel.class), createGetResponse(1L, "123456"));
+            final boolean second = handleGetMessages.visit(mock(Channel.class), createGetResponse(2L, "123456"));
 
             //Assert
-            assertThat(autoAckCapture.getValue()).isFalse();
+            assertThat(first).isTrue();
+            assertThat(second).isFalse();
+            assertThat(handleGetMessages.getDlqMessages()).hasSize(1);
+            assertThat(handleGetMessages.isTruncated()).isTrue();
+            assertThat(handleGetMessages.getBytesConverted()).isEqualTo(6);
         }
 
         @Test
-        void shouldReturnNullWhenGetResponseIsNull() throws Exception {
+        void shouldAlwaysConvertFirstMessage() throws Exception {
             //Arrange
-            initializeQueueProperties(false);
-
-            final MessagePropertiesConverter messagePropertiesConverter = new DefaultMessagePropertiesConverter();
-            final MessageConverterService messageConverterService = mock(MessageConverterService.class);
-
-            final HandleRepublishMessage handleRepublishMessage = new HandleRepublishMessage(rabbitMqConnectionService, messagePropertiesConverter, messageConverterService, QUEUE_PROPERTIES, QUEUE_ID, "");
-
-            final Channel mockChannel = mock(Channel.class);
-
-            final ArgumentCaptor<Boolean> autoAckCapture = ArgumentCaptor.forClass(Boolean.class);
-
-            when(mockChannel.basicGet(eq(QUEUE_NAME), autoAckCapture.capture())).thenReturn(null);
+            final HandleGetMessages handleGetMessages = new HandleGetMessages(
+                new DefaultMessagePropertiesConverter(), mockMessageConverterService("fingerprint", MESSAGE_ID), 10, SMALL_SCAN_QUEUE_PROPERTIES);
 
             //Act
-            final Void result = handleRepublishMessage.doInRabbit(mockChannel);
+            final boolean result = handleGetMessages.visit(mock(Channel.class), createGetResponse(1L, "12345678901"));
 
             //Assert
-            assertThat(result).isNull();
+            assertThat(result).isTrue();
+            assertThat(handleGetMessages.getDlqMessages()).hasSize(1);
+            assertThat(handleGetMessages.isTruncated()).isFalse();
         }
 
         @Test
-        void shouldCallBasicAckWhenMessageIdMatches() throws Exception {
+        void shouldConvertWithPreviewLengthOfQueue() throws Exception {
             //Arrange
-            initializeQueueProperties(false);
-
-            final long deliveryTag = 123L;
-            final boolean redeliver = false;
-            final String fingerprint = "12313920123912";
-            final String messageId = String.format("f_%s", fingerprint);
-
-            final MessagePropertiesConverter messagePropertiesConverter = new DefaultMessagePropertiesConverter();
-            final MessageConverterService messageConverterService = mock(MessageConverterService.class);
-
-            final VirgilMessage virgilMessage = ImmutableVirgilMessage.builder()
-                .setBody("bodymessage")
-                .setFingerprint(fingerprint)
-                .setId(messageId)
-                .build();
-
-            when(messageConverterService.mapMessage(any())).thenReturn(virgilMessage);
-
-            final HandleRepublishMessage handleRepublishMessage = new HandleRepublishMessage(rabbitMqConnectionService, messagePropertiesConverter, messageConverterService, QUEUE_PROPERTIES, QUEUE_ID, messageId);
-
-            final GetResponse mockGetResponse = mock(GetResponse.class);
-            when(mockGetResponse.getProps()).thenReturn(new BasicProperties());
-            when(mockGetResponse.getBody()).thenReturn("".getBytes());
-            when(mockGetResponse.getEnvelope()).thenReturn(new Envelope(deliveryTag, redeliver, EXCHANGE_NAME, BINDING_KEY));
-
-
-            final Channel mockChannel = mock(Channel.class);
-            when(mockChannel.basicGet(QUEUE_NAME, false)).thenReturn(mockGetResponse);
-
-            doNothing().when(rabbitTemplate).convertAndSend(anyString(), anyString(), (Object) any());
+            final MessageConverterService messageConverterService = mockMessageConverterService("fingerprint", MESSAGE_ID);
+            final HandleGetMessages handleGetMessages = new HandleGetMessages(
+                new DefaultMessagePropertiesConverter(), messageConverterService, 10, SMALL_SCAN_QUEUE_PROPERTIES);
 
             //Act
-            final Void result = handleRepublishMessage.doInRabbit(mockChannel);
+            handleGetMessages.visit(mock(Channel.class), createGetResponse(1L));
 
             //Assert
-            assertThat(result).isNull();
-            verify(mockChannel, times(1)).basicAck(deliveryTag, false);
+            verify(messageConverterService, times(1)).mapMessage(any(), eq(4));
         }
+    }
+
+    @Nested
+    class testHandleRepublishMessages {
 
         @Test
-        void shouldCallConvertAndSendWhenMessageIdMatches() throws Exception {
+        void shouldAckOnlyAfterBrokerConfirm() throws Exception {
             //Arrange
-            initializeQueueProperties(false);
-
-            final long deliveryTag = 123L;
-            final boolean redeliver = false;
-            final String fingerprint = "12313920123912";
-            final String messageId = String.format("f_%s", fingerprint);
-
-            final MessagePropertiesConverter messagePropertiesConverter = new DefaultMessagePropertiesConverter();
-            final MessageConverterService messageConverterService = mock(MessageConverterService.class);
+            final Channel channel = mock(Channel.class);
+            final Channel publishChannel = mockConfirmingChannel(true);
+            when(rabbitMqConnectionService.openPublishChannel(QUEUE_ID)).thenReturn(publishChannel);
 
-            final VirgilMessage virgilMessage = ImmutableVirgilMessage.builder()
-                .setBody("bodymessage")
-                .setFingerprint(fingerprint)
-                .setId(messageId)
-                .build();
-
-            when(messageConverterService.mapMessage(any())).thenReturn(virgilMessage);
-
-            final HandleRepublishMessage handleRepublishMessage = new HandleRepublishMessage(rabbitMqConnectionService, messagePropertiesConverter, messageConverterService, QUEUE_PROPERTIES, QUEUE_ID, messageId);
-
-            final GetResponse mockGetResponse = mock(GetResponse.class);
-            when(mockGetResponse.getProps()).thenReturn(new BasicProperties());
-            when(mockGetResponse.getEnvelope()).thenReturn(new Envelope(deliveryTag, redeliver, EXCHANGE_NAME, BINDING_KEY));
-
-
-            final Channel mockChannel = mock(Channel.class);
-            when(mockChannel.basicGet(QUEUE_NAME, false)).thenReturn(mockGetResponse);
-            when(mockGetResponse.getBody()).thenReturn("".getBytes());
-            doNothing().when(rabbitTemplate).convertAndSend(anyString(), anyString(), (Object) any());
+            final HandleRepublishMessages handleRepublishMessages = new HandleRepublishMessages(rabbitMqConnectionService, mockMessageConverterService("fingerprint", MESSAGE_ID), QUEUE_PROPERTIES, QUEUE_ID, Set.of(MESSAGE_ID));
 
             //Act
-            final Void result = handleRepublishMessage.doInRabbit(mockChannel);
+            final boolean result = handleRepublishMessages.visit(channel, createGetResponse(123L));
+            handleRepublishMessages.complete(channel);
 
             //Assert
-            assertThat(result).isNull();
-            verify(rabbitTemplate, times(1)).convertAndSend(anyString(), anyString(), (Object) any());
+            assertThat(result).isFalse();
+            assertThat(handleRepublishMessages.getRepublishedIds()).containsExactly(MESSAGE_ID);
+            final InOrder inOrder = inOrder(publishChannel, channel);
+            inOrder.verify(publishChannel).confirmSelect();
+            inOrder.verify(publishChannel).basicPublish(eq(BINDER_NAME), eq(BINDING_KEY), eq(true), any(BasicProperties.class), any(byte[].class));
+            inOrder.verify(channel).basicAck(123L, true);
         }
 
         @Test
-        void shouldSetMessageRepublishToTrueWhenMessageIdMatches() throws Exception {
+        void shouldLeaveMessageOnDlqWhenNacked() throws Exception {
             //Arrange
-            initializeQueueProperties(false);
-
-            final long deliveryTag = 123L;
-            final boolean redeliver = false;
-            final String fingerprint = "12313920123912";
-            final String messageId = String.format("f_%s", fingerprint);
+            final Channel channel = mock(Channel.class);
+            when(rabbitMqConnectionService.openPublishChannel(QUEUE_ID)).thenReturn(mockConfirmingChannel(false));
 
-            final MessagePropertiesConverter messagePropertiesConverter = new DefaultMessagePropertiesConverter();
-            final MessageConverterService messageConverterService = mock(MessageConverterService.class);
-
-            final VirgilMessage virgilMessage = ImmutableVirgilMessage.builder()
-                .setBody("bodymessage")
-                .setFingerprint(fingerprint)
-                .setId(messageId)
-                .build();
-
-            when(messageConverterService.mapMessage(any())).thenReturn(virgilMessage);
-
-            final HandleRepublishMessage handleRepublishMessage = new HandleRepublishMessage(rabbitMqConnectionService, messagePropertiesConverter, messageConverterService, QUEUE_PROPERTIES, QUEUE_ID, messageId);
-
-            final GetResponse mockGetResponse = mock(GetResponse.class);
-            when(mockGetResponse.getProps()).thenReturn(new BasicProperties());
-            when(mockGetResponse.getBody()).thenReturn("".getBytes());
-            when(mockGetResponse.getEnvelope()).thenReturn(new Envelope(deliveryTag, redeliver, EXCHANGE_NAME, BINDING_KEY));
-
-
-            final Channel mockChannel = mock(Channel.class);
-            when(mockChannel.basicGet(QUEUE_NAME, false)).thenReturn(mockGetResponse);
-
-            doNothing().when(rabbitTemplate).convertAndSend(anyString(), anyString(), (Object) any());
+            final HandleRepublishMessages handleRepublishMessages = new HandleRepublishMessages(rabbitMqConnectionService, mockMessageConverterService("fingerprint", MESSAGE_ID), QUEUE_PROPERTIES, QUEUE_ID, Set.of(MESSAGE_ID));
 
             //Act
-            handleRepublishMessage.doInRabbit(mockChannel);
+            handleRepublishMessages.visit(channel, createGetResponse(123L));
+            handleRepublishMessages.complete(channel);
 
             //Assert
-            assertThat(handleRepublishMessage.isRepublishSuccessful()).isTrue();
+            assertThat(handleRepublishMessages.getRepublishedIds()).isEmpty();
+            assertThat(handleRepublishMessages.getMessagesMatched()).isEqualTo(1);
+            verify(channel, never()).basicAck(anyLong(), anyBoolean());
         }
 
         @Test
-        void shouldSetMessageRepublishToFalseWhenMessageIdDoesNotMatch() throws Exception {
+        void shouldClosePublishChannelOnComplete() throws Exception {
             //Arrange
-            initializeQueueProperties(false);
-
-            final long deliveryTag = 123L;
-            final boolean redeliver = false;
-            final String fingerprint = "12313920123912";
-            final String messageId = String.format("f_%s", fingerprint);
+            final Channel publishChannel = mockConfirmingChannel(true);
+            when(rabbitMqConnectionService.openPublishChannel(QUEUE_ID)).thenReturn(publishChannel);
 
-            final MessagePropertiesConverter messagePropertiesConverter = new DefaultMessagePropertiesConverter();
-            final MessageConverterService messageConverterService = mock(MessageConverterService.class);
+            final HandleRepublishMessages handleRepublishMessages = new HandleRepublishMessages(rabbitMqConnectionService, mockMessageConverterService("fingerprint", MESSAGE_ID), QUEUE_PROPERTIES, QUEUE_ID, Set.of("i_other"));
 
-            final VirgilMessage virgilMessage = ImmutableVirgilMessage.builder()
-                .setBody("bodymessage")
-                .setFingerprint(fingerprint)
-                .setId(messageId)
-                .build();
+            //Act
+            handleRepublishMessages.visit(mock(Channel.class), createGetResponse(1L));
+            handleRepublishMessages.complete(mock(Channel.class));
 
-            when(messageConverterService.mapMessage(any())).thenReturn(virgilMessage);
+            //Assert
+            verify(publishChannel, times(1)).close();
+            verify(publishChannel, never()).basicPublish(anyString(), anyString(), anyBoolean(), any(BasicProperties.class), any(byte[].class));
+        }
+    }
 
-            final HandleRepublishMessage handleRepublishMessage = new HandleRepublishMessage(rabbitMqConnectionService, messagePropertiesConverter, messageConverterService, QUEUE_PROPERTIES, QUEUE_ID, messageId + "2");
+    private static GetResponse createGetResponse(final long deliveryTag) {
+        return createGetResponse(deliveryTag, "");
+    }
 
-            final GetResponse mockGetResponse = mock(GetResponse.class);
-            when(mockGetResponse.getProps()).thenReturn(new BasicProperties());
-            when(mockGetResponse.getBody()).thenReturn("".getBytes());
-            when(mockGetResponse.getEnvelope()).thenReturn(new Envelope(deliveryTag, redeliver, EXCHANGE_NAME, BINDING_KEY));
+    private static GetResponse createGetResponse(final long deliveryTag, final String body) {
+        return new GetResponse(new Envelope(deliveryTag, false, EXCHANGE_NAME, BINDING_KEY), new BasicProperties(), body.getBytes(), 0);
+    }
 
+    /**
+     * Publish channel that confirms, or nacks, every publish as soon as it is made
+     */
+    private static Channel mockConfirmingChannel(final boolean ack) throws IOException {
+        final Channel channel = mock(Channel.class);
+        final ConfirmListener[] confirmListener = new ConfirmListener[1];
+        final long[] nextSeqNo = {1L};
+
+        doAnswer(invocation -> {
+            confirmListener[0] = invocation.getArgument(0);
+            return null;
+        }).when(channel).addConfirmListener(any(ConfirmListener.class));
+        when(channel.getNextPublishSeqNo()).thenAnswer(invocation -> nextSeqNo[0]);
+        doAnswer(invocation -> {
+            final long seqNo = nextSeqNo[0]++;
+            if (ack) {
+                confirmListener[0].handleAck(seqNo, false);
+            } else {
+                confirmListener[0].handleNack(seqNo, false);
+            }
+            return null;
+        }).when(channel).basicPublish(anyString(), anyString(), anyBoolean(), any(BasicProperties.class), any(byte[].class));
+
+        return channel;
+    }
 
-            final Channel mockChannel = mock(Channel.class);
-            when(mockChannel.basicGet(QUEUE_NAME, false)).thenReturn(mockGetResponse);
+    private static MessageConverterService mockMessageConverterService(final String fingerprint, final String messageId) {
+        final MessageConverterService messageConverterService = mock(MessageConverterService.class);
 
-            doNothing().when(rabbitTemplate).convertAndSend(anyString(), anyString(), (Object) any());
+        final VirgilMessage virgilMessage = ImmutableVirgilMessage.builder()
+            .setBody("bodymessage")
+            .setFingerprintSource(() -> fingerprint)
+            .setId(messageId)
+            .build();
 
-            //Act
-            handleRepublishMessage.doInRabbit(mockChannel);
+        when(messageConverterService.mapMessage(any(), anyInt())).thenReturn(virgilMessage);
+        when(messageConverterService.mapMessageId(any(), any(), any())).thenReturn(messageId);
 
-            //Assert
-            assertThat(handleRepublishMessage.isRepublishSuccessful()).isFalse();
-        }
+        return messageConverterService;
     }
 
     private void initializeQueueProperties(final boolean testQueueNotExist) {
@@ -0,0 +1,216 @@
+package com.indeed.virgil.spring.boot.starter.services;
+
+import com.indeed.virgil.spring.boot.starter.config.VirgilPropertyConfig.BinderProperties;
+import com.indeed.virgil.spring.boot.starter.config.VirgilPropertyConfig.QueueProperties;
+import com.indeed.virgil.spring.boot.starter.models.ImmutableVirgilMessage;
+import com.indeed.virgil.spring.boot.starter.models.VirgilMessage;
+import com.rabbitmq.client.AMQP.BasicProperties;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Envelope;
+import com.rabbitmq.client.GetResponse;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.amqp.rabbit.support.DefaultMessagePropertiesConverter;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TestMessageStream {
+
+    private static final String QUEUE_ID = "primaryQueue";
+    private static final String QUEUE_NAME = "default-queue-name";
+    private static final String BINDER_NAME = "default-binder-name";
+
+    private final QueueProperties queueProperties = new QueueProperties(
+        QUEUE_NAME,
+        BINDER_NAME,
+        new BinderProperties(BINDER_NAME, null, null),
+        null,
+        "#",
+        null,
+        null
+    );
+
+    @Mock
+    private RabbitMqConnectionService rabbitMqConnectionService;
+
+    @Mock
+    private MessageConverterService messageConverterService;
+
+    @Mock
+    private Channel channel;
+
+    @Mock
+    private ScanCoordinator.Lease lease;
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.openMocks(this);
+
+        when(rabbitMqConnectionService.openReadChannel(QUEUE_ID)).thenReturn(channel);
+        when(messageConverterService.mapMessage(any(), anyInt())).thenReturn(ImmutableVirgilMessage.builder()
+            .setId("i_1")
+            .setBody("body")
+            .setFingerprintSource(() -> "fingerprint")
+            .build());
+    }
+
+    @Test
+    void shouldNotOpenChannelUntilFirstRead() throws Exception {
+        //Act
+        createMessageStream(10).close();
+
+        //Assert
+        verify(rabbitMqConnectionService, never()).openReadChannel(any());
+        verify(lease, times(1)).close();
+    }
+
+    @Test
+    void shouldReadUntilQueueIsDrainedAndCloseChannel() throws Exception {
+        //Arrange
+        when(channel.basicGet(QUEUE_NAME, false))
+            .thenReturn(createGetResponse(1L))
+            .thenReturn(null);
+        final MessageStream messageStream = createMessageStream(10);
+
+        //Act
+        final VirgilMessage first = messageStream.next();
+        final VirgilMessage second = messageStream.next();
+
+        //Assert
+        assertThat(first).isNotNull();
+        assertThat(second).isNull();
+        assertThat(messageStream.getMessagesScanned()).isEqualTo(1);
+        verify(channel, times(1)).close();
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+        verify(lease, times(1)).close();
+    }
+
+    @Test
+    void shouldStopReadingOnceClosed() throws Exception {
+        //Arrange
+        when(channel.basicGet(QUEUE_NAME, false)).thenReturn(createGetResponse(1L));
+        final MessageStream messageStream = createMessageStream(10);
+
+        //Act
+        messageStream.next();
+        messageStream.close();
+        final VirgilMessage result = messageStream.next();
+
+        //Assert
+        assertThat(result).isNull();
+        verify(channel, times(1)).basicGet(QUEUE_NAME, false);
+        verify(channel, times(1)).close();
+        verify(lease, times(1)).close();
+    }
+
+    @Test
+    void shouldNotReadMoreThanMaxMessages() throws Exception {
+        //Arrange
+        when(channel.basicGet(QUEUE_NAME, false)).thenReturn(createGetResponse(1L));
+        final MessageStream messageStream = createMessageStream(2);
+
+        //Act
+        int count = 0;
+        while (messageStream.next() != null) {
+            count++;
+        }
+
+        //Assert
+        assertThat(count).isEqualTo(2);
+        verify(channel, times(2)).basicGet(QUEUE_NAME, false);
+    }
+
+    @Test
+    void shouldKeepStreamOpenUntilIdleTimeout() throws Exception {
+        //Arrange
+        when(channel.basicGet(QUEUE_NAME, false)).thenReturn(createGetResponse(1L));
+        final MessageStream messageStream = createMessageStream(10);
+        messageStream.next();
+
+        //Act
+        final long remainingNanos = messageStream.closeIfIdle(TimeUnit.MINUTES.toNanos(1));
+
+        //Assert
+        assertThat(remainingNanos).isPositive();
+        assertThat(messageStream.next()).isNotNull();
+        verify(channel, never()).close();
+        verify(lease, never()).close();
+    }
+
+    @Test
+    void shouldCloseStreamOnceIdle() throws Exception {
+        //Arrange
+        when(channel.basicGet(QUEUE_NAME, false)).thenReturn(createGetResponse(1L));
+        final MessageStream messageStream = createMessageStream(10);
+        messageStream.next();
+
+        //Act
+        final long remainingNanos = messageStream.closeIfIdle(0L);
+
+        //Assert
+        assertThat(remainingNanos).isZero();
+        assertThat(messageStream.next()).isNull();
+        verify(channel, times(1)).close();
+        verify(lease, times(1)).close();
+    }
+
+    @Test
+    void shouldRecordStreamAsSingleOperationOnceClosed() throws Exception {
+        //Arrange
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final OperationMetrics operationMetrics = new OperationMetrics(meterRegistry);
+        final OperationMetrics.Operation operation = operationMetrics.record("stream", QUEUE_ID, BINDER_NAME, () -> {
+            final OperationMetrics.Operation current = OperationMetrics.current();
+            current.detach();
+            return current;
+        });
+        when(channel.basicGet(QUEUE_NAME, false)).thenReturn(createGetResponse(1L));
+        final MessageStream messageStream = new MessageStream(rabbitMqConnectionService, new DefaultMessagePropertiesConverter(),
+            messageConverterService, queueProperties, QUEUE_ID, 10, lease, operation);
+
+        //Act
+        messageStream.next();
+        messageStream.next();
+        final Timer beforeClose = meterRegistry.find(OperationMetrics.OPERATION_METRIC).timer();
+        messageStream.close();
+
+        //Assert
+        assertThat(beforeClose).isNull();
+        assertThat(meterRegistry.get(OperationMetrics.OPERATION_METRIC)
+            .tags("operation", "stream", "outcome", OperationMetrics.OUTCOME_SUCCESS)
+            .timer()
+            .count()).isEqualTo(1L);
+        assertThat(meterRegistry.get(OperationMetrics.MESSAGES_SCANNED_METRIC).summary().totalAmount()).isEqualTo(2.0);
+    }
+
+    private MessageStream createMessageStream(final int maxMessages) {
+        return new MessageStream(
+            rabbitMqConnectionService,
+            new DefaultMessagePropertiesConverter(),
+            messageConverterService,
+            queueProperties,
+            QUEUE_ID,
+            maxMessages,
+            lease,
+            OperationMetrics.current()
+        );
+    }
+
+    private static GetResponse createGetResponse(final long deliveryTag) {
+        return new GetResponse(new Envelope(deliveryTag, false, "exchange", "#"), new BasicProperties(), "".getBytes(), 0);
+    }
+}
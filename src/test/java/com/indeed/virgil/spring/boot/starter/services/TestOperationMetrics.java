@@ -0,0 +1,297 @@
+package com.indeed.virgil.spring.boot.starter.services;
+
+import com.indeed.virgil.spring.boot.starter.models.OperationStats;
+import io.micrometer.common.KeyValues;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.tck.TestObservationRegistry;
+import io.micrometer.observation.tck.TestObservationRegistryAssert;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TestOperationMetrics {
+
+    private static final String QUEUE_ID = "primaryQueue";
+    private static final String BINDER_NAME = "rabbit";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TestObservationRegistry observationRegistry = TestObservationRegistry.create();
+    private final OperationMetrics operationMetrics = new OperationMetrics(meterRegistry, observationRegistry);
+
+    @Nested
+    class record {
+
+        @Test
+        void shouldTimeSuccessfulOperation() {
+            //Act
+            final String result = operationMetrics.record("get", QUEUE_ID, BINDER_NAME, () -> "result");
+
+            //Assert
+            assertThat(result).isEqualTo("result");
+            assertThat(operationTimer("get", OperationMetrics.OUTCOME_SUCCESS).count()).isEqualTo(1L);
+        }
+
+        @Test
+        void shouldTagBusyOperation() {
+            //Act //Assert
+            assertThatThrownBy(() -> operationMetrics.record("ack", QUEUE_ID, BINDER_NAME, () -> {
+                throw new QueueBusyException(QUEUE_ID);
+            })).isInstanceOf(QueueBusyException.class);
+            assertThat(operationTimer("ack", OperationMetrics.OUTCOME_BUSY).count()).isEqualTo(1L);
+        }
+
+        @Test
+        void shouldTagFailedOperation() {
+            //Act //Assert
+            assertThatThrownBy(() -> operationMetrics.record("purge", QUEUE_ID, BINDER_NAME, () -> {
+                throw new IllegalStateException("broker is gone");
+            })).isInstanceOf(IllegalStateException.class);
+            assertThat(operationTimer("purge", OperationMetrics.OUTCOME_ERROR).count()).isEqualTo(1L);
+        }
+
+        @Test
+        void shouldFoldNestedOperationIntoOuterOne() {
+            //Act
+            operationMetrics.record("ack", QUEUE_ID, BINDER_NAME, () -> operationMetrics.record("size", QUEUE_ID, BINDER_NAME, () -> 1));
+
+            //Assert
+            assertThat(operationTimer("ack", OperationMetrics.OUTCOME_SUCCESS).count()).isEqualTo(1L);
+            assertThat(meterRegistry.find(OperationMetrics.OPERATION_METRIC).tag("operation", "size").timer()).isNull();
+        }
+
+        @Test
+        void shouldRecordPhasesAndScanStatistics() {
+            //Act
+            operationMetrics.record("get", QUEUE_ID, BINDER_NAME, () -> {
+                final OperationMetrics.Operation operation = OperationMetrics.current();
+                operation.addPhase(OperationMetrics.Phase.LEASE, TimeUnit.MILLISECONDS.toNanos(5));
+                operation.channelRequested();
+                operation.channelOpened();
+                operation.addPhase(OperationMetrics.Phase.CONVERT, TimeUnit.MILLISECONDS.toNanos(2));
+                operation.scanFinished(3, 300L);
+                operation.channelClosed();
+                return null;
+            });
+
+            //Assert
+            assertThat(phaseTimer(OperationMetrics.Phase.LEASE).totalTime(TimeUnit.MILLISECONDS)).isEqualTo(5.0);
+            assertThat(phaseTimer(OperationMetrics.Phase.CONVERT).totalTime(TimeUnit.MILLISECONDS)).isEqualTo(2.0);
+            assertThat(phaseTimer(OperationMetrics.Phase.CONNECT).count()).isEqualTo(1L);
+            assertThat(phaseTimer(OperationMetrics.Phase.SCAN).count()).isEqualTo(1L);
+            assertThat(phaseTimer(OperationMetrics.Phase.TEARDOWN).count()).isEqualTo(1L);
+            assertThat(phaseTimer(OperationMetrics.Phase.PUBLISH)).isNull();
+            assertThat(summary(OperationMetrics.MESSAGES_SCANNED_METRIC).totalAmount()).isEqualTo(3.0);
+            assertThat(summary(OperationMetrics.BYTES_READ_METRIC).totalAmount()).isEqualTo(300.0);
+        }
+
+        @Test
+        void shouldNotRecordScanStatisticsWithoutScan() {
+            //Act
+            operationMetrics.record("size", QUEUE_ID, BINDER_NAME, () -> 1);
+
+            //Assert
+            assertThat(meterRegistry.find(OperationMetrics.MESSAGES_SCANNED_METRIC).summary()).isNull();
+            assertThat(meterRegistry.find(OperationMetrics.PHASE_METRIC).timer()).isNull();
+        }
+    }
+
+    @Nested
+    class observations {
+
+        @Test
+        void shouldObserveOperation() {
+            //Act
+            operationMetrics.record("get", QUEUE_ID, BINDER_NAME, () -> "result");
+
+            //Assert
+            TestObservationRegistryAssert.assertThat(observationRegistry)
+                .doesNotHaveAnyRemainingCurrentObservation()
+                .hasObservationWithNameEqualTo(OperationMetrics.CALL_OBSERVATION)
+                .that()
+                .hasLowCardinalityKeyValue("operation", "get")
+                .hasLowCardinalityKeyValue("queue", QUEUE_ID)
+                .hasLowCardinalityKeyValue("binder", BINDER_NAME)
+                .hasLowCardinalityKeyValue("outcome", OperationMetrics.OUTCOME_SUCCESS)
+                .hasBeenStarted()
+                .hasBeenStopped();
+        }
+
+        @Test
+        void shouldRecordErrorOfFailedOperation() {
+            //Act //Assert
+            assertThatThrownBy(() -> operationMetrics.record("ack", QUEUE_ID, BINDER_NAME, () -> {
+                throw new QueueBusyException(QUEUE_ID);
+            })).isInstanceOf(QueueBusyException.class);
+            TestObservationRegistryAssert.assertThat(observationRegistry)
+                .hasObservationWithNameEqualTo(OperationMetrics.CALL_OBSERVATION)
+                .that()
+                .hasLowCardinalityKeyValue("outcome", OperationMetrics.OUTCOME_BUSY)
+                .hasError()
+                .hasBeenStopped();
+        }
+
+        @Test
+        void shouldObserveBrokerInteractionsAsChildrenOfOperation() {
+            //Act
+            final Observation child = operationMetrics.record("get", QUEUE_ID, BINDER_NAME, () -> {
+                final Observation observation = OperationMetrics.current()
+                    .startObservation(OperationMetrics.SCAN_BATCH_OBSERVATION, KeyValues.of("read.mode", "basic_get"));
+                observation.stop();
+                return observation;
+            });
+
+            //Assert
+            assertThat(child.getContext().getParentObservation()).isNotNull();
+            TestObservationRegistryAssert.assertThat(observationRegistry)
+                .hasObservationWithNameEqualTo(OperationMetrics.SCAN_BATCH_OBSERVATION)
+                .that()
+                .hasLowCardinalityKeyValue("queue", QUEUE_ID)
+                .hasLowCardinalityKeyValue("binder", BINDER_NAME)
+                .hasLowCardinalityKeyValue("read.mode", "basic_get")
+                .hasBeenStopped();
+        }
+
+        @Test
+        void shouldNotObserveOutsideOfAnOperation() {
+            //Act
+            final Observation observation = OperationMetrics.current()
+                .startObservation(OperationMetrics.CONNECTION_OBSERVATION, KeyValues.empty());
+
+            //Assert
+            assertThat(observation).isSameAs(Observation.NOOP);
+            TestObservationRegistryAssert.assertThat(observationRegistry).doesNotHaveAnyObservation();
+        }
+    }
+
+    @Nested
+    class collectStats {
+
+        @Test
+        void shouldHandOverStatsOfOuterOperation() {
+            //Arrange
+            final AtomicReference<OperationStats> stats = new AtomicReference<>();
+
+            //Act
+            OperationMetrics.collectStats(() -> operationMetrics.record("get", QUEUE_ID, BINDER_NAME, () -> {
+                final OperationMetrics.Operation operation = OperationMetrics.current();
+                operation.addPhase(OperationMetrics.Phase.LEASE, TimeUnit.MILLISECONDS.toNanos(5));
+                operation.scanFinished(3, 300L);
+                operation.matched(2);
+                operation.truncated();
+                return operationMetrics.record("size", QUEUE_ID, BINDER_NAME, () -> 1);
+            }), stats::set);
+
+            //Assert
+            assertThat(stats.get()).isNotNull();
+            assertThat(stats.get().getPhaseMillis()).containsEntry("lease", 5.0);
+            assertThat(stats.get().getElapsedMillis()).isGreaterThanOrEqualTo(0.0);
+            assertThat(stats.get().getMessagesScanned()).isEqualTo(3);
+            assertThat(stats.get().getMessagesMatched()).isEqualTo(2);
+            assertThat(stats.get().getBytesRead()).isEqualTo(300L);
+            assertThat(stats.get().isTruncated()).isTrue();
+            assertThat(stats.get().isConnectionReused()).isTrue();
+        }
+
+        @Test
+        void shouldReportCreatedConnectionOfFailedOperation() {
+            //Arrange
+            final AtomicReference<OperationStats> stats = new AtomicReference<>();
+
+            //Act //Assert
+            assertThatThrownBy(() -> OperationMetrics.collectStats(() -> operationMetrics.record("ack", QUEUE_ID, BINDER_NAME, () -> {
+                OperationMetrics.current().connectionCreated();
+                throw new QueueBusyException(QUEUE_ID);
+            }), stats::set)).isInstanceOf(QueueBusyException.class);
+            assertThat(stats.get().isConnectionReused()).isFalse();
+        }
+
+        @Test
+        void shouldNotCollectStatsOutsideOfTheBody() {
+            //Arrange
+            final AtomicReference<OperationStats> stats = new AtomicReference<>();
+            OperationMetrics.collectStats(() -> 1, stats::set);
+
+            //Act
+            operationMetrics.record("size", QUEUE_ID, BINDER_NAME, () -> 1);
+
+            //Assert
+            assertThat(stats.get()).isNull();
+        }
+    }
+
+    @Nested
+    class detach {
+
+        @Test
+        void shouldRecordDetachedOperationOnceFinished() {
+            //Arrange
+            final OperationMetrics.Operation operation = operationMetrics.record("stream", QUEUE_ID, BINDER_NAME, () -> {
+                final OperationMetrics.Operation current = OperationMetrics.current();
+                current.detach();
+                return current;
+            });
+            assertThat(meterRegistry.find(OperationMetrics.OPERATION_METRIC).timer()).isNull();
+
+            //Act
+            try (OperationMetrics.Operation.Scope scope = operation.enter()) {
+                OperationMetrics.current().scanFinished(2, 20L);
+            }
+            operation.finish(OperationMetrics.OUTCOME_SUCCESS);
+            operation.finish(OperationMetrics.OUTCOME_ERROR);
+
+            //Assert
+            assertThat(operationTimer("stream", OperationMetrics.OUTCOME_SUCCESS).count()).isEqualTo(1L);
+            assertThat(meterRegistry.find(OperationMetrics.OPERATION_METRIC).tag("outcome", OperationMetrics.OUTCOME_ERROR).timer()).isNull();
+            assertThat(summary(OperationMetrics.MESSAGES_SCANNED_METRIC).totalAmount()).isEqualTo(2.0);
+            assertThat(OperationMetrics.current().getName()).isNull();
+        }
+
+        @Test
+        void shouldFinishDetachedOperationThatFailed() {
+            //Act //Assert
+            assertThatThrownBy(() -> operationMetrics.record("stream", QUEUE_ID, BINDER_NAME, () -> {
+                OperationMetrics.current().detach();
+                throw new QueueBusyException(QUEUE_ID);
+            })).isInstanceOf(QueueBusyException.class);
+            assertThat(operationTimer("stream", OperationMetrics.OUTCOME_BUSY).count()).isEqualTo(1L);
+        }
+    }
+
+    @Nested
+    class current {
+
+        @Test
+        void shouldIgnorePhasesOutsideOfAnOperation() {
+            //Act
+            OperationMetrics.current().addPhase(OperationMetrics.Phase.SCAN, 1L);
+            OperationMetrics.current().scanFinished(1, 1L);
+
+            //Assert
+            assertThat(meterRegistry.getMeters()).isEmpty();
+        }
+    }
+
+    private Timer operationTimer(final String operationName, final String outcome) {
+        return meterRegistry.get(OperationMetrics.OPERATION_METRIC)
+            .tags("operation", operationName, "queue", QUEUE_ID, "binder", BINDER_NAME, "outcome", outcome)
+            .timer();
+    }
+
+    private Timer phaseTimer(final OperationMetrics.Phase phase) {
+        return meterRegistry.find(OperationMetrics.PHASE_METRIC)
+            .tag("phase", phase.name().toLowerCase())
+            .timer();
+    }
+
+    private DistributionSummary summary(final String name) {
+        return meterRegistry.get(name).tag("queue", QUEUE_ID).summary();
+    }
+}
@@ -0,0 +1,154 @@
+package com.indeed.virgil.spring.boot.starter.services;
+
+import com.indeed.virgil.spring.boot.starter.config.VirgilPropertyConfig;
+import com.indeed.virgil.spring.boot.starter.config.VirgilPropertyConfig.DepthPollerProperties;
+import com.indeed.virgil.spring.boot.starter.config.VirgilPropertyConfig.QueueProperties;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TestQueueDepthPoller {
+
+    private static final String BINDER_NAME = "rabbit";
+    private static final String PRIMARY_QUEUE_ID = "primary";
+    private static final String SECONDARY_QUEUE_ID = "secondary";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private RabbitMqConnectionService rabbitMqConnectionService;
+    private Channel channel;
+    private QueueDepthPoller queueDepthPoller;
+
+    @BeforeEach
+    void setup() {
+        final Map<String, QueueProperties> queues = new LinkedHashMap<>();
+        queues.put(PRIMARY_QUEUE_ID, new QueueProperties("readQueue", BINDER_NAME, null, null, "#", null, null));
+        queues.put(SECONDARY_QUEUE_ID, new QueueProperties("readQueue2", BINDER_NAME, null, null, "#", null, null));
+        // long enough that the scheduled samples never run during a test
+        final VirgilPropertyConfig virgilPropertyConfig = new VirgilPropertyConfig(
+            queues, Collections.emptyMap(), null, null, new DepthPollerProperties(true, Duration.ofHours(1), null));
+
+        rabbitMqConnectionService = mock(RabbitMqConnectionService.class);
+        channel = mock(Channel.class);
+        when(channel.isOpen()).thenReturn(true);
+        when(rabbitMqConnectionService.openReadChannel(anyString())).thenReturn(channel);
+
+        queueDepthPoller = new QueueDepthPoller(virgilPropertyConfig, rabbitMqConnectionService, meterRegistry);
+        queueDepthPoller.start();
+    }
+
+    @AfterEach
+    void teardown() {
+        queueDepthPoller.stop();
+    }
+
+    @Nested
+    class start {
+
+        @Test
+        void shouldRegisterGaugePerQueueReportingNaNUntilSampled() {
+            //Act
+            final double result = getDepth(PRIMARY_QUEUE_ID);
+
+            //Assert
+            assertThat(result).isNaN();
+            assertThat(meterRegistry.get(QueueDepthPoller.DEPTH_METRIC).tag("binder", BINDER_NAME).gauges()).hasSize(2);
+        }
+    }
+
+    @Nested
+    class sample {
+
+        @Test
+        void shouldReportMessageCountOfQueue() throws Exception {
+            //Arrange
+            stubMessageCount("readQueue", 7);
+
+            //Act
+            queueDepthPoller.sample(PRIMARY_QUEUE_ID);
+
+            //Assert
+            assertThat(getDepth(PRIMARY_QUEUE_ID)).isEqualTo(7d);
+        }
+
+        @Test
+        void shouldShareChannelBetweenQueuesOfSameBinder() throws Exception {
+            //Arrange
+            stubMessageCount("readQueue", 7);
+            stubMessageCount("readQueue2", 3);
+
+            //Act
+            queueDepthPoller.sample(PRIMARY_QUEUE_ID);
+            queueDepthPoller.sample(SECONDARY_QUEUE_ID);
+
+            //Assert
+            verify(rabbitMqConnectionService, times(1)).openReadChannel(anyString());
+            assertThat(getDepth(SECONDARY_QUEUE_ID)).isEqualTo(3d);
+        }
+
+        @Test
+        void shouldReportNaNAndOpenNewChannelAfterFailedDeclare() throws Exception {
+            //Arrange
+            final AMQP.Queue.DeclareOk declareOk = mock(AMQP.Queue.DeclareOk.class);
+            when(declareOk.getMessageCount()).thenReturn(7);
+            when(channel.queueDeclarePassive("readQueue"))
+                .thenThrow(new IOException("channel error"))
+                .thenReturn(declareOk);
+
+            //Act
+            queueDepthPoller.sample(PRIMARY_QUEUE_ID);
+            final double afterFailure = getDepth(PRIMARY_QUEUE_ID);
+            queueDepthPoller.sample(PRIMARY_QUEUE_ID);
+
+            //Assert
+            assertThat(afterFailure).isNaN();
+            assertThat(getDepth(PRIMARY_QUEUE_ID)).isEqualTo(7d);
+            verify(channel).close();
+            verify(rabbitMqConnectionService, times(2)).openReadChannel(PRIMARY_QUEUE_ID);
+        }
+    }
+
+    @Nested
+    class stop {
+
+        @Test
+        void shouldCloseChannels() throws Exception {
+            //Arrange
+            stubMessageCount("readQueue", 7);
+            queueDepthPoller.sample(PRIMARY_QUEUE_ID);
+
+            //Act
+            queueDepthPoller.stop();
+
+            //Assert
+            verify(channel).close();
+        }
+    }
+
+    private void stubMessageCount(final String queueName, final int messageCount) throws IOException {
+        final AMQP.Queue.DeclareOk declareOk = mock(AMQP.Queue.DeclareOk.class);
+        when(declareOk.getMessageCount()).thenReturn(messageCount);
+        when(channel.queueDeclarePassive(queueName)).thenReturn(declareOk);
+    }
+
+    private double getDepth(final String queueId) {
+        return meterRegistry.get(QueueDepthPoller.DEPTH_METRIC).tag("queue", queueId).gauge().value();
+    }
+}
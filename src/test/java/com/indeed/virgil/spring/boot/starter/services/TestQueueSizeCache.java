@@ -0,0 +1,62 @@
+package com.indeed.virgil.spring.boot.starter.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestQueueSizeCache {
+
+    private static final String QUEUE_ID = "primaryQueue";
+
+    private final QueueSizeCache queueSizeCache = new QueueSizeCache();
+
+    @Test
+    void shouldReturnSizeWithinTtl() {
+        //Arrange
+        queueSizeCache.put(QUEUE_ID, 3);
+
+        //Act
+        final Integer result = queueSizeCache.get(QUEUE_ID, Duration.ofMinutes(1));
+
+        //Assert
+        assertThat(result).isEqualTo(3);
+    }
+
+    @Test
+    void shouldReturnNullOnceTtlIsUp() {
+        //Arrange
+        queueSizeCache.put(QUEUE_ID, 3);
+
+        //Act
+        final Integer result = queueSizeCache.get(QUEUE_ID, Duration.ZERO);
+
+        //Assert
+        assertThat(result).isNull();
+    }
+
+    @Test
+    void shouldIgnoreNullSize() {
+        //Arrange
+        queueSizeCache.put(QUEUE_ID, 3);
+
+        //Act
+        queueSizeCache.put(QUEUE_ID, null);
+
+        //Assert
+        assertThat(queueSizeCache.get(QUEUE_ID, Duration.ofMinutes(1))).isEqualTo(3);
+    }
+
+    @Test
+    void shouldForgetSizeOnInvalidate() {
+        //Arrange
+        queueSizeCache.put(QUEUE_ID, 3);
+
+        //Act
+        queueSizeCache.invalidate(QUEUE_ID);
+
+        //Assert
+        assertThat(queueSizeCache.get(QUEUE_ID, Duration.ofMinutes(1))).isNull();
+    }
+}
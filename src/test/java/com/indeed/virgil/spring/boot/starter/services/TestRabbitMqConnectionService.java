@@ -2,21 +2,32 @@ package com.indeed.virgil.spring.boot.starter.services;
 
 import com.indeed.virgil.spring.boot.starter.config.VirgilPropertyConfig;
 import com.indeed.virgil.spring.boot.starter.config.VirgilPropertyConfig.BinderProperties;
+import com.indeed.virgil.spring.boot.starter.models.ConnectionStats;
 import com.rabbitmq.client.Address;
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 import org.springframework.amqp.core.AmqpAdmin;
 import org.springframework.amqp.rabbit.connection.AbstractConnectionFactory;
 import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
+import org.springframework.amqp.rabbit.connection.ChannelProxy;
+import org.springframework.amqp.rabbit.connection.Connection;
+import org.springframework.amqp.rabbit.connection.RabbitUtils;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.boot.autoconfigure.amqp.RabbitProperties;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.lang.reflect.Method;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -33,13 +44,15 @@ class TestRabbitMqConnectionService {
     @Mock
     private VirgilPropertyConfig mockVirgilPropertyConfig;
 
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     private RabbitMqConnectionService rabbitMqConnectionService;
 
     @BeforeEach
     void setup() {
         MockitoAnnotations.openMocks(this);
 
-        rabbitMqConnectionService = new RabbitMqConnectionService(mockVirgilPropertyConfig);
+        rabbitMqConnectionService = new RabbitMqConnectionService(mockVirgilPropertyConfig, meterRegistry);
     }
 
     @Nested
@@ -52,9 +65,8 @@ class TestRabbitMqConnectionService {
 
             final AmqpAdmin mockAmqpAdmin = Mockito.mock(AmqpAdmin.class);
 
-            final ThreadLocal<Map<String, AmqpAdmin>> cachedLookup = new ThreadLocal<>();
-            cachedLookup.set(new HashMap<>());
-            cachedLookup.get().put(binderName, mockAmqpAdmin);
+            final Map<String, AmqpAdmin> cachedLookup = new HashMap<>();
+            cachedLookup.put(binderName, mockAmqpAdmin);
 
             ReflectionTestUtils.setField(rabbitMqConnectionService, "amqpAdminLookup", cachedLookup);
 
@@ -106,9 +118,9 @@ class TestRabbitMqConnectionService {
             rabbitMqConnectionService.getAmqpAdmin(binderName);
 
             //Assert
-            final ThreadLocal<Map<String, AmqpAdmin>> lookup = (ThreadLocal<Map<String, AmqpAdmin>>) ReflectionTestUtils.getField(rabbitMqConnectionService, "amqpAdminLookup");
+            final Map<String, AmqpAdmin> lookup = (Map<String, AmqpAdmin>) ReflectionTestUtils.getField(rabbitMqConnectionService, "amqpAdminLookup");
 
-            assertThat(lookup.get()).containsKey(binderName);
+            assertThat(lookup).containsKey(binderName);
         }
     }
 
@@ -122,9 +134,8 @@ class TestRabbitMqConnectionService {
 
             final RabbitTemplate mockRabbitTemplate = Mockito.mock(RabbitTemplate.class);
 
-            final ThreadLocal<Map<String, RabbitTemplate>> cachedLookup = new ThreadLocal<>();
-            cachedLookup.set(new HashMap<>());
-            cachedLookup.get().put(binderName, mockRabbitTemplate);
+            final Map<String, RabbitTemplate> cachedLookup = new HashMap<>();
+            cachedLookup.put(binderName, mockRabbitTemplate);
 
             ReflectionTestUtils.setField(rabbitMqConnectionService, "rabbitTemplateLookup", cachedLookup);
 
@@ -176,9 +187,9 @@ class TestRabbitMqConnectionService {
             rabbitMqConnectionService.getRabbitTemplate(binderName);
 
             //Assert
-            final ThreadLocal<Map<String, RabbitTemplate>> lookup = (ThreadLocal<Map<String, RabbitTemplate>>) ReflectionTestUtils.getField(rabbitMqConnectionService, "rabbitTemplateLookup");
+            final Map<String, RabbitTemplate> lookup = (Map<String, RabbitTemplate>) ReflectionTestUtils.getField(rabbitMqConnectionService, "rabbitTemplateLookup");
 
-            assertThat(lookup.get()).containsKey(binderName);
+            assertThat(lookup).containsKey(binderName);
         }
     }
 
@@ -192,9 +203,8 @@ class TestRabbitMqConnectionService {
 
             final CachingConnectionFactory mockCachingConnectionFactory = Mockito.mock(CachingConnectionFactory.class);
 
-            final ThreadLocal<Map<String, CachingConnectionFactory>> cachedLookup = new ThreadLocal<>();
-            cachedLookup.set(new HashMap<>());
-            cachedLookup.get().put(binderName, mockCachingConnectionFactory);
+            final Map<String, CachingConnectionFactory> cachedLookup = new HashMap<>();
+            cachedLookup.put(binderName, mockCachingConnectionFactory);
 
             ReflectionTestUtils.setField(rabbitMqConnectionService, "cachingConnectionFactoryLookup", cachedLookup);
 
@@ -271,6 +281,254 @@ class TestRabbitMqConnectionService {
     }
 
 
+    @Nested
+    class destroyConnectionsByName {
+
+        @Test
+        void shouldDestroyAndRemoveCachedConnectionFactory() {
+            //Arrange
+            final String binderName = "testBinderName";
+
+            final CachingConnectionFactory mockCachingConnectionFactory = Mockito.mock(CachingConnectionFactory.class);
+
+            final Map<String, CachingConnectionFactory> cachedLookup = new HashMap<>();
+            cachedLookup.put(binderName, mockCachingConnectionFactory);
+
+            ReflectionTestUtils.setField(rabbitMqConnectionService, "cachingConnectionFactoryLookup", cachedLookup);
+
+            //Act
+            rabbitMqConnectionService.destroyConnectionsByName(binderName);
+
+            //Assert
+            Mockito.verify(mockCachingConnectionFactory, Mockito.times(1)).destroy();
+            assertThat(cachedLookup).doesNotContainKey(binderName);
+        }
+
+        @Test
+        void shouldDestroyAndRemoveCachedPublishConnectionFactory() {
+            //Arrange
+            final String binderName = "testBinderName";
+
+            final CachingConnectionFactory mockCachingConnectionFactory = Mockito.mock(CachingConnectionFactory.class);
+
+            final Map<String, CachingConnectionFactory> cachedLookup = new HashMap<>();
+            cachedLookup.put(binderName, mockCachingConnectionFactory);
+
+            ReflectionTestUtils.setField(rabbitMqConnectionService, "publishConnectionFactoryLookup", cachedLookup);
+
+            //Act
+            rabbitMqConnectionService.destroyConnectionsByName(binderName);
+
+            //Assert
+            Mockito.verify(mockCachingConnectionFactory, Mockito.times(1)).destroy();
+            assertThat(cachedLookup).doesNotContainKey(binderName);
+        }
+
+        @Test
+        void shouldRecordFlightRecorderEvent(@TempDir final Path tempDir) throws Exception {
+            //Arrange
+            final String binderName = "testBinderName";
+            final Map<String, CachingConnectionFactory> cachedLookup = new HashMap<>();
+            cachedLookup.put(binderName, Mockito.mock(CachingConnectionFactory.class));
+            ReflectionTestUtils.setField(rabbitMqConnectionService, "cachingConnectionFactoryLookup", cachedLookup);
+
+            final Path recordingFile = tempDir.resolve("recording.jfr");
+            try (Recording recording = new Recording()) {
+                recording.enable("com.indeed.virgil.ConnectionDestroy");
+                recording.start();
+
+                //Act
+                rabbitMqConnectionService.destroyConnectionsByName(binderName);
+
+                recording.stop();
+                recording.dump(recordingFile);
+            }
+
+            //Assert
+            final List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+            assertThat(events).hasSize(1);
+            assertThat(events.get(0).getString("binderName")).isEqualTo(binderName);
+            assertThat(events.get(0).getBoolean("readDestroyed")).isTrue();
+            assertThat(events.get(0).getBoolean("publishDestroyed")).isFalse();
+        }
+
+        @Test
+        void shouldNotFailWhenNothingIsCached() {
+            //Act
+            rabbitMqConnectionService.destroyConnectionsByName("testBinderName");
+
+            //Assert
+            assertThat(rabbitMqConnectionService.getConnectionStats(RabbitMqConnectionService.ConnectionType.READ).getConnectionsCreated()).isZero();
+        }
+    }
+
+    @Nested
+    class getPublishConnectionFactory {
+
+        @Test
+        void shouldCreateConnectionFactorySeparateFromReadConnectionFactory() {
+            //Arrange
+            final String binderName = "testBinder";
+
+            final RabbitProperties rabbitProperties = new RabbitProperties();
+            rabbitProperties.setAddresses("example:1111");
+
+            when(mockVirgilPropertyConfig.getBinderProperties(anyString())).thenReturn(new BinderProperties(binderName, "rabbit", rabbitProperties));
+
+            //Act
+            final AbstractConnectionFactory result = getPublishConnectionFactory(rabbitMqConnectionService, binderName);
+
+            //Assert
+            assertThat(result).isNotNull();
+            assertThat(result).isNotSameAs(getConnectionFactory(rabbitMqConnectionService, binderName));
+            assertThat(result).isSameAs(getPublishConnectionFactory(rabbitMqConnectionService, binderName));
+        }
+
+        @Test
+        void shouldEnableSimplePublisherConfirms() {
+            //Arrange
+            final String binderName = "testBinder";
+
+            final RabbitProperties rabbitProperties = new RabbitProperties();
+            rabbitProperties.setAddresses("example:1111");
+
+            when(mockVirgilPropertyConfig.getBinderProperties(anyString())).thenReturn(new BinderProperties(binderName, "rabbit", rabbitProperties));
+
+            //Act
+            final AbstractConnectionFactory result = getPublishConnectionFactory(rabbitMqConnectionService, binderName);
+
+            //Assert
+            assertThat(result.isSimplePublisherConfirms()).isTrue();
+        }
+
+        @Test
+        void shouldReturnNullIfNoBinderProperties() {
+            //Arrange
+            when(mockVirgilPropertyConfig.getBinderProperties(anyString())).thenReturn(null);
+
+            //Act
+            final AbstractConnectionFactory result = getPublishConnectionFactory(rabbitMqConnectionService, "testBinder");
+
+            //Assert
+            assertThat(result).isNull();
+        }
+    }
+
+    @Nested
+    class releaseChannel {
+
+        @Test
+        void shouldRequirePhysicalCloseOfChannelProxy() {
+            //Arrange
+            final ChannelProxy channel = Mockito.mock(ChannelProxy.class);
+
+            //Act
+            RabbitMqConnectionService.releaseChannel(channel);
+
+            //Assert
+            assertThat(RabbitUtils.isPhysicalCloseRequired()).isTrue();
+        }
+    }
+
+    @Nested
+    class closeChannel {
+
+        @Test
+        void shouldCloseChannel() throws Exception {
+            //Arrange
+            final Channel channel = Mockito.mock(Channel.class);
+
+            //Act
+            RabbitMqConnectionService.closeChannel(channel);
+
+            //Assert
+            Mockito.verify(channel, Mockito.times(1)).close();
+        }
+
+        @Test
+        void shouldIgnoreNullChannel() {
+            //Act
+            RabbitMqConnectionService.closeChannel(null);
+        }
+    }
+
+    @Nested
+    class getConnectionStats {
+
+        @Test
+        void shouldCountEveryReadChannelCheckout() {
+            //Arrange
+            final String binderName = "testBinder";
+            final AbstractConnectionFactory connectionFactory = mockConnectionFactory();
+
+            when(mockVirgilPropertyConfig.getQueueProperties("primaryQueue"))
+                .thenReturn(new VirgilPropertyConfig.QueueProperties("primary", binderName, null, null, "#", null, null));
+            ReflectionTestUtils.setField(rabbitMqConnectionService, "cachingConnectionFactoryLookup", new HashMap<>(Map.of(binderName, connectionFactory)));
+
+            //Act
+            rabbitMqConnectionService.openReadChannel("primaryQueue");
+            rabbitMqConnectionService.openReadChannel("primaryQueue");
+
+            //Assert
+            final ConnectionStats result = rabbitMqConnectionService.getConnectionStats(RabbitMqConnectionService.ConnectionType.READ);
+            assertThat(result.getAcquisitions()).isEqualTo(2);
+            assertThat(result.getConnectionsCreated()).isZero();
+            assertThat(result.getReuseRate()).isEqualTo(1.0);
+            assertThat(rabbitMqConnectionService.getConnectionStats(RabbitMqConnectionService.ConnectionType.PUBLISH).getAcquisitions()).isZero();
+        }
+
+        @Test
+        void shouldCountPublishChannelCheckoutsApartFromReads() {
+            //Arrange
+            final String binderName = "testBinder";
+            final AbstractConnectionFactory connectionFactory = mockConnectionFactory();
+
+            when(mockVirgilPropertyConfig.getQueueProperties("primaryQueue"))
+                .thenReturn(new VirgilPropertyConfig.QueueProperties("primary", binderName, null, null, "#", null, null));
+            ReflectionTestUtils.setField(rabbitMqConnectionService, "publishConnectionFactoryLookup", new HashMap<>(Map.of(binderName, connectionFactory)));
+
+            //Act
+            rabbitMqConnectionService.openPublishChannel("primaryQueue");
+
+            //Assert
+            assertThat(rabbitMqConnectionService.getConnectionStats(RabbitMqConnectionService.ConnectionType.PUBLISH).getAcquisitions()).isEqualTo(1);
+            assertThat(rabbitMqConnectionService.getConnectionStats(RabbitMqConnectionService.ConnectionType.READ).getAcquisitions()).isZero();
+        }
+
+        @Test
+        void shouldPublishCountersAndReuseRate() {
+            //Arrange
+            final String binderName = "testBinder";
+            final AbstractConnectionFactory connectionFactory = mockConnectionFactory();
+
+            when(mockVirgilPropertyConfig.getQueueProperties("primaryQueue"))
+                .thenReturn(new VirgilPropertyConfig.QueueProperties("primary", binderName, null, null, "#", null, null));
+            ReflectionTestUtils.setField(rabbitMqConnectionService, "publishConnectionFactoryLookup", new HashMap<>(Map.of(binderName, connectionFactory)));
+
+            //Act
+            rabbitMqConnectionService.openPublishChannel("primaryQueue");
+            rabbitMqConnectionService.openPublishChannel("primaryQueue");
+
+            //Assert
+            assertThat(meterRegistry.get(RabbitMqConnectionService.ACQUISITIONS_METRIC).tag("connection.type", "publish").functionCounter().count())
+                .isEqualTo(2.0);
+            assertThat(meterRegistry.get(RabbitMqConnectionService.CREATED_METRIC).tag("connection.type", "publish").functionCounter().count())
+                .isZero();
+            assertThat(meterRegistry.get(RabbitMqConnectionService.REUSE_METRIC).tag("connection.type", "publish").gauge().value())
+                .isEqualTo(1.0);
+            assertThat(meterRegistry.get(RabbitMqConnectionService.REUSE_METRIC).tag("connection.type", "read").gauge().value())
+                .isZero();
+        }
+
+        private AbstractConnectionFactory mockConnectionFactory() {
+            final AbstractConnectionFactory connectionFactory = Mockito.mock(AbstractConnectionFactory.class);
+            final Connection connection = Mockito.mock(Connection.class);
+            when(connectionFactory.createConnection()).thenReturn(connection);
+            when(connection.createChannel(false)).thenReturn(Mockito.mock(Channel.class));
+            return connectionFactory;
+        }
+    }
+
     private static AbstractConnectionFactory getConnectionFactory(final RabbitMqConnectionService instance, final String binderName) {
         try {
             final Method method = RabbitMqConnectionService.class.getDeclaredMethod("getConnectionFactory", String.class);
@@ -285,4 +543,19 @@ class TestRabbitMqConnectionService {
 
         return null;
     }
+
+    private static AbstractConnectionFactory getPublishConnectionFactory(final RabbitMqConnectionService instance, final String binderName) {
+        try {
+            final Method method = RabbitMqConnectionService.class.getDeclaredMethod("getPublishConnectionFactory", String.class);
+
+            method.setAccessible(true);
+
+            return (AbstractConnectionFactory) method.invoke(instance, binderName);
+
+        } catch (final Exception ex) {
+            fail("getPublishConnectionFactory failed - " + ex.getMessage());
+        }
+
+        return null;
+    }
 }
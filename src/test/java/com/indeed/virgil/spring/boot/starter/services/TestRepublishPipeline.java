@@ -0,0 +1,270 @@
+package com.indeed.virgil.spring.boot.starter.services;
+
+import com.rabbitmq.client.AMQP.BasicProperties;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ConfirmListener;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.tck.TestObservationRegistry;
+import io.micrometer.observation.tck.TestObservationRegistryAssert;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.rabbit.connection.ChannelProxy;
+import org.springframework.amqp.rabbit.connection.RabbitUtils;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TestRepublishPipeline {
+
+    private static final String EXCHANGE = "exchange";
+    private static final String ROUTING_KEY = "#";
+
+    private Channel publishChannel;
+    private Channel scanChannel;
+    private final long[] nextSeqNo = {1L};
+
+    @BeforeEach
+    void setup() throws IOException {
+        publishChannel = mock(Channel.class);
+        scanChannel = mock(Channel.class);
+
+        when(publishChannel.getNextPublishSeqNo()).thenAnswer(invocation -> nextSeqNo[0]);
+        doAnswer(invocation -> nextSeqNo[0]++)
+            .when(publishChannel).basicPublish(anyString(), anyString(), anyBoolean(), any(BasicProperties.class), any(byte[].class));
+    }
+
+    @Test
+    void shouldPutPublishChannelInConfirmMode() throws Exception {
+        //Act
+        final RepublishPipeline pipeline = createPipeline(10, 1000L);
+
+        //Assert
+        verify(publishChannel, times(1)).confirmSelect();
+        verify(publishChannel, times(1)).addConfirmListener(pipeline);
+        verify(publishChannel, times(1)).addReturnListener(pipeline);
+    }
+
+    @Test
+    void shouldLeaveUnroutablePublishesUnacked() throws Exception {
+        //Arrange
+        final RepublishPipeline pipeline = createPipeline(10, 1000L);
+        publish(pipeline, 1L, "m1");
+        publish(pipeline, 2L, "m2");
+
+        final ArgumentCaptor<BasicProperties> properties = ArgumentCaptor.forClass(BasicProperties.class);
+        verify(publishChannel, times(2)).basicPublish(eq(EXCHANGE), eq(ROUTING_KEY), eq(true), properties.capture(), any(byte[].class));
+
+        //Act
+        pipeline.handleReturn(312, "NO_ROUTE", EXCHANGE, ROUTING_KEY, properties.getAllValues().get(1), new byte[0]);
+        pipeline.handleAck(2L, true);
+        final Map<String, Boolean> result = pipeline.finish();
+
+        //Assert
+        assertThat(result).containsOnly(entry("m1", true), entry("m2", false));
+        verify(scanChannel, times(1)).basicAck(1L, true);
+        verify(scanChannel, never()).basicAck(2L, false);
+        verify(scanChannel, never()).basicAck(2L, true);
+    }
+
+    @Test
+    void shouldAckConfirmedRunWithSingleMultipleAck() throws Exception {
+        //Arrange
+        final RepublishPipeline pipeline = createPipeline(10, 1000L);
+        publish(pipeline, 1L, "m1");
+        publish(pipeline, 2L, "m2");
+        publish(pipeline, 3L, "m3");
+
+        //Act
+        pipeline.handleAck(3L, true);
+        final Map<String, Boolean> result = pipeline.finish();
+
+        //Assert
+        assertThat(result).containsOnly(entry("m1", true), entry("m2", true), entry("m3", true));
+        verify(scanChannel, times(1)).basicAck(3L, true);
+        verify(scanChannel, times(1)).basicAck(anyLong(), anyBoolean());
+    }
+
+    @Test
+    void shouldNotCoverSkippedDeliveryWithMultipleAck() throws Exception {
+        //Arrange
+        final RepublishPipeline pipeline = createPipeline(10, 1000L);
+        publish(pipeline, 1L, "m1");
+        pipeline.skip(2L);
+        publish(pipeline, 3L, "m3");
+
+        //Act
+        pipeline.handleAck(2L, true);
+        pipeline.finish();
+
+        //Assert
+        verify(scanChannel, times(1)).basicAck(1L, true);
+        verify(scanChannel, times(1)).basicAck(3L, false);
+        verify(scanChannel, never()).basicAck(3L, true);
+    }
+
+    @Test
+    void shouldLeaveNackedDeliveriesUnacked() throws Exception {
+        //Arrange
+        final RepublishPipeline pipeline = createPipeline(10, 1000L);
+        publish(pipeline, 1L, "m1");
+        publish(pipeline, 2L, "m2");
+
+        //Act
+        pipeline.handleAck(1L, false);
+        pipeline.handleNack(2L, false);
+        final Map<String, Boolean> result = pipeline.finish();
+
+        //Assert
+        assertThat(result).containsOnly(entry("m1", true), entry("m2", false));
+        verify(scanChannel, times(1)).basicAck(1L, true);
+        verify(scanChannel, never()).basicAck(2L, false);
+        verify(scanChannel, never()).basicAck(2L, true);
+    }
+
+    @Test
+    void shouldGiveUpOnPublishesThatAreNeverConfirmed() throws Exception {
+        //Arrange
+        final RepublishPipeline pipeline = createPipeline(10, 10L);
+        publish(pipeline, 1L, "m1");
+
+        //Act
+        final Map<String, Boolean> result = pipeline.finish();
+
+        //Assert
+        assertThat(result).containsOnly(entry("m1", false));
+        verify(scanChannel, never()).basicAck(anyLong(), anyBoolean());
+    }
+
+    @Test
+    void shouldWaitForRoomInWindowBeforePublishing() throws Exception {
+        //Arrange
+        final RepublishPipeline pipeline = createPipeline(1, 10L);
+        publish(pipeline, 1L, "m1");
+
+        //Act
+        publish(pipeline, 2L, "m2");
+
+        //Assert
+        final Map<String, Boolean> result = pipeline.finish();
+        assertThat(result).containsEntry("m1", false);
+        verify(publishChannel, times(2)).basicPublish(anyString(), anyString(), anyBoolean(), any(BasicProperties.class), any(byte[].class));
+    }
+
+    @Test
+    void shouldIgnoreConfirmsAfterTimeout() throws Exception {
+        //Arrange
+        final RepublishPipeline pipeline = createPipeline(10, 10L);
+        publish(pipeline, 1L, "m1");
+        pipeline.finish();
+
+        //Act
+        pipeline.handleAck(1L, false);
+        final Map<String, Boolean> result = pipeline.finish();
+
+        //Assert
+        assertThat(result).containsOnly(entry("m1", false));
+        verify(scanChannel, never()).basicAck(anyLong(), anyBoolean());
+    }
+
+    @Test
+    void shouldRemoveListenerAndCloseChannelOnClose() throws Exception {
+        //Arrange
+        final RepublishPipeline pipeline = createPipeline(10, 1000L);
+
+        //Act
+        pipeline.close();
+
+        //Assert
+        verify(publishChannel, times(1)).removeConfirmListener(pipeline);
+        verify(publishChannel, times(1)).removeReturnListener(pipeline);
+        verify(publishChannel, times(1)).close();
+    }
+
+    @Test
+    void shouldReturnChannelToPoolOnClose() throws Exception {
+        //Arrange
+        final ChannelProxy pooledChannel = mock(ChannelProxy.class);
+        final RepublishPipeline pipeline = new RepublishPipeline(pooledChannel, scanChannel, 10, 1000L);
+
+        //Act
+        pipeline.close();
+
+        //Assert
+        verify(pooledChannel, times(1)).close();
+        assertThat(RabbitUtils.isPhysicalCloseRequired()).isFalse();
+    }
+
+    @Test
+    void shouldPhysicallyCloseChannelOnCloseAfterTimeout() throws Exception {
+        //Arrange
+        final ChannelProxy pooledChannel = mock(ChannelProxy.class);
+        when(pooledChannel.getNextPublishSeqNo()).thenReturn(1L);
+        final RepublishPipeline pipeline = new RepublishPipeline(pooledChannel, scanChannel, 10, 10L);
+        pipeline.publish(1L, "m1", EXCHANGE, ROUTING_KEY, new BasicProperties(), new byte[0]);
+        pipeline.finish();
+
+        //Act
+        pipeline.close();
+
+        //Assert
+        verify(pooledChannel, times(1)).close();
+        assertThat(RabbitUtils.isPhysicalCloseRequired()).isTrue();
+    }
+
+    @Test
+    void shouldObservePublishesAndConfirmWaitWithinOperation() throws Exception {
+        //Arrange
+        final TestObservationRegistry observationRegistry = TestObservationRegistry.create();
+        final OperationMetrics operationMetrics = new OperationMetrics(new SimpleMeterRegistry(), observationRegistry);
+        final RepublishPipeline pipeline = createPipeline(10, 1000L);
+
+        //Act
+        operationMetrics.record("republish", "primaryQueue", "rabbit", () -> {
+            try {
+                publish(pipeline, 1L, "m1");
+                pipeline.handleAck(1L, false);
+                return pipeline.finish();
+            } catch (final Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+
+        //Assert
+        TestObservationRegistryAssert.assertThat(observationRegistry)
+            .hasObservationWithNameEqualTo(OperationMetrics.REPUBLISH_OBSERVATION)
+            .that()
+            .hasLowCardinalityKeyValue("exchange", EXCHANGE)
+            .hasLowCardinalityKeyValue("queue", "primaryQueue")
+            .hasHighCardinalityKeyValue("message.id", "m1")
+            .hasBeenStopped();
+        TestObservationRegistryAssert.assertThat(observationRegistry)
+            .hasObservationWithNameEqualTo(OperationMetrics.CONFIRM_OBSERVATION)
+            .that()
+            .hasBeenStopped();
+    }
+
+    private RepublishPipeline createPipeline(final int window, final long confirmTimeoutMs) throws IOException {
+        final RepublishPipeline pipeline = new RepublishPipeline(publishChannel, scanChannel, window, confirmTimeoutMs);
+        verify(publishChannel).addConfirmListener(any(ConfirmListener.class));
+        return pipeline;
+    }
+
+    private static void publish(final RepublishPipeline pipeline, final long deliveryTag, final String messageId) throws Exception {
+        pipeline.publish(deliveryTag, messageId, EXCHANGE, ROUTING_KEY, new BasicProperties(), new byte[0]);
+    }
+}
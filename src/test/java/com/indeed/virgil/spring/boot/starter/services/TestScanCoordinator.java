@@ -0,0 +1,200 @@
+package com.indeed.virgil.spring.boot.starter.services;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TestScanCoordinator {
+
+    private static final String QUEUE_ID = "primaryQueue";
+    private static final Duration WAIT_TIMEOUT = Duration.ofSeconds(5);
+
+    private final ScanCoordinator scanCoordinator = new ScanCoordinator();
+
+    @Nested
+    class coalesce {
+
+        @Test
+        void shouldShareResultOfIdenticalConcurrentReads() throws Exception {
+            //Arrange
+            final AtomicInteger reads = new AtomicInteger();
+            final CountDownLatch started = new CountDownLatch(1);
+            final CountDownLatch release = new CountDownLatch(1);
+            final AtomicReference<Thread> follower = new AtomicReference<>();
+            final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+            try {
+                //Act
+                final CompletableFuture<Object> first = CompletableFuture.supplyAsync(() -> scanCoordinator.coalesce("key", () -> {
+                    reads.incrementAndGet();
+                    started.countDown();
+                    awaitLatch(release);
+                    return new Object();
+                }), executor);
+                started.await(5, TimeUnit.SECONDS);
+
+                final CompletableFuture<Object> second = CompletableFuture.supplyAsync(() -> {
+                    follower.set(Thread.currentThread());
+                    return scanCoordinator.coalesce("key", () -> {
+                        reads.incrementAndGet();
+                        return new Object();
+                    });
+                }, executor);
+                awaitWaiting(follower);
+                release.countDown();
+
+                //Assert
+                assertThat(second.get(5, TimeUnit.SECONDS)).isSameAs(first.get(5, TimeUnit.SECONDS));
+                assertThat(reads.get()).isEqualTo(1);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        @Test
+        void shouldFailEveryWaiterWhenReadThrows() throws Exception {
+            //Arrange
+            final CountDownLatch started = new CountDownLatch(1);
+            final CountDownLatch release = new CountDownLatch(1);
+            final AtomicReference<Thread> follower = new AtomicReference<>();
+            final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+            try {
+                //Act
+                final CompletableFuture<Object> first = CompletableFuture.supplyAsync(() -> scanCoordinator.coalesce("key", () -> {
+                    started.countDown();
+                    awaitLatch(release);
+                    throw new IllegalStateException("broker is gone");
+                }), executor);
+                started.await(5, TimeUnit.SECONDS);
+
+                final CompletableFuture<Object> second = CompletableFuture.supplyAsync(() -> {
+                    follower.set(Thread.currentThread());
+                    return scanCoordinator.coalesce("key", Object::new);
+                }, executor);
+                awaitWaiting(follower);
+                release.countDown();
+
+                //Assert
+                assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+                assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        @Test
+        void shouldReadAgainOnceThePreviousReadIsOver() {
+            //Arrange
+            final AtomicInteger reads = new AtomicInteger();
+
+            //Act
+            scanCoordinator.coalesce("key", reads::incrementAndGet);
+            scanCoordinator.coalesce("key", reads::incrementAndGet);
+            scanCoordinator.coalesce("other", reads::incrementAndGet);
+
+            //Assert
+            assertThat(reads.get()).isEqualTo(3);
+        }
+    }
+
+    @Nested
+    class lease {
+
+        @Test
+        void shouldWaitForLeaseOfSameQueue() throws Exception {
+            //Arrange
+            final AtomicReference<Thread> waiter = new AtomicReference<>();
+            final AtomicInteger acquired = new AtomicInteger();
+            final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+            try {
+                final ScanCoordinator.Lease lease = scanCoordinator.lease(QUEUE_ID, WAIT_TIMEOUT);
+
+                //Act
+                final CompletableFuture<Void> second = CompletableFuture.runAsync(() -> {
+                    waiter.set(Thread.currentThread());
+                    try (ScanCoordinator.Lease secondLease = scanCoordinator.lease(QUEUE_ID, WAIT_TIMEOUT)) {
+                        acquired.incrementAndGet();
+                    }
+                }, executor);
+                awaitWaiting(waiter);
+
+                //Assert
+                assertThat(acquired.get()).isZero();
+                lease.close();
+                second.get(5, TimeUnit.SECONDS);
+                assertThat(acquired.get()).isEqualTo(1);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        @Test
+        void shouldNotWaitForLeaseOfOtherQueue() throws Exception {
+            //Arrange
+            final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+            try (ScanCoordinator.Lease lease = scanCoordinator.lease(QUEUE_ID, WAIT_TIMEOUT)) {
+                //Act
+                final CompletableFuture<Void> other =
+                    CompletableFuture.runAsync(() -> scanCoordinator.lease("otherQueue", WAIT_TIMEOUT).close(), executor);
+
+                //Assert
+                other.get(5, TimeUnit.SECONDS);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        @Test
+        void shouldThrowBusyOnceWaitTimeoutIsUp() throws Exception {
+            //Arrange
+            final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+            try (ScanCoordinator.Lease lease = scanCoordinator.lease(QUEUE_ID, WAIT_TIMEOUT)) {
+                //Act
+                final CompletableFuture<Void> second =
+                    CompletableFuture.runAsync(() -> scanCoordinator.lease(QUEUE_ID, Duration.ofMillis(10)).close(), executor);
+
+                //Assert
+                assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(QueueBusyException.class);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    private static void awaitLatch(final CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits until the thread is parked, which is where it ends up once it is blocked on the running read or the lease
+     */
+    private static void awaitWaiting(final AtomicReference<Thread> thread) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            final Thread current = thread.get();
+            if (current != null && (current.getState() == Thread.State.WAITING || current.getState() == Thread.State.TIMED_WAITING)) {
+                return;
+            }
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.indeed.virgil.spring.boot.starter.utils;
+
+import com.indeed.virgil.spring.boot.starter.util.BodyPreviewDecoder;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BodyPreviewDecoderTest {
+
+    private static final String LONG_BODY = "h\u00e9llo w\u00f6rld \uD83D\uDE00 ".repeat(10_000);
+
+    @Nested
+    class decode {
+
+        @Test
+        void shouldStopAtPreviewLength() {
+            //Act
+            final String result = BodyPreviewDecoder.decode(ByteBuffer.wrap(LONG_BODY.getBytes(UTF_8)), null, 256);
+
+            //Assert
+            assertThat(result).isEqualTo(LONG_BODY.substring(0, 256));
+        }
+
+        @Test
+        void shouldNotSplitMultiByteCharacters() {
+            //Arrange
+            final byte[] body = "\uD83D\uDE00x".getBytes(UTF_8);
+
+            //Act
+            final String result = BodyPreviewDecoder.decode(ByteBuffer.wrap(body), null, 1);
+
+            //Assert
+            assertThat(result).isEmpty();
+        }
+
+        @Test
+        void shouldReplaceMalformedInput() {
+            //Act
+            final String result = BodyPreviewDecoder.decode(ByteBuffer.wrap(new byte[]{(byte) 0xff, 'a'}), null, 256);
+
+            //Assert
+            assertThat(result).isEqualTo("\uFFFDa");
+        }
+
+        @Test
+        void shouldLeaveBodyPositionUntouched() throws IOException {
+            //Arrange
+            final ByteBuffer body = ByteBuffer.wrap(gzip(LONG_BODY.getBytes(UTF_8)));
+
+            //Act
+            BodyPreviewDecoder.decode(body, "gzip", 10);
+
+            //Assert
+            assertThat(body.position()).isEqualTo(0);
+        }
+
+        @Test
+        void shouldInflateGzip() throws IOException {
+            //Act
+            final String result = BodyPreviewDecoder.decode(ByteBuffer.wrap(gzip(LONG_BODY.getBytes(UTF_8))), "GZIP", 256);
+
+            //Assert
+            assertThat(result).isEqualTo(LONG_BODY.substring(0, 256));
+        }
+
+        @Test
+        void shouldInflateZlibDeflate() throws IOException {
+            //Arrange
+            final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            write(new DeflaterOutputStream(compressed), LONG_BODY.getBytes(UTF_8));
+
+            //Act
+            final String result = BodyPreviewDecoder.decode(ByteBuffer.wrap(compressed.toByteArray()), "deflate", 256);
+
+            //Assert
+            assertThat(result).isEqualTo(LONG_BODY.substring(0, 256));
+        }
+
+        @Test
+        void shouldInflateRawDeflate() throws IOException {
+            //Arrange
+            final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            write(new DeflaterOutputStream(compressed, new Deflater(Deflater.DEFAULT_COMPRESSION, true)), LONG_BODY.getBytes(UTF_8));
+
+            //Act
+            final String result = BodyPreviewDecoder.decode(ByteBuffer.wrap(compressed.toByteArray()), "deflate", 256);
+
+            //Assert
+            assertThat(result).isEqualTo(LONG_BODY.substring(0, 256));
+        }
+
+        @Test
+        void shouldPreviewTruncatedGzipUpToWhereItStops() throws IOException {
+            //Arrange
+            final byte[] compressed = gzip("hello world".getBytes(UTF_8));
+            //drop the trailer and the end of the stream
+            final byte[] truncated = Arrays.copyOf(compressed, compressed.length - 8);
+
+            //Act
+            final String result = BodyPreviewDecoder.decode(ByteBuffer.wrap(truncated), "gzip", 256);
+
+            //Assert
+            assertThat("hello world").startsWith(result);
+        }
+
+        @Test
+        void shouldPreviewAsIsWhenNotCompressed() {
+            //Act
+            final String result = BodyPreviewDecoder.decode(ByteBuffer.wrap("hello world".getBytes(UTF_8)), "gzip", 256);
+
+            //Assert
+            assertThat(result).isEqualTo("hello world");
+        }
+
+        @Test
+        void shouldIgnoreUnknownEncoding() {
+            //Act
+            final String result = BodyPreviewDecoder.decode(ByteBuffer.wrap("hello world".getBytes(UTF_8)), "br", 5);
+
+            //Assert
+            assertThat(result).isEqualTo("hello");
+        }
+    }
+
+    private static byte[] gzip(final byte[] body) throws IOException {
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        write(new GZIPOutputStream(compressed), body);
+        return compressed.toByteArray();
+    }
+
+    private static void write(final OutputStream outputStream, final byte[] body) throws IOException {
+        try (outputStream) {
+            outputStream.write(body);
+        }
+    }
+}
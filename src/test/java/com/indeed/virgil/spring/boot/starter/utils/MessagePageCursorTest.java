@@ -0,0 +1,52 @@
+package com.indeed.virgil.spring.boot.starter.utils;
+
+import com.indeed.virgil.spring.boot.starter.util.MessagePageCursor;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MessagePageCursorTest {
+
+    @Nested
+    class decode {
+
+        @Test
+        void shouldRoundTrip() {
+            //Arrange
+            final MessagePageCursor cursor = new MessagePageCursor(250, "i_some:id");
+
+            //Act
+            final MessagePageCursor result = MessagePageCursor.decode(cursor.encode());
+
+            //Assert
+            assertThat(result).isEqualTo(cursor);
+        }
+
+        @Test
+        void shouldReturnNullWhenNotBase64() {
+            assertThat(MessagePageCursor.decode("not a cursor!")).isNull();
+        }
+
+        @Test
+        void shouldReturnNullWhenVersionIsUnknown() {
+            //Arrange
+            final String cursor = Base64.getUrlEncoder().encodeToString("2:10:i_1".getBytes(UTF_8));
+
+            //Assert
+            assertThat(MessagePageCursor.decode(cursor)).isNull();
+        }
+
+        @Test
+        void shouldReturnNullWhenOffsetIsNegative() {
+            //Arrange
+            final String cursor = Base64.getUrlEncoder().encodeToString("1:-1:i_1".getBytes(UTF_8));
+
+            //Assert
+            assertThat(MessagePageCursor.decode(cursor)).isNull();
+        }
+    }
+}
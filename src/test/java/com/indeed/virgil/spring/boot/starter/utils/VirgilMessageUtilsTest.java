@@ -1,5 +1,7 @@
 package com.indeed.virgil.spring.boot.starter.utils;
 
+import com.indeed.virgil.spring.boot.starter.util.FingerprintAlgorithm;
+import com.indeed.virgil.spring.boot.starter.util.FingerprintEncoding;
 import com.indeed.virgil.spring.boot.starter.util.VirgilMessageUtils;
 import com.rabbitmq.client.LongString;
 import com.rabbitmq.client.impl.LongStringHelper;
@@ -9,6 +11,16 @@ import org.junit.jupiter.api.Test;
 import org.springframework.amqp.core.Message;
 import org.springframework.amqp.core.MessageProperties;
 
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 class VirgilMessageUtilsTest {
@@ -99,5 +111,236 @@ class VirgilMessageUtilsTest {
             assertThat(result2).isEqualTo("6fb4d910a8c82397e1892a142ab5ffb1");
             assertThat(result1).isEqualTo(result2);
         }
+
+        @Test
+        void shouldKeepFingerprintWhenRepublishedMessageIsDeadLetteredAgain() {
+            //Arrange
+            final byte[] body = "{ \"uniqueId\": 55 }".getBytes();
+            final LongString item = LongStringHelper.asLongString("");
+
+            final MessageProperties republishedProperties = new MessageProperties();
+            republishedProperties.setHeader("trackingCode", "AF190B");
+            republishedProperties.setHeader("item", item);
+            republishedProperties.setHeader(VirgilMessageUtils.PUBLISH_SEQ_NO_HEADER, 7L);
+
+            //Act
+            final String result = virgilMessageUtils.generateFingerprint(new Message(body, republishedProperties));
+
+            //Assert
+            assertThat(result).isEqualTo("6fb4d910a8c82397e1892a142ab5ffb1");
+        }
+
+        @Test
+        void shouldMatchLegacyFingerprintForNestedHeaders() {
+            //Arrange
+            final Map<String, Object> death = new HashMap<>();
+            death.put("count", 2L);
+            death.put("queue", LongStringHelper.asLongString("orders"));
+            death.put("reason", LongStringHelper.asLongString("rejected"));
+
+            final MessageProperties messageProperties = new MessageProperties();
+            messageProperties.setHeader("x-death", new ArrayList<>(List.of(death)));
+            messageProperties.setHeader("x-exception-message", LongStringHelper.asLongString("failed to parse"));
+
+            final Message msg = new Message("{ \"uniqueId\": 55 }".getBytes(), messageProperties);
+
+            //Act
+            final String result = virgilMessageUtils.generateFingerprint(msg);
+
+            //Assert
+            assertThat(result).isEqualTo("f5d2592ecddd942da2acb444c540802a");
+        }
+
+        @Test
+        void shouldReturnSameFingerprintOnEveryThread() throws Exception {
+            //Arrange
+            final MessageProperties messageProperties = new MessageProperties();
+            messageProperties.setHeader("uniqueKey", "1");
+            final Message msg = new Message("".getBytes(), messageProperties);
+
+            final ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+            //Act
+            final List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                results.add(executorService.submit(() -> virgilMessageUtils.generateFingerprint(msg)));
+            }
+
+            //Assert
+            for (final Future<String> result : results) {
+                assertThat(result.get()).isEqualTo("3e1bc27b4db8f518e7ebbb2da9912ec5");
+            }
+            executorService.shutdown();
+        }
+    }
+
+    @Nested
+    class generateFingerprintWithMurmur3 {
+
+        @BeforeEach
+        void setup() {
+            virgilMessageUtils = new VirgilMessageUtils(FingerprintAlgorithm.MURMUR3_128);
+        }
+
+        @Test
+        void shouldReturnFingerprint() {
+            //Arrange
+            final MessageProperties messageProperties = new MessageProperties();
+            messageProperties.setHeader("uniqueKey", "1");
+            final Message msg = new Message("".getBytes(), messageProperties);
+
+            //Act
+            final String result = virgilMessageUtils.generateFingerprint(msg);
+
+            //Assert
+            assertThat(result).isEqualTo("41704ba6801904f9522734a29a2e9e7e");
+        }
+
+        @Test
+        void shouldMatchReferenceHashOfBody() {
+            //Arrange
+            final Message msg = new Message("hello".getBytes(), null);
+
+            //Act
+            final String result = virgilMessageUtils.generateFingerprint(msg);
+
+            //Assert
+            assertThat(result).isEqualTo("029bbd41b3a7d8cb191dae486a901e5b");
+        }
+
+        @Test
+        void shouldReturnValidFingerprintWhenMessageIsNull() {
+            //Act
+            final String result = virgilMessageUtils.generateFingerprint(null);
+
+            //Assert
+            assertThat(result).isEqualTo("00000000000000000000000000000000");
+        }
+    }
+
+    @Nested
+    class generateFingerprintWithCanonicalEncoding {
+
+        @BeforeEach
+        void setup() {
+            virgilMessageUtils = new VirgilMessageUtils(FingerprintAlgorithm.MD5, FingerprintEncoding.V2);
+        }
+
+        @Test
+        void shouldReturnPinnedFingerprintForNestedHeaders() {
+            //Arrange
+            final Map<String, Object> death = new HashMap<>();
+            death.put("count", 2L);
+            death.put("queue", LongStringHelper.asLongString("orders"));
+            death.put("reason", LongStringHelper.asLongString("rejected"));
+            death.put("time", new Date(1700000000000L));
+
+            final MessageProperties messageProperties = new MessageProperties();
+            messageProperties.setHeader("x-death", new ArrayList<>(List.of(death)));
+            messageProperties.setHeader("x-exception-message", LongStringHelper.asLongString("failed to parse"));
+
+            final Message msg = new Message("{ \"uniqueId\": 55 }".getBytes(), messageProperties);
+
+            //Act
+            final String result = virgilMessageUtils.generateFingerprint(msg);
+
+            //Assert
+            assertThat(result).isEqualTo("abd6e5139ae8a0084871da9411406184");
+        }
+
+        @Test
+        void shouldIgnoreHeaderOrder() {
+            //Arrange
+            final Map<String, Object> table1 = new LinkedHashMap<>();
+            table1.put("b", "2");
+            table1.put("a", "1");
+
+            final Map<String, Object> table2 = new LinkedHashMap<>();
+            table2.put("a", "1");
+            table2.put("b", "2");
+
+            final MessageProperties messageProperties1 = new MessageProperties();
+            messageProperties1.setHeader("table", table1);
+
+            final MessageProperties messageProperties2 = new MessageProperties();
+            messageProperties2.setHeader("table", table2);
+
+            //Act
+            final String result1 = virgilMessageUtils.generateFingerprint(new Message("x".getBytes(), messageProperties1));
+            final String result2 = virgilMessageUtils.generateFingerprint(new Message("x".getBytes(), messageProperties2));
+
+            //Assert
+            assertThat(result1).isEqualTo(result2);
+        }
+
+        @Test
+        void shouldEncodeStringAndLongStringHeadersAlike() {
+            //Arrange
+            final MessageProperties messageProperties1 = new MessageProperties();
+            messageProperties1.setHeader("trackingCode", "AF190B");
+            messageProperties1.setHeader("attempt", 1);
+
+            final MessageProperties messageProperties2 = new MessageProperties();
+            messageProperties2.setHeader("trackingCode", LongStringHelper.asLongString("AF190B"));
+            messageProperties2.setHeader("attempt", 1L);
+
+            //Act
+            final String result1 = virgilMessageUtils.generateFingerprint(new Message("x".getBytes(), messageProperties1));
+            final String result2 = virgilMessageUtils.generateFingerprint(new Message("x".getBytes(), messageProperties2));
+
+            //Assert
+            assertThat(result1).isEqualTo(result2);
+        }
+
+        @Test
+        void shouldNotChangeWhenMessageIsRedelivered() {
+            //Arrange
+            final MessageProperties messageProperties1 = new MessageProperties();
+            messageProperties1.setRedelivered(false);
+            messageProperties1.setDeliveryTag(1L);
+
+            final MessageProperties messageProperties2 = new MessageProperties();
+            messageProperties2.setRedelivered(true);
+            messageProperties2.setDeliveryTag(2L);
+
+            //Act
+            final String result1 = virgilMessageUtils.generateFingerprint(new Message("x".getBytes(), messageProperties1));
+            final String result2 = virgilMessageUtils.generateFingerprint(new Message("x".getBytes(), messageProperties2));
+
+            //Assert
+            assertThat(result1).isEqualTo(result2);
+        }
+
+        @Test
+        void shouldKeepFingerprintWhenRepublishedMessageIsDeadLetteredAgain() {
+            //Arrange
+            final MessageProperties originalProperties = new MessageProperties();
+            originalProperties.setHeader("trackingCode", "AF190B");
+
+            final MessageProperties republishedProperties = new MessageProperties();
+            republishedProperties.setHeader("trackingCode", "AF190B");
+            republishedProperties.setHeader(VirgilMessageUtils.PUBLISH_SEQ_NO_HEADER, 7L);
+
+            //Act
+            final String result1 = virgilMessageUtils.generateFingerprint(new Message("x".getBytes(), originalProperties));
+            final String result2 = virgilMessageUtils.generateFingerprint(new Message("x".getBytes(), republishedProperties));
+
+            //Assert
+            assertThat(result1).isEqualTo(result2);
+        }
+
+        @Test
+        void shouldDifferFromLegacyEncoding() {
+            //Arrange
+            final MessageProperties messageProperties = new MessageProperties();
+            messageProperties.setHeader("uniqueKey", "1");
+            final Message msg = new Message("".getBytes(), messageProperties);
+
+            //Act
+            final String result = virgilMessageUtils.generateFingerprint(msg);
+
+            //Assert
+            assertThat(result).isNotEqualTo("3e1bc27b4db8f518e7ebbb2da9912ec5");
+        }
     }
 }